@@ -0,0 +1,49 @@
+package com.medical.exam.admission;
+
+import com.medical.exam.common.result.Result;
+import lombok.Getter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 准入结果：放行（持有 Permit）或排队（排队号、位置与预计等待时间）
+ */
+@Getter
+public class Admission {
+
+    // 排队中返回码，客户端据此携带排队号轮询
+    public static final int QUEUED_CODE = 202;
+
+    private final AdmissionQueue.Permit permit;
+    private final String ticket;
+    private final int position;
+    private final long estimatedWaitMillis;
+
+    private Admission(AdmissionQueue.Permit permit, String ticket, int position, long estimatedWaitMillis) {
+        this.permit = permit;
+        this.ticket = ticket;
+        this.position = position;
+        this.estimatedWaitMillis = estimatedWaitMillis;
+    }
+
+    static Admission admitted(AdmissionQueue.Permit permit) {
+        return new Admission(permit, null, 0, 0);
+    }
+
+    static Admission queued(String ticket, int position, long estimatedWaitMillis) {
+        return new Admission(null, ticket, position, estimatedWaitMillis);
+    }
+
+    public boolean isAdmitted() {
+        return permit != null;
+    }
+
+    public Result<Map<String, Object>> toQueuedResult() {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("ticket", ticket);
+        data.put("position", position);
+        data.put("estimatedWaitMs", estimatedWaitMillis);
+        return new Result<>(QUEUED_CODE, "当前参加考试人数较多，正在排队", data);
+    }
+}
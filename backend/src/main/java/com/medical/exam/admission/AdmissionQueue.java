@@ -0,0 +1,185 @@
+package com.medical.exam.admission;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 开考准入队列
+ * 考试开放瞬间大量考生同时开考、拉取试卷，直接打到数据库会耗尽连接池；
+ * 这里限制同时进行的数据库操作数，其余请求按到达顺序（FIFO）领取排队号，
+ * 客户端按返回的预计等待时间携带排队号轮询，轮到队首且有空闲名额时才放行
+ */
+@Component
+public class AdmissionQueue {
+
+    // 平滑系数：新样本在平均值中的权重
+    private static final double EWMA_ALPHA = 0.2;
+
+    // 同时放行的最大请求数
+    @Value("${exam.admission.max-concurrent:6}")
+    private int maxConcurrent;
+
+    // 排队号超过该时间未轮询视为放弃（毫秒）
+    @Value("${exam.admission.ticket-ttl-millis:15000}")
+    private long ticketTtlMillis;
+
+    // 是否启用准入控制
+    @Value("${exam.admission.enabled:true}")
+    private boolean enabled;
+
+    private final AtomicLong ticketSequence = new AtomicLong();
+
+    // 排队中的请求，按领号顺序排列
+    private final LinkedHashMap<String, Ticket> waiting = new LinkedHashMap<>();
+
+    private int inFlight;
+
+    // 统计指标（均在 synchronized 中更新）
+    private long admittedTotal;
+    private long queuedTotal;
+    private long expiredTotal;
+    private double avgServiceMillis = 200;
+    private double avgWaitMillis;
+    private long maxWaitMillis;
+
+    /**
+     * 申请放行
+     *
+     * @param userId   当前用户
+     * @param ticketId 之前领取的排队号，首次请求为空
+     */
+    public synchronized Admission tryAcquire(String userId, String ticketId) {
+        if (!enabled) {
+            inFlight++;
+            return Admission.admitted(new Permit(this, System.currentTimeMillis()));
+        }
+        long now = System.currentTimeMillis();
+        expire(now);
+
+        Ticket ticket = ticketId != null ? waiting.get(ticketId) : null;
+        if (ticket != null && !ticket.userId.equals(userId)) {
+            ticket = null;
+        }
+
+        if (ticket == null) {
+            // 没有人排队时直接放行，否则排到队尾，保证先到先得
+            if (waiting.isEmpty() && inFlight < maxConcurrent) {
+                return admit(now, 0);
+            }
+            ticket = new Ticket(String.valueOf(ticketSequence.incrementAndGet()), userId, now);
+            waiting.put(ticket.id, ticket);
+            queuedTotal++;
+        }
+        ticket.lastPoll = now;
+
+        int position = positionOf(ticket);
+        if (position < maxConcurrent - inFlight) {
+            waiting.remove(ticket.id);
+            return admit(now, now - ticket.issuedAt);
+        }
+        return Admission.queued(ticket.id, position + 1, estimateWait(position));
+    }
+
+    public synchronized Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("maxConcurrent", maxConcurrent);
+        metrics.put("inFlight", inFlight);
+        metrics.put("queueDepth", waiting.size());
+        metrics.put("admittedTotal", admittedTotal);
+        metrics.put("queuedTotal", queuedTotal);
+        metrics.put("expiredTotal", expiredTotal);
+        metrics.put("avgServiceMillis", Math.round(avgServiceMillis));
+        metrics.put("avgWaitMillis", Math.round(avgWaitMillis));
+        metrics.put("maxWaitMillis", maxWaitMillis);
+        metrics.put("estimatedWaitMillis", estimateWait(waiting.size()));
+        return metrics;
+    }
+
+    @Scheduled(fixedDelay = 5000)
+    public synchronized void expireAbandonedTickets() {
+        expire(System.currentTimeMillis());
+    }
+
+    synchronized void release(long admittedAt) {
+        inFlight--;
+        long serviceMillis = System.currentTimeMillis() - admittedAt;
+        avgServiceMillis += EWMA_ALPHA * (serviceMillis - avgServiceMillis);
+    }
+
+    private Admission admit(long now, long waitMillis) {
+        inFlight++;
+        admittedTotal++;
+        if (waitMillis > 0) {
+            avgWaitMillis += EWMA_ALPHA * (waitMillis - avgWaitMillis);
+            maxWaitMillis = Math.max(maxWaitMillis, waitMillis);
+        }
+        return Admission.admitted(new Permit(this, now));
+    }
+
+    private int positionOf(Ticket ticket) {
+        int position = 0;
+        for (String id : waiting.keySet()) {
+            if (id.equals(ticket.id)) {
+                return position;
+            }
+            position++;
+        }
+        return position;
+    }
+
+    // 前面有 position 个请求，每批放行 maxConcurrent 个，每批耗时约为平均处理时间
+    private long estimateWait(int position) {
+        return (long) Math.ceil((position + 1) / (double) maxConcurrent * avgServiceMillis);
+    }
+
+    private void expire(long now) {
+        Iterator<Ticket> iterator = waiting.values().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next().lastPoll > ticketTtlMillis) {
+                iterator.remove();
+                expiredTotal++;
+            }
+        }
+    }
+
+    private static class Ticket {
+        private final String id;
+        private final String userId;
+        private final long issuedAt;
+        private long lastPoll;
+
+        private Ticket(String id, String userId, long issuedAt) {
+            this.id = id;
+            this.userId = userId;
+            this.issuedAt = issuedAt;
+            this.lastPoll = issuedAt;
+        }
+    }
+
+    /**
+     * 放行凭证，数据库操作完成后必须关闭以归还名额
+     */
+    public static class Permit implements AutoCloseable {
+        private final AdmissionQueue queue;
+        private final long admittedAt;
+        private boolean closed;
+
+        private Permit(AdmissionQueue queue, long admittedAt) {
+            this.queue = queue;
+            this.admittedAt = admittedAt;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                queue.release(admittedAt);
+            }
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.medical.exam.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medical.exam.entity.SysLog;
+import com.medical.exam.mapper.SysLogMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 操作日志异步批量写入
+ * 业务线程只把日志放入无锁环形缓冲区即返回，处于事务中时在事务提交后才放入（回滚的操作不记录）；
+ * 单个写线程按条数或时间批量多行插入 sys_log。
+ * 缓冲区满时按 exam.syslog.overflow 处理：drop 丢弃并计数；spill 追加到本地文件，写线程空闲时补写入库。
+ * 关闭时写完缓冲区中剩余的日志
+ */
+@Component
+@Slf4j
+public class SysLogWriter {
+
+    private static final String SPILL_FILE = "sys_log.spill";
+
+    @Resource
+    private SysLogMapper sysLogMapper;
+
+    @Resource
+    private ObjectMapper objectMapper;
+
+    @Value("${exam.syslog.capacity:8192}")
+    private int capacity;
+
+    // 单次批量插入的最大条数
+    @Value("${exam.syslog.batch-size:200}")
+    private int batchSize;
+
+    // 不足一批时的最长等待时间（毫秒）
+    @Value("${exam.syslog.flush-interval-millis:500}")
+    private long flushIntervalMillis;
+
+    // 缓冲区满时的处理方式：drop 丢弃；spill 写入本地文件
+    @Value("${exam.syslog.overflow:spill}")
+    private String overflow;
+
+    @Value("${exam.syslog.spill-dir:data/syslog}")
+    private String spillDir;
+
+    private LogRingBuffer<SysLog> buffer;
+
+    private Thread writer;
+
+    private volatile boolean running;
+
+    private Path spillPath;
+
+    private final AtomicLong enqueuedTotal = new AtomicLong();
+    private final AtomicLong writtenTotal = new AtomicLong();
+    private final AtomicLong droppedTotal = new AtomicLong();
+    private final AtomicLong spilledTotal = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        buffer = new LogRingBuffer<>(capacity);
+        spillPath = Paths.get(spillDir, SPILL_FILE);
+        running = true;
+        writer = new Thread(this::run, "sys-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * 记录操作日志；当前线程处于事务中时在提交后写入
+     */
+    public void write(SysLog sysLog) {
+        if (sysLog.getCreateTime() == null) {
+            sysLog.setCreateTime(new Date());
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(sysLog);
+                }
+            });
+        } else {
+            enqueue(sysLog);
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("capacity", buffer.capacity());
+        metrics.put("pending", buffer.size());
+        metrics.put("overflow", overflow);
+        metrics.put("enqueuedTotal", enqueuedTotal.get());
+        metrics.put("writtenTotal", writtenTotal.get());
+        metrics.put("droppedTotal", droppedTotal.get());
+        metrics.put("spilledTotal", spilledTotal.get());
+        metrics.put("failedBatches", failedBatches.get());
+        return metrics;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    private void enqueue(SysLog sysLog) {
+        if (buffer.offer(sysLog)) {
+            enqueuedTotal.incrementAndGet();
+            return;
+        }
+        if ("spill".equals(overflow) && spill(List.of(sysLog))) {
+            return;
+        }
+        droppedTotal.incrementAndGet();
+    }
+
+    private void run() {
+        List<SysLog> batch = new ArrayList<>(batchSize);
+        long lastFlush = System.currentTimeMillis();
+        while (running) {
+            buffer.drainTo(batch, batchSize - batch.size());
+            long now = System.currentTimeMillis();
+            if (batch.size() >= batchSize || (!batch.isEmpty() && now - lastFlush >= flushIntervalMillis)) {
+                flush(batch);
+                lastFlush = now;
+            } else if (batch.isEmpty() && buffer.size() == 0) {
+                replaySpill();
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis));
+                lastFlush = System.currentTimeMillis();
+            } else {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(Math.min(50, flushIntervalMillis)));
+            }
+        }
+        // 关闭时写完剩余日志
+        while (buffer.drainTo(batch, batchSize - batch.size()) > 0 || !batch.isEmpty()) {
+            flush(batch);
+        }
+    }
+
+    private void flush(List<SysLog> batch) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                sysLogMapper.insertBatch(batch);
+                writtenTotal.addAndGet(batch.size());
+                break;
+            } catch (Exception e) {
+                failedBatches.incrementAndGet();
+                if (attempt >= 3 || !running) {
+                    log.error("操作日志写入失败，{} 条", batch.size(), e);
+                    if (!("spill".equals(overflow) && spill(batch))) {
+                        droppedTotal.addAndGet(batch.size());
+                    }
+                    break;
+                }
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(200L * attempt));
+            }
+        }
+        batch.clear();
+    }
+
+    private synchronized boolean spill(List<SysLog> logs) {
+        try {
+            Files.createDirectories(spillPath.getParent());
+            try (BufferedWriter out = Files.newBufferedWriter(spillPath, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (SysLog sysLog : logs) {
+                    out.write(objectMapper.writeValueAsString(sysLog));
+                    out.newLine();
+                }
+            }
+            spilledTotal.addAndGet(logs.size());
+            return true;
+        } catch (IOException e) {
+            log.error("操作日志溢出文件写入失败", e);
+            return false;
+        }
+    }
+
+    // 写线程空闲时把溢出文件中的日志补写入库
+    private void replaySpill() {
+        List<SysLog> logs;
+        synchronized (this) {
+            if (!Files.exists(spillPath)) {
+                return;
+            }
+            try {
+                logs = new ArrayList<>();
+                for (String line : Files.readAllLines(spillPath, StandardCharsets.UTF_8)) {
+                    if (!line.isBlank()) {
+                        logs.add(objectMapper.readValue(line, SysLog.class));
+                    }
+                }
+                Files.delete(spillPath);
+            } catch (IOException e) {
+                log.error("操作日志溢出文件读取失败", e);
+                return;
+            }
+        }
+        for (int from = 0; from < logs.size(); from += batchSize) {
+            List<SysLog> batch = new ArrayList<>(logs.subList(from, Math.min(from + batchSize, logs.size())));
+            flush(batch);
+        }
+        if (!logs.isEmpty()) {
+            log.info("操作日志溢出文件补写 {} 条", logs.size());
+        }
+    }
+}
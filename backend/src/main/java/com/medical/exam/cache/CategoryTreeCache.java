@@ -0,0 +1,326 @@
+package com.medical.exam.cache;
+
+import com.medical.exam.entity.ExamCategory;
+import com.medical.exam.mapper.ExamCategoryMapper;
+import com.medical.exam.vo.CategoryCount;
+import com.medical.exam.vo.ExamCategoryVo;
+import com.mybatisflex.core.query.QueryWrapper;
+import com.mybatisflex.core.row.Db;
+import com.mybatisflex.core.row.Row;
+import jakarta.annotation.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.medical.exam.entity.table.ExamCategoryTableDef.EXAM_CATEGORY;
+
+/**
+ * 题目分类树缓存
+ * 启用的分类与各分类（含子分类）的启用题目数保存为带版本号的不可变快照，读取时无锁获取当前快照并生成返回对象。
+ * 分类新增、修改时只重新读取分类表，题目数沿用当前快照；题目新增、修改、导入、删除时把增减量沿祖先链累加，
+ * 不再重新统计题目表。每次变更生成新快照并原子替换，版本号加一
+ */
+@Component
+public class CategoryTreeCache {
+
+    private static final String QUESTION_COUNT_SQL =
+            "SELECT category_id, COUNT(*) AS question_count FROM exam_question " +
+            "WHERE status = '1' AND is_delete = 0 GROUP BY category_id";
+
+    // 同层分类排序：都有排序号时按排序号，否则按名称
+    private static final Comparator<Node> NODE_ORDER = (a, b) -> {
+        if (a.sortOrder() != null && b.sortOrder() != null) {
+            return a.sortOrder().compareTo(b.sortOrder());
+        }
+        return a.categoryName().compareTo(b.categoryName());
+    };
+
+    @Resource
+    private ExamCategoryMapper examCategoryMapper;
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+
+    /**
+     * 分类树（每次返回新的对象，调用方可以修改）
+     */
+    public List<ExamCategoryVo> getTree() {
+        Snapshot snapshot = snapshot();
+        List<ExamCategoryVo> tree = new ArrayList<>(snapshot.rootIds().size());
+        for (String id : snapshot.rootIds()) {
+            tree.add(toVo(snapshot, snapshot.nodes().get(id)));
+        }
+        return tree;
+    }
+
+    /**
+     * 仪表盘的分类题目数树
+     */
+    public List<CategoryCount> getCountTree() {
+        Snapshot snapshot = snapshot();
+        List<CategoryCount> tree = new ArrayList<>(snapshot.rootIds().size());
+        for (String id : snapshot.rootIds()) {
+            tree.add(toCount(snapshot, snapshot.nodes().get(id)));
+        }
+        return tree;
+    }
+
+    /**
+     * 当前快照的版本号，分类或题目数变化时递增
+     */
+    public long getVersion() {
+        return snapshot().version();
+    }
+
+    /**
+     * 分类新增或修改后（事务提交后）重新读取分类表
+     */
+    public void categoriesChanged() {
+        afterCommit(() -> {
+            synchronized (this) {
+                Snapshot old = current.get();
+                if (old == null) {
+                    return;
+                }
+                Map<String, Long> ownCounts = new HashMap<>();
+                old.nodes().forEach((id, node) -> ownCounts.put(id, node.ownCount()));
+                current.set(build(old.version() + 1, loadCategories(), ownCounts, old.detachedCounts()));
+            }
+        });
+    }
+
+    /**
+     * 启用题目数变化（事务提交后）沿祖先链累加
+     *
+     * @param deltas 分类ID -> 启用题目增减量
+     */
+    public void questionCountsChanged(Map<String, Long> deltas) {
+        deltas.values().removeIf(delta -> delta == 0);
+        if (deltas.isEmpty()) {
+            return;
+        }
+        afterCommit(() -> {
+            synchronized (this) {
+                Snapshot old = current.get();
+                if (old == null) {
+                    return;
+                }
+                Map<String, Node> nodes = new HashMap<>(old.nodes());
+                Map<String, Long> detached = new HashMap<>(old.detachedCounts());
+                deltas.forEach((categoryId, delta) -> {
+                    Node node = nodes.get(categoryId);
+                    if (node == null) {
+                        // 分类未启用或不存在，记下增减量以便分类变化时使用
+                        detached.merge(categoryId, delta, Long::sum);
+                        return;
+                    }
+                    nodes.put(categoryId, node.withOwnCount(node.ownCount() + delta));
+                    // 沿祖先链累加总数（步数上限防止父子关系成环）
+                    String id = categoryId;
+                    for (int depth = 0; id != null && depth < nodes.size(); depth++) {
+                        Node n = nodes.get(id);
+                        if (n == null) {
+                            break;
+                        }
+                        nodes.put(id, n.withTotalCount(n.totalCount() + delta));
+                        id = n.parentId() != null && !n.parentId().isEmpty() ? n.parentId() : null;
+                    }
+                });
+                current.set(new Snapshot(old.version() + 1, Map.copyOf(nodes), old.rootIds(), Map.copyOf(detached)));
+            }
+        });
+    }
+
+    /**
+     * 单个题目的变化：原分类与状态 -> 新分类与状态（null 表示不存在）
+     */
+    public void questionChanged(String oldCategoryId, String oldStatus, String newCategoryId, String newStatus) {
+        Map<String, Long> deltas = new HashMap<>();
+        if (oldCategoryId != null && "1".equals(oldStatus)) {
+            deltas.merge(oldCategoryId, -1L, Long::sum);
+        }
+        if (newCategoryId != null && "1".equals(newStatus)) {
+            deltas.merge(newCategoryId, 1L, Long::sum);
+        }
+        questionCountsChanged(deltas);
+    }
+
+    /**
+     * 重新读取分类与题目数
+     */
+    public synchronized void reload() {
+        Snapshot old = current.get();
+        Map<String, Long> ownCounts = new HashMap<>();
+        for (Row row : Db.selectListBySql(QUESTION_COUNT_SQL)) {
+            ownCounts.put(row.getString("category_id"), row.getLong("question_count"));
+        }
+        current.set(build(old != null ? old.version() + 1 : 1, loadCategories(), ownCounts, Map.of()));
+    }
+
+    private Snapshot snapshot() {
+        Snapshot snapshot = current.get();
+        if (snapshot == null) {
+            reload();
+            snapshot = current.get();
+        }
+        return snapshot;
+    }
+
+    private List<ExamCategory> loadCategories() {
+        return examCategoryMapper.selectListByQuery(
+                QueryWrapper.create()
+                        .where(EXAM_CATEGORY.STATUS.eq("1"))
+                        .orderBy(EXAM_CATEGORY.LEVEL.asc(), EXAM_CATEGORY.SORT_ORDER.asc(),
+                                EXAM_CATEGORY.CATEGORY_NAME.asc()));
+    }
+
+    /**
+     * 由分类与各分类自身的题目数构建快照；未启用分类下的题目数保留在 detachedCounts 中
+     */
+    private static Snapshot build(long version, List<ExamCategory> categories, Map<String, Long> ownCounts,
+                                  Map<String, Long> detachedCounts) {
+        Map<String, Long> counts = new HashMap<>(detachedCounts);
+        ownCounts.forEach((id, count) -> counts.merge(id, count, Long::sum));
+
+        Map<String, ExamCategory> byId = new LinkedHashMap<>();
+        for (ExamCategory category : categories) {
+            byId.put(category.getCategoryId(), category);
+        }
+        Map<String, List<ExamCategory>> childrenOf = new HashMap<>();
+        List<ExamCategory> roots = new ArrayList<>();
+        for (ExamCategory category : categories) {
+            String parentId = category.getParentId();
+            if (parentId == null || parentId.isEmpty()) {
+                roots.add(category);
+            } else if (byId.containsKey(parentId)) {
+                childrenOf.computeIfAbsent(parentId, k -> new ArrayList<>()).add(category);
+            }
+            // 父分类未启用的分类不在树上，与原实现一致
+        }
+
+        Map<String, Node> nodes = new HashMap<>();
+        List<Node> rootNodes = new ArrayList<>();
+        for (ExamCategory root : roots) {
+            rootNodes.add(buildNode(root, childrenOf, counts, nodes, new HashSet<>()));
+        }
+        // 不在树上的分类也保存节点，题目数变化时仍可找到
+        for (ExamCategory category : categories) {
+            if (!nodes.containsKey(category.getCategoryId())) {
+                buildNode(category, childrenOf, counts, nodes, new HashSet<>());
+            }
+        }
+        rootNodes.sort(NODE_ORDER);
+
+        Map<String, Long> detached = new HashMap<>();
+        counts.forEach((id, count) -> {
+            if (!nodes.containsKey(id) && count != 0) {
+                detached.put(id, count);
+            }
+        });
+        return new Snapshot(version, Map.copyOf(nodes), rootNodes.stream().map(Node::categoryId).toList(),
+                Map.copyOf(detached));
+    }
+
+    private static Node buildNode(ExamCategory category, Map<String, List<ExamCategory>> childrenOf,
+                                  Map<String, Long> counts, Map<String, Node> nodes, Set<String> path) {
+        String id = category.getCategoryId();
+        path.add(id);
+        long own = counts.getOrDefault(id, 0L);
+        long total = own;
+        List<Node> children = new ArrayList<>();
+        for (ExamCategory child : childrenOf.getOrDefault(id, List.of())) {
+            if (path.contains(child.getCategoryId())) {
+                continue; // 父子关系成环时忽略
+            }
+            Node node = buildNode(child, childrenOf, counts, nodes, path);
+            children.add(node);
+            total += node.totalCount();
+        }
+        path.remove(id);
+        children.sort(NODE_ORDER);
+        Node node = new Node(id, category.getCategoryName(), category.getCategoryCode(), category.getParentId(),
+                category.getLevel(), category.getSortOrder(), category.getRemark(), own, total,
+                children.stream().map(Node::categoryId).toList());
+        nodes.put(id, node);
+        return node;
+    }
+
+    private static ExamCategoryVo toVo(Snapshot snapshot, Node node) {
+        ExamCategoryVo vo = new ExamCategoryVo();
+        vo.setCategoryId(node.categoryId());
+        vo.setCategoryName(node.categoryName());
+        vo.setCategoryCode(node.categoryCode());
+        vo.setParentId(node.parentId());
+        vo.setLevel(node.level());
+        vo.setSortOrder(node.sortOrder());
+        vo.setRemark(node.remark());
+        vo.setQuestionCount(node.totalCount());
+        List<ExamCategoryVo> children = new ArrayList<>(node.childIds().size());
+        for (String childId : node.childIds()) {
+            children.add(toVo(snapshot, snapshot.nodes().get(childId)));
+        }
+        vo.setChildren(children);
+        return vo;
+    }
+
+    private static CategoryCount toCount(Snapshot snapshot, Node node) {
+        CategoryCount count = new CategoryCount();
+        count.setCategoryId(node.categoryId());
+        count.setCategoryName(node.categoryName());
+        count.setCategoryCode(node.categoryCode());
+        count.setParentId(node.parentId());
+        count.setLevel(node.level());
+        count.setSortOrder(node.sortOrder());
+        count.setQuestionCount(node.totalCount());
+        List<CategoryCount> children = new ArrayList<>(node.childIds().size());
+        for (String childId : node.childIds()) {
+            children.add(toCount(snapshot, snapshot.nodes().get(childId)));
+        }
+        count.setChildren(children);
+        return count;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * 不可变快照
+     *
+     * @param nodes          分类ID -> 节点
+     * @param rootIds        已排序的一级分类
+     * @param detachedCounts 不在快照中的分类（未启用或尚未读取）下的启用题目数
+     */
+    private record Snapshot(long version, Map<String, Node> nodes, List<String> rootIds,
+                            Map<String, Long> detachedCounts) {
+    }
+
+    /**
+     * 分类节点：ownCount 为自身的题目数，totalCount 含所有子分类
+     */
+    private record Node(String categoryId, String categoryName, String categoryCode, String parentId, Integer level,
+                        Integer sortOrder, String remark, long ownCount, long totalCount,
+                        List<String> childIds) {
+
+        Node withOwnCount(long count) {
+            return new Node(categoryId, categoryName, categoryCode, parentId, level, sortOrder, remark,
+                    count, totalCount, childIds);
+        }
+
+        Node withTotalCount(long count) {
+            return new Node(categoryId, categoryName, categoryCode, parentId, level, sortOrder, remark,
+                    ownCount, count, childIds);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.medical.exam.cache;
+
+import com.medical.exam.entity.ExamConfig;
+import com.medical.exam.entity.SysUser;
+import com.medical.exam.mapper.ExamConfigMapper;
+import com.medical.exam.mapper.ExamConfigUserCategoryMapper;
+import com.medical.exam.mapper.SysUserMapper;
+import com.mybatisflex.core.query.QueryWrapper;
+import jakarta.annotation.Resource;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.medical.exam.entity.table.ExamConfigTableDef.EXAM_CONFIG;
+import static com.medical.exam.entity.table.ExamPaperTableDef.EXAM_PAPER;
+import static com.medical.exam.entity.table.SysUserTableDef.SYS_USER;
+
+/**
+ * 开考资格缓存
+ * 试卷 -> 考试配置允许的人员类别集合（exam_config_user_category）、总分、及格分、时长；用户 -> 人员类别。
+ * 开考时不再查询考试配置与用户表；考试配置、试卷变更时由 AdminService 失效，用户信息变更时由 AuthService 失效，
+ * 用户类别另有过期时间兜底
+ */
+@Component
+public class ExamEligibilityCache {
+
+    @Resource
+    private ExamConfigMapper examConfigMapper;
+
+    @Resource
+    private SysUserMapper sysUserMapper;
+
+    @Resource
+    private ExamConfigUserCategoryMapper examConfigUserCategoryMapper;
+
+    // 用户人员类别缓存时间（毫秒）
+    @Value("${exam.eligibility.user-ttl-millis:600000}")
+    private long userTtlMillis;
+
+    private final ConcurrentHashMap<String, PaperEligibility> papers = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, UserCategory> users = new ConcurrentHashMap<>();
+
+    // 每次失效递增，防止失效期间并发加载的旧数据被写回缓存
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * 试卷的开考资格信息，考试配置不存在时抛出异常
+     */
+    public PaperEligibility getPaper(String paperId) {
+        PaperEligibility eligibility = papers.get(paperId);
+        if (eligibility != null) {
+            return eligibility;
+        }
+        long loadGeneration = generation.get();
+        ExamConfig examConfig = examConfigMapper.selectOneByQuery(
+                QueryWrapper.create()
+                        .from(EXAM_CONFIG)
+                        .leftJoin(EXAM_PAPER).on(EXAM_CONFIG.CONFIG_ID.eq(EXAM_PAPER.CONFIG_ID))
+                        .where(EXAM_PAPER.PAPER_ID.eq(paperId)));
+        if (examConfig == null) {
+            throw new RuntimeException("考试配置不存在");
+        }
+        eligibility = new PaperEligibility(examConfig,
+                examConfigUserCategoryMapper.selectCategoriesOfConfig(examConfig.getConfigId()));
+        if (generation.get() == loadGeneration) {
+            papers.put(paperId, eligibility);
+        }
+        return eligibility;
+    }
+
+    /**
+     * 用户的人员类别，用户不存在时返回 null（不缓存）
+     */
+    public String getUserCategory(String userId) {
+        long now = System.currentTimeMillis();
+        UserCategory cached = users.get(userId);
+        if (cached != null && cached.expireAt > now) {
+            return cached.category;
+        }
+        long loadGeneration = generation.get();
+        SysUser user = sysUserMapper.selectOneByQuery(QueryWrapper.create()
+                .select(SYS_USER.USER_ID, SYS_USER.USER_CATEGORY)
+                .where(SYS_USER.USER_ID.eq(userId)));
+        if (user == null) {
+            users.remove(userId);
+            return null;
+        }
+        String category = user.getUserCategory() != null ? user.getUserCategory() : "";
+        if (generation.get() == loadGeneration) {
+            users.put(userId, new UserCategory(category, now + userTtlMillis));
+        }
+        return category;
+    }
+
+    public void invalidatePaper(String paperId) {
+        nowAndAfterCommit(() -> {
+            generation.incrementAndGet();
+            papers.remove(paperId);
+        });
+    }
+
+    /**
+     * 考试配置变更时，失效全部试卷（配置与试卷为一对多）
+     */
+    public void invalidateAllPapers() {
+        nowAndAfterCommit(() -> {
+            generation.incrementAndGet();
+            papers.clear();
+        });
+    }
+
+    public void invalidateUser(String userId) {
+        generation.incrementAndGet();
+        users.remove(userId);
+    }
+
+    public void invalidateAllUsers() {
+        generation.incrementAndGet();
+        users.clear();
+    }
+
+    // 处于事务中时提交后再失效一次，避免提交前重新加载的旧配置留在缓存中
+    private static void nowAndAfterCommit(Runnable action) {
+        action.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+    }
+
+    @Getter
+    public static class PaperEligibility {
+        // 考试配置允许的人员类别
+        private final Set<String> allowedCategories;
+        private final Integer totalScore;
+        private final Integer passScore;
+        private final Integer duration;
+
+        private PaperEligibility(ExamConfig examConfig, Collection<String> allowedCategories) {
+            this.allowedCategories = Set.copyOf(allowedCategories);
+            this.totalScore = examConfig.getTotalScore();
+            this.passScore = examConfig.getPassScore() != null ? examConfig.getPassScore() : 60;
+            this.duration = examConfig.getDuration();
+        }
+
+        public boolean allows(String userCategory) {
+            return userCategory != null && allowedCategories.contains(userCategory);
+        }
+    }
+
+    private record UserCategory(String category, long expireAt) {
+    }
+}
@@ -0,0 +1,118 @@
+package com.medical.exam.cache;
+
+import com.medical.exam.grading.AnswerCodec;
+import lombok.Getter;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 试卷答案键（只读快照）
+ * 由 exam_paper_question + exam_question + exam_config 一次性构建，判分时完全在内存中完成；
+ * 每题按 slot 下标在基本类型数组中保存题型、编码后的正确答案与分值，判分时不再比较字符串
+ */
+@Getter
+public class PaperAnswerKey {
+
+    public static final byte TYPE_CHOICE = 0;
+    public static final byte TYPE_MULTI = 1;
+    public static final byte TYPE_JUDGMENT = 2;
+    public static final byte TYPE_OTHER = 3;
+
+    private final String paperId;
+    private final Integer totalScore;
+    private final Integer passScore;
+    // questionId -> 答案项
+    private final Map<String, Item> items;
+
+    // 以下数组按 Item.slot 下标访问
+    private final byte[] types;
+    private final long[] correctSequences;
+    private final int[] correctMasks;
+    private final int[] scores;
+
+    public PaperAnswerKey(String paperId, Integer totalScore, Integer passScore, List<Item> itemList) {
+        this.paperId = paperId;
+        this.totalScore = totalScore;
+        this.passScore = passScore;
+        int size = itemList.size();
+        this.types = new byte[size];
+        this.correctSequences = new long[size];
+        this.correctMasks = new int[size];
+        this.scores = new int[size];
+        Map<String, Item> map = new HashMap<>(size * 2);
+        for (int slot = 0; slot < size; slot++) {
+            Item item = itemList.get(slot);
+            item.slot = slot;
+            types[slot] = typeOf(item.questionType);
+            correctSequences[slot] = encodeCorrect(types[slot], item.correctAnswer);
+            correctMasks[slot] = AnswerCodec.mask(correctSequences[slot]);
+            scores[slot] = item.score;
+            map.put(item.questionId, item);
+        }
+        this.items = Map.copyOf(map);
+    }
+
+    public Item getItem(String questionId) {
+        return questionId == null ? null : items.get(questionId);
+    }
+
+    public boolean contains(String questionId) {
+        return items.containsKey(questionId);
+    }
+
+    public int size() {
+        return scores.length;
+    }
+
+    /**
+     * 规范化答案：去除首尾空白，空值视为空字符串
+     */
+    public static String normalize(String answer) {
+        return answer == null ? "" : answer.trim();
+    }
+
+    public static byte typeOf(String questionType) {
+        if ("choice".equals(questionType)) {
+            return TYPE_CHOICE;
+        } else if ("multi".equals(questionType)) {
+            return TYPE_MULTI;
+        } else if ("judgment".equals(questionType)) {
+            return TYPE_JUDGMENT;
+        }
+        return TYPE_OTHER;
+    }
+
+    // 正确答案无法编码时退回原文比较
+    private static long encodeCorrect(byte type, String correctAnswer) {
+        long sequence = switch (type) {
+            case TYPE_CHOICE, TYPE_MULTI -> AnswerCodec.encodeIndexes(correctAnswer);
+            case TYPE_JUDGMENT -> AnswerCodec.encodeJudgment(correctAnswer);
+            default -> AnswerCodec.INVALID;
+        };
+        return sequence == AnswerCodec.INVALID ? AnswerCodec.TEXT_MATCH : sequence;
+    }
+
+    @Getter
+    public static class Item {
+        private final String questionId;
+        private final String questionType;
+        // 规范化后的正确答案
+        private final String correctAnswer;
+        // 按题型从考试配置中取得的分值
+        private final int score;
+        // 选项个数，用于还原乱序后的选项下标；非选项题为 0
+        private final int optionCount;
+        // 在答案键数组中的下标
+        private int slot;
+
+        public Item(String questionId, String questionType, String correctAnswer, int score, int optionCount) {
+            this.questionId = questionId;
+            this.questionType = questionType;
+            this.correctAnswer = normalize(correctAnswer);
+            this.score = score;
+            this.optionCount = optionCount;
+        }
+    }
+}
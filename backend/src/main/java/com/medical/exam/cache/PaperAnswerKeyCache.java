@@ -0,0 +1,124 @@
+package com.medical.exam.cache;
+
+import com.medical.exam.entity.ExamConfig;
+import com.medical.exam.entity.ExamQuestion;
+import com.medical.exam.mapper.ExamConfigMapper;
+import com.medical.exam.mapper.ExamPaperQuestionMapper;
+import com.mybatisflex.core.query.QueryWrapper;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.medical.exam.entity.table.ExamConfigTableDef.EXAM_CONFIG;
+import static com.medical.exam.entity.table.ExamPaperQuestionTableDef.EXAM_PAPER_QUESTION;
+import static com.medical.exam.entity.table.ExamPaperTableDef.EXAM_PAPER;
+import static com.medical.exam.entity.table.ExamQuestionTableDef.EXAM_QUESTION;
+
+/**
+ * 试卷答案键缓存
+ * 每张试卷只在首次交卷时查询一次数据库，之后的判分全部在内存中完成；
+ * 题目、试卷或考试配置变更时由 AdminService 负责失效
+ */
+@Component
+@Slf4j
+public class PaperAnswerKeyCache {
+
+    @Resource
+    private ExamPaperQuestionMapper examPaperQuestionMapper;
+
+    @Resource
+    private ExamConfigMapper examConfigMapper;
+
+    private final Map<String, PaperAnswerKey> cache = new ConcurrentHashMap<>();
+
+    // 每次失效递增，防止失效期间并发加载的旧数据被写回缓存
+    private final AtomicLong generation = new AtomicLong();
+
+    public PaperAnswerKey get(String paperId) {
+        PaperAnswerKey key = cache.get(paperId);
+        if (key != null) {
+            return key;
+        }
+        long loadGeneration = generation.get();
+        key = load(paperId);
+        if (generation.get() == loadGeneration) {
+            PaperAnswerKey existing = cache.putIfAbsent(paperId, key);
+            if (existing != null) {
+                return existing;
+            }
+        }
+        return key;
+    }
+
+    public void invalidate(String paperId) {
+        generation.incrementAndGet();
+        cache.remove(paperId);
+    }
+
+    /**
+     * 题目变更时，失效所有包含该题目的试卷
+     */
+    public void invalidateByQuestion(String questionId) {
+        generation.incrementAndGet();
+        cache.values().removeIf(key -> key.contains(questionId));
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.clear();
+    }
+
+    private PaperAnswerKey load(String paperId) {
+        ExamConfig examConfig = examConfigMapper.selectOneByQuery(
+                QueryWrapper.create()
+                        .from(EXAM_CONFIG)
+                        .leftJoin(EXAM_PAPER).on(EXAM_CONFIG.CONFIG_ID.eq(EXAM_PAPER.CONFIG_ID))
+                        .where(EXAM_PAPER.PAPER_ID.eq(paperId)));
+
+        if (examConfig == null) {
+            throw new RuntimeException("考试配置不存在");
+        }
+
+        List<ExamQuestion> questions = examPaperQuestionMapper.selectListByQueryAs(
+                QueryWrapper.create()
+                        .select(EXAM_PAPER_QUESTION.QUESTION_ID, EXAM_QUESTION.QUESTION_TYPE, EXAM_QUESTION.CORRECT_ANSWER,
+                                EXAM_QUESTION.QUESTION_OPTIONS)
+                        .from(EXAM_PAPER_QUESTION)
+                        .innerJoin(EXAM_QUESTION).on(EXAM_QUESTION.QUESTION_ID.eq(EXAM_PAPER_QUESTION.QUESTION_ID))
+                        .where(EXAM_PAPER_QUESTION.PAPER_ID.eq(paperId)),
+                ExamQuestion.class);
+
+        List<PaperAnswerKey.Item> items = new ArrayList<>(questions.size());
+        for (ExamQuestion question : questions) {
+            String[] options = PaperShuffle.parseOptions(question.getQuestionOptions());
+            items.add(new PaperAnswerKey.Item(
+                    question.getQuestionId(),
+                    question.getQuestionType(),
+                    question.getCorrectAnswer(),
+                    scoreOf(examConfig, question.getQuestionType()),
+                    options != null ? options.length : 0));
+        }
+
+        log.info("构建试卷答案键，试卷ID: {}, 题目数: {}", paperId, items.size());
+        return new PaperAnswerKey(paperId, examConfig.getTotalScore(),
+                examConfig.getPassScore() != null ? examConfig.getPassScore() : 60, items);
+    }
+
+    // 根据题目类型从配置中获取分值
+    private int scoreOf(ExamConfig examConfig, String questionType) {
+        if ("choice".equals(questionType)) {
+            return examConfig.getChoiceScore() != null ? examConfig.getChoiceScore() : 2;
+        } else if ("multi".equals(questionType)) {
+            return examConfig.getMultiScore() != null ? examConfig.getMultiScore() : 4;
+        } else if ("judgment".equals(questionType)) {
+            return examConfig.getJudgmentScore() != null ? examConfig.getJudgmentScore() : 1;
+        }
+        return 0;
+    }
+}
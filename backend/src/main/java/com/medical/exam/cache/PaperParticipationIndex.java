@@ -0,0 +1,303 @@
+package com.medical.exam.cache;
+
+import com.mybatisflex.core.row.Db;
+import com.mybatisflex.core.row.Row;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.longlong.LongIterator;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 试卷参考情况位图索引
+ * 人员类别 -> 可参考学员（启用、角色为 student）的用户ID位图；试卷 -> 有已完成记录的用户位图、有及格记录的用户位图。
+ * 参考人数、已考/未考/及格人数为位图交集的基数，名单按位图 与/与非 的结果顺序分页，不再扫描用户表与考试记录。
+ * 用户ID为雪花算法生成的 64 位整数，使用 Roaring64Bitmap 压缩存储；位图只读，更新时复制后替换，读取无锁。
+ * 用户新增、修改、删除、导入，以及交卷、重新判分、删除考试记录后（事务提交后）按用户或 用户+试卷 更新；
+ * 同一试卷的加载与更新在该试卷的锁内进行，查询与写回之间不会被其他更新覆盖
+ */
+@Component
+@Slf4j
+public class PaperParticipationIndex {
+
+    private static final String STUDENT_CONDITION =
+            "status = '1' AND role = 'student' AND (deleted = 0 OR deleted IS NULL)";
+
+    private static final String ATTEMPT_SQL =
+            "SELECT COUNT(1) AS completed, MAX(CASE WHEN score >= pass_score THEN 1 ELSE 0 END) AS passed " +
+            "FROM exam_record WHERE user_id = ? AND paper_id = ? AND status = 'completed' " +
+            "AND (deleted = 0 OR deleted IS NULL)";
+
+    // 人员类别 -> 学员位图，整体替换
+    private volatile Map<String, Roaring64Bitmap> categoryUsers;
+
+    private final ConcurrentHashMap<String, Participation> papers = new ConcurrentHashMap<>();
+
+    // 试卷ID -> 该试卷的加载、更新锁
+    private final ConcurrentHashMap<String, Object> paperLocks = new ConcurrentHashMap<>();
+
+    /**
+     * 某试卷的参考人数统计
+     *
+     * @param total    可参考人数
+     * @param examined 其中已考人数
+     * @param passed   其中及格人数
+     */
+    public record Counts(int total, int examined, int passed) {
+    }
+
+    /**
+     * 试卷的已完成、及格用户位图（只读）
+     */
+    private record Participation(Roaring64Bitmap completed, Roaring64Bitmap passed) {
+    }
+
+    public Counts counts(String paperId, Collection<String> categories) {
+        Roaring64Bitmap eligible = eligibleUsers(categories);
+        Participation participation = paper(paperId);
+        Roaring64Bitmap examined = copy(eligible);
+        examined.and(participation.completed());
+        Roaring64Bitmap passed = copy(eligible);
+        passed.and(participation.passed());
+        return new Counts(cardinality(eligible), cardinality(examined), cardinality(passed));
+    }
+
+    /**
+     * 可参考学员中已考的用户ID（升序）
+     */
+    public Roaring64Bitmap examinedUsers(String paperId, Collection<String> categories) {
+        Roaring64Bitmap users = eligibleUsers(categories);
+        users.and(paper(paperId).completed());
+        return users;
+    }
+
+    /**
+     * 可参考学员中未考的用户ID（升序）
+     */
+    public Roaring64Bitmap notExaminedUsers(String paperId, Collection<String> categories) {
+        Roaring64Bitmap users = eligibleUsers(categories);
+        users.andNot(paper(paperId).completed());
+        return users;
+    }
+
+    /**
+     * 按顺序取位图中第 offset 个起的 limit 个用户ID
+     */
+    public static List<String> slice(Roaring64Bitmap users, int offset, int limit) {
+        List<String> ids = new ArrayList<>(Math.max(0, Math.min(limit, cardinality(users) - offset)));
+        int skipped = 0;
+        LongIterator iterator = users.getLongIterator();
+        while (iterator.hasNext() && ids.size() < limit) {
+            long id = iterator.next();
+            if (skipped++ >= offset) {
+                ids.add(String.valueOf(id));
+            }
+        }
+        return ids;
+    }
+
+    public static int cardinality(Roaring64Bitmap users) {
+        return (int) users.getLongCardinality();
+    }
+
+    /**
+     * 用户信息变更后（事务提交后）更新该用户所在的类别位图
+     */
+    public void refreshUser(String userId) {
+        Long id = toId(userId);
+        if (id == null) {
+            return;
+        }
+        afterCommit(() -> {
+            synchronized (this) {
+                Map<String, Roaring64Bitmap> current = categoryUsers;
+                if (current == null) {
+                    return;
+                }
+                Row row = Db.selectOneBySql("SELECT user_category FROM sys_user WHERE user_id = ? AND "
+                        + STUDENT_CONDITION, id);
+                String category = row != null ? row.getString("user_category") : null;
+                Map<String, Roaring64Bitmap> next = new HashMap<>(current);
+                next.replaceAll((key, users) -> key.equals(category) ? users : with(users, id, false));
+                if (category != null) {
+                    next.put(category, with(next.getOrDefault(category, new Roaring64Bitmap()), id, true));
+                }
+                categoryUsers = next;
+            }
+        });
+    }
+
+    /**
+     * 批量导入用户后（事务提交后）重建类别位图
+     */
+    public void reloadUsers() {
+        afterCommit(() -> {
+            synchronized (this) {
+                if (categoryUsers != null) {
+                    categoryUsers = loadCategoryUsers();
+                }
+            }
+        });
+    }
+
+    /**
+     * 考试记录完成、重新判分、删除后（事务提交后）更新该用户在试卷位图中的状态
+     */
+    public void refreshAttempt(String userId, String paperId) {
+        Long id = toId(userId);
+        if (id == null || paperId == null) {
+            return;
+        }
+        afterCommit(() -> {
+            // 并发的两次更新各自查询后写回，后查询的可能先写回，被先查询的旧结果覆盖，因此查询与写回都在试卷锁内
+            synchronized (paperLock(paperId)) {
+                Participation participation = papers.get(paperId);
+                if (participation == null) {
+                    return;
+                }
+                Row row = Db.selectOneBySql(ATTEMPT_SQL, id, paperId);
+                boolean completed = row != null && row.getLong("completed") != null && row.getLong("completed") > 0;
+                boolean passed = completed && row.getInt("passed") != null && row.getInt("passed") == 1;
+                if (participation.completed().contains(id) != completed
+                        || participation.passed().contains(id) != passed) {
+                    papers.put(paperId, new Participation(with(participation.completed(), id, completed),
+                            with(participation.passed(), id, passed)));
+                }
+            }
+        });
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Roaring64Bitmap> current = categoryUsers;
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("categories", current != null ? current.size() : 0);
+        metrics.put("students", current != null
+                ? current.values().stream().mapToLong(Roaring64Bitmap::getLongCardinality).sum() : 0);
+        metrics.put("papers", papers.size());
+        return metrics;
+    }
+
+    private Roaring64Bitmap eligibleUsers(Collection<String> categories) {
+        Map<String, Roaring64Bitmap> current = categoryUsers;
+        if (current == null) {
+            synchronized (this) {
+                if (categoryUsers == null) {
+                    categoryUsers = loadCategoryUsers();
+                }
+                current = categoryUsers;
+            }
+        }
+        Roaring64Bitmap users = new Roaring64Bitmap();
+        for (String category : categories) {
+            Roaring64Bitmap categoryBits = current.get(category);
+            if (categoryBits != null) {
+                users.or(categoryBits);
+            }
+        }
+        return users;
+    }
+
+    private Participation paper(String paperId) {
+        Participation participation = papers.get(paperId);
+        if (participation != null) {
+            return participation;
+        }
+        // 加载期间提交的记录：更新等待加载完成后再查询，不会因试卷尚未加载而遗漏
+        synchronized (paperLock(paperId)) {
+            return papers.computeIfAbsent(paperId, this::loadPaper);
+        }
+    }
+
+    private Object paperLock(String paperId) {
+        return paperLocks.computeIfAbsent(paperId, k -> new Object());
+    }
+
+    private Map<String, Roaring64Bitmap> loadCategoryUsers() {
+        Map<String, Roaring64Bitmap> result = new HashMap<>();
+        List<Row> rows = Db.selectListBySql("SELECT user_id, user_category FROM sys_user WHERE " + STUDENT_CONDITION);
+        for (Row row : rows) {
+            Long id = toId(String.valueOf(row.get("user_id")));
+            String category = row.getString("user_category");
+            if (id != null && category != null) {
+                result.computeIfAbsent(category, k -> new Roaring64Bitmap()).addLong(id);
+            }
+        }
+        result.values().forEach(Roaring64Bitmap::runOptimize);
+        log.info("试卷参考位图索引加载学员 {} 人", rows.size());
+        return result;
+    }
+
+    private Participation loadPaper(String paperId) {
+        Roaring64Bitmap completed = new Roaring64Bitmap();
+        Roaring64Bitmap passed = new Roaring64Bitmap();
+        List<Row> rows = Db.selectListBySql(
+                "SELECT user_id, MAX(CASE WHEN score >= pass_score THEN 1 ELSE 0 END) AS passed FROM exam_record " +
+                "WHERE paper_id = ? AND status = 'completed' AND (deleted = 0 OR deleted IS NULL) GROUP BY user_id",
+                paperId);
+        for (Row row : rows) {
+            Long id = toId(String.valueOf(row.get("user_id")));
+            if (id == null) {
+                continue;
+            }
+            completed.addLong(id);
+            if (row.getInt("passed") != null && row.getInt("passed") == 1) {
+                passed.addLong(id);
+            }
+        }
+        completed.runOptimize();
+        passed.runOptimize();
+        return new Participation(completed, passed);
+    }
+
+    private static Roaring64Bitmap with(Roaring64Bitmap bits, long id, boolean value) {
+        if (bits.contains(id) == value) {
+            return bits;
+        }
+        Roaring64Bitmap copy = copy(bits);
+        if (value) {
+            copy.addLong(id);
+        } else {
+            copy.removeLong(id);
+        }
+        return copy;
+    }
+
+    private static Roaring64Bitmap copy(Roaring64Bitmap bits) {
+        Roaring64Bitmap copy = new Roaring64Bitmap();
+        copy.or(bits);
+        return copy;
+    }
+
+    // 用户ID为非负的 64 位整数（雪花ID），其他格式不纳入索引
+    private static Long toId(String userId) {
+        try {
+            long id = Long.parseLong(userId);
+            if (id >= 0) {
+                return id;
+            }
+        } catch (NumberFormatException ignored) {
+            // 按不在索引中处理
+        }
+        if (userId != null) {
+            log.warn("用户ID {} 无法纳入位图索引", userId);
+        }
+        return null;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
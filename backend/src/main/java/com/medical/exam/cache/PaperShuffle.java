@@ -0,0 +1,140 @@
+package com.medical.exam.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * 试卷确定性乱序
+ * 题目顺序与选项顺序由 (userId, paperId) 推导出的种子决定：同一考生刷新页面顺序不变，
+ * 不同考生顺序不同，共享的试卷快照只需按 int 数组重排输出；
+ * 考生提交的是显示顺序下的选项下标，判分前由同一种子还原为原始下标，并按升序排列，
+ * 与作答时点击选项的先后无关
+ */
+@Component
+public class PaperShuffle {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private static final ObjectMapper OPTION_MAPPER = new ObjectMapper();
+
+    // 关闭后按试卷原始顺序出题，选项不乱序；考试进行中不要切换
+    @Getter
+    @Value("${exam.paper.shuffle:true}")
+    private boolean enabled;
+
+    public long seed(String userId, String paperId) {
+        long h = ((long) userId.hashCode() << 32) ^ (paperId.hashCode() & 0xFFFFFFFFL);
+        return mix(h);
+    }
+
+    /**
+     * 题目顺序：order[显示位置] = 原始位置
+     */
+    public int[] questionOrder(long seed, int count) {
+        return permutation(seed, count);
+    }
+
+    /**
+     * 选项顺序：perm[显示下标] = 原始下标；不需要乱序时返回 null
+     */
+    public int[] optionOrder(long seed, String questionType, String questionId, int optionCount) {
+        if (!enabled || optionCount < 2 || !isOptionType(questionType)) {
+            return null;
+        }
+        return permutation(mix(seed ^ (questionId.hashCode() * GOLDEN_GAMMA)), optionCount);
+    }
+
+    /**
+     * 显示下标答案 -> 原始下标答案，映射后按升序排列；无法解析时原样返回
+     */
+    public static String toOriginal(String answer, int[] perm) {
+        return remap(answer, perm);
+    }
+
+    /**
+     * 原始下标答案 -> 显示下标答案，映射后按升序排列；无法解析时原样返回
+     */
+    public static String toDisplay(String answer, int[] perm) {
+        int[] inverse = new int[perm.length];
+        for (int i = 0; i < perm.length; i++) {
+            inverse[perm[i]] = i;
+        }
+        return remap(answer, inverse);
+    }
+
+    /**
+     * 解析题目选项 JSON 数组，非选项题或格式错误返回 null
+     */
+    public static String[] parseOptions(String questionOptions) {
+        if (questionOptions == null || questionOptions.isBlank()) {
+            return null;
+        }
+        try {
+            return OPTION_MAPPER.readValue(questionOptions, String[].class);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static boolean isOptionType(String questionType) {
+        return "choice".equals(questionType) || "multi".equals(questionType);
+    }
+
+    // 逐个映射下标后升序排列，同一组选项只有一种写法
+    private static String remap(String answer, int[] mapping) {
+        if (answer == null || answer.isBlank()) {
+            return answer;
+        }
+        String[] parts = answer.split(",");
+        int[] indexes = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            int index;
+            try {
+                index = Integer.parseInt(parts[i].trim());
+            } catch (NumberFormatException e) {
+                return answer;
+            }
+            if (index < 0 || index >= mapping.length) {
+                return answer;
+            }
+            indexes[i] = mapping[index];
+        }
+        Arrays.sort(indexes);
+        StringBuilder sb = new StringBuilder(parts.length * 2);
+        for (int i = 0; i < indexes.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(indexes[i]);
+        }
+        return sb.toString();
+    }
+
+    // Fisher-Yates 洗牌
+    private static int[] permutation(long seed, int count) {
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+        return order;
+    }
+
+    // SplitMix64 终混函数
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,99 @@
+package com.medical.exam.cache;
+
+import lombok.Getter;
+
+import java.util.Set;
+
+/**
+ * 试卷快照
+ * questions 为所有考生共享的只读题目数组，每道题除选项、正确答案外的字段已预先序列化为字节片段，
+ * 按考生乱序输出时只重排下标并序列化选项与答案，不复制题目对象；
+ * compressed 为按原始顺序预先序列化（含 Result 外层）后的 LZ4 压缩字节，不乱序时直接输出
+ */
+@Getter
+public class PaperSnapshot {
+
+    private final String paperId;
+    private final Question[] questions;
+    // LZ4 块压缩后的 JSON
+    private final byte[] compressed;
+    // 压缩前的字节数，解压时需要
+    private final int originalLength;
+    // 未压缩内容摘要，用于生成强 ETag
+    private final String digest;
+    // 快照包含的题目，用于题目变更时失效
+    private final Set<String> questionIds;
+
+    public PaperSnapshot(String paperId, Question[] questions, byte[] compressed, int originalLength,
+                         String digest, Set<String> questionIds) {
+        this.paperId = paperId;
+        this.questions = questions;
+        this.compressed = compressed;
+        this.originalLength = originalLength;
+        this.digest = digest;
+        this.questionIds = Set.copyOf(questionIds);
+    }
+
+    /**
+     * 原始顺序内容的强 ETag
+     */
+    public String getEtag() {
+        return "\"" + digest + "\"";
+    }
+
+    /**
+     * 按种子乱序后内容的强 ETag：同一快照、同一种子输出的字节完全相同
+     */
+    public String getEtag(long seed) {
+        return "\"" + digest + "-" + Long.toHexString(seed) + "\"";
+    }
+
+    /**
+     * 缓存占用估算：压缩字节 + 题目对象与预先序列化的片段（各按未压缩 JSON 大小估算）
+     */
+    public long getEstimatedBytes() {
+        return (long) compressed.length + 2L * originalLength;
+    }
+
+    /**
+     * 学生端题目（只读）
+     */
+    @Getter
+    public static class Question {
+        private final String questionId;
+        private final String questionType;
+        private final String questionContent;
+        // 题目选项原始 JSON
+        private final String questionOptions;
+        // 解析后的选项，非选项题为 null
+        private final String[] options;
+        private final String correctAnswer;
+        private final Integer score;
+        private final String categoryId;
+        private final String difficulty;
+        private final String remark;
+        // 预先序列化的片段：head 为 { 到 questionContent 字段（含其后逗号），
+        // plain 为原始顺序的 questionOptions、correctAnswer 字段，tail 为 score 字段起到 }
+        private final byte[] head;
+        private final byte[] plain;
+        private final byte[] tail;
+
+        public Question(String questionId, String questionType, String questionContent, String questionOptions,
+                        String[] options, String correctAnswer, Integer score, String categoryId,
+                        String difficulty, String remark, byte[] head, byte[] plain, byte[] tail) {
+            this.questionId = questionId;
+            this.questionType = questionType;
+            this.questionContent = questionContent;
+            this.questionOptions = questionOptions;
+            this.options = options;
+            this.correctAnswer = correctAnswer;
+            this.score = score;
+            this.categoryId = categoryId;
+            this.difficulty = difficulty;
+            this.remark = remark;
+            this.head = head;
+            this.plain = plain;
+            this.tail = tail;
+        }
+    }
+}
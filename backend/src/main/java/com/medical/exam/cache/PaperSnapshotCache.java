@@ -0,0 +1,314 @@
+package com.medical.exam.cache;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medical.exam.entity.ExamQuestion;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 试卷快照缓存
+ * 试卷发布后题目不再变化，每张试卷只查询一次，共享题目数组与按原始顺序预先序列化的 LZ4 压缩字节
+ * 保存在按总字节数限制的 LRU 缓存中；按考生乱序输出时由共享数组拼接预先序列化的题目片段，
+ * 结果按考生种子另存于按字节数限制的 LRU 缓存中。
+ * 生成试卷、删除试卷、修改题目时由 AdminService 负责失效
+ */
+@Component
+@Slf4j
+public class PaperSnapshotCache {
+
+    private static final LZ4Compressor COMPRESSOR = LZ4Factory.fastestInstance().fastCompressor();
+    private static final LZ4FastDecompressor DECOMPRESSOR = LZ4Factory.fastestInstance().fastDecompressor();
+
+    private static final byte[] RESULT_HEAD =
+            "{\"code\":200,\"message\":\"操作成功\",\"data\":[".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] RESULT_TAIL = "]}".getBytes(StandardCharsets.UTF_8);
+
+    @Resource
+    private ObjectMapper objectMapper;
+
+    @Resource
+    private PaperShuffle paperShuffle;
+
+    // 缓存占用字节上限（压缩字节 + 题目对象估算）
+    @Value("${exam.snapshot.max-bytes:67108864}")
+    private long maxBytes;
+
+    // 按考生种子乱序后的响应缓存字节上限
+    @Value("${exam.snapshot.render-max-bytes:33554432}")
+    private long renderMaxBytes;
+
+    // 访问顺序的 LinkedHashMap 实现 LRU，所有访问都在 synchronized 中进行
+    private final LinkedHashMap<String, PaperSnapshot> snapshots = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long totalBytes;
+
+    // 试卷ID:乱序 ETag -> 乱序后的响应 JSON，同样为 LRU
+    private final LinkedHashMap<String, byte[]> renders = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long renderBytes;
+
+    // 同一试卷并发未命中时只构建一次
+    private final ConcurrentHashMap<String, Object> buildLocks = new ConcurrentHashMap<>();
+
+    // 每次失效递增，防止失效期间构建的旧快照被写回缓存
+    private long generation;
+
+    private long hits;
+    private long misses;
+    private long renderHits;
+    private long renderMisses;
+
+    /**
+     * 只查缓存，不构建
+     */
+    public synchronized PaperSnapshot getIfPresent(String paperId) {
+        PaperSnapshot snapshot = snapshots.get(paperId);
+        if (snapshot != null) {
+            hits++;
+        }
+        return snapshot;
+    }
+
+    /**
+     * 获取快照，未命中时使用 loader 查询题目并构建
+     */
+    public PaperSnapshot get(String paperId, Supplier<List<ExamQuestion>> loader) {
+        PaperSnapshot snapshot = getIfPresent(paperId);
+        if (snapshot != null) {
+            return snapshot;
+        }
+        Object lock = buildLocks.computeIfAbsent(paperId, k -> new Object());
+        try {
+            synchronized (lock) {
+                snapshot = getIfPresent(paperId);
+                if (snapshot != null) {
+                    return snapshot;
+                }
+                long buildGeneration;
+                synchronized (this) {
+                    misses++;
+                    buildGeneration = generation;
+                }
+                snapshot = build(paperId, loader.get());
+                synchronized (this) {
+                    if (generation == buildGeneration) {
+                        put(snapshot);
+                    }
+                }
+                return snapshot;
+            }
+        } finally {
+            buildLocks.remove(paperId, lock);
+        }
+    }
+
+    /**
+     * 解压得到原始顺序的完整响应 JSON
+     */
+    public byte[] decompress(PaperSnapshot snapshot) {
+        return DECOMPRESSOR.decompress(snapshot.getCompressed(), snapshot.getOriginalLength());
+    }
+
+    /**
+     * 按种子乱序输出完整响应 JSON：题目与选项顺序只通过 int 数组重排，正确答案换算为显示下标。
+     * 同一快照、同一种子的输出相同，结果按快照与种子缓存，考生刷新、重新进入时直接返回
+     */
+    public byte[] render(PaperSnapshot snapshot, long seed) {
+        String key = snapshot.getPaperId() + ":" + snapshot.getEtag(seed);
+        synchronized (this) {
+            byte[] cached = renders.get(key);
+            if (cached != null) {
+                renderHits++;
+                return cached;
+            }
+            renderMisses++;
+        }
+        PaperSnapshot.Question[] questions = snapshot.getQuestions();
+        byte[] json = write(questions, paperShuffle.questionOrder(seed, questions.length), seed, true,
+                snapshot.getOriginalLength() + 64);
+        synchronized (this) {
+            if (snapshots.get(snapshot.getPaperId()) == snapshot) {
+                putRender(key, json);
+            }
+        }
+        return json;
+    }
+
+    public synchronized void invalidate(String paperId) {
+        generation++;
+        PaperSnapshot removed = snapshots.remove(paperId);
+        if (removed != null) {
+            totalBytes -= removed.getEstimatedBytes();
+        }
+        removeRenders(paperId);
+    }
+
+    /**
+     * 题目变更时，失效所有包含该题目的试卷快照
+     */
+    public synchronized void invalidateByQuestion(String questionId) {
+        generation++;
+        Iterator<PaperSnapshot> iterator = snapshots.values().iterator();
+        while (iterator.hasNext()) {
+            PaperSnapshot snapshot = iterator.next();
+            if (snapshot.getQuestionIds().contains(questionId)) {
+                totalBytes -= snapshot.getEstimatedBytes();
+                iterator.remove();
+                removeRenders(snapshot.getPaperId());
+            }
+        }
+    }
+
+    public synchronized Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("papers", snapshots.size());
+        metrics.put("estimatedBytes", totalBytes);
+        metrics.put("maxBytes", maxBytes);
+        metrics.put("hits", hits);
+        metrics.put("misses", misses);
+        metrics.put("renders", renders.size());
+        metrics.put("renderBytes", renderBytes);
+        metrics.put("renderMaxBytes", renderMaxBytes);
+        metrics.put("renderHits", renderHits);
+        metrics.put("renderMisses", renderMisses);
+        return metrics;
+    }
+
+    private PaperSnapshot build(String paperId, List<ExamQuestion> examQuestions) {
+        PaperSnapshot.Question[] questions = new PaperSnapshot.Question[examQuestions.size()];
+        Set<String> questionIds = new HashSet<>(examQuestions.size() * 2);
+        for (int i = 0; i < questions.length; i++) {
+            ExamQuestion q = examQuestions.get(i);
+            questions[i] = new PaperSnapshot.Question(q.getQuestionId(), q.getQuestionType(), q.getQuestionContent(),
+                    q.getQuestionOptions(), PaperShuffle.parseOptions(q.getQuestionOptions()), q.getCorrectAnswer(),
+                    q.getScore(), q.getCategoryId(), q.getDifficulty(), q.getRemark(),
+                    head(q), fields(q.getQuestionOptions(), q.getCorrectAnswer()), tail(q));
+            questionIds.add(q.getQuestionId());
+        }
+
+        int[] identity = new int[questions.length];
+        for (int i = 0; i < identity.length; i++) {
+            identity[i] = i;
+        }
+        byte[] json = write(questions, identity, 0, false, 8192);
+        byte[] compressed = COMPRESSOR.compress(json);
+        log.info("构建试卷快照，试卷ID: {}, 题目数: {}, 原始 {} 字节, 压缩后 {} 字节",
+                paperId, questions.length, json.length, compressed.length);
+        return new PaperSnapshot(paperId, questions, compressed, json.length,
+                DigestUtil.sha256Hex(json).substring(0, 32), questionIds);
+    }
+
+    /**
+     * 输出 Result 外层与题目列表，字段与 ExamQuestion 的 JSON 字段一致；
+     * 每道题拼接预先序列化的片段，只有乱序的选项与正确答案在这里序列化
+     */
+    private byte[] write(PaperSnapshot.Question[] questions, int[] order, long seed, boolean shuffle, int size) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+        out.writeBytes(RESULT_HEAD);
+        for (int i = 0; i < order.length; i++) {
+            PaperSnapshot.Question q = questions[order[i]];
+            int[] optionOrder = shuffle && q.getOptions() != null
+                    ? paperShuffle.optionOrder(seed, q.getQuestionType(), q.getQuestionId(), q.getOptions().length)
+                    : null;
+            if (i > 0) {
+                out.write(',');
+            }
+            out.writeBytes(q.getHead());
+            if (optionOrder == null) {
+                out.writeBytes(q.getPlain());
+            } else {
+                String[] options = new String[optionOrder.length];
+                for (int j = 0; j < optionOrder.length; j++) {
+                    options[j] = q.getOptions()[optionOrder[j]];
+                }
+                out.writeBytes(fields(json(options), PaperShuffle.toDisplay(q.getCorrectAnswer(), optionOrder)));
+            }
+            out.writeBytes(q.getTail());
+        }
+        out.writeBytes(RESULT_TAIL);
+        return out.toByteArray();
+    }
+
+    // {"questionId":..,"questionType":..,"questionContent":..,
+    private byte[] head(ExamQuestion q) {
+        return ("{\"questionId\":" + json(q.getQuestionId()) + ",\"questionType\":" + json(q.getQuestionType())
+                + ",\"questionContent\":" + json(q.getQuestionContent()) + ",").getBytes(StandardCharsets.UTF_8);
+    }
+
+    // "questionOptions":..,"correctAnswer":..
+    private byte[] fields(String questionOptions, String correctAnswer) {
+        return ("\"questionOptions\":" + json(questionOptions) + ",\"correctAnswer\":" + json(correctAnswer))
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    // ,"score":..,"categoryId":..,"difficulty":..,"remark":..}
+    private byte[] tail(ExamQuestion q) {
+        return (",\"score\":" + json(q.getScore()) + ",\"categoryId\":" + json(q.getCategoryId())
+                + ",\"difficulty\":" + json(q.getDifficulty()) + ",\"remark\":" + json(q.getRemark()) + "}")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private String json(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException("试卷序列化失败", e);
+        }
+    }
+
+    private void putRender(String key, byte[] json) {
+        byte[] previous = renders.put(key, json);
+        if (previous != null) {
+            renderBytes -= previous.length;
+        }
+        renderBytes += json.length;
+        Iterator<byte[]> iterator = renders.values().iterator();
+        while (renderBytes > renderMaxBytes && iterator.hasNext()) {
+            renderBytes -= iterator.next().length;
+            iterator.remove();
+        }
+    }
+
+    private void removeRenders(String paperId) {
+        String prefix = paperId + ":";
+        Iterator<Map.Entry<String, byte[]>> iterator = renders.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, byte[]> entry = iterator.next();
+            if (entry.getKey().startsWith(prefix)) {
+                renderBytes -= entry.getValue().length;
+                iterator.remove();
+            }
+        }
+    }
+
+    private void put(PaperSnapshot snapshot) {
+        PaperSnapshot previous = snapshots.put(snapshot.getPaperId(), snapshot);
+        if (previous != null) {
+            totalBytes -= previous.getEstimatedBytes();
+        }
+        totalBytes += snapshot.getEstimatedBytes();
+        // 超出上限时按最近最少使用淘汰，至少保留刚放入的快照
+        Iterator<PaperSnapshot> iterator = snapshots.values().iterator();
+        while (totalBytes > maxBytes && snapshots.size() > 1 && iterator.hasNext()) {
+            PaperSnapshot eldest = iterator.next();
+            if (eldest != snapshot) {
+                totalBytes -= eldest.getEstimatedBytes();
+                iterator.remove();
+            }
+        }
+    }
+}
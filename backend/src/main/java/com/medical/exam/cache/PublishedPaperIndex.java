@@ -0,0 +1,140 @@
+package com.medical.exam.cache;
+
+import com.medical.exam.entity.ExamPaper;
+import com.medical.exam.mapper.ExamConfigUserCategoryMapper;
+import com.medical.exam.mapper.ExamPaperMapper;
+import com.mybatisflex.core.query.QueryWrapper;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.medical.exam.entity.table.ExamPaperTableDef.EXAM_PAPER;
+
+/**
+ * 人员类别 -> 已发布试卷索引
+ * 启用的试卷按考试配置允许的人员类别（exam_config_user_category）分组，考生首页按自己的类别直接取出可见试卷，
+ * 不再对考试配置做 LIKE 匹配（LIKE 会把包含该类别名称的其他类别也匹配进来）。
+ * 试卷、考试配置变更后（事务提交后）整体失效，下次读取时重新加载
+ */
+@Component
+@Slf4j
+public class PublishedPaperIndex {
+
+    @Resource
+    private ExamPaperMapper examPaperMapper;
+
+    @Resource
+    private ExamConfigUserCategoryMapper examConfigUserCategoryMapper;
+
+    private volatile Map<String, List<ExamPaper>> byCategory;
+
+    // 每次失效递增，防止失效期间并发加载的旧数据被写回
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong loadCount = new AtomicLong();
+
+    /**
+     * 该人员类别可见的已发布试卷（每次返回新的对象，调用方可以修改）
+     */
+    public List<ExamPaper> getPapers(String userCategory) {
+        if (userCategory == null) {
+            return new ArrayList<>();
+        }
+        List<ExamPaper> papers = index().getOrDefault(userCategory, List.of());
+        List<ExamPaper> result = new ArrayList<>(papers.size());
+        for (ExamPaper paper : papers) {
+            result.add(copy(paper));
+        }
+        return result;
+    }
+
+    /**
+     * 试卷或考试配置变更后（事务提交后）失效
+     */
+    public void invalidate() {
+        Runnable action = () -> {
+            generation.incrementAndGet();
+            byCategory = null;
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, List<ExamPaper>> current = byCategory;
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("loaded", current != null);
+        metrics.put("categories", current != null ? current.size() : 0);
+        metrics.put("loadCount", loadCount.get());
+        return metrics;
+    }
+
+    private Map<String, List<ExamPaper>> index() {
+        Map<String, List<ExamPaper>> current = byCategory;
+        if (current != null) {
+            return current;
+        }
+        long loadGeneration = generation.get();
+        current = load();
+        if (generation.get() == loadGeneration) {
+            byCategory = current;
+        }
+        return current;
+    }
+
+    private Map<String, List<ExamPaper>> load() {
+        loadCount.incrementAndGet();
+        List<ExamPaper> papers = examPaperMapper.selectListByQuery(QueryWrapper.create()
+                .where(EXAM_PAPER.STATUS.eq("1")));
+        Set<String> configIds = new HashSet<>();
+        for (ExamPaper paper : papers) {
+            if (paper.getConfigId() != null) {
+                configIds.add(paper.getConfigId());
+            }
+        }
+        Map<String, List<String>> configCategories = examConfigUserCategoryMapper.selectCategoriesOfConfigs(configIds);
+
+        Map<String, List<ExamPaper>> result = new HashMap<>();
+        for (ExamPaper paper : papers) {
+            for (String category : configCategories.getOrDefault(paper.getConfigId(), List.of())) {
+                result.computeIfAbsent(category, k -> new ArrayList<>()).add(paper);
+            }
+        }
+        result.replaceAll((category, list) -> List.copyOf(list));
+        log.info("已发布试卷索引加载完成，试卷 {} 份，人员类别 {} 个", papers.size(), result.size());
+        return Map.copyOf(result);
+    }
+
+    private static ExamPaper copy(ExamPaper paper) {
+        return ExamPaper.builder()
+                .paperId(paper.getPaperId())
+                .paperName(paper.getPaperName())
+                .configId(paper.getConfigId())
+                .categoryId(paper.getCategoryId())
+                .totalQuestions(paper.getTotalQuestions())
+                .totalScore(paper.getTotalScore())
+                .duration(paper.getDuration())
+                .usageCount(paper.getUsageCount())
+                .status(paper.getStatus())
+                .createDept(paper.getCreateDept())
+                .createBy(paper.getCreateBy())
+                .createTime(paper.getCreateTime())
+                .updateBy(paper.getUpdateBy())
+                .updateTime(paper.getUpdateTime())
+                .remark(paper.getRemark())
+                .build();
+    }
+}
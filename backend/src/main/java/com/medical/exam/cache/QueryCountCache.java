@@ -0,0 +1,43 @@
+package com.medical.exam.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * 列表总数缓存
+ * 游标翻页只在第一页返回总数，同一筛选条件的总数在过期时间内复用，数值为近似值
+ */
+@Component
+public class QueryCountCache {
+
+    @Value("${exam.count-cache.ttl-millis:30000}")
+    private long ttlMillis;
+
+    @Value("${exam.count-cache.max-size:1000}")
+    private int maxSize;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public long get(String key, LongSupplier loader) {
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expireAt > now) {
+            return entry.count;
+        }
+        long count = loader.getAsLong();
+        if (entries.size() >= maxSize) {
+            entries.values().removeIf(e -> e.expireAt <= now);
+            if (entries.size() >= maxSize) {
+                return count;
+            }
+        }
+        entries.put(key, new Entry(count, now + ttlMillis));
+        return count;
+    }
+
+    private record Entry(long count, long expireAt) {
+    }
+}
@@ -0,0 +1,176 @@
+package com.medical.exam.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medical.exam.common.result.Result;
+import jakarta.annotation.Resource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 基础数据响应缓存
+ * 角色、科室、人员部门等基础数据各有一个版本号，写入时递增（分类树使用 CategoryTreeCache 的版本号）；
+ * 响应按所依赖数据集的版本号生成 ETag，序列化后的 JSON（较大时另存 gzip）按 ETag 缓存。
+ * 请求的 If-None-Match 与当前 ETag 一致时直接返回 304，不查询数据库也不序列化
+ */
+@Component
+public class ReferenceDataCache {
+
+    public static final String ROLES = "roles";
+    public static final String DEPARTMENTS = "departments";
+    // 用户表中的部门（下拉选项使用）
+    public static final String USERS = "users";
+
+    // 区分应用实例的启动批次，重启后版本号从 0 开始也不会与之前的 ETag 相同
+    private final long epoch = System.currentTimeMillis();
+
+    @Resource
+    private ObjectMapper objectMapper;
+
+    // 超过该字节数时另存 gzip 压缩结果
+    @Value("${exam.reference-cache.gzip-min-bytes:1024}")
+    private int gzipMinBytes;
+
+    @Value("${exam.reference-cache.max-size:200}")
+    private int maxSize;
+
+    private final ConcurrentHashMap<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Long> modifiedAt = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final AtomicLong notModifiedCount = new AtomicLong();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * 数据集变更后递增版本号；处于事务中时在提交后递增，避免提交前读到旧数据却缓存为新版本
+     */
+    public void bump(String dataset) {
+        Runnable increment = () -> {
+            versions.computeIfAbsent(dataset, k -> new AtomicLong()).incrementAndGet();
+            modifiedAt.put(dataset, System.currentTimeMillis());
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    increment.run();
+                }
+            });
+        } else {
+            increment.run();
+        }
+    }
+
+    public long version(String dataset) {
+        AtomicLong version = versions.get(dataset);
+        return version != null ? version.get() : 0;
+    }
+
+    /**
+     * 按版本号协商缓存的响应
+     *
+     * @param key          缓存键（接口名及影响结果的参数）
+     * @param datasets     响应依赖的数据集
+     * @param extraVersion 其他来源的版本号（如分类树版本），可为 null
+     * @param loader       读取数据，结果包装为 Result.success 后序列化
+     */
+    public ResponseEntity<byte[]> respond(String key, String[] datasets, Long extraVersion, Supplier<?> loader,
+                                          String ifNoneMatch, String acceptEncoding) {
+        // 先取版本号再读取数据：读取期间发生写入时，缓存的是旧版本号，下次请求即重新生成
+        StringBuilder tag = new StringBuilder("\"").append(Long.toString(epoch, 36));
+        long lastModified = epoch;
+        for (String dataset : datasets) {
+            tag.append('-').append(version(dataset));
+            lastModified = Math.max(lastModified, modifiedAt.getOrDefault(dataset, epoch));
+        }
+        if (extraVersion != null) {
+            tag.append('-').append(extraVersion);
+        }
+        String etag = tag.append('"').toString();
+
+        if (ifNoneMatch != null && ifNoneMatch.contains(etag)) {
+            notModifiedCount.incrementAndGet();
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
+        Entry entry = entries.get(key);
+        if (entry != null && entry.etag().equals(etag)) {
+            hitCount.incrementAndGet();
+        } else {
+            missCount.incrementAndGet();
+            // 同一键的旧版本直接替换；新增键时缓存已满则淘汰一条，其余条目不受影响
+            if (entry == null && entries.size() >= maxSize) {
+                evictOne();
+            }
+            entry = encode(etag, loader.get());
+            entries.put(key, entry);
+        }
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(etag)
+                .lastModified(lastModified)
+                .header(HttpHeaders.CACHE_CONTROL, "private, no-cache")
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (entry.gzip() != null && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(entry.gzip());
+        }
+        return builder.body(entry.json());
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        Map<String, Long> current = new LinkedHashMap<>();
+        versions.forEach((dataset, version) -> current.put(dataset, version.get()));
+        metrics.put("versions", current);
+        metrics.put("entries", entries.size());
+        metrics.put("notModifiedCount", notModifiedCount.get());
+        metrics.put("hitCount", hitCount.get());
+        metrics.put("missCount", missCount.get());
+        return metrics;
+    }
+
+    // 淘汰一条缓存，缓存键按接口与查询参数区分，被淘汰的下次请求时重新生成
+    private void evictOne() {
+        Iterator<String> keys = entries.keySet().iterator();
+        if (keys.hasNext()) {
+            entries.remove(keys.next());
+        }
+    }
+
+    private Entry encode(String etag, Object data) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(Result.success(data));
+            byte[] gzip = null;
+            if (json.length >= gzipMinBytes) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4);
+                try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+                    gzipOut.write(json);
+                }
+                gzip = out.toByteArray();
+            }
+            return new Entry(etag, json, gzip);
+        } catch (IOException e) {
+            throw new IllegalStateException("序列化基础数据失败", e);
+        }
+    }
+
+    private record Entry(String etag, byte[] json, byte[] gzip) {
+    }
+}
@@ -0,0 +1,123 @@
+package com.medical.exam.cache;
+
+import com.medical.exam.entity.SysUser;
+import com.medical.exam.mapper.SysUserMapper;
+import com.mybatisflex.core.query.QueryWrapper;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static com.medical.exam.entity.table.SysUserTableDef.SYS_USER;
+
+/**
+ * 登录用户缓存
+ * 身份证号 -> 该身份证号下的用户，开考时大量考生同时登录，已缓存的用户登录不再查询数据库；
+ * 可按试卷允许的人员类别预热，用户新增、修改、删除、导入时由 AuthService 失效
+ */
+@Component
+@Slf4j
+public class UserCredentialCache {
+
+    @Resource
+    private SysUserMapper sysUserMapper;
+
+    @Value("${exam.login-cache.ttl-millis:1800000}")
+    private long ttlMillis;
+
+    @Value("${exam.login-cache.max-size:50000}")
+    private int maxSize;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    // 每次失效递增，防止失效期间并发加载的旧数据被写回缓存
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * 身份证号下的全部用户（通常只有一个）
+     */
+    public List<SysUser> get(String idNumber) {
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(idNumber);
+        if (entry != null && entry.expireAt > now) {
+            hits.incrementAndGet();
+            return entry.users;
+        }
+        misses.incrementAndGet();
+        long loadGeneration = generation.get();
+        List<SysUser> users = sysUserMapper.selectListByQuery(QueryWrapper.create()
+                .where(SYS_USER.ID_NUMBER.eq(idNumber)));
+        if (generation.get() == loadGeneration && !users.isEmpty()) {
+            put(idNumber, users, now);
+        }
+        return users;
+    }
+
+    /**
+     * 预热：一次查询加载指定人员类别（为空时为全部）的启用用户
+     *
+     * @return 加载的用户数
+     */
+    public int warm(Collection<String> userCategories) {
+        QueryWrapper query = QueryWrapper.create().where(SYS_USER.STATUS.eq("1"));
+        if (userCategories != null && !userCategories.isEmpty()) {
+            query.and(SYS_USER.USER_CATEGORY.in(userCategories));
+        }
+        long loadGeneration = generation.get();
+        List<SysUser> users = sysUserMapper.selectListByQuery(query);
+        if (generation.get() != loadGeneration) {
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        Map<String, List<SysUser>> byIdNumber = users.stream()
+                .filter(user -> user.getIdNumber() != null)
+                .collect(Collectors.groupingBy(SysUser::getIdNumber));
+        byIdNumber.forEach((idNumber, list) -> put(idNumber, list, now));
+        log.info("登录用户缓存预热 {} 人", users.size());
+        return users.size();
+    }
+
+    public void invalidate(String idNumber) {
+        generation.incrementAndGet();
+        entries.remove(idNumber);
+    }
+
+    /**
+     * 按用户ID失效（修改、删除用户时只知道用户ID）
+     */
+    public void invalidateByUserId(String userId) {
+        generation.incrementAndGet();
+        entries.values().removeIf(entry -> entry.users.stream().anyMatch(user -> userId.equals(user.getUserId())));
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("size", entries.size());
+        metrics.put("maxSize", maxSize);
+        metrics.put("hits", hits.get());
+        metrics.put("misses", misses.get());
+        return metrics;
+    }
+
+    // 超出上限时先清理过期条目，仍然超出则不再缓存
+    private void put(String idNumber, List<SysUser> users, long now) {
+        if (entries.size() >= maxSize && !entries.containsKey(idNumber)) {
+            entries.values().removeIf(entry -> entry.expireAt <= now);
+            if (entries.size() >= maxSize) {
+                return;
+            }
+        }
+        entries.put(idNumber, new Entry(List.copyOf(users), now + ttlMillis));
+    }
+
+    private record Entry(List<SysUser> users, long expireAt) {
+    }
+}
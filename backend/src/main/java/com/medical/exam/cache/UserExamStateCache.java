@@ -0,0 +1,157 @@
+package com.medical.exam.cache;
+
+import com.mybatisflex.core.row.Db;
+import com.mybatisflex.core.row.Row;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 考生的各试卷考试状态缓存
+ * 用户 -> (试卷 -> 最新一条考试记录的状态、是否安排了强制重考)，一次查询取得：
+ * 按试卷分区、结束时间倒序取第一条记录（与原先按 end_time 倒序取首条一致），并合并强制重考标识。
+ * 开考、交卷、判分、超时、删除考试记录、设置或复位强制重考后（事务提交后）失效该用户，另有过期时间兜底。
+ * 加载前先放入带本次标记的占位条目，查询完成后只在占位条目仍在时写入；失效会移除占位条目，
+ * 因此只丢弃该用户失效前开始的加载，其他用户的加载不受影响
+ */
+@Component
+public class UserExamStateCache {
+
+    private static final String STATE_SQL =
+            "SELECT paper_id, MAX(status) AS status, MAX(force_retake) AS force_retake FROM (" +
+            "  SELECT paper_id, status, 0 AS force_retake FROM (" +
+            "    SELECT paper_id, status, ROW_NUMBER() OVER (PARTITION BY paper_id " +
+            "      ORDER BY end_time DESC, start_time DESC) AS rn " +
+            "    FROM exam_record WHERE user_id = ? AND (deleted = 0 OR deleted IS NULL)" +
+            "  ) latest WHERE rn = 1" +
+            "  UNION ALL" +
+            "  SELECT paper_id, NULL AS status, 1 AS force_retake FROM exam_force_retake " +
+            "  WHERE user_id = ? AND force_retake = 1" +
+            ") state GROUP BY paper_id";
+
+    @Value("${exam.user-exam-state.ttl-millis:600000}")
+    private long ttlMillis;
+
+    @Value("${exam.user-exam-state.max-size:20000}")
+    private int maxSize;
+
+    // 淘汰时抽样比较的条目数
+    private static final int EVICTION_SAMPLE = 16;
+
+    private final ConcurrentHashMap<String, Entry> users = new ConcurrentHashMap<>();
+
+    // 加载标记，每次加载取一个新值
+    private final AtomicLong stamps = new AtomicLong();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * 某试卷的考试状态
+     *
+     * @param latestStatus 最新一条考试记录的状态，未考试时为 null
+     * @param forceRetake  是否安排了强制重考
+     */
+    public record PaperState(String latestStatus, boolean forceRetake) {
+    }
+
+    /**
+     * 用户的各试卷考试状态（只读），没有记录也没有重考安排的试卷不在其中
+     */
+    public Map<String, PaperState> get(String userId) {
+        long now = System.currentTimeMillis();
+        Entry cached = users.get(userId);
+        if (cached != null && cached.states() != null && cached.expireAt() > now) {
+            hitCount.incrementAndGet();
+            return cached.states();
+        }
+        missCount.incrementAndGet();
+        if (cached == null && users.size() >= maxSize) {
+            evictOne(now);
+        }
+        long stamp = stamps.incrementAndGet();
+        Entry loading = new Entry(null, 0, stamp);
+        users.put(userId, loading);
+
+        Map<String, PaperState> states = new HashMap<>();
+        try {
+            for (Row row : Db.selectListBySql(STATE_SQL, userId, userId)) {
+                Integer forceRetake = row.getInt("force_retake");
+                states.put(String.valueOf(row.get("paper_id")),
+                        new PaperState(row.getString("status"), forceRetake != null && forceRetake == 1));
+            }
+        } catch (RuntimeException e) {
+            users.remove(userId, loading);
+            throw e;
+        }
+        states = Map.copyOf(states);
+        // 加载期间该用户被失效（占位条目已移除）或有更新的加载时不写入
+        users.replace(userId, loading, new Entry(states, now + ttlMillis, stamp));
+        return states;
+    }
+
+    /**
+     * 用户的考试记录或强制重考变化后（事务提交后）失效
+     */
+    public void invalidate(String userId) {
+        invalidateAll(List.of(userId));
+    }
+
+    public void invalidateAll(Collection<String> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        Runnable action = () -> userIds.forEach(users::remove);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("users", users.size());
+        metrics.put("hitCount", hitCount.get());
+        metrics.put("missCount", missCount.get());
+        return metrics;
+    }
+
+    // 抽样若干条目，淘汰已过期或最早过期的一条（加载中的占位条目不淘汰）
+    private void evictOne(long now) {
+        Map.Entry<String, Entry> victim = null;
+        int sampled = 0;
+        for (Map.Entry<String, Entry> candidate : users.entrySet()) {
+            if (candidate.getValue().states() != null
+                    && (victim == null || candidate.getValue().expireAt() < victim.getValue().expireAt())) {
+                victim = candidate;
+                if (victim.getValue().expireAt() <= now) {
+                    break;
+                }
+            }
+            if (++sampled >= EVICTION_SAMPLE) {
+                break;
+            }
+        }
+        if (victim != null) {
+            users.remove(victim.getKey(), victim.getValue());
+        }
+    }
+
+    /**
+     * @param states 为 null 时是加载中的占位条目
+     * @param stamp  加载标记
+     */
+    private record Entry(Map<String, PaperState> states, long expireAt, long stamp) {
+    }
+}
@@ -1,14 +1,35 @@
 package com.medical.exam.controller;
 
+import com.medical.exam.admission.Admission;
+import com.medical.exam.admission.AdmissionQueue;
+import com.medical.exam.cache.CategoryTreeCache;
+import com.medical.exam.cache.ExamEligibilityCache;
+import com.medical.exam.cache.PaperShuffle;
+import com.medical.exam.cache.PaperSnapshot;
+import com.medical.exam.cache.PaperSnapshotCache;
+import com.medical.exam.cache.ReferenceDataCache;
+import com.medical.exam.cache.UserCredentialCache;
 import com.medical.exam.common.result.Result;
 import com.medical.exam.dto.*;
+import com.medical.exam.export.ExportJob;
+import com.medical.exam.export.ExportJobManager;
+import com.medical.exam.security.JwtAccessContext;
 import com.medical.exam.service.AdminService;
+import com.medical.exam.service.GradingService;
+import com.medical.exam.service.LatestAttemptMaintainer;
+import com.medical.exam.service.ExamRollupMaintainer;
+import com.medical.exam.service.ResultSummaryService;
 import jakarta.annotation.Resource;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.time.LocalDate;
 import java.util.Map;
 
 @RestController
@@ -18,15 +39,54 @@ public class AdminController {
     @Resource
     private AdminService adminService;
 
+    @Resource
+    private ExportJobManager exportJobManager;
+
+    @Resource
+    private ReferenceDataCache referenceDataCache;
+
+    @Resource
+    private CategoryTreeCache categoryTreeCache;
+
+    @Resource
+    private AdmissionQueue admissionQueue;
+
+    @Resource
+    private PaperSnapshotCache paperSnapshotCache;
+
+    @Resource
+    private PaperShuffle paperShuffle;
+
+    @Resource
+    private GradingService gradingService;
+
+    @Resource
+    private ExamEligibilityCache examEligibilityCache;
+
+    @Resource
+    private UserCredentialCache userCredentialCache;
+
+    @Resource
+    private LatestAttemptMaintainer latestAttemptMaintainer;
+
+    @Resource
+    private ResultSummaryService resultSummaryService;
+
+    @Resource
+    private ExamRollupMaintainer examRollupMaintainer;
+
     @GetMapping("test")
     public Result<?> test(){
         return Result.success("Hello World");
     }
 
-    //获取下拉列表
-    @PostMapping("/options")
-    public Result<?> getOptions() {
-        return Result.success(adminService.getOptions());
+    //获取下拉列表（按角色、人员部门、分类树的版本号协商缓存，GET 便于浏览器自动携带 If-None-Match）
+    @RequestMapping(value = "/options", method = {RequestMethod.GET, RequestMethod.POST})
+    public ResponseEntity<byte[]> getOptions(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                             @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return referenceDataCache.respond("options",
+                new String[]{ReferenceDataCache.ROLES, ReferenceDataCache.USERS}, categoryTreeCache.getVersion(),
+                adminService::getOptions, ifNoneMatch, acceptEncoding);
     }
 
 
@@ -114,9 +174,11 @@ public class AdminController {
     }
 
     //查询题目分类树形结构
-    @PostMapping("/categories/tree")
-    public Result<?> getCategoriesTree() {
-        return Result.success(adminService.getCategoriesTree());
+    @RequestMapping(value = "/categories/tree", method = {RequestMethod.GET, RequestMethod.POST})
+    public ResponseEntity<byte[]> getCategoriesTree(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                    @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return referenceDataCache.respond("categories-tree", new String[0], categoryTreeCache.getVersion(),
+                adminService::getCategoriesTree, ifNoneMatch, acceptEncoding);
     }
 
     @PostMapping("/departments/add")
@@ -125,10 +187,13 @@ public class AdminController {
         return Result.success("科室添加成功");
     }
 
-    //获取部门
-    @PostMapping("/departments/list")
-    public Result<?> getDepartments(@RequestBody DepartmentQueryDTO request) {
-        return Result.success(adminService.getDepartments(request));
+    //获取部门（查询条件不影响结果）
+    @RequestMapping(value = "/departments/list", method = {RequestMethod.GET, RequestMethod.POST})
+    public ResponseEntity<byte[]> getDepartments(@RequestBody(required = false) DepartmentQueryDTO request,
+                                                 @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                 @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return referenceDataCache.respond("departments", new String[]{ReferenceDataCache.DEPARTMENTS}, null,
+                () -> adminService.getDepartments(request), ifNoneMatch, acceptEncoding);
     }
 
     // 考试配置管理
@@ -192,6 +257,13 @@ public class AdminController {
         return Result.success("试卷删除成功");
     }
 
+    // 按当前题目答案重新判分该试卷下已完成的考试记录（异步执行）
+    @PostMapping("/generated-papers/regrade")
+    public Result<?> regradePaper(@RequestBody Map<String, Object> request) {
+        int count = gradingService.regradePaper(request.get("paperId").toString());
+        return Result.success(Map.of("queued", count));
+    }
+
     // 设置特定用户的试卷强制重考标识（完成后自动复位）
     @PostMapping("/generated-papers/set-force-retake")
     public Result<?> setForceRetake(@RequestBody Map<String, Object> request) {
@@ -201,6 +273,43 @@ public class AdminController {
         return Result.success("已设置用户强制重考，学生完成考试后自动复位");
     }
 
+    // 开考前预热登录用户缓存：传 paperId 时只加载该试卷允许的人员类别，否则加载全部启用用户
+    @PostMapping("/generated-papers/warm-login-cache")
+    public Result<?> warmLoginCache(@RequestBody(required = false) Map<String, Object> request) {
+        Object paperId = request != null ? request.get("paperId") : null;
+        int count = paperId != null
+                ? userCredentialCache.warm(examEligibilityCache.getPaper(paperId.toString()).getAllowedCategories())
+                : userCredentialCache.warm(null);
+        return Result.success(Map.of("loaded", count));
+    }
+
+    // 按考试记录重建考试最新成绩表
+    @PostMapping("/latest-attempt/backfill")
+    public Result<?> backfillLatestAttempt() {
+        return Result.success(Map.of("rows", latestAttemptMaintainer.backfill()));
+    }
+
+    // 校验考试最新成绩表与考试记录是否一致，repair 为 true 时修复不一致的行
+    @PostMapping("/latest-attempt/check")
+    public Result<?> checkLatestAttempt(@RequestBody(required = false) Map<String, Object> request) {
+        boolean repair = request != null && Boolean.TRUE.equals(request.get("repair"));
+        return Result.success(Map.of("mismatches", latestAttemptMaintainer.check(repair)));
+    }
+
+    // 按考试记录重新统计考试结果汇总，返回是否发现偏差
+    @PostMapping("/result-summary/reconcile")
+    public Result<?> reconcileResultSummary() {
+        return Result.success(Map.of("drift", resultSummaryService.reconcile()));
+    }
+
+    // 按考试记录重算日期范围（yyyy-MM-dd）内的考试统计日汇总
+    @PostMapping("/rollup/rebuild")
+    public Result<?> rebuildRollup(@RequestBody Map<String, Object> request) {
+        LocalDate start = LocalDate.parse(request.get("startDate").toString());
+        LocalDate end = request.get("endDate") != null ? LocalDate.parse(request.get("endDate").toString()) : LocalDate.now();
+        return Result.success(Map.of("rows", examRollupMaintainer.rebuild(start, end)));
+    }
+
     //查询出所有的考试
     @PostMapping("/available-questions/list")
     public Result<?> getAvailableQuestions(@RequestBody AvailablePaperQueryDTO request) {
@@ -209,9 +318,101 @@ public class AdminController {
 
     //根据试卷id 找出所有题目
     @PostMapping("/getQuestionsByPaperId")
-    public Result<?> getQuestionsByPaperId(@RequestBody Map<String, Object> request) {
-        String paperId = (String) request.get("paperId");
-        return Result.success(adminService.getQuestionsByPaperId(paperId));
+    public ResponseEntity<?> getQuestionsByPaperId(@RequestBody Map<String, Object> request,
+                                                   @RequestHeader(value = "X-Admission-Ticket", required = false) String ticket,
+                                                   @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                   @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return paperSnapshotResponse((String) request.get("paperId"), ticket, ifNoneMatch, acceptEncoding);
+    }
+
+    // 与 POST 接口相同，便于浏览器按 ETag 协商缓存
+    @GetMapping("/getQuestionsByPaperId")
+    public ResponseEntity<?> getQuestionsByPaperIdCached(@RequestParam("paperId") String paperId,
+                                                         @RequestHeader(value = "X-Admission-Ticket", required = false) String ticket,
+                                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                         @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return paperSnapshotResponse(paperId, ticket, ifNoneMatch, acceptEncoding);
+    }
+
+    /**
+     * 试卷快照命中时不占用开考准入名额；
+     * 启用乱序时按考生种子由共享快照重排输出（结果按种子缓存），否则直接返回预先序列化的字节
+     * （Accept-Encoding 明确列出 lz4 时不解压）
+     */
+    private ResponseEntity<?> paperSnapshotResponse(String paperId, String ticket, String ifNoneMatch, String acceptEncoding) {
+        String userId = JwtAccessContext.getLoginInfo().getUserId();
+        PaperSnapshot snapshot = paperSnapshotCache.getIfPresent(paperId);
+        if (snapshot == null) {
+            Admission admission = admissionQueue.tryAcquire(userId, ticket);
+            if (!admission.isAdmitted()) {
+                return ResponseEntity.ok(admission.toQueuedResult());
+            }
+            try (AdmissionQueue.Permit permit = admission.getPermit()) {
+                snapshot = paperSnapshotCache.get(paperId, () -> adminService.getQuestionsByPaperId(paperId));
+            }
+        }
+
+        Long seed = paperShuffle.isEnabled() ? paperShuffle.seed(userId, paperId) : null;
+        String etag = seed != null ? snapshot.getEtag(seed) : snapshot.getEtag();
+        if (matchesEtag(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(etag)
+                .header(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        if (seed != null) {
+            return builder.body(paperSnapshotCache.render(snapshot, seed));
+        }
+        builder.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (acceptsCoding(acceptEncoding, "lz4")) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "lz4")
+                    .header("X-Original-Length", String.valueOf(snapshot.getOriginalLength()))
+                    .body(snapshot.getCompressed());
+        }
+        return builder.body(paperSnapshotCache.decompress(snapshot));
+    }
+
+    // If-None-Match 为逗号分隔的实体标签列表，逐个按弱比较（忽略 W/ 前缀）与当前 ETag 完全匹配
+    private static boolean matchesEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Accept-Encoding 中列出该编码且 q 不为 0
+    private static boolean acceptsCoding(String acceptEncoding, String coding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String item : acceptEncoding.split(",")) {
+            String[] parts = item.split(";");
+            if (!parts[0].trim().equalsIgnoreCase(coding)) {
+                continue;
+            }
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        return Double.parseDouble(param.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return false;
     }
 
     // 统计分析
@@ -229,8 +430,10 @@ public class AdminController {
     }
 
     @PostMapping("/statistics/category-performance")
-    public Result<Map<String, Object>> getCategoryPerformance() {
-        Map<String, Object> performance = adminService.getCategoryPerformance();
+    public Result<Map<String, Object>> getCategoryPerformance(@RequestBody(required = false) Map<String, Object> request) {
+        String startDate = request != null ? (String) request.get("startDate") : null;
+        String endDate = request != null ? (String) request.get("endDate") : null;
+        Map<String, Object> performance = adminService.getCategoryPerformance(startDate, endDate);
         return Result.success(performance);
     }
 
@@ -248,12 +451,44 @@ public class AdminController {
         return Result.success(adminService.getPaperExamDetail(paperId));
     }
 
+    // 分页获取试卷考试详细情况（已考试在前），examStatus 可选 examined / notExamined
+    @PostMapping("/paper-exam-detail/page")
+    public Result<?> getPaperExamDetailPage(@RequestBody Map<String, Object> request) {
+        String paperId = request.get("paperId").toString();
+        String examStatus = request.get("examStatus") != null ? request.get("examStatus").toString() : null;
+        int pageNumber = request.get("pageNumber") != null ? Integer.parseInt(request.get("pageNumber").toString()) : 1;
+        int pageSize = request.get("pageSize") != null ? Integer.parseInt(request.get("pageSize").toString()) : 10;
+        return Result.success(adminService.getPaperExamDetailPage(paperId, examStatus, pageNumber, pageSize));
+    }
+
     // 导出试卷人员列表
     @PostMapping("/paper-personnel-export")
     public void exportPaperPersonnelList(@RequestBody Map<String, Object> request, jakarta.servlet.http.HttpServletResponse response) {
         String paperId = request.get("paperId").toString();
         adminService.exportPaperPersonnelList(paperId, response);
     }
+
+    // 提交试卷人员列表后台导出任务
+    @PostMapping("/paper-personnel-export-jobs")
+    public Result<?> submitPaperPersonnelExportJob(@RequestBody Map<String, Object> request) {
+        String paperId = request.get("paperId").toString();
+        return Result.success(adminService.submitPaperPersonnelExportJob(paperId));
+    }
+
+    // 查询后台导出任务进度
+    @PostMapping("/export-jobs/status")
+    public Result<?> getExportJobStatus(@RequestBody Map<String, Object> request) {
+        String jobId = request.get("jobId").toString();
+        return Result.success(exportJobManager.get(jobId, JwtAccessContext.getLoginInfo().getUserId()).toStatus());
+    }
+
+    // 下载后台导出任务生成的文件，支持 Range 断点续传
+    @GetMapping("/export-jobs/download")
+    public void downloadExportJob(@RequestParam String jobId, jakarta.servlet.http.HttpServletRequest request,
+                                  jakarta.servlet.http.HttpServletResponse response) throws java.io.IOException {
+        ExportJob job = exportJobManager.get(jobId, JwtAccessContext.getLoginInfo().getUserId());
+        exportJobManager.download(job, request, response);
+    }
 }
 
 
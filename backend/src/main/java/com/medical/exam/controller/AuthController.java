@@ -1,9 +1,12 @@
 package com.medical.exam.controller;
 
+import com.medical.exam.cache.ReferenceDataCache;
 import com.medical.exam.common.result.Result;
 import com.medical.exam.dto.*;
 import com.medical.exam.service.AuthService;
 import jakarta.annotation.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
@@ -19,6 +22,9 @@ public class AuthController {
     @Resource
     private AuthService authService;
 
+    @Resource
+    private ReferenceDataCache referenceDataCache;
+
     @PostMapping("/login")
     public Result<LoginResponse> login(@Valid @RequestBody LoginRequest request) {
         LoginResponse response = authService.login(request);
@@ -73,6 +79,12 @@ public class AuthController {
         return Result.success(authService.getUsers(userQueryDTO));
     }
 
+    // 游标翻页：按上一页返回的 nextCursor 继续查询
+    @PostMapping("/users/cursor")
+    public Result<?> getUsersByCursor(@RequestBody UserQueryDTO userQueryDTO) {
+        return Result.success(authService.getUsersByCursor(userQueryDTO));
+    }
+
     // 角色管理
     @PostMapping("/roles/add")
     public Result<?> addRole(@Valid @RequestBody RoleRequestDTO request) {
@@ -93,7 +105,24 @@ public class AuthController {
     }
 
     @PostMapping("/roles/list")
-    public Result<?> getRoles(@Valid @RequestBody RoleQueryDTO request) {
-        return Result.success(authService.getRoles(request));
+    public ResponseEntity<byte[]> getRoles(@Valid @RequestBody RoleQueryDTO request,
+                                           @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                           @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return rolesResponse(request, ifNoneMatch, acceptEncoding);
+    }
+
+    // 与 POST 接口相同，查询条件通过 URL 参数传递，便于浏览器按 ETag 协商缓存
+    @GetMapping("/roles/list")
+    public ResponseEntity<byte[]> getRolesCached(@Valid RoleQueryDTO request,
+                                                 @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                 @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return rolesResponse(request, ifNoneMatch, acceptEncoding);
+    }
+
+    private ResponseEntity<byte[]> rolesResponse(RoleQueryDTO request, String ifNoneMatch, String acceptEncoding) {
+        String key = "roles:" + request.getStatus() + "|" + request.getKeyword() + "|"
+                + request.getPageNumber() + "|" + request.getPageSize();
+        return referenceDataCache.respond(key, new String[]{ReferenceDataCache.ROLES}, null,
+                () -> authService.getRoles(request), ifNoneMatch, acceptEncoding);
     }
 }
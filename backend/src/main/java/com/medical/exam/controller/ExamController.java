@@ -1,9 +1,14 @@
 package com.medical.exam.controller;
 
+import com.medical.exam.admission.Admission;
+import com.medical.exam.admission.AdmissionQueue;
 import com.medical.exam.common.result.Result;
 import com.medical.exam.dto.*;
 import com.medical.exam.entity.ExamRecord;
+import com.medical.exam.security.JwtAccessContext;
+import com.medical.exam.service.AnswerDraftService;
 import com.medical.exam.service.ExamService;
+import com.medical.exam.service.SubmissionService;
 import com.medical.exam.service.AdminService;
 import jakarta.annotation.Resource;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,6 +30,15 @@ public class ExamController {
     @Resource
     private AdminService adminService;
 
+    @Resource
+    private AnswerDraftService answerDraftService;
+
+    @Resource
+    private SubmissionService submissionService;
+
+    @Resource
+    private AdmissionQueue admissionQueue;
+
     // 考试结果管理
 
     @PostMapping("/exam-summary")
@@ -36,6 +50,12 @@ public class ExamController {
         return Result.success(adminService.getExamResults(request));
     }
 
+    // 游标翻页：按上一页返回的 nextCursor 继续查询，深页与第一页代价相同
+    @PostMapping("/exam-results/cursor")
+    public Result<?> getExamResultsByCursor(@RequestBody ExamResultQueryDTO request) {
+        return Result.success(adminService.getExamResultsByCursor(request));
+    }
+
     @PostMapping("/exam-results/getDetail")
     public Result<?> getExamResultDetail(@RequestBody Map<String, Object> request) {
         String recordId = request.get("recordId").toString();
@@ -53,6 +73,12 @@ public class ExamController {
         adminService.exportExamResults(request, response);
     }
 
+    // 提交考试结果后台导出任务，返回任务ID，进度与下载见 /admin/export-jobs
+    @PostMapping("/exam-results/export-jobs")
+    public Result<?> submitExamResultsExportJob(@RequestBody ExamResultQueryDTO request) {
+        return Result.success(adminService.submitExamResultsExportJob(request));
+    }
+
     @PostMapping("/exam-results/delete")
     public Result<?> deleteExamRecord(@RequestBody Map<String, Object> request) {
         adminService.deleteExamRecord(request.get("recordId").toString());
@@ -60,14 +86,34 @@ public class ExamController {
     }
 
     @PostMapping("/start")
-    public Result<?> startExam(@RequestBody StartExamDTO request) {
-        String recordId = examService.startExam(request);
-        return Result.success("考试开始", Map.of("recordId", recordId));
+    public Result<?> startExam(@RequestBody StartExamDTO request,
+                               @RequestHeader(value = "X-Admission-Ticket", required = false) String ticket) {
+        Admission admission = admissionQueue.tryAcquire(JwtAccessContext.getLoginInfo().getUserId(), ticket);
+        if (!admission.isAdmitted()) {
+            return admission.toQueuedResult();
+        }
+        try (AdmissionQueue.Permit permit = admission.getPermit()) {
+            String recordId = examService.startExam(request);
+            return Result.success("考试开始", Map.of("recordId", recordId));
+        }
+    }
+
+    @PostMapping("/checkpoint")
+    public Result<?> checkpoint(@RequestBody CheckpointRequest request) {
+        int saved = answerDraftService.checkpoint(JwtAccessContext.getLoginInfo().getUserId(),
+                request.getRecordId(), request.getAnswers());
+        return Result.success("答案已保存", Map.of("saved", saved));
     }
 
     @PostMapping("/submit")
     public Result<?> submitExam(@Valid @RequestBody SubmitExamRequest request) {
-        Map<String, Object> result = examService.submitExam(request);
+        Map<String, Object> result = submissionService.submit(request);
         return Result.success("考试提交成功", result);
     }
+
+    @PostMapping("/submit/result")
+    public Result<?> getSubmitResult(@RequestBody Map<String, Object> request) {
+        String recordId = request.get("recordId").toString();
+        return Result.success(submissionService.getResult(recordId));
+    }
 }
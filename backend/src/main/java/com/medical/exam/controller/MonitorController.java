@@ -0,0 +1,155 @@
+package com.medical.exam.controller;
+
+import com.medical.exam.admission.AdmissionQueue;
+import com.medical.exam.audit.SysLogWriter;
+import com.medical.exam.cache.PaperParticipationIndex;
+import com.medical.exam.cache.PaperSnapshotCache;
+import com.medical.exam.cache.PublishedPaperIndex;
+import com.medical.exam.cache.ReferenceDataCache;
+import com.medical.exam.cache.UserCredentialCache;
+import com.medical.exam.cache.UserExamStateCache;
+import com.medical.exam.common.result.Result;
+import com.medical.exam.export.ExportJobManager;
+import com.medical.exam.service.ExamRollupMaintainer;
+import com.medical.exam.service.ExamTimeoutSweeper;
+import com.medical.exam.service.GradingService;
+import com.medical.exam.service.LatestAttemptMaintainer;
+import com.medical.exam.service.ResultSummaryService;
+import jakarta.annotation.Resource;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 运行指标
+ */
+@RestController
+@RequestMapping("/admin/monitor")
+public class MonitorController {
+
+    @Resource
+    private AdmissionQueue admissionQueue;
+
+    @Resource
+    private PaperSnapshotCache paperSnapshotCache;
+
+    @Resource
+    private ExamTimeoutSweeper examTimeoutSweeper;
+
+    @Resource
+    private GradingService gradingService;
+
+    @Resource
+    private SysLogWriter sysLogWriter;
+
+    @Resource
+    private UserCredentialCache userCredentialCache;
+
+    @Resource
+    private LatestAttemptMaintainer latestAttemptMaintainer;
+
+    @Resource
+    private ExportJobManager exportJobManager;
+
+    @Resource
+    private ResultSummaryService resultSummaryService;
+
+    @Resource
+    private ExamRollupMaintainer examRollupMaintainer;
+
+    @Resource
+    private ReferenceDataCache referenceDataCache;
+
+    @Resource
+    private PaperParticipationIndex paperParticipationIndex;
+
+    @Resource
+    private PublishedPaperIndex publishedPaperIndex;
+
+    @Resource
+    private UserExamStateCache userExamStateCache;
+
+    // 开考准入队列：排队深度、并发数、等待时间
+    @PostMapping("/admission")
+    public Result<?> getAdmissionMetrics() {
+        return Result.success(admissionQueue.getMetrics());
+    }
+
+    // 试卷快照缓存：缓存试卷数、压缩字节、命中率
+    @PostMapping("/paper-snapshot")
+    public Result<?> getPaperSnapshotMetrics() {
+        return Result.success(paperSnapshotCache.getMetrics());
+    }
+
+    // 超时清理：最近一次清理耗时、关闭记录数、超期滞后
+    @PostMapping("/timeout-sweeper")
+    public Result<?> getTimeoutSweeperMetrics() {
+        return Result.success(examTimeoutSweeper.getMetrics());
+    }
+
+    // 异步判分：线程数、队列深度、平均判分耗时
+    @PostMapping("/grading")
+    public Result<?> getGradingMetrics() {
+        return Result.success(gradingService.getMetrics());
+    }
+
+    // 操作日志异步写入：缓冲区积压、已写入、丢弃与溢出条数
+    @PostMapping("/sys-log")
+    public Result<?> getSysLogMetrics() {
+        return Result.success(sysLogWriter.getMetrics());
+    }
+
+    // 登录用户缓存：缓存人数、命中与未命中次数
+    @PostMapping("/login-cache")
+    public Result<?> getLoginCacheMetrics() {
+        return Result.success(userCredentialCache.getMetrics());
+    }
+
+    // 考试最新成绩表：最近一次回填、校验的耗时与不一致数
+    @PostMapping("/latest-attempt")
+    public Result<?> getLatestAttemptMetrics() {
+        return Result.success(latestAttemptMaintainer.getMetrics());
+    }
+
+    // 后台导出任务：执行中、排队、完成与拒绝数
+    @PostMapping("/export-jobs")
+    public Result<?> getExportJobMetrics() {
+        return Result.success(exportJobManager.getMetrics());
+    }
+
+    // 考试结果汇总：是否已加载、最近一次校验耗时与是否发现偏差
+    @PostMapping("/result-summary")
+    public Result<?> getResultSummaryMetrics() {
+        return Result.success(resultSummaryService.getMetrics());
+    }
+
+    // 考试统计日汇总：待写入增量数、最近一次重算的范围与耗时
+    @PostMapping("/rollup")
+    public Result<?> getRollupMetrics() {
+        return Result.success(examRollupMaintainer.getMetrics());
+    }
+
+    // 基础数据响应缓存：各数据集版本号、304 与命中次数
+    @PostMapping("/reference-data")
+    public Result<?> getReferenceDataMetrics() {
+        return Result.success(referenceDataCache.getMetrics());
+    }
+
+    // 试卷参考位图索引：类别数、学员数、已加载的试卷数
+    @PostMapping("/paper-participation")
+    public Result<?> getPaperParticipationMetrics() {
+        return Result.success(paperParticipationIndex.getMetrics());
+    }
+
+    // 考生首页：人员类别 -> 已发布试卷索引与考生考试状态缓存
+    @PostMapping("/available-papers")
+    public Result<?> getAvailablePapersMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("publishedPapers", publishedPaperIndex.getMetrics());
+        metrics.put("userExamState", userExamStateCache.getMetrics());
+        return Result.success(metrics);
+    }
+}
@@ -0,0 +1,14 @@
+package com.medical.exam.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class CheckpointRequest {
+
+    private String recordId;
+
+    // 自上次保存以来发生变化的答案
+    private List<AnswerDTO> answers;
+}
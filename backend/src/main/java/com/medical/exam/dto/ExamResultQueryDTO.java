@@ -14,6 +14,7 @@ public class ExamResultQueryDTO {
     private String examName; // 考试名称筛选
     private Boolean includeDeleted; // 是否包含已删除的记录，true:包含已删除, false/null:不包含已删除
     private Boolean onlyDeleted; // 是否只查询已删除的记录，true:只查询已删除, false/null:查询未删除或全部
+    private String cursor; // 游标翻页：上一页返回的 nextCursor，为空时查询第一页
     @NotNull(message = "页码不能为空")
     @Min(value = 1, message = "页码最小为1")
     private Integer pageNumber = 1;
@@ -16,5 +16,6 @@ public class PaperExamStatusDTO {
     private Integer totalUsers; // 该人员类别下的总用户数
     private Integer examedUsers; // 已考试的用户数
     private Integer notExamedUsers; // 未考试的用户数
+    private Integer passedUsers; // 及格的用户数
     private Double examRate; // 考试率
 }
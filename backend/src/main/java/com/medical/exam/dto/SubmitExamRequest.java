@@ -1,7 +1,6 @@
 package com.medical.exam.dto;
 
 import jakarta.validation.constraints.NotBlank;
-import jakarta.validation.constraints.NotEmpty;
 import lombok.Data;
 
 import java.util.List;
@@ -11,6 +10,6 @@ public class SubmitExamRequest {
     
     private String recordId;
     
-    @NotEmpty(message = "答案列表不能为空")
+    // 考试过程中已通过 /exam/checkpoint 保存的答案可不再重复提交
     private List<AnswerDTO> answers;
 }
@@ -10,6 +10,7 @@ public class UserQueryDTO {
     private String department;
     private String keyword;
     private String status;
+    private String cursor; // 游标翻页：上一页返回的 nextCursor，为空时查询第一页
     @NotNull(message = "页码不能为空")
     @Min(value = 1, message = "页码最小为1")
     private Integer pageNumber = 1;
@@ -0,0 +1,23 @@
+package com.medical.exam.entity;
+
+import com.mybatisflex.annotation.Id;
+import com.mybatisflex.annotation.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 考试配置的可参考人员类别（每个 考试配置+人员类别 一行）
+ */
+@Data
+@Builder
+@Table("exam_config_user_category")
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExamConfigUserCategory {
+    @Id
+    private String configId;
+    @Id
+    private String userCategory;
+}
@@ -30,7 +30,7 @@ public class ExamRecord {
     private Integer score;
     private Integer passScore;
 
-    //状态(pending:待开始,in-progress:进行中,completed:已完成,timeout:超时)
+    //状态(pending:待开始,in-progress:进行中,submitted:已交卷待判分,failed:判分失败,completed:已完成,timeout:超时)
     private String status;
     private String createDept;
     private String createBy;
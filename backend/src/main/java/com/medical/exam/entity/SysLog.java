@@ -8,14 +8,18 @@ import com.mybatisflex.annotation.Id;
 import com.mybatisflex.annotation.KeyType;
 import com.mybatisflex.annotation.Table;
 import com.mybatisflex.core.keygen.KeyGenerators;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 /**
  * sys_log
  */
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 @Table(value = "sys_log")
 public class SysLog implements Serializable {
 
@@ -0,0 +1,241 @@
+package com.medical.exam.export;
+
+import com.medical.exam.dto.ExamResultQueryDTO;
+import com.mybatisflex.core.row.Db;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * 考试结果流式导出
+ * 以只进游标逐行读取查询结果，经 SXSSF 写入 Excel：内存中只保留窗口内的行，其余行压缩暂存到临时文件，
+ * 列宽预先设定不做自适应计算；数据读完、释放数据库连接后再把工作簿写入输出流。
+ * 内存占用与导出行数无关，超过单个工作表行数上限时自动新建工作表
+ */
+@Component
+@Slf4j
+public class ExamResultExporter {
+
+    // 列：表头、查询列、列宽（字符数）、是否数值
+    private static final String[] HEADERS = {"recordId", "姓名", "身份证号", "考试名称", "题目分类", "人员类别",
+            "得分", "总分", "用时(分钟)", "完成时间", "状态", "重考"};
+    private static final String[] COLUMNS = {"record_id", "user_name", "id_number", "exam_name", "category_name",
+            "user_category", "score", "total_score", "duration", "exam_date", "status", "retake"};
+    private static final int[] WIDTHS = {10, 12, 22, 30, 16, 14, 8, 8, 12, 22, 12, 8};
+    private static final boolean[] NUMERIC = {false, false, false, false, false, false,
+            true, true, false, false, false, false};
+
+    private static final String SELECT =
+            "SELECT er.record_id, su.user_name, su.id_number, er.exam_name, su.department AS category_name, " +
+            "su.user_category, er.score, er.total_score, er.duration, " +
+            "DATE_FORMAT(er.end_time, '%Y-%m-%d %H:%i:%s') AS exam_date, er.status, er.retake ";
+
+    // 回调导出进度的间隔行数
+    private static final int PROGRESS_INTERVAL = 1000;
+
+    @Resource
+    private DataSource dataSource;
+
+    // SXSSF 内存中保留的行数
+    @Value("${exam.export.window-size:500}")
+    private int windowSize;
+
+    // JDBC 每次读取的行数；0 表示 MySQL 逐行流式读取，大于 0 时需在 JDBC URL 中开启 useCursorFetch=true
+    @Value("${exam.export.fetch-size:0}")
+    private int fetchSize;
+
+    /**
+     * 按查询条件导出考试结果
+     *
+     * @param progress 已写入行数的回调，可为 null
+     * @return 导出的行数
+     */
+    public long export(ExamResultQueryDTO request, OutputStream out, LongConsumer progress) throws IOException, SQLException {
+        List<Object> params = new ArrayList<>();
+        String sql = buildSql(request, params);
+
+        SXSSFWorkbook workbook = new SXSSFWorkbook(windowSize);
+        workbook.setCompressTempFiles(true);
+        try {
+            CellStyle headStyle = createStyle(workbook, true);
+            CellStyle cellStyle = createStyle(workbook, false);
+            long rows = 0;
+            try (Connection connection = dataSource.getConnection();
+                 PreparedStatement statement = connection.prepareStatement(sql,
+                         ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                statement.setFetchSize(fetchSize > 0 ? fetchSize : Integer.MIN_VALUE);
+                for (int i = 0; i < params.size(); i++) {
+                    statement.setObject(i + 1, params.get(i));
+                }
+                try (ResultSet rs = statement.executeQuery()) {
+                    int lastRowIndex = SpreadsheetVersion.EXCEL2007.getLastRowIndex();
+                    SXSSFSheet sheet = createSheet(workbook, headStyle);
+                    int rowIndex = 0;
+                    while (rs.next()) {
+                        if (rowIndex == lastRowIndex) {
+                            sheet = createSheet(workbook, headStyle);
+                            rowIndex = 0;
+                        }
+                        writeRow(sheet.createRow(++rowIndex), rs, cellStyle);
+                        rows++;
+                        if (progress != null && rows % PROGRESS_INTERVAL == 0) {
+                            progress.accept(rows);
+                        }
+                    }
+                }
+            }
+            workbook.write(out);
+            out.flush();
+            if (progress != null) {
+                progress.accept(rows);
+            }
+            return rows;
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    /**
+     * 导出行数，用于后台导出任务的进度估算
+     */
+    public long estimate(ExamResultQueryDTO request) {
+        List<Object> params = new ArrayList<>();
+        String sql = buildSql(request, params);
+        com.mybatisflex.core.row.Row row = Db.selectOneBySql("SELECT COUNT(1) AS total FROM (" + sql + ") t",
+                params.toArray());
+        return row != null && row.getLong("total") != null ? row.getLong("total") : 0L;
+    }
+
+    /**
+     * 导出查询：不及格筛选取每个用户每个考试的最新成绩，其余排除进行中的考试；"all" 视为不筛选
+     */
+    private static String buildSql(ExamResultQueryDTO request, List<Object> params) {
+        boolean failOnly = "fail".equals(request.getPassStatus());
+        boolean includeDeleted = Boolean.TRUE.equals(request.getIncludeDeleted());
+        StringBuilder sql = new StringBuilder(SELECT);
+        if (failOnly) {
+            sql.append("FROM exam_latest_attempt la ")
+                    .append("JOIN exam_record er ON er.record_id = la.record_id ")
+                    .append("LEFT JOIN sys_user su ON su.user_id = la.user_id ")
+                    .append("LEFT JOIN exam_paper ep ON ep.paper_id = er.paper_id ")
+                    .append("WHERE la.passed = 0");
+        } else {
+            sql.append("FROM exam_record er ")
+                    .append("LEFT JOIN sys_user su ON su.user_id = er.user_id")
+                    .append(includeDeleted ? " " : " AND (su.deleted = 0 OR su.deleted IS NULL) ")
+                    .append("LEFT JOIN exam_paper ep ON ep.paper_id = er.paper_id ")
+                    .append("WHERE er.status <> 'in-progress'"); // 导出时排除进行中的考试
+        }
+
+        if (request.getKeyword() != null && !request.getKeyword().trim().isEmpty()) {
+            sql.append(" AND (su.user_name LIKE ? OR su.id_number LIKE ?)");
+            params.add("%" + request.getKeyword() + "%");
+            params.add("%" + request.getKeyword() + "%");
+        }
+
+        if (request.getCategory() != null && !request.getCategory().trim().isEmpty()
+                && !"all".equals(request.getCategory())) {
+            sql.append(" AND ep.category_id = ?");
+            params.add(request.getCategory());
+        }
+
+        if (request.getStatus() != null && !request.getStatus().trim().isEmpty()
+                && !"all".equals(request.getStatus())) {
+            sql.append(" AND er.status = ?");
+            params.add(request.getStatus());
+        }
+
+        if ("pass".equals(request.getPassStatus())) {
+            sql.append(" AND er.score >= er.pass_score");
+        }
+
+        if ("retake".equals(request.getRetakeStatus())) {
+            sql.append(" AND er.retake = 1");
+        } else if ("normal".equals(request.getRetakeStatus())) {
+            sql.append(" AND er.retake = 0");
+        }
+
+        if (request.getExamName() != null && !request.getExamName().trim().isEmpty()) {
+            sql.append(" AND er.exam_name LIKE ?");
+            params.add("%" + request.getExamName() + "%");
+        }
+
+        String deletedColumn = failOnly ? "la.deleted" : "er.deleted";
+        if (!includeDeleted) {
+            sql.append(failOnly ? " AND la.deleted = 0" : " AND (er.deleted = 0 OR er.deleted IS NULL)");
+        } else if (Boolean.TRUE.equals(request.getOnlyDeleted())) {
+            sql.append(" AND ").append(deletedColumn).append(" = 1");
+        }
+
+        sql.append(failOnly ? " ORDER BY la.end_time DESC, la.record_id DESC" : " ORDER BY er.end_time DESC");
+        return sql.toString();
+    }
+
+    private static SXSSFSheet createSheet(SXSSFWorkbook workbook, CellStyle headStyle) {
+        SXSSFSheet sheet = workbook.createSheet();
+        for (int i = 0; i < HEADERS.length; i++) {
+            sheet.setColumnWidth(i, WIDTHS[i] * 256);
+        }
+        Row header = sheet.createRow(0);
+        for (int i = 0; i < HEADERS.length; i++) {
+            Cell cell = header.createCell(i);
+            cell.setCellValue(HEADERS[i]);
+            cell.setCellStyle(headStyle);
+        }
+        return sheet;
+    }
+
+    private static void writeRow(Row row, ResultSet rs, CellStyle cellStyle) throws SQLException {
+        for (int i = 0; i < COLUMNS.length; i++) {
+            Cell cell = row.createCell(i);
+            cell.setCellStyle(cellStyle);
+            if (NUMERIC[i]) {
+                int value = rs.getInt(COLUMNS[i]);
+                if (!rs.wasNull()) {
+                    cell.setCellValue(value);
+                }
+                continue;
+            }
+            String value = rs.getString(COLUMNS[i]);
+            if ("retake".equals(COLUMNS[i]) && value != null) {
+                value = "1".equals(value) ? "是" : "否";
+            }
+            if (value != null) {
+                cell.setCellValue(value);
+            }
+        }
+    }
+
+    // 与原 hutool ExcelWriter 默认样式一致：居中、细边框，表头灰色底纹
+    private static CellStyle createStyle(Workbook workbook, boolean head) {
+        CellStyle style = workbook.createCellStyle();
+        style.setAlignment(HorizontalAlignment.CENTER);
+        style.setVerticalAlignment(VerticalAlignment.CENTER);
+        style.setBorderTop(BorderStyle.THIN);
+        style.setBorderBottom(BorderStyle.THIN);
+        style.setBorderLeft(BorderStyle.THIN);
+        style.setBorderRight(BorderStyle.THIN);
+        if (head) {
+            style.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
+            style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+        }
+        return style;
+    }
+}
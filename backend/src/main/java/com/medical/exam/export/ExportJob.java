@@ -0,0 +1,131 @@
+package com.medical.exam.export;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 后台导出任务：由导出线程更新状态与进度，查询线程读取
+ */
+@Getter
+public class ExportJob {
+
+    public static final String STATUS_QUEUED = "queued";
+    public static final String STATUS_RUNNING = "running";
+    public static final String STATUS_DONE = "done";
+    public static final String STATUS_FAILED = "failed";
+
+    private final String jobId;
+    private final String type;
+    private final String userId;
+    private final String fileName;
+    private final Path file;
+    private final long createdAt;
+
+    private volatile String status = STATUS_QUEUED;
+    private volatile long rowsWritten;
+    // 预计总行数，未知时为 -1
+    private volatile long estimatedTotal = -1;
+    private volatile long fileSize;
+    private volatile long finishedAt;
+    private volatile String error;
+    // 进行中的下载数；清理后为 -1，不再接受下载
+    @Getter(AccessLevel.NONE)
+    private final AtomicInteger downloads = new AtomicInteger();
+    private volatile long lastDownloadAt;
+
+    ExportJob(String jobId, String type, String userId, String fileName, Path file) {
+        this.jobId = jobId;
+        this.type = type;
+        this.userId = userId;
+        this.fileName = fileName;
+        this.file = file;
+        this.createdAt = System.currentTimeMillis();
+    }
+
+    public boolean isDone() {
+        return STATUS_DONE.equals(status);
+    }
+
+    public boolean isFinished() {
+        return STATUS_DONE.equals(status) || STATUS_FAILED.equals(status);
+    }
+
+    void running() {
+        status = STATUS_RUNNING;
+    }
+
+    /**
+     * 更新已写入行数
+     */
+    public void progress(long rows) {
+        rowsWritten = rows;
+    }
+
+    /**
+     * 设置预计总行数
+     */
+    public void estimate(long total) {
+        estimatedTotal = total;
+    }
+
+    void done(long rows, long size) {
+        rowsWritten = rows;
+        fileSize = size;
+        finishedAt = System.currentTimeMillis();
+        status = STATUS_DONE;
+    }
+
+    void failed(String message) {
+        error = message;
+        finishedAt = System.currentTimeMillis();
+        status = STATUS_FAILED;
+    }
+
+    /**
+     * 开始下载，任务已清理时返回 false
+     */
+    boolean beginDownload() {
+        while (true) {
+            int current = downloads.get();
+            if (current < 0) {
+                return false;
+            }
+            if (downloads.compareAndSet(current, current + 1)) {
+                lastDownloadAt = System.currentTimeMillis();
+                return true;
+            }
+        }
+    }
+
+    void endDownload() {
+        downloads.decrementAndGet();
+    }
+
+    /**
+     * 没有进行中的下载时标记为已清理，之后的下载不再开始
+     */
+    boolean tryPurge() {
+        return downloads.compareAndSet(0, -1);
+    }
+
+    public Map<String, Object> toStatus() {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("jobId", jobId);
+        data.put("type", type);
+        data.put("status", status);
+        data.put("rowsWritten", rowsWritten);
+        data.put("estimatedTotal", estimatedTotal >= 0 ? estimatedTotal : null);
+        data.put("fileName", fileName);
+        data.put("fileSize", isDone() ? fileSize : null);
+        data.put("error", error);
+        data.put("createdAt", new Date(createdAt));
+        data.put("finishedAt", finishedAt > 0 ? new Date(finishedAt) : null);
+        return data;
+    }
+}
@@ -0,0 +1,289 @@
+package com.medical.exam.export;
+
+import com.medical.exam.common.exception.CustomException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URLEncoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * 后台导出任务
+ * 提交后立即返回任务ID，导出在专用的小线程池中执行（线程数即同时占用的数据库连接上限，排队满时拒绝），
+ * 结果写入本地文件；客户端轮询进度，完成后下载。下载支持 Range，Tomcat 支持 sendfile 时由容器零拷贝发送，
+ * 否则以 FileChannel.transferTo 写出。完成的任务与文件在完成（或最近一次下载）超过保留时间后清理，
+ * 正在下载的任务不清理
+ */
+@Component
+@Slf4j
+public class ExportJobManager {
+
+    private static final String TOMCAT_SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String TOMCAT_SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String TOMCAT_SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String TOMCAT_SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // 任务文件名：32 位任务ID + .xlsx，导出中为 .xlsx.part；目录中的其他文件不做处理
+    private static final Pattern JOB_FILE = Pattern.compile("[0-9a-f]{32}\\.xlsx(\\.part)?");
+
+    @Value("${exam.export.job-dir:data/export}")
+    private String jobDir;
+
+    // 同时执行的导出任务数，应远小于连接池大小
+    @Value("${exam.export.job-workers:2}")
+    private int workers;
+
+    @Value("${exam.export.job-queue-capacity:20}")
+    private int queueCapacity;
+
+    // 完成的任务与文件保留时间（毫秒）
+    @Value("${exam.export.job-ttl-millis:3600000}")
+    private long ttlMillis;
+
+    private Path dir;
+
+    private ThreadPoolExecutor executor;
+
+    private final ConcurrentHashMap<String, ExportJob> jobs = new ConcurrentHashMap<>();
+
+    private final AtomicLong submittedTotal = new AtomicLong();
+    private final AtomicLong completedTotal = new AtomicLong();
+    private final AtomicLong failedTotal = new AtomicLong();
+    private final AtomicLong rejectedTotal = new AtomicLong();
+
+    /**
+     * 导出内容：写入输出流，可通过 job 更新预计总行数与进度
+     */
+    @FunctionalInterface
+    public interface ExportTask {
+        long write(OutputStream out, ExportJob job) throws Exception;
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        dir = Paths.get(jobDir);
+        Files.createDirectories(dir);
+        // 任务只保存在内存中，重启前留下的任务文件已无法下载；只删除符合任务文件名的文件
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(dir,
+                file -> Files.isRegularFile(file) && JOB_FILE.matcher(file.getFileName().toString()).matches())) {
+            for (Path file : leftovers) {
+                Files.deleteIfExists(file);
+            }
+        }
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "export-job-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * 提交导出任务
+     *
+     * @param fileName 下载时的文件名
+     */
+    public ExportJob submit(String type, String userId, String fileName, ExportTask task) {
+        String jobId = UUID.randomUUID().toString().replace("-", "");
+        ExportJob job = new ExportJob(jobId, type, userId, fileName, dir.resolve(jobId + ".xlsx"));
+        jobs.put(jobId, job);
+        try {
+            executor.execute(() -> run(job, task));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(jobId);
+            rejectedTotal.incrementAndGet();
+            throw new CustomException("导出任务较多，请稍后再试");
+        }
+        submittedTotal.incrementAndGet();
+        return job;
+    }
+
+    /**
+     * 当前用户的导出任务
+     */
+    public ExportJob get(String jobId, String userId) {
+        ExportJob job = jobId != null ? jobs.get(jobId) : null;
+        if (job == null || !job.getUserId().equals(userId)) {
+            throw new CustomException("导出任务不存在或已过期");
+        }
+        return job;
+    }
+
+    /**
+     * 下载已完成任务的文件，支持单个 Range（断点续传）
+     */
+    public void download(ExportJob job, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // 下载期间清理任务会跳过该任务
+        if (!job.beginDownload()) {
+            throw new CustomException("导出任务不存在或已过期");
+        }
+        try {
+            send(job, request, response);
+        } finally {
+            job.endDownload();
+        }
+    }
+
+    private void send(ExportJob job, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!job.isDone() || !Files.exists(job.getFile())) {
+            throw new CustomException("导出文件尚未生成");
+        }
+        long size = Files.size(job.getFile());
+        long start = 0;
+        long end = size - 1;
+        String range = request.getHeader("Range");
+        if (range != null) {
+            long[] parsed = parseRange(range, size);
+            if (parsed == null) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader("Content-Range", "bytes */" + size);
+                return;
+            }
+            if (parsed.length == 2) {
+                start = parsed[0];
+                end = parsed[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + size);
+            }
+        }
+        long length = end - start + 1;
+
+        response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+        response.setHeader("Accept-Ranges", "bytes");
+        response.setHeader("Content-Disposition", "attachment;filename*=UTF-8''"
+                + URLEncoder.encode(job.getFileName(), StandardCharsets.UTF_8));
+        response.setContentLengthLong(length);
+
+        if (Boolean.TRUE.equals(request.getAttribute(TOMCAT_SENDFILE_SUPPORT))) {
+            request.setAttribute(TOMCAT_SENDFILE_FILENAME, job.getFile().toAbsolutePath().toString());
+            request.setAttribute(TOMCAT_SENDFILE_START, start);
+            request.setAttribute(TOMCAT_SENDFILE_END, end + 1);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(job.getFile(), StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position <= end) {
+                position += channel.transferTo(position, end + 1 - position, target);
+            }
+        }
+        response.flushBuffer();
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("workers", workers);
+        metrics.put("running", executor.getActiveCount());
+        metrics.put("queued", executor.getQueue().size());
+        metrics.put("jobs", jobs.size());
+        metrics.put("submittedTotal", submittedTotal.get());
+        metrics.put("completedTotal", completedTotal.get());
+        metrics.put("failedTotal", failedTotal.get());
+        metrics.put("rejectedTotal", rejectedTotal.get());
+        return metrics;
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void purge() {
+        long expireBefore = System.currentTimeMillis() - ttlMillis;
+        for (ExportJob job : jobs.values()) {
+            // sendfile 在请求返回后由容器发送，以最近一次下载时间计算保留时间，避免删除刚交给容器的文件
+            if (job.isFinished() && Math.max(job.getFinishedAt(), job.getLastDownloadAt()) < expireBefore
+                    && job.tryPurge()) {
+                jobs.remove(job.getJobId());
+                try {
+                    Files.deleteIfExists(job.getFile());
+                } catch (IOException e) {
+                    log.warn("删除过期导出文件失败: {}", job.getFile(), e);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void run(ExportJob job, ExportTask task) {
+        job.running();
+        Path part = job.getFile().resolveSibling(job.getFile().getFileName() + ".part");
+        try {
+            long rows;
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(part), 64 * 1024)) {
+                rows = task.write(out, job);
+            }
+            Files.move(part, job.getFile(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            job.done(rows, Files.size(job.getFile()));
+            completedTotal.incrementAndGet();
+            log.info("导出任务完成，任务ID: {}, 类型: {}, 行数: {}", job.getJobId(), job.getType(), rows);
+        } catch (Exception e) {
+            failedTotal.incrementAndGet();
+            job.failed(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+            log.error("导出任务失败，任务ID: {}, 类型: {}", job.getJobId(), job.getType(), e);
+            try {
+                Files.deleteIfExists(part);
+            } catch (IOException ignored) {
+                // 下次启动时清理
+            }
+        }
+    }
+
+    /**
+     * 解析单个字节范围
+     *
+     * @return {start, end}；不支持的格式（如多个范围）返回空数组，按整个文件发送；范围无法满足返回 null
+     */
+    private static long[] parseRange(String range, long size) {
+        if (!range.startsWith("bytes=") || range.contains(",")) {
+            return new long[0];
+        }
+        String spec = range.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return new long[0];
+        }
+        try {
+            long start;
+            long end;
+            if (dash == 0) {
+                // 最后 N 个字节
+                long suffix = Long.parseLong(spec.substring(1));
+                if (suffix <= 0) {
+                    return null;
+                }
+                start = Math.max(0, size - suffix);
+                end = size - 1;
+            } else {
+                start = Long.parseLong(spec.substring(0, dash));
+                end = dash == spec.length() - 1 ? size - 1 : Math.min(Long.parseLong(spec.substring(dash + 1)), size - 1);
+            }
+            if (start >= size || start > end) {
+                return null;
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.medical.exam.grading;
+
+/**
+ * 答案编码
+ * 选择题、多选题答案为逗号分隔的选项下标（如 "2,0"），编码为 long 序列：按作答顺序每个下标 +1 占 5 位，
+ * 最多 12 个下标、下标不超过 30；同时可得到 int 位掩码（第 i 位表示选中第 i 个选项），用于不计顺序的比较。
+ * 判断题答案编码为 1（正确）或 2（错误）。
+ * 编码过程只扫描字符，不创建对象
+ */
+public final class AnswerCodec {
+
+    // 无法编码（格式错误、下标越界），任何策略下均不得分
+    public static final long INVALID = -1L;
+
+    // 正确答案无法编码时按原文比较，原文一致的考生答案编码为该值
+    public static final long TEXT_MATCH = Long.MAX_VALUE;
+
+    public static final long JUDGMENT_TRUE = 1L;
+    public static final long JUDGMENT_FALSE = 2L;
+
+    private static final int BITS = 5;
+    private static final int MAX_INDEX = 30;
+    private static final int MAX_SELECTIONS = 12;
+
+    private AnswerCodec() {
+    }
+
+    /**
+     * 编码逗号分隔的选项下标，保持作答顺序；空答案编码为 0
+     */
+    public static long encodeIndexes(CharSequence answer) {
+        if (answer == null) {
+            return 0L;
+        }
+        long sequence = 0L;
+        int count = 0;
+        int index = -1;
+        boolean ended = false;
+        for (int i = 0, n = answer.length(); i <= n; i++) {
+            char c = i < n ? answer.charAt(i) : ',';
+            if (c >= '0' && c <= '9') {
+                // 下标中间不允许出现空白（如 "1 2"）
+                if (ended) {
+                    return INVALID;
+                }
+                index = (index < 0 ? 0 : index * 10) + (c - '0');
+                if (index > MAX_INDEX) {
+                    return INVALID;
+                }
+            } else if (c == ',') {
+                if (index < 0) {
+                    // 允许首尾空白，不允许空下标（如 "0,,1"）
+                    if (i < n || count > 0) {
+                        return INVALID;
+                    }
+                    continue;
+                }
+                if (++count > MAX_SELECTIONS) {
+                    return INVALID;
+                }
+                sequence = (sequence << BITS) | (index + 1);
+                index = -1;
+                ended = false;
+            } else if (Character.isWhitespace(c)) {
+                ended = index >= 0;
+            } else {
+                return INVALID;
+            }
+        }
+        return sequence;
+    }
+
+    /**
+     * 编码判断题答案，无法识别时返回 INVALID
+     */
+    public static long encodeJudgment(String answer) {
+        if (answer == null) {
+            return INVALID;
+        }
+        switch (answer.trim()) {
+            case "正确", "对", "√", "是", "A", "T", "true", "TRUE", "True" -> {
+                return JUDGMENT_TRUE;
+            }
+            case "错误", "错", "×", "否", "B", "F", "false", "FALSE", "False" -> {
+                return JUDGMENT_FALSE;
+            }
+            default -> {
+                return INVALID;
+            }
+        }
+    }
+
+    /**
+     * 序列 -> 位掩码；TEXT_MATCH 视为全选，INVALID 视为未选
+     */
+    public static int mask(long sequence) {
+        if (sequence == TEXT_MATCH) {
+            return -1;
+        }
+        if (sequence == INVALID) {
+            return 0;
+        }
+        int mask = 0;
+        while (sequence != 0) {
+            mask |= 1 << ((int) (sequence & 31) - 1);
+            sequence >>>= BITS;
+        }
+        return mask;
+    }
+
+    /**
+     * 按映射表替换下标（perm[显示下标] = 原始下标），结果按原始下标升序排列，与点击顺序无关；
+     * 含重复下标时无法用位掩码排序，保持原顺序；越界返回 INVALID
+     */
+    public static long remap(long sequence, int[] perm) {
+        if (sequence == INVALID || sequence == TEXT_MATCH) {
+            return sequence;
+        }
+        long result = 0L;
+        int shift = 0;
+        int mask = 0;
+        boolean duplicated = false;
+        while (sequence != 0) {
+            int index = (int) (sequence & 31) - 1;
+            if (index >= perm.length) {
+                return INVALID;
+            }
+            int original = perm[index];
+            duplicated |= (mask & (1 << original)) != 0;
+            mask |= 1 << original;
+            result |= (long) (original + 1) << shift;
+            shift += BITS;
+            sequence >>>= BITS;
+        }
+        return duplicated ? result : ascending(mask);
+    }
+
+    /**
+     * 位掩码 -> 按下标升序的序列
+     */
+    public static long ascending(int mask) {
+        long sequence = 0L;
+        while (mask != 0) {
+            int index = Integer.numberOfTrailingZeros(mask);
+            sequence = (sequence << BITS) | (index + 1);
+            mask &= mask - 1;
+        }
+        return sequence;
+    }
+
+    /**
+     * 序列 -> 逗号分隔的下标字符串，用于保存答题详情
+     */
+    public static String decode(long sequence) {
+        if (sequence == 0) {
+            return "";
+        }
+        int groups = (64 - Long.numberOfLeadingZeros(sequence) + BITS - 1) / BITS;
+        StringBuilder sb = new StringBuilder(groups * 3);
+        for (int g = groups - 1; g >= 0; g--) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append((int) ((sequence >>> (g * BITS)) & 31) - 1);
+        }
+        return sb.toString();
+    }
+}
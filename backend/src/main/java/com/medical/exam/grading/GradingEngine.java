@@ -0,0 +1,116 @@
+package com.medical.exam.grading;
+
+import com.medical.exam.cache.PaperAnswerKey;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 判分引擎
+ * 考生答案先编码为原始选项下标序列（见 AnswerCodec），再按题型对应的计分策略与答案键中的编码比较；
+ * 选择题、多选题默认比较位掩码，"0,2" 与 "2,0" 等价，每题只做一次整数比较；批量判分直接处理基本类型数组
+ */
+@Component
+@Slf4j
+public class GradingEngine {
+
+    // 多选题计分方式：set 选项一致即得分（默认）；partial 按选对比例部分得分；
+    // ordered 为旧版方式，要求作答顺序与正确答案完全一致，仅为兼容保留
+    @Value("${exam.grading.multi-strategy:set}")
+    private String multiStrategy;
+
+    @Value("${exam.paper.shuffle:true}")
+    private boolean shuffle;
+
+    // 按题型下标（PaperAnswerKey.TYPE_*）取计分策略
+    private final ScoringStrategy[] strategies = new ScoringStrategy[4];
+
+    // 判定是否全对的策略（部分得分策略下仍要求选项完全一致）
+    private final ScoringStrategy[] exactStrategies = new ScoringStrategy[4];
+
+    @PostConstruct
+    public void init() {
+        ScoringStrategy multi = switch (multiStrategy) {
+            case "partial" -> ScoringStrategy.PARTIAL;
+            case "ordered" -> {
+                if (shuffle) {
+                    // 乱序后的答案按原始下标升序还原，只有正确答案本身为升序时才能得分
+                    log.warn("多选题使用旧版 ordered 计分且开启了选项乱序，正确答案非升序的题目将无法得分");
+                }
+                yield ScoringStrategy.ORDERED;
+            }
+            default -> ScoringStrategy.EXACT_SET;
+        };
+        setStrategy(PaperAnswerKey.TYPE_CHOICE, ScoringStrategy.EXACT_SET);
+        setStrategy(PaperAnswerKey.TYPE_MULTI, multi);
+        setStrategy(PaperAnswerKey.TYPE_JUDGMENT, ScoringStrategy.EXACT_SET);
+        setStrategy(PaperAnswerKey.TYPE_OTHER, ScoringStrategy.ORDERED);
+    }
+
+    /**
+     * 替换某题型的计分策略
+     */
+    public void setStrategy(byte type, ScoringStrategy strategy) {
+        strategies[type] = strategy;
+        exactStrategies[type] = strategy == ScoringStrategy.PARTIAL ? ScoringStrategy.EXACT_SET : strategy;
+    }
+
+    /**
+     * 编码考生答案
+     *
+     * @param optionOrder 选项乱序映射（perm[显示下标] = 原始下标），未乱序时为 null
+     */
+    public long encode(PaperAnswerKey key, PaperAnswerKey.Item item, String answer, int[] optionOrder) {
+        int slot = item.getSlot();
+        if (key.getCorrectSequences()[slot] == AnswerCodec.TEXT_MATCH) {
+            return item.getCorrectAnswer().equals(PaperAnswerKey.normalize(answer)) ? AnswerCodec.TEXT_MATCH : AnswerCodec.INVALID;
+        }
+        long sequence = switch (key.getTypes()[slot]) {
+            case PaperAnswerKey.TYPE_CHOICE, PaperAnswerKey.TYPE_MULTI -> AnswerCodec.encodeIndexes(answer);
+            case PaperAnswerKey.TYPE_JUDGMENT -> AnswerCodec.encodeJudgment(answer);
+            default -> AnswerCodec.INVALID;
+        };
+        return optionOrder != null ? AnswerCodec.remap(sequence, optionOrder) : sequence;
+    }
+
+    /**
+     * 单题得分
+     */
+    public int score(PaperAnswerKey key, int slot, long userSequence) {
+        return apply(strategies, key, slot, userSequence, key.getScores()[slot]);
+    }
+
+    /**
+     * 是否全对
+     */
+    public boolean isCorrect(PaperAnswerKey key, int slot, long userSequence) {
+        return apply(exactStrategies, key, slot, userSequence, 1) == 1;
+    }
+
+    /**
+     * 批量判分：第 i 题的答案键下标为 slots[i]、考生答案编码为 userSequences[i]，得分写入 scores[i]
+     *
+     * @return 总分
+     */
+    public int scoreAll(PaperAnswerKey key, int[] slots, long[] userSequences, int count, int[] scores) {
+        int total = 0;
+        for (int i = 0; i < count; i++) {
+            scores[i] = score(key, slots[i], userSequences[i]);
+            total += scores[i];
+        }
+        return total;
+    }
+
+    private static int apply(ScoringStrategy[] table, PaperAnswerKey key, int slot, long userSequence, int fullScore) {
+        long correctSequence = key.getCorrectSequences()[slot];
+        if (userSequence == AnswerCodec.INVALID) {
+            return 0;
+        }
+        if (correctSequence == AnswerCodec.TEXT_MATCH || userSequence == AnswerCodec.TEXT_MATCH) {
+            return userSequence == correctSequence ? fullScore : 0;
+        }
+        return table[key.getTypes()[slot]].score(correctSequence, key.getCorrectMasks()[slot],
+                userSequence, AnswerCodec.mask(userSequence), fullScore);
+    }
+}
@@ -0,0 +1,43 @@
+package com.medical.exam.grading;
+
+/**
+ * 单题计分策略，只处理编码后的答案（见 AnswerCodec），不创建对象
+ */
+@FunctionalInterface
+public interface ScoringStrategy {
+
+    /**
+     * @param correctSequence 正确答案序列
+     * @param correctMask     正确答案位掩码
+     * @param userSequence    考生答案序列（已还原为原始下标）
+     * @param userMask        考生答案位掩码
+     * @param fullScore       该题满分
+     * @return 得分
+     */
+    int score(long correctSequence, int correctMask, long userSequence, int userMask, int fullScore);
+
+    /**
+     * 完全一致（含作答顺序）才得分；旧版多选题计分方式，需显式配置 exam.grading.multi-strategy=ordered
+     */
+    ScoringStrategy ORDERED = (correctSequence, correctMask, userSequence, userMask, fullScore) ->
+            userSequence == correctSequence ? fullScore : 0;
+
+    /**
+     * 选项集合一致即得分（位掩码比较），不计顺序；单选题、判断题及多选题默认使用
+     */
+    ScoringStrategy EXACT_SET = (correctSequence, correctMask, userSequence, userMask, fullScore) ->
+            userMask == correctMask ? fullScore : 0;
+
+    /**
+     * 多选题部分得分：选了错误选项不得分，否则按选对的比例得分（向下取整）
+     */
+    ScoringStrategy PARTIAL = (correctSequence, correctMask, userSequence, userMask, fullScore) -> {
+        if (userMask == correctMask) {
+            return fullScore;
+        }
+        if ((userMask & ~correctMask) != 0) {
+            return 0;
+        }
+        return fullScore * Integer.bitCount(userMask) / Integer.bitCount(correctMask);
+    };
+}
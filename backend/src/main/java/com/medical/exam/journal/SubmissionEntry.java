@@ -0,0 +1,30 @@
+package com.medical.exam.journal;
+
+import com.medical.exam.dto.AnswerDTO;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 提交日志中的一条交卷请求
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SubmissionEntry {
+
+    private String recordId;
+
+    private String userId;
+
+    private String userName;
+
+    private List<AnswerDTO> answers;
+
+    // 交卷时间（毫秒），回放时以此作为考试结束时间
+    private long submitTime;
+}
@@ -0,0 +1,275 @@
+package com.medical.exam.journal;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * 本地交卷提交日志（预写日志）
+ * 单文件追加写，记录格式：[长度 int][CRC32 int][类型 byte][内容]，
+ * 由单个写线程批量写入并只执行一次 fsync（组提交），写入成功后才向调用方确认。
+ * 启动时回放日志，找出尚未应用到数据库的交卷请求；全部应用后日志文件被截断复用。
+ */
+@Component
+@Slf4j
+public class SubmissionJournal {
+
+    private static final byte TYPE_SUBMIT = 1;
+    private static final byte TYPE_APPLIED = 2;
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_BATCH = 512;
+
+    @Value("${exam.journal.dir:data/journal}")
+    private String journalDir;
+
+    // 日志文件超过该大小且没有未应用的记录时截断（字节）
+    @Value("${exam.journal.compact-bytes:67108864}")
+    private long compactBytes;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final LinkedBlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+
+    // 已写入日志但尚未应用到数据库的考试记录
+    private final Set<String> unapplied = ConcurrentHashMap.newKeySet();
+
+    private final List<SubmissionEntry> recovered = new ArrayList<>();
+
+    private FileChannel channel;
+
+    private Thread writer;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void open() throws IOException {
+        Path dir = Paths.get(journalDir);
+        Files.createDirectories(dir);
+        channel = FileChannel.open(dir.resolve("submission.journal"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        replay();
+
+        running = true;
+        writer = new Thread(this::writeLoop, "submission-journal-writer");
+        writer.start();
+    }
+
+    /**
+     * 追加一条交卷请求，返回的 Future 在数据落盘（fsync）后完成
+     */
+    public CompletableFuture<Void> append(SubmissionEntry entry) {
+        byte[] payload;
+        try {
+            payload = objectMapper.writeValueAsBytes(entry);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        unapplied.add(entry.getRecordId());
+        return enqueue(TYPE_SUBMIT, payload);
+    }
+
+    /**
+     * 标记交卷请求已应用到数据库。标记丢失只会导致重启后重复回放，应用过程本身是幂等的，因此无需等待落盘
+     */
+    public void markApplied(String recordId) {
+        enqueue(TYPE_APPLIED, recordId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 放弃一条已追加的交卷请求（等待落盘超时后改为同步交卷时调用）：
+     * 不再计入未应用记录，并在其后追加 APPLIED 标记，该请求之后即使落盘也不会阻止截断或在重启时回放
+     */
+    public void cancel(String recordId) {
+        unapplied.remove(recordId);
+        enqueue(TYPE_APPLIED, recordId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 启动回放得到的未应用交卷请求（只能取一次）
+     */
+    public synchronized List<SubmissionEntry> takeRecovered() {
+        List<SubmissionEntry> entries = new ArrayList<>(recovered);
+        recovered.clear();
+        return entries;
+    }
+
+    /**
+     * 该记录是否有已受理但尚未应用的交卷请求
+     */
+    public boolean isPending(String recordId) {
+        return unapplied.contains(recordId);
+    }
+
+    public int getUnappliedCount() {
+        return unapplied.size();
+    }
+
+    @PreDestroy
+    public void close() throws IOException, InterruptedException {
+        running = false;
+        writer.join(5000);
+        channel.close();
+    }
+
+    private CompletableFuture<Void> enqueue(byte type, byte[] payload) {
+        if (!running) {
+            return CompletableFuture.failedFuture(new IllegalStateException("提交日志已关闭"));
+        }
+        PendingWrite write = new PendingWrite(type, payload, new CompletableFuture<>());
+        queue.add(write);
+        return write.done;
+    }
+
+    private void writeLoop() {
+        List<PendingWrite> batch = new ArrayList<>(MAX_BATCH);
+        // 不使用中断停止写线程：FileChannel 在线程被中断时会直接关闭
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<PendingWrite> batch) {
+        int size = 0;
+        for (PendingWrite write : batch) {
+            size += HEADER_BYTES + 1 + write.payload.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        CRC32 crc = new CRC32();
+        for (PendingWrite write : batch) {
+            crc.reset();
+            crc.update(write.type);
+            crc.update(write.payload);
+            buffer.putInt(1 + write.payload.length);
+            buffer.putInt((int) crc.getValue());
+            buffer.put(write.type);
+            buffer.put(write.payload);
+        }
+        buffer.flip();
+
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            // 一批记录只执行一次 fsync
+            channel.force(false);
+        } catch (IOException e) {
+            log.error("提交日志写入失败，批次大小: {}", batch.size(), e);
+            for (PendingWrite write : batch) {
+                write.done.completeExceptionally(e);
+            }
+            return;
+        }
+
+        for (PendingWrite write : batch) {
+            if (write.type == TYPE_APPLIED) {
+                unapplied.remove(new String(write.payload, StandardCharsets.UTF_8));
+            }
+            write.done.complete(null);
+        }
+        compactIfIdle();
+    }
+
+    private void compactIfIdle() {
+        try {
+            if (unapplied.isEmpty() && queue.isEmpty() && channel.size() > compactBytes) {
+                channel.truncate(0);
+                channel.position(0);
+                channel.force(true);
+                log.info("提交日志已全部应用，截断日志文件");
+            }
+        } catch (IOException e) {
+            log.warn("提交日志截断失败", e);
+        }
+    }
+
+    /**
+     * 回放日志：校验每条记录的长度与 CRC，遇到不完整或损坏的尾部时截断，
+     * 没有对应 APPLIED 标记的 SUBMIT 记录即为待应用的交卷请求
+     */
+    private void replay() throws IOException {
+        long fileSize = channel.size();
+        Map<String, SubmissionEntry> pending = new LinkedHashMap<>();
+        long validEnd = 0;
+
+        if (fileSize > 0) {
+            ByteBuffer content = ByteBuffer.allocate((int) fileSize);
+            while (content.hasRemaining()) {
+                if (channel.read(content, content.position()) < 0) {
+                    break;
+                }
+            }
+            content.flip();
+            CRC32 crc = new CRC32();
+            while (content.remaining() >= HEADER_BYTES) {
+                int length = content.getInt();
+                int checksum = content.getInt();
+                if (length <= 0 || length > content.remaining()) {
+                    break;
+                }
+                byte[] record = new byte[length];
+                content.get(record);
+                crc.reset();
+                crc.update(record);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                validEnd = content.position();
+
+                byte type = record[0];
+                if (type == TYPE_SUBMIT) {
+                    SubmissionEntry entry = objectMapper.readValue(record, 1, length - 1, SubmissionEntry.class);
+                    pending.put(entry.getRecordId(), entry);
+                } else if (type == TYPE_APPLIED) {
+                    pending.remove(new String(record, 1, length - 1, StandardCharsets.UTF_8));
+                }
+            }
+        }
+
+        if (validEnd < fileSize) {
+            log.warn("提交日志尾部不完整，截断 {} 字节", fileSize - validEnd);
+            channel.truncate(validEnd);
+        }
+        channel.position(validEnd);
+
+        recovered.addAll(pending.values());
+        pending.keySet().forEach(unapplied::add);
+        if (!recovered.isEmpty()) {
+            log.info("提交日志回放，待应用交卷请求 {} 条", recovered.size());
+        }
+    }
+
+    private record PendingWrite(byte type, byte[] payload, CompletableFuture<Void> done) {
+    }
+}
@@ -0,0 +1,42 @@
+package com.medical.exam.mapper;
+
+import com.medical.exam.entity.ExamConfigUserCategory;
+import com.mybatisflex.core.BaseMapper;
+import com.mybatisflex.core.query.QueryWrapper;
+import org.apache.ibatis.annotations.Mapper;
+
+import java.util.*;
+
+import static com.medical.exam.entity.table.ExamConfigUserCategoryTableDef.EXAM_CONFIG_USER_CATEGORY;
+
+@Mapper
+public interface ExamConfigUserCategoryMapper extends BaseMapper<ExamConfigUserCategory> {
+
+    /**
+     * 考试配置允许的人员类别
+     */
+    default List<String> selectCategoriesOfConfig(String configId) {
+        List<String> categories = new ArrayList<>();
+        for (ExamConfigUserCategory row : selectListByQuery(QueryWrapper.create()
+                .where(EXAM_CONFIG_USER_CATEGORY.CONFIG_ID.eq(configId))
+                .orderBy(EXAM_CONFIG_USER_CATEGORY.USER_CATEGORY.asc()))) {
+            categories.add(row.getUserCategory());
+        }
+        return categories;
+    }
+
+    /**
+     * 多个考试配置各自允许的人员类别
+     */
+    default Map<String, List<String>> selectCategoriesOfConfigs(Collection<String> configIds) {
+        Map<String, List<String>> result = new HashMap<>();
+        if (configIds.isEmpty()) {
+            return result;
+        }
+        for (ExamConfigUserCategory row : selectListByQuery(QueryWrapper.create()
+                .where(EXAM_CONFIG_USER_CATEGORY.CONFIG_ID.in(configIds)))) {
+            result.computeIfAbsent(row.getConfigId(), k -> new ArrayList<>()).add(row.getUserCategory());
+        }
+        return result;
+    }
+}
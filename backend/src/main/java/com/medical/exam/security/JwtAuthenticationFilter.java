@@ -29,18 +29,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         String token = getTokenFromRequest(request);
         try{
-            if (StringUtils.hasText(token) && jwtUtil.validateToken(token)) {
-                String userId = jwtUtil.getUserIdFromToken(token);
-                String username = jwtUtil.getUsernameFromToken(token);
-                String role = jwtUtil.getRoleFromToken(token);
+            CustomToken loginInfo = StringUtils.hasText(token) ? jwtUtil.verifyAndDecode(token) : null;
+            if (loginInfo != null) {
+                String userId = loginInfo.getUserId();
+                String role = loginInfo.getRole();
 
-                // 1. 构造 CustomToken 并存入 JwtAccessContext
+                // 1. 登录信息存入 JwtAccessContext
 
-                JwtAccessContext.setLoginInfo(CustomToken.builder()
-                        .userId(userId)
-                        .role(role)
-                        .userName(username)
-                        .build());
+                JwtAccessContext.setLoginInfo(loginInfo);
 
                 UsernamePasswordAuthenticationToken authentication =
                         new UsernamePasswordAuthenticationToken(
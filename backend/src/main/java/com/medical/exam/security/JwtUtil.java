@@ -1,24 +1,63 @@
-
 package com.medical.exam.security;
 
 import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.DecodedJWT;
+import com.medical.exam.vo.CustomToken;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 public class JwtUtil {
 
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
     @Value("${jwt.secret}")
     private String secret;
 
     @Value("${jwt.expiration}")
     private Long expiration;
 
+    // 已验证令牌的缓存条数上限
+    @Value("${jwt.cache-size:10000}")
+    private int cacheSize;
+
+    private Algorithm algorithm;
+
+    // 线程安全，可复用
+    private JWTVerifier verifier;
+
+    // 令牌摘要 -> 已验证的声明，过期时间与令牌 exp 一致；命中时无锁读取。不以完整令牌作为长期存活的键
+    private final ConcurrentHashMap<String, VerifiedClaims> verified = new ConcurrentHashMap<>();
+
+    // 缓存条目按过期时间排序，只在未命中写入时访问：先淘汰已过期的条目，达到上限时淘汰最先过期的条目
+    private final PriorityQueue<CachedToken> expiryQueue =
+            new PriorityQueue<>(Comparator.comparingLong(cached -> cached.claims().expiresAt()));
+
+    @PostConstruct
+    public void init() {
+        algorithm = Algorithm.HMAC256(secret);
+        verifier = JWT.require(algorithm).build();
+    }
+
     public String generateToken(String userId, String username, String role) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + expiration);
@@ -29,38 +68,87 @@ public class JwtUtil {
                 .withClaim("role", role)
                 .withIssuedAt(now)
                 .withExpiresAt(expiryDate)
-                .sign(Algorithm.HMAC256(secret));
+                .sign(algorithm);
+    }
+
+    /**
+     * 验证签名并解析令牌，只验证一次；同一令牌在过期前直接使用缓存的声明
+     *
+     * @return 登录信息，令牌无效或已过期时返回 null
+     */
+    public CustomToken verifyAndDecode(String token) {
+        long now = System.currentTimeMillis();
+        String key = digest(token);
+        VerifiedClaims claims = verified.get(key);
+        if (claims != null) {
+            if (claims.expiresAt > now) {
+                return claims.toLoginInfo();
+            }
+            verified.remove(key, claims);
+        }
+
+        DecodedJWT jwt;
+        try {
+            jwt = verifier.verify(token);
+        } catch (JWTVerificationException e) {
+            return null;
+        }
+        Date expiresAt = jwt.getExpiresAt();
+        claims = new VerifiedClaims(jwt.getSubject(), jwt.getClaim("username").asString(),
+                jwt.getClaim("role").asString(), expiresAt != null ? expiresAt.getTime() : now + expiration);
+        cache(key, claims, now);
+        return claims.toLoginInfo();
     }
 
     public String getUserIdFromToken(String token) {
-        DecodedJWT jwt = JWT.require(Algorithm.HMAC256(secret))
-                .build()
-                .verify(token);
-        return jwt.getSubject();
+        return verifier.verify(token).getSubject();
     }
 
     public String getUsernameFromToken(String token) {
-        DecodedJWT jwt = JWT.require(Algorithm.HMAC256(secret))
-                .build()
-                .verify(token);
-        return jwt.getClaim("username").asString();
+        return verifier.verify(token).getClaim("username").asString();
     }
 
     public String getRoleFromToken(String token) {
-        DecodedJWT jwt = JWT.require(Algorithm.HMAC256(secret))
-                .build()
-                .verify(token);
-        return jwt.getClaim("role").asString();
+        return verifier.verify(token).getClaim("role").asString();
     }
 
     public boolean validateToken(String token) {
-        try {
-            JWT.require(Algorithm.HMAC256(secret))
-                    .build()
-                    .verify(token);
-            return true;
-        } catch (JWTVerificationException e) {
-            return false;
+        return verifyAndDecode(token) != null;
+    }
+
+    // 每次写入只淘汰队首的若干条目（O(log n)），不再遍历整个缓存
+    private void cache(String key, VerifiedClaims claims, long now) {
+        synchronized (expiryQueue) {
+            CachedToken head;
+            while ((head = expiryQueue.peek()) != null
+                    && (head.claims().expiresAt() <= now || verified.size() >= cacheSize)) {
+                expiryQueue.poll();
+                // 条目可能已被读取时移除或被同一令牌的新条目替换，只移除队列中记录的那一条
+                verified.remove(head.key(), head.claims());
+            }
+            if (cacheSize > 0) {
+                verified.put(key, claims);
+                expiryQueue.add(new CachedToken(key, claims));
+            }
+        }
+    }
+
+    private static String digest(String token) {
+        byte[] hash = SHA256.get().digest(token.getBytes(StandardCharsets.US_ASCII));
+        return Base64.getEncoder().withoutPadding().encodeToString(hash);
+    }
+
+    private record CachedToken(String key, VerifiedClaims claims) {
+    }
+
+    private record VerifiedClaims(String userId, String userName, String role, long expiresAt) {
+
+        CustomToken toLoginInfo() {
+            return CustomToken.builder()
+                    .userId(userId)
+                    .userName(userName)
+                    .role(role)
+                    .build();
         }
     }
 }
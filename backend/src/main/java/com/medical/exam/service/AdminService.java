@@ -4,10 +4,23 @@ import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.bean.copier.CopyOptions;
 import cn.hutool.poi.excel.ExcelReader;
 import cn.hutool.poi.excel.ExcelUtil;
+import com.medical.exam.audit.SysLogWriter;
+import com.medical.exam.cache.CategoryTreeCache;
+import com.medical.exam.cache.ExamEligibilityCache;
+import com.medical.exam.cache.PaperAnswerKeyCache;
+import com.medical.exam.cache.PaperParticipationIndex;
+import com.medical.exam.cache.PaperSnapshotCache;
+import com.medical.exam.cache.PublishedPaperIndex;
+import com.medical.exam.cache.QueryCountCache;
+import com.medical.exam.cache.ReferenceDataCache;
+import com.medical.exam.cache.UserExamStateCache;
 import com.medical.exam.common.exception.CustomException;
 import com.medical.exam.dto.*;
 import com.medical.exam.entity.*;
 import com.medical.exam.entity.ExamForceRetake;
+import com.medical.exam.export.ExamResultExporter;
+import com.medical.exam.export.ExportJob;
+import com.medical.exam.export.ExportJobManager;
 import com.medical.exam.vo.*;
 import com.medical.exam.mapper.*;
 import com.medical.exam.security.JwtAccessContext;
@@ -20,9 +33,13 @@ import com.mybatisflex.core.query.QueryWrapper;
 import com.mybatisflex.core.row.Db;
 import com.mybatisflex.core.row.Row;
 import com.mybatisflex.core.row.RowUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -33,8 +50,9 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.text.SimpleDateFormat;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import static com.medical.exam.entity.table.ExamAnswerTableDef.EXAM_ANSWER;
@@ -55,6 +73,13 @@ import static com.mybatisflex.core.query.QueryMethods.*;
 @Slf4j
 public class AdminService {
 
+    // 不及格筛选的查询列（最新成绩表 la 关联 er、su、ep）
+    private static final String LATEST_FAILED_SELECT =
+            "SELECT er.record_id, su.user_name, su.department as categoryName, su.user_category, su.id_number, " +
+            "er.exam_name, er.end_time as examDate, er.duration, er.score, er.total_score, " +
+            "er.status, er.retake, er.pass_score " +
+            "FROM exam_latest_attempt la";
+
     @Resource
     private SysRoleMapper sysRoleMapper;
     @Resource
@@ -78,11 +103,80 @@ public class AdminService {
 
     @Resource
     private SysLogMapper sysLogMapper;
+
+    @Resource
+    private SysLogWriter sysLogWriter;
+
     @Autowired
     private ExamAnswerMapper examAnswerMapper;
     @Autowired
     private SysUserMapper sysUserMapper;
 
+    @Resource
+    private PaperAnswerKeyCache paperAnswerKeyCache;
+
+    @Resource
+    private PaperSnapshotCache paperSnapshotCache;
+
+    @Resource
+    private ExamEligibilityCache examEligibilityCache;
+
+    @Resource
+    private CategoryTreeCache categoryTreeCache;
+
+    @Resource
+    private ReferenceDataCache referenceDataCache;
+
+    @Resource
+    private PaperParticipationIndex paperParticipationIndex;
+
+    @Resource
+    private PublishedPaperIndex publishedPaperIndex;
+
+    @Resource
+    private ExamConfigUserCategoryService examConfigUserCategoryService;
+
+    @Resource
+    private ExamConfigUserCategoryMapper examConfigUserCategoryMapper;
+
+    @Resource
+    private UserExamStateCache userExamStateCache;
+
+    @Resource
+    private LatestAttemptService latestAttemptService;
+
+    @Resource
+    private ResultSummaryService resultSummaryService;
+
+    @Resource
+    private ExamRollupService examRollupService;
+
+    @Resource
+    private QueryCountCache queryCountCache;
+
+    @Resource
+    private ExamResultExporter examResultExporter;
+
+    @Resource
+    private ExportJobManager exportJobManager;
+
+    // 仪表盘每项统计的截止时间（毫秒）
+    @Value("${exam.dashboard.section-timeout-millis:2000}")
+    private long dashboardSectionTimeoutMillis;
+
+    // 仪表盘并行查询最多占用的数据库连接数
+    @Value("${exam.dashboard.max-concurrency:3}")
+    private int dashboardMaxConcurrency;
+
+    private final ExecutorService dashboardExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private Semaphore dashboardPermits;
+
+    @PostConstruct
+    public void initDashboardPermits() {
+        dashboardPermits = new Semaphore(Math.max(1, dashboardMaxConcurrency));
+    }
+
     // 考试结果管理
 
     /**
@@ -96,15 +190,7 @@ public class AdminService {
      * @return
      */
     public ExamResultSummaryVo getExamResultsSummary() {
-        String sql = """
-                select count(record_id) as examCount,
-                 count(distinct (user_id)) as participantCount,
-                 avg(score) avgScore,
-                 sum(case when score >= pass_score then 1 else 0 end) as pass_count
-                 from exam_record where status='completed' and (deleted = 0 or deleted is null);
-                """;
-        Row row = Db.selectOneBySql(sql);
-        return RowUtil.toEntity(row, ExamResultSummaryVo.class);
+        return resultSummaryService.getSummary();
     }
 
     public Page<ExamResultVo> getExamResults(ExamResultQueryDTO request) {
@@ -119,34 +205,7 @@ public class AdminService {
         }
 
         // 默认查询（只查询未删除的记录）
-        QueryWrapper queryWrapper = QueryWrapper.create()
-                .select(EXAM_RECORD.RECORD_ID, SYS_USER.USER_NAME, SYS_USER.DEPARTMENT.as("categoryName"),
-                        SYS_USER.USER_CATEGORY, SYS_USER.ID_NUMBER, EXAM_RECORD.EXAM_NAME,
-                        EXAM_RECORD.END_TIME.as("examDate"), EXAM_RECORD.DURATION, EXAM_RECORD.SCORE,
-                        EXAM_RECORD.TOTAL_SCORE, EXAM_RECORD.STATUS, EXAM_RECORD.RETAKE, EXAM_RECORD.PASS_SCORE)
-                .leftJoin(SYS_USER).on(SYS_USER.USER_ID.eq(EXAM_RECORD.USER_ID))
-                .leftJoin(EXAM_PAPER).on(EXAM_PAPER.PAPER_ID.eq(EXAM_RECORD.PAPER_ID))
-                .leftJoin(EXAM_CONFIG).on(EXAM_CONFIG.CONFIG_ID.eq(EXAM_PAPER.CONFIG_ID))
-                .where(SYS_USER.USER_NAME.like(request.getKeyword()).or(SYS_USER.ID_NUMBER.like(request.getKeyword())))
-                .and(EXAM_PAPER.CATEGORY_ID.eq(request.getCategory()))
-                .and(EXAM_RECORD.STATUS.eq(request.getStatus()));
-
-        // 添加及格筛选
-        if ("pass".equals(request.getPassStatus())) {
-            queryWrapper.and(EXAM_RECORD.SCORE.ge(EXAM_RECORD.PASS_SCORE));
-        }
-
-        // 添加重考筛选
-        if ("retake".equals(request.getRetakeStatus())) {
-            queryWrapper.and(EXAM_RECORD.RETAKE.eq(1));
-        } else if ("normal".equals(request.getRetakeStatus())) {
-            queryWrapper.and(EXAM_RECORD.RETAKE.eq(0));
-        }
-
-        // 添加考试名称筛选
-        if (request.getExamName() != null && !request.getExamName().trim().isEmpty()) {
-            queryWrapper.and(EXAM_RECORD.EXAM_NAME.like(request.getExamName()));
-        }
+        QueryWrapper queryWrapper = examResultsQuery(request);
 
         Page<ExamResultVo> page = examRecordMapper.paginateAs(request.getPageNumber(), request.getPageSize(),
                 queryWrapper.orderBy(EXAM_RECORD.END_TIME.desc()),
@@ -163,63 +222,74 @@ public class AdminService {
     }
 
     /**
-     * 获取考试结果（包含已删除记录，使用 LogicDeleteManager 跳过逻辑删除过滤）
+     * 游标翻页查询考试结果：按 (结束时间, 记录ID) 倒序，游标为空时查询第一页并返回（缓存的）总数
      */
-    private Page<ExamResultVo> getExamResultsWithDeleted(ExamResultQueryDTO request) {
-        // 使用 LogicDeleteManager.execWithoutLogicDelete() 跳过逻辑删除的自动过滤
-        return LogicDeleteManager.execWithoutLogicDelete(() -> {
-            // 构建查询条件（与默认查询类似，但需要包含 deleted 字段用于筛选）
-            QueryWrapper queryWrapper = QueryWrapper.create()
-                    .select(EXAM_RECORD.RECORD_ID, SYS_USER.USER_NAME, SYS_USER.DEPARTMENT.as("categoryName"),
-                            SYS_USER.USER_CATEGORY, SYS_USER.ID_NUMBER, EXAM_RECORD.EXAM_NAME,
-                            EXAM_RECORD.END_TIME.as("examDate"), EXAM_RECORD.DURATION, EXAM_RECORD.SCORE,
-                            EXAM_RECORD.TOTAL_SCORE, EXAM_RECORD.STATUS, EXAM_RECORD.RETAKE, 
-                            EXAM_RECORD.PASS_SCORE)
-                    .leftJoin(SYS_USER).on(SYS_USER.USER_ID.eq(EXAM_RECORD.USER_ID))
-                    .leftJoin(EXAM_PAPER).on(EXAM_PAPER.PAPER_ID.eq(EXAM_RECORD.PAPER_ID))
-                    .leftJoin(EXAM_CONFIG).on(EXAM_CONFIG.CONFIG_ID.eq(EXAM_PAPER.CONFIG_ID));
-
-            // 添加关键词搜索
-            if (request.getKeyword() != null && !request.getKeyword().trim().isEmpty()) {
-                queryWrapper.and(SYS_USER.USER_NAME.like(request.getKeyword()).or(SYS_USER.ID_NUMBER.like(request.getKeyword())));
-            }
+    public CursorPage<ExamResultVo> getExamResultsByCursor(ExamResultQueryDTO request) {
+        if ("fail".equals(request.getPassStatus())) {
+            return getLatestFailedExamResultsByCursor(request);
+        }
+        if (Boolean.TRUE.equals(request.getIncludeDeleted())) {
+            return LogicDeleteManager.execWithoutLogicDelete(
+                    () -> examResultsByCursor(request, () -> examResultsWithDeletedQuery(request)));
+        }
+        return examResultsByCursor(request, () -> examResultsQuery(request));
+    }
 
-            // 添加分类筛选
-            if (request.getCategory() != null && !request.getCategory().trim().isEmpty()) {
-                queryWrapper.and(EXAM_PAPER.CATEGORY_ID.eq(request.getCategory()));
-            }
+    private CursorPage<ExamResultVo> examResultsByCursor(ExamResultQueryDTO request, Supplier<QueryWrapper> query) {
+        String[] cursor = CursorPage.decodeCursor(request.getCursor(), 2);
+        Long totalCount = null;
+        if (cursor == null) {
+            totalCount = queryCountCache.get("exam-results:" + examResultsCountKey(request),
+                    () -> examRecordMapper.selectCountByQuery(query.get()));
+        }
 
-            // 添加状态筛选
-            if (request.getStatus() != null && !request.getStatus().trim().isEmpty() && !"all".equals(request.getStatus())) {
-                queryWrapper.and(EXAM_RECORD.STATUS.eq(request.getStatus()));
+        QueryWrapper queryWrapper = query.get();
+        if (cursor != null) {
+            long recordId = CursorPage.parseKey(cursor[1]);
+            if (cursor[0].isEmpty()) {
+                // 未结束的记录（结束时间为空）排在最后
+                queryWrapper.and(EXAM_RECORD.END_TIME.isNull()).and(EXAM_RECORD.RECORD_ID.lt(recordId));
+            } else {
+                queryWrapper.and(q -> q.where(EXAM_RECORD.END_TIME.lt(cursor[0]))
+                        .or(EXAM_RECORD.END_TIME.eq(cursor[0]).and(EXAM_RECORD.RECORD_ID.lt(recordId)))
+                        .or(EXAM_RECORD.END_TIME.isNull()));
             }
+        }
+        // 多取一行判断是否还有下一页
+        queryWrapper.orderBy(EXAM_RECORD.END_TIME.desc(), EXAM_RECORD.RECORD_ID.desc()).limit(request.getPageSize() + 1);
+        List<ExamResultVo> results = examRecordMapper.selectListByQueryAs(queryWrapper, ExamResultVo.class);
 
-            // 添加及格筛选
-            if ("pass".equals(request.getPassStatus())) {
-                queryWrapper.and(EXAM_RECORD.SCORE.ge(EXAM_RECORD.PASS_SCORE));
-            }
+        String nextCursor = null;
+        if (results.size() > request.getPageSize()) {
+            results = new ArrayList<>(results.subList(0, request.getPageSize()));
+            ExamResultVo last = results.get(results.size() - 1);
+            nextCursor = CursorPage.encodeCursor(last.getExamDate() != null ? last.getExamDate() : "", last.getRecordId());
+        }
 
-            // 添加重考筛选
-            if ("retake".equals(request.getRetakeStatus())) {
-                queryWrapper.and(EXAM_RECORD.RETAKE.eq(1));
-            } else if ("normal".equals(request.getRetakeStatus())) {
-                queryWrapper.and(EXAM_RECORD.RETAKE.eq(0));
+        // 转换重考字段显示
+        for (ExamResultVo result : results) {
+            if (result.getRetake() != null) {
+                result.setRetake(result.getRetake().equals("1") ? "是" : "否");
             }
+        }
+        return new CursorPage<>(results, nextCursor, totalCount);
+    }
 
-            // 添加考试名称筛选
-            if (request.getExamName() != null && !request.getExamName().trim().isEmpty()) {
-                queryWrapper.and(EXAM_RECORD.EXAM_NAME.like(request.getExamName()));
-            }
+    // 总数缓存键：筛选条件（不含页码与游标）
+    private static String examResultsCountKey(ExamResultQueryDTO request) {
+        return String.join("|", String.valueOf(request.getPassStatus()), String.valueOf(request.getStatus()),
+                String.valueOf(request.getCategory()), String.valueOf(request.getKeyword()),
+                String.valueOf(request.getRetakeStatus()), String.valueOf(request.getExamName()),
+                String.valueOf(request.getIncludeDeleted()), String.valueOf(request.getOnlyDeleted()));
+    }
 
-            // 处理删除状态筛选
-            if (Boolean.TRUE.equals(request.getOnlyDeleted())) {
-                // 只查询已删除的记录
-                queryWrapper.and(EXAM_RECORD.DELETED.eq(true));
-                log.info("只查询已删除的记录");
-            } else {
-                // 查询全部（包括已删除和未删除），不添加 deleted 过滤条件
-                log.info("查询全部记录（包括已删除和未删除）");
-            }
+    /**
+     * 获取考试结果（包含已删除记录，使用 LogicDeleteManager 跳过逻辑删除过滤）
+     */
+    private Page<ExamResultVo> getExamResultsWithDeleted(ExamResultQueryDTO request) {
+        // 使用 LogicDeleteManager.execWithoutLogicDelete() 跳过逻辑删除的自动过滤
+        return LogicDeleteManager.execWithoutLogicDelete(() -> {
+            QueryWrapper queryWrapper = examResultsWithDeletedQuery(request);
 
             // 执行分页查询
             Page<ExamResultVo> page = examRecordMapper.paginateAs(request.getPageNumber(), request.getPageSize(),
@@ -238,125 +308,123 @@ public class AdminService {
     }
 
     /**
-     * 获取每个用户在每个考试中的最新记录中不及格的用户
-     * 按用户+考试名称分组，避免重复安排已及格用户的重考
+     * 考试结果查询条件（只查询未删除的记录）
      */
-    private Page<ExamResultVo> getLatestFailedExamResults(ExamResultQueryDTO request) {
-        try {
-            // 构建基础查询条件
-            StringBuilder whereClause = new StringBuilder();
-            List<Object> params = new ArrayList<>();
+    private QueryWrapper examResultsQuery(ExamResultQueryDTO request) {
+        QueryWrapper queryWrapper = QueryWrapper.create()
+                .select(EXAM_RECORD.RECORD_ID, SYS_USER.USER_NAME, SYS_USER.DEPARTMENT.as("categoryName"),
+                        SYS_USER.USER_CATEGORY, SYS_USER.ID_NUMBER, EXAM_RECORD.EXAM_NAME,
+                        EXAM_RECORD.END_TIME.as("examDate"), EXAM_RECORD.DURATION, EXAM_RECORD.SCORE,
+                        EXAM_RECORD.TOTAL_SCORE, EXAM_RECORD.STATUS, EXAM_RECORD.RETAKE, EXAM_RECORD.PASS_SCORE)
+                .leftJoin(SYS_USER).on(SYS_USER.USER_ID.eq(EXAM_RECORD.USER_ID))
+                .leftJoin(EXAM_PAPER).on(EXAM_PAPER.PAPER_ID.eq(EXAM_RECORD.PAPER_ID))
+                .leftJoin(EXAM_CONFIG).on(EXAM_CONFIG.CONFIG_ID.eq(EXAM_PAPER.CONFIG_ID))
+                .where(SYS_USER.USER_NAME.like(request.getKeyword()).or(SYS_USER.ID_NUMBER.like(request.getKeyword())))
+                .and(EXAM_PAPER.CATEGORY_ID.eq(request.getCategory()))
+                .and(EXAM_RECORD.STATUS.eq(request.getStatus()));
 
-            if (request.getStatus() != null && !request.getStatus().trim().isEmpty()) {
-                whereClause.append(" er.status = ?");
-                params.add(request.getStatus());
-            } else {
-                whereClause.append(" 1=1 "); // 没有状态条件时，防止SQL语法错误
-            }
+        // 添加及格筛选
+        if ("pass".equals(request.getPassStatus())) {
+            queryWrapper.and(EXAM_RECORD.SCORE.ge(EXAM_RECORD.PASS_SCORE));
+        }
 
-            // 只有当keyword不为空时才添加keyword条件
-            if (request.getKeyword() != null && !request.getKeyword().trim().isEmpty()) {
-                whereClause.append(" AND (su.user_name LIKE ? OR su.id_number LIKE ?)");
-                params.add("%" + request.getKeyword() + "%");
-                params.add("%" + request.getKeyword() + "%");
-            }
+        // 添加重考筛选
+        if ("retake".equals(request.getRetakeStatus())) {
+            queryWrapper.and(EXAM_RECORD.RETAKE.eq(1));
+        } else if ("normal".equals(request.getRetakeStatus())) {
+            queryWrapper.and(EXAM_RECORD.RETAKE.eq(0));
+        }
 
-            // 添加分类筛选
-            if (request.getCategory() != null && !request.getCategory().trim().isEmpty()) {
-                whereClause.append(" AND ep.category_id = ?");
-                params.add(request.getCategory());
-            }
+        // 添加考试名称筛选
+        if (request.getExamName() != null && !request.getExamName().trim().isEmpty()) {
+            queryWrapper.and(EXAM_RECORD.EXAM_NAME.like(request.getExamName()));
+        }
+        return queryWrapper;
+    }
 
-            // 添加重考筛选
-            if ("retake".equals(request.getRetakeStatus())) {
-                whereClause.append(" AND er.retake = 1");
-            } else if ("normal".equals(request.getRetakeStatus())) {
-                whereClause.append(" AND er.retake = 0");
-            }
+    /**
+     * 考试结果查询条件（包含已删除记录，需在 LogicDeleteManager.execWithoutLogicDelete 中执行）
+     */
+    private QueryWrapper examResultsWithDeletedQuery(ExamResultQueryDTO request) {
+        // 构建查询条件（与默认查询类似，但需要包含 deleted 字段用于筛选）
+        QueryWrapper queryWrapper = QueryWrapper.create()
+                .select(EXAM_RECORD.RECORD_ID, SYS_USER.USER_NAME, SYS_USER.DEPARTMENT.as("categoryName"),
+                        SYS_USER.USER_CATEGORY, SYS_USER.ID_NUMBER, EXAM_RECORD.EXAM_NAME,
+                        EXAM_RECORD.END_TIME.as("examDate"), EXAM_RECORD.DURATION, EXAM_RECORD.SCORE,
+                        EXAM_RECORD.TOTAL_SCORE, EXAM_RECORD.STATUS, EXAM_RECORD.RETAKE, 
+                        EXAM_RECORD.PASS_SCORE)
+                .leftJoin(SYS_USER).on(SYS_USER.USER_ID.eq(EXAM_RECORD.USER_ID))
+                .leftJoin(EXAM_PAPER).on(EXAM_PAPER.PAPER_ID.eq(EXAM_RECORD.PAPER_ID))
+                .leftJoin(EXAM_CONFIG).on(EXAM_CONFIG.CONFIG_ID.eq(EXAM_PAPER.CONFIG_ID));
 
-            // 添加考试名称筛选
-            if (request.getExamName() != null && !request.getExamName().trim().isEmpty()) {
-                whereClause.append(" AND er.exam_name LIKE ?");
-                params.add("%" + request.getExamName() + "%");
-            }
+        // 添加关键词搜索
+        if (request.getKeyword() != null && !request.getKeyword().trim().isEmpty()) {
+            queryWrapper.and(SYS_USER.USER_NAME.like(request.getKeyword()).or(SYS_USER.ID_NUMBER.like(request.getKeyword())));
+        }
 
-            // 处理逻辑删除过滤：如果 includeDeleted 为 false 或 null，则只查询未删除的记录
-            if (!Boolean.TRUE.equals(request.getIncludeDeleted())) {
-                whereClause.append(" AND (er.deleted = 0 OR er.deleted IS NULL)");
-            }
+        // 添加分类筛选
+        if (request.getCategory() != null && !request.getCategory().trim().isEmpty()) {
+            queryWrapper.and(EXAM_PAPER.CATEGORY_ID.eq(request.getCategory()));
+        }
+
+        // 添加状态筛选
+        if (request.getStatus() != null && !request.getStatus().trim().isEmpty() && !"all".equals(request.getStatus())) {
+            queryWrapper.and(EXAM_RECORD.STATUS.eq(request.getStatus()));
+        }
+
+        // 添加及格筛选
+        if ("pass".equals(request.getPassStatus())) {
+            queryWrapper.and(EXAM_RECORD.SCORE.ge(EXAM_RECORD.PASS_SCORE));
+        }
+
+        // 添加重考筛选
+        if ("retake".equals(request.getRetakeStatus())) {
+            queryWrapper.and(EXAM_RECORD.RETAKE.eq(1));
+        } else if ("normal".equals(request.getRetakeStatus())) {
+            queryWrapper.and(EXAM_RECORD.RETAKE.eq(0));
+        }
+
+        // 添加考试名称筛选
+        if (request.getExamName() != null && !request.getExamName().trim().isEmpty()) {
+            queryWrapper.and(EXAM_RECORD.EXAM_NAME.like(request.getExamName()));
+        }
+
+        // 处理删除状态筛选
+        if (Boolean.TRUE.equals(request.getOnlyDeleted())) {
+            // 只查询已删除的记录
+            queryWrapper.and(EXAM_RECORD.DELETED.eq(true));
+            log.info("只查询已删除的记录");
+        } else {
+            // 查询全部（包括已删除和未删除），不添加 deleted 过滤条件
+            log.info("查询全部记录（包括已删除和未删除）");
+        }
+        return queryWrapper;
+    }
+
+    /**
+     * 获取每个用户在每个考试中的最新记录中不及格的用户
+     * 按用户+考试名称分组，避免重复安排已及格用户的重考；最新记录取自考试最新成绩表，无需相关子查询
+     */
+    private Page<ExamResultVo> getLatestFailedExamResults(ExamResultQueryDTO request) {
+        try {
+            List<Object> params = new ArrayList<>();
+            String whereClause = latestFailedWhere(request, params);
 
-            // 1. 先查询总数（优化：只查询count，不查询具体数据）
-            String countSql = """
-                    SELECT COUNT(1)
-                    FROM exam_record er
-                    LEFT JOIN sys_user su ON su.user_id = er.user_id
-                    LEFT JOIN exam_paper ep ON ep.paper_id = er.paper_id
-                    WHERE er.record_id IN (
-                        SELECT er2.record_id
-                        FROM exam_record er2
-                        WHERE er2.user_id = er.user_id
-                          AND er2.exam_name = er.exam_name
-                          AND er2.status = 'completed'
-                          AND er2.end_time = (
-                              SELECT MAX(er3.end_time)
-                              FROM exam_record er3
-                              WHERE er3.user_id = er2.user_id
-                                AND er3.exam_name = er2.exam_name
-                                AND er3.status = 'completed'
-                          )
-                          AND er2.score < er2.pass_score
-                    )
-                    AND """ + whereClause;
-
-            // 执行count查询
-            Row countRow = Db.selectOneBySql(countSql, params.toArray());
-            Long totalCount = countRow != null ? countRow.getLong("COUNT(1)") : 0L;
+            // 1. 先查询总数：没有用户、试卷、记录相关筛选时只扫描最新成绩表的索引
+            Row countRow = Db.selectOneBySql("SELECT COUNT(1) AS total FROM exam_latest_attempt la"
+                    + latestFailedJoins(request, false) + " WHERE " + whereClause, params.toArray());
+            Long totalCount = countRow != null && countRow.getLong("total") != null ? countRow.getLong("total") : 0L;
 
             // 2. 查询分页数据（使用LIMIT和OFFSET进行数据库级分页）
-            String dataSql = """
-                    SELECT er.record_id, su.user_name, su.department as categoryName, su.user_category, su.id_number,
-                           er.exam_name, er.end_time as examDate, er.duration, er.score, er.total_score,
-                           er.status, er.retake, er.pass_score
-                    FROM exam_record er
-                    LEFT JOIN sys_user su ON su.user_id = er.user_id
-                    LEFT JOIN exam_paper ep ON ep.paper_id = er.paper_id
-                    LEFT JOIN exam_config ec ON ec.config_id = ep.config_id
-                    WHERE er.record_id IN (
-                        SELECT er2.record_id
-                        FROM exam_record er2
-                        WHERE er2.user_id = er.user_id
-                          AND er2.exam_name = er.exam_name
-                          AND er2.status = 'completed'
-                          AND er2.end_time = (
-                              SELECT MAX(er3.end_time)
-                              FROM exam_record er3
-                              WHERE er3.user_id = er2.user_id
-                                AND er3.exam_name = er2.exam_name
-                                AND er3.status = 'completed'
-                          )
-                          AND er2.score < er2.pass_score
-                    )
-                    AND """ + whereClause + """
-                    ORDER BY er.end_time DESC
-                    LIMIT ? OFFSET ?
-                    """;
+            String dataSql = LATEST_FAILED_SELECT + latestFailedJoins(request, true) + " WHERE " + whereClause
+                    + " ORDER BY la.end_time DESC, la.record_id DESC LIMIT ? OFFSET ?";
 
             // 添加分页参数
             params.add(request.getPageSize());
             params.add((request.getPageNumber() - 1) * request.getPageSize());
 
             // 执行分页查询
-            List<Row> rows = Db.selectListBySql(dataSql, params.toArray());
-            List<ExamResultVo> results = rows.stream()
-                    .map(row -> RowUtil.toEntity(row, ExamResultVo.class))
-                    .collect(Collectors.toList());
-
-            // 转换重考字段显示
-            for (ExamResultVo result : results) {
-                if (result.getRetake() != null) {
-                    result.setRetake(result.getRetake().equals("1") ? "是" : "否");
-                }
-            }
+            List<ExamResultVo> results = toExamResults(Db.selectListBySql(dataSql, params.toArray()));
 
             // 创建分页对象
             Page<ExamResultVo> page = new Page<>();
@@ -369,8 +437,7 @@ public class AdminService {
             return page;
         } catch (Exception e) {
             // 记录错误日志
-            System.err.println("查询不及格考试结果失败: " + e.getMessage());
-            e.printStackTrace();
+            log.error("查询不及格考试结果失败", e);
 
             // 返回空的分页结果
             Page<ExamResultVo> emptyPage = new Page<>();
@@ -383,6 +450,127 @@ public class AdminService {
         }
     }
 
+    /**
+     * 不及格筛选的游标翻页：按 (结束时间, 记录ID) 倒序定位下一页，任意页的代价与第一页相同
+     */
+    private CursorPage<ExamResultVo> getLatestFailedExamResultsByCursor(ExamResultQueryDTO request) {
+        String[] cursor = CursorPage.decodeCursor(request.getCursor(), 2);
+        List<Object> params = new ArrayList<>();
+        String whereClause = latestFailedWhere(request, params);
+
+        // 总数只在第一页查询
+        Long totalCount = null;
+        if (cursor == null) {
+            Object[] countParams = params.toArray();
+            totalCount = queryCountCache.get("exam-results:" + examResultsCountKey(request), () -> {
+                Row countRow = Db.selectOneBySql("SELECT COUNT(1) AS total FROM exam_latest_attempt la"
+                        + latestFailedJoins(request, false) + " WHERE " + whereClause, countParams);
+                return countRow != null && countRow.getLong("total") != null ? countRow.getLong("total") : 0L;
+            });
+        }
+
+        StringBuilder dataSql = new StringBuilder(LATEST_FAILED_SELECT)
+                .append(latestFailedJoins(request, true)).append(" WHERE ").append(whereClause);
+        if (cursor != null) {
+            Date endTime = new Date(CursorPage.parseKey(cursor[0]));
+            dataSql.append(" AND (la.end_time < ? OR (la.end_time = ? AND la.record_id < ?))");
+            params.add(endTime);
+            params.add(endTime);
+            params.add(CursorPage.parseKey(cursor[1]));
+        }
+        // 多取一行判断是否还有下一页
+        dataSql.append(" ORDER BY la.end_time DESC, la.record_id DESC LIMIT ?");
+        params.add(request.getPageSize() + 1);
+
+        List<Row> rows = Db.selectListBySql(dataSql.toString(), params.toArray());
+        String nextCursor = null;
+        if (rows.size() > request.getPageSize()) {
+            rows = rows.subList(0, request.getPageSize());
+            Row last = rows.get(rows.size() - 1);
+            nextCursor = CursorPage.encodeCursor(last.getDate("examDate").getTime(), last.get("record_id"));
+        }
+        return new CursorPage<>(toExamResults(rows), nextCursor, totalCount);
+    }
+
+    /**
+     * 不及格筛选的查询条件（作用于最新成绩表 la 及按需关联的 er、su、ep）
+     */
+    private String latestFailedWhere(ExamResultQueryDTO request, List<Object> params) {
+        StringBuilder whereClause = new StringBuilder(" la.passed = 0");
+
+        // 最新成绩表中都是已完成的记录，筛选其他状态时没有结果
+        if (request.getStatus() != null && !request.getStatus().trim().isEmpty()
+                && !"completed".equals(request.getStatus())) {
+            whereClause.append(" AND 1 = 0");
+        }
+
+        // 只有当keyword不为空时才添加keyword条件
+        if (request.getKeyword() != null && !request.getKeyword().trim().isEmpty()) {
+            whereClause.append(" AND (su.user_name LIKE ? OR su.id_number LIKE ?)");
+            params.add("%" + request.getKeyword() + "%");
+            params.add("%" + request.getKeyword() + "%");
+        }
+
+        // 添加分类筛选
+        if (request.getCategory() != null && !request.getCategory().trim().isEmpty()) {
+            whereClause.append(" AND ep.category_id = ?");
+            params.add(request.getCategory());
+        }
+
+        // 添加重考筛选
+        if ("retake".equals(request.getRetakeStatus())) {
+            whereClause.append(" AND er.retake = 1");
+        } else if ("normal".equals(request.getRetakeStatus())) {
+            whereClause.append(" AND er.retake = 0");
+        }
+
+        // 添加考试名称筛选
+        if (request.getExamName() != null && !request.getExamName().trim().isEmpty()) {
+            whereClause.append(" AND la.exam_name LIKE ?");
+            params.add("%" + request.getExamName() + "%");
+        }
+
+        // 处理逻辑删除过滤：如果 includeDeleted 为 false 或 null，则只查询未删除的记录
+        if (!Boolean.TRUE.equals(request.getIncludeDeleted())) {
+            whereClause.append(" AND la.deleted = 0");
+        }
+        return whereClause.toString();
+    }
+
+    /**
+     * 不及格筛选需要关联的表，统计总数时只关联筛选条件用到的表
+     */
+    private String latestFailedJoins(ExamResultQueryDTO request, boolean forData) {
+        boolean keyword = request.getKeyword() != null && !request.getKeyword().trim().isEmpty();
+        boolean category = request.getCategory() != null && !request.getCategory().trim().isEmpty();
+        boolean retake = "retake".equals(request.getRetakeStatus()) || "normal".equals(request.getRetakeStatus());
+        StringBuilder joins = new StringBuilder();
+        if (forData || category || retake) {
+            joins.append(" JOIN exam_record er ON er.record_id = la.record_id");
+        }
+        if (forData || keyword) {
+            joins.append(" LEFT JOIN sys_user su ON su.user_id = la.user_id");
+        }
+        if (forData || category) {
+            joins.append(" LEFT JOIN exam_paper ep ON ep.paper_id = er.paper_id");
+        }
+        return joins.toString();
+    }
+
+    private List<ExamResultVo> toExamResults(List<Row> rows) {
+        List<ExamResultVo> results = rows.stream()
+                .map(row -> RowUtil.toEntity(row, ExamResultVo.class))
+                .collect(Collectors.toList());
+
+        // 转换重考字段显示
+        for (ExamResultVo result : results) {
+            if (result.getRetake() != null) {
+                result.setRetake(result.getRetake().equals("1") ? "是" : "否");
+            }
+        }
+        return results;
+    }
+
     public List<ExamDetailVo> getExamResultDetail(String recordId) {
         return examAnswerMapper.selectListByQueryAs(QueryWrapper.create()
                 .select(EXAM_QUESTION.QUESTION_TYPE, EXAM_QUESTION.QUESTION_CONTENT, EXAM_QUESTION.QUESTION_OPTIONS,
@@ -402,7 +590,8 @@ public class AdminService {
         
         // 检查记录是否存在（包含已删除的记录）
         // 只查询需要的字段，避免日期类型转换问题
-        String sql = "SELECT record_id, deleted FROM exam_record WHERE record_id = ?";
+        String sql = "SELECT record_id, user_id, paper_id, exam_name, status, score, pass_score, total_score, " +
+                "DATE_FORMAT(end_time, '%Y-%m-%d') AS end_date, deleted FROM exam_record WHERE record_id = ?";
         Row row = Db.selectOneBySql(sql, recordId);
         
         if (row == null) {
@@ -427,12 +616,22 @@ public class AdminService {
             throw new RuntimeException("该考试记录已被删除");
         }
         
-        // 使用原生 SQL 执行逻辑删除，直接更新 deleted 字段为 1，确保生效
-        String updateSql = "UPDATE exam_record SET deleted = 1, update_by = ?, update_time = NOW() WHERE record_id = ?";
+        // 使用原生 SQL 执行逻辑删除，直接更新 deleted 字段为 1，确保生效；
+        // 只更新未删除的记录，并发删除同一记录时只有一个请求更新成功，汇总计数只扣减一次
+        String updateSql = "UPDATE exam_record SET deleted = 1, update_by = ?, update_time = NOW() " +
+                "WHERE record_id = ? AND (deleted = 0 OR deleted IS NULL)";
         int updated = Db.updateBySql(updateSql, customToken.getUserName(), recordId);
         
-        if (updated <= 0) {
-            throw new RuntimeException("删除考试记录失败");
+        if (updated != 1) {
+            throw new RuntimeException("该考试记录已被删除");
+        }
+        latestAttemptService.refresh(String.valueOf(row.get("user_id")), row.getString("exam_name"));
+        userExamStateCache.invalidate(String.valueOf(row.get("user_id")));
+        if ("completed".equals(row.getString("status"))) {
+            resultSummaryService.onRemoved(String.valueOf(row.get("user_id")), row.getInt("score"), row.getInt("pass_score"));
+            examRollupService.onRemoved(String.valueOf(row.get("paper_id")), row.getString("end_date"),
+                    row.getInt("score"), row.getInt("pass_score"), row.getInt("total_score"));
+            paperParticipationIndex.refreshAttempt(String.valueOf(row.get("user_id")), String.valueOf(row.get("paper_id")));
         }
         
         log.info("逻辑删除考试记录成功，recordId: {}, operator: {}, updated: {}", recordId, customToken.getUserName(), updated);
@@ -494,10 +693,12 @@ public class AdminService {
                 .remark(request.getRemark())
                 .createBy(customToken.getUserName())
                 .build());
+        categoryTreeCache.questionChanged(null, null, request.getCategoryId(), "1");
     }
 
     public void updateQuestion(QuestionDTO request) {
         CustomToken customToken = JwtAccessContext.getLoginInfo();
+        ExamQuestion old = examQuestionMapper.selectOneById(request.getQuestionId());
         examQuestionMapper.update(ExamQuestion.builder()
                 .questionId(request.getQuestionId())
                 .questionType(request.getQuestionType())
@@ -510,10 +711,24 @@ public class AdminService {
                 .remark(request.getRemark())
                 .updateBy(customToken.getUserName())
                 .build());
+        // 正确答案或题型可能变化，失效包含该题的试卷答案键
+        paperAnswerKeyCache.invalidateByQuestion(request.getQuestionId());
+        paperSnapshotCache.invalidateByQuestion(request.getQuestionId());
+        if (old != null) {
+            // 未传的字段不更新
+            categoryTreeCache.questionChanged(old.getCategoryId(), old.getStatus(),
+                    request.getCategoryId() != null ? request.getCategoryId() : old.getCategoryId(),
+                    request.getStatus() != null ? request.getStatus() : old.getStatus());
+        }
     }
 
     public void deleteQuestion(String id) {
+        ExamQuestion old = examQuestionMapper.selectOneById(id);
         examQuestionMapper.deleteById(id);
+        paperSnapshotCache.invalidateByQuestion(id);
+        if (old != null) {
+            categoryTreeCache.questionChanged(old.getCategoryId(), old.getStatus(), null, null);
+        }
     }
 
     public Page<ExamQuestion> getQuestions(QuestionQueryDTO request) {
@@ -581,6 +796,7 @@ public class AdminService {
             if (!examQuestions.isEmpty()) {
                 examQuestionMapper.insertBatch(examQuestions);
                 successCount = examQuestions.size();
+                categoryTreeCache.questionCountsChanged(countByCategory(examQuestions, 1));
             }
         } catch (Exception e) {
             log.error("导入题目错误:", e);
@@ -591,7 +807,7 @@ public class AdminService {
         String message = String.format("导入完成！共处理%d条题目，成功导入%d条，重复%d条",
                 totalProcessed, successCount, duplicateCount);
 
-        sysLogMapper.insert(SysLog.builder()
+        sysLogWriter.write(SysLog.builder()
                 .userId(customToken.getUserId())
                 .userName(customToken.getUserName())
                 .content(message)
@@ -732,6 +948,7 @@ public class AdminService {
             if (!examQuestions.isEmpty()) {
                 examQuestionMapper.insertBatch(examQuestions);
                 successCount = examQuestions.size();
+                categoryTreeCache.questionCountsChanged(countByCategory(examQuestions, 1));
             }
         } catch (Exception e) {
             log.error("导入题目错误:", e);
@@ -742,7 +959,7 @@ public class AdminService {
         String message = String.format("导入完成！共处理%d条题目，成功导入%d条，重复%d条",
                 totalProcessed, successCount, duplicateCount);
 
-        sysLogMapper.insert(SysLog.builder()
+        sysLogWriter.write(SysLog.builder()
                 .userId(customToken.getUserId())
                 .userName(customToken.getUserName())
                 .content(message)
@@ -836,8 +1053,22 @@ public class AdminService {
     public void batchDeleteQuestions(Map<String, Object> request) {
         List<String> questionIds = (List<String>) request.get("questionIds");
         if (questionIds != null && !questionIds.isEmpty()) {
+            List<ExamQuestion> deleted = examQuestionMapper.selectListByIds(questionIds);
             examQuestionMapper.deleteBatchByIds(questionIds);
+            questionIds.forEach(paperSnapshotCache::invalidateByQuestion);
+            categoryTreeCache.questionCountsChanged(countByCategory(deleted, -1));
+        }
+    }
+
+    // 各分类启用题目的增减量
+    private static Map<String, Long> countByCategory(List<ExamQuestion> questions, long sign) {
+        Map<String, Long> deltas = new HashMap<>();
+        for (ExamQuestion question : questions) {
+            if (question.getCategoryId() != null && "1".equals(question.getStatus())) {
+                deltas.merge(question.getCategoryId(), sign, Long::sum);
+            }
         }
+        return deltas;
     }
 
     // 题目分类/分类管理
@@ -854,6 +1085,7 @@ public class AdminService {
                 .createBy(customToken.getUserName())
                 .build();
         examCategoryMapper.insert(category);
+        categoryTreeCache.categoriesChanged();
     }
 
     public void updateCategory(CategoryDTO request) {
@@ -869,44 +1101,11 @@ public class AdminService {
                         .remark(request.getRemark())
                         .updateBy(customToken.getUserName())
                         .build());
+        categoryTreeCache.categoriesChanged();
     }
 
     public List<ExamCategoryVo> getCategoriesTree() {
-        // 获取所有分类
-        List<ExamCategory> allCategories = examCategoryMapper.selectListByQuery(
-                QueryWrapper.create()
-                        .where(EXAM_CATEGORY.STATUS.eq("1"))
-                        .orderBy(EXAM_CATEGORY.LEVEL.asc(), EXAM_CATEGORY.SORT_ORDER.asc(),
-                                EXAM_CATEGORY.CATEGORY_NAME.asc()));
-
-        // 构建树形结构
-        List<ExamCategoryVo> tree = buildCategoryTree(allCategories);
-
-        // 对树形结构进行排序
-        sortCategoryVoTree(tree);
-
-        return tree;
-    }
-
-    private void sortCategoryVoTree(List<ExamCategoryVo> categories) {
-        if (categories == null || categories.isEmpty()) {
-            return;
-        }
-
-        // 对当前层级进行排序
-        categories.sort((a, b) -> {
-            if (a.getSortOrder() != null && b.getSortOrder() != null) {
-                return a.getSortOrder().compareTo(b.getSortOrder());
-            }
-            return a.getCategoryName().compareTo(b.getCategoryName());
-        });
-
-        // 递归对子分类进行排序
-        for (ExamCategoryVo category : categories) {
-            if (category.getChildren() != null && !category.getChildren().isEmpty()) {
-                sortCategoryVoTree(category.getChildren());
-            }
-        }
+        return categoryTreeCache.getTree();
     }
 
     public Page<ExamCategoryVo> getCategories(CategoryQueryDTO categoryQueryDTO) {
@@ -924,182 +1123,6 @@ public class AdminService {
                 ExamCategoryVo.class);
     }
 
-    private List<ExamCategoryVo> buildCategoryTree(List<ExamCategory> categories) {
-        Map<String, ExamCategoryVo> categoryMap = new HashMap<>();
-        List<ExamCategoryVo> rootCategories = new ArrayList<>();
-
-        // 一次性查询所有分类的题目数量，避免 N+1 查询问题
-        String sql = "SELECT category_id, COUNT(*) as question_count FROM exam_question WHERE status = '1' GROUP BY category_id";
-        List<Row> questionCounts = Db.selectListBySql(sql);
-        Map<String, Long> questionCountMap = new HashMap<>();
-        for (Row row : questionCounts) {
-            questionCountMap.put(row.getString("category_id"), row.getLong("question_count"));
-        }
-
-        // 转换为VO对象并设置题目数量
-        for (ExamCategory category : categories) {
-            ExamCategoryVo vo = new ExamCategoryVo();
-            vo.setCategoryId(category.getCategoryId());
-            vo.setCategoryName(category.getCategoryName());
-            vo.setCategoryCode(category.getCategoryCode());
-            vo.setParentId(category.getParentId());
-            vo.setLevel(category.getLevel());
-            vo.setSortOrder(category.getSortOrder());
-            vo.setRemark(category.getRemark());
-            vo.setChildren(new ArrayList<>());
-
-            // 从 Map 中获取题目数量，如果没有则为 0
-            vo.setQuestionCount(questionCountMap.getOrDefault(category.getCategoryId(), 0L));
-
-            categoryMap.put(category.getCategoryId(), vo);
-        }
-
-        // 构建树形结构
-        for (ExamCategoryVo vo : categoryMap.values()) {
-            if (vo.getParentId() == null || vo.getParentId().isEmpty()) {
-                rootCategories.add(vo);
-            } else {
-                ExamCategoryVo parent = categoryMap.get(vo.getParentId());
-                if (parent != null) {
-                    parent.getChildren().add(vo);
-                }
-            }
-        }
-
-        // 递归计算每个分类的总题目数量（包括子分类）
-        calculateTotalQuestionCountForVo(rootCategories);
-
-        return rootCategories;
-    }
-
-    /**
-     * 递归计算每个分类的总题目数量（包括子分类的题目数量）- ExamCategoryVo版本
-     */
-    private void calculateTotalQuestionCountForVo(List<ExamCategoryVo> categories) {
-        if (categories == null || categories.isEmpty()) {
-            return;
-        }
-
-        for (ExamCategoryVo category : categories) {
-            // 递归计算子分类的总题目数量
-            if (category.getChildren() != null && !category.getChildren().isEmpty()) {
-                calculateTotalQuestionCountForVo(category.getChildren());
-
-                // 计算子分类的总题目数量
-                Long childrenTotalCount = category.getChildren().stream()
-                        .mapToLong(child -> child.getQuestionCount() != null ? child.getQuestionCount() : 0)
-                        .sum();
-
-                // 当前分类的总题目数量 = 自身题目数量 + 子分类总题目数量
-                Long selfCount = category.getQuestionCount() != null ? category.getQuestionCount() : 0;
-                category.setQuestionCount(selfCount + childrenTotalCount);
-            }
-        }
-    }
-
-    private List<CategoryCount> buildCategoryCountTree() {
-        // 获取所有分类，按层级和排序顺序排序
-        List<ExamCategory> allCategories = examCategoryMapper.selectListByQuery(
-                QueryWrapper.create()
-                        .where(EXAM_CATEGORY.STATUS.eq("1"))
-                        .orderBy(EXAM_CATEGORY.LEVEL.asc(), EXAM_CATEGORY.SORT_ORDER.asc(),
-                                EXAM_CATEGORY.CATEGORY_NAME.asc()));
-
-        Map<String, CategoryCount> categoryMap = new HashMap<>();
-        List<CategoryCount> rootCategories = new ArrayList<>();
-
-        // 一次性查询所有分类的题目数量，避免 N+1 查询问题
-        String sql = "SELECT category_id, COUNT(*) as question_count FROM exam_question WHERE status = '1' GROUP BY category_id";
-        List<Row> questionCounts = Db.selectListBySql(sql);
-        Map<String, Long> questionCountMap = new HashMap<>();
-        for (Row row : questionCounts) {
-            questionCountMap.put(row.getString("category_id"), row.getLong("question_count"));
-        }
-
-        // 转换为CategoryCount对象并设置题目数量
-        for (ExamCategory category : allCategories) {
-            CategoryCount categoryCount = new CategoryCount();
-            categoryCount.setCategoryId(category.getCategoryId());
-            categoryCount.setCategoryName(category.getCategoryName());
-            categoryCount.setCategoryCode(category.getCategoryCode());
-            categoryCount.setParentId(category.getParentId());
-            categoryCount.setLevel(category.getLevel());
-            categoryCount.setSortOrder(category.getSortOrder());
-            categoryCount.setChildren(new ArrayList<>());
-
-            // 从 Map 中获取题目数量，如果没有则为 0
-            categoryCount.setQuestionCount(questionCountMap.getOrDefault(category.getCategoryId(), 0L));
-
-            categoryMap.put(category.getCategoryId(), categoryCount);
-        }
-
-        // 构建树形结构
-        for (CategoryCount categoryCount : categoryMap.values()) {
-            if (categoryCount.getParentId() == null || categoryCount.getParentId().isEmpty()) {
-                rootCategories.add(categoryCount);
-            } else {
-                CategoryCount parent = categoryMap.get(categoryCount.getParentId());
-                if (parent != null) {
-                    parent.getChildren().add(categoryCount);
-                }
-            }
-        }
-
-        // 对每个层级的子分类进行排序
-        sortCategoryTree(rootCategories);
-
-        // 递归计算每个分类的总题目数量（包括子分类）
-        calculateTotalQuestionCount(rootCategories);
-
-        return rootCategories;
-    }
-
-    /**
-     * 递归计算每个分类的总题目数量（包括子分类的题目数量）
-     */
-    private void calculateTotalQuestionCount(List<CategoryCount> categories) {
-        if (categories == null || categories.isEmpty()) {
-            return;
-        }
-
-        for (CategoryCount category : categories) {
-            // 递归计算子分类的总题目数量
-            if (category.getChildren() != null && !category.getChildren().isEmpty()) {
-                calculateTotalQuestionCount(category.getChildren());
-
-                // 计算子分类的总题目数量
-                Long childrenTotalCount = category.getChildren().stream()
-                        .mapToLong(child -> child.getQuestionCount() != null ? child.getQuestionCount() : 0)
-                        .sum();
-
-                // 当前分类的总题目数量 = 自身题目数量 + 子分类总题目数量
-                Long selfCount = category.getQuestionCount() != null ? category.getQuestionCount() : 0;
-                category.setQuestionCount(selfCount + childrenTotalCount);
-            }
-        }
-    }
-
-    private void sortCategoryTree(List<CategoryCount> categories) {
-        if (categories == null || categories.isEmpty()) {
-            return;
-        }
-
-        // 对当前层级进行排序
-        categories.sort((a, b) -> {
-            if (a.getSortOrder() != null && b.getSortOrder() != null) {
-                return a.getSortOrder().compareTo(b.getSortOrder());
-            }
-            return a.getCategoryName().compareTo(b.getCategoryName());
-        });
-
-        // 递归对子分类进行排序
-        for (CategoryCount category : categories) {
-            if (category.getChildren() != null && !category.getChildren().isEmpty()) {
-                sortCategoryTree(category.getChildren());
-            }
-        }
-    }
-
     public List<Object> getDepartments(DepartmentQueryDTO request) {
 
         return sysDepartmentMapper.selectObjectListByQuery(QueryWrapper.create().select(SYS_DEPARTMENT.DEPT_NAME));
@@ -1112,6 +1135,7 @@ public class AdminService {
                 .remark(departmentDTO.getRemark())
                 .createDept(departmentDTO.getDeptName())
                 .build());
+        referenceDataCache.bump(ReferenceDataCache.DEPARTMENTS);
     }
 
     // 考试配置管理
@@ -1120,6 +1144,7 @@ public class AdminService {
                 .where(EXAM_CONFIG.STATUS.eq("1")).orderBy(EXAM_CONFIG.CREATE_TIME.desc()));
     }
 
+    @Transactional(rollbackFor = Exception.class)
     public void addExamConfig(ExamConfigDTO request) {
         CustomToken customToken = JwtAccessContext.getLoginInfo();
         ExamConfig examConfig = new ExamConfig();
@@ -1127,16 +1152,26 @@ public class AdminService {
         examConfig.setCreateBy(customToken.getUserName());
         examConfig.setStatus("1");
         examConfigMapper.insert(examConfig);
+        examConfigUserCategoryService.replace(examConfig.getConfigId(), examConfig.getUserCategory());
     }
 
+    @Transactional(rollbackFor = Exception.class)
     public void updateExamConfig(ExamConfigDTO request) {
         CustomToken customToken = JwtAccessContext.getLoginInfo();
         ExamConfig examConfig = new ExamConfig();
         BeanUtil.copyProperties(request, examConfig, CopyOptions.create().ignoreNullValue());
         examConfig.setUpdateBy(customToken.getUserName());
         examConfigMapper.update(examConfig);
+        if (examConfig.getUserCategory() != null) {
+            examConfigUserCategoryService.replace(examConfig.getConfigId(), examConfig.getUserCategory());
+        }
+        // 题型分值、人员类别可能变化
+        paperAnswerKeyCache.invalidateAll();
+        examEligibilityCache.invalidateAllPapers();
+        publishedPaperIndex.invalidate();
     }
 
+    @Transactional(rollbackFor = Exception.class)
     public void deleteExamConfig(String id) {
         // 检查该配置下是否有试卷
         List<ExamPaper> papers = examPaperMapper.selectListByQuery(
@@ -1150,6 +1185,8 @@ public class AdminService {
         }
 
         examConfigMapper.deleteById(id);
+        examConfigUserCategoryService.deleteByConfig(id);
+        publishedPaperIndex.invalidate();
     }
 
     @Transactional(rollbackFor = Exception.class)
@@ -1167,6 +1204,7 @@ public class AdminService {
         paper.setCreateBy(customToken.getUserName());
         paper.setStatus("1");
         examPaperMapper.insert(paper);
+        publishedPaperIndex.invalidate();
 
         // 2. 插入 exam_paper_question
         List<ExamPaperQuestion> paperQuestions = new ArrayList<>();
@@ -1276,6 +1314,10 @@ public class AdminService {
                 .status(examPaperDTO.getStatus())
                 .paperId(examPaperDTO.getPaperId())
                 .build());
+        paperAnswerKeyCache.invalidate(examPaperDTO.getPaperId());
+        paperSnapshotCache.invalidate(examPaperDTO.getPaperId());
+        examEligibilityCache.invalidatePaper(examPaperDTO.getPaperId());
+        publishedPaperIndex.invalidate();
     }
 
     @Transactional(rollbackFor = Exception.class)
@@ -1296,51 +1338,35 @@ public class AdminService {
 
         // 删除试卷
         examPaperMapper.deleteById(paperId);
+        paperAnswerKeyCache.invalidate(paperId);
+        paperSnapshotCache.invalidate(paperId);
+        examEligibilityCache.invalidatePaper(paperId);
+        publishedPaperIndex.invalidate();
     }
 
     public List<ExamPaper> getAvailablePapers(AvailablePaperQueryDTO result) {
         CustomToken customToken = JwtAccessContext.getLoginInfo();
 
         // 获取当前用户的人员类别
-        SysUser currentUser = sysUserMapper.selectOneByQuery(QueryWrapper.create()
-                .where(SYS_USER.USER_ID.eq(customToken.getUserId())));
+        String userCategory = examEligibilityCache.getUserCategory(customToken.getUserId());
 
-        if (currentUser == null) {
+        if (userCategory == null) {
             return new ArrayList<>();
         }
 
-        // 查出所有试卷，并根据人员类别进行过滤（支持多选）
-        List<ExamPaper> papers = examPaperMapper.selectListByQuery(QueryWrapper.create()
-                .select(EXAM_PAPER.ALL_COLUMNS, EXAM_CONFIG.USER_CATEGORY.as("userCategories"))
-                .from(EXAM_PAPER)
-                .leftJoin(EXAM_CONFIG).on(EXAM_PAPER.CONFIG_ID.eq(EXAM_CONFIG.CONFIG_ID))
-                .where(EXAM_PAPER.STATUS.eq("1"))
-                .and(EXAM_CONFIG.USER_CATEGORY.like(currentUser.getUserCategory())));
-
-        // 注意：userCategories 字段现在通过 ExamPaperVo 传递，不需要在 ExamPaper 实体中设置
+        // 该人员类别可见的已发布试卷（支持多选），来自 人员类别 -> 试卷 索引
+        List<ExamPaper> papers = publishedPaperIndex.getPapers(userCategory);
 
-        // 查出所有参加考试的记录（包括重考记录）
-        List<ExamRecord> records = examRecordMapper.selectListByQuery(QueryWrapper.create()
-                .where(EXAM_RECORD.USER_ID.eq(customToken.getUserId()))
-                .orderBy(EXAM_RECORD.END_TIME.desc()));
-
-        // 查出该用户的强制重考配置
-        List<ExamForceRetake> forceRetakes = examForceRetakeMapper.selectListByQuery(QueryWrapper.create()
-                .where(EXAM_FORCE_RETAKE.USER_ID.eq(customToken.getUserId()))
-                .and(EXAM_FORCE_RETAKE.FORCE_RETAKE.eq(1)));
+        // 各试卷的最新考试状态与强制重考标识，按用户缓存
+        Map<String, UserExamStateCache.PaperState> states = userExamStateCache.get(customToken.getUserId());
 
         papers.forEach(paper -> {
+            UserExamStateCache.PaperState state = states.get(paper.getPaperId());
             // 检查是否有强制重考配置
-            boolean hasForceRetake = forceRetakes.stream()
-                    .anyMatch(forceRetake -> paper.getPaperId().equals(forceRetake.getPaperId()));
-
-            // 找到该试卷的最新考试记录
-            ExamRecord latestRecord = records.stream()
-                    .filter(record -> paper.getPaperId().equals(record.getPaperId()))
-                    .findFirst()
-                    .orElse(null);
+            boolean hasForceRetake = state != null && state.forceRetake();
+            String latestStatus = state != null ? state.latestStatus() : null;
 
-            if (latestRecord == null) {
+            if (latestStatus == null) {
                 // 未考试的情况
                 if (hasForceRetake) {
                     paper.setStatus("pending"); // 未考试 + 管理员安排重考 = 可以考试
@@ -1349,9 +1375,9 @@ public class AdminService {
                 }
             } else {
                 // 已考试的情况
-                if ("in-progress".equals(latestRecord.getStatus())) {
+                if ("in-progress".equals(latestStatus)) {
                     paper.setStatus("in-progress"); // 进行中
-                } else if ("completed".equals(latestRecord.getStatus()) || "timeout".equals(latestRecord.getStatus())) {
+                } else if ("completed".equals(latestStatus) || "timeout".equals(latestStatus)) {
                     // timeout 状态视为已完成（因为考试到时间会自动提交）
                     if (hasForceRetake) {
                         paper.setStatus("pending"); // 已完成 + 管理员安排重考 = 可以重考
@@ -1397,70 +1423,99 @@ public class AdminService {
                     .build();
             examForceRetakeMapper.insert(forceRetake);
         }
+        userExamStateCache.invalidate(userId);
     }
 
     // 统计分析
+    /**
+     * 仪表盘统计：各统计项相互独立，在虚拟线程上并行查询，整体耗时取决于最慢的一项；
+     * 超过截止时间的统计项返回空值，并在 timeoutSections 中列出
+     */
     public DashboardVo getDashboardStatistics() {
-        long examQuestionCount = examQuestionMapper
-                .selectCountByQuery(QueryWrapper.create().where(EXAM_QUESTION.STATUS.eq("1")));
-        long examResultCountToday = examRecordMapper.selectCountByQuery(
-                QueryWrapper.create().where(EXAM_RECORD.CREATE_TIME.ge(LocalDateTime.now().minusDays(1))));
-        long categoryCount = examCategoryMapper
-                .selectCountByQuery(QueryWrapper.create().where(EXAM_CATEGORY.STATUS.eq("1")));
-        Object avgExamScore = examRecordMapper.selectObjectByQuery(QueryWrapper.create()
-                .select(avg(EXAM_RECORD.SCORE).as("avg_score"))
-                .where(EXAM_RECORD.STATUS.eq("completed")));
-
-        List<SysLog> sysLogs = sysLogMapper.selectListByQuery(QueryWrapper.create()
-                .orderBy(SYS_LOG.CREATE_TIME.desc())
-                .limit(5));
-
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(dashboardSectionTimeoutMillis);
+
+        Future<Long> examQuestionCount = dashboardSection(() -> examQuestionMapper
+                .selectCountByQuery(QueryWrapper.create().where(EXAM_QUESTION.STATUS.eq("1"))));
+        Future<Long> examResultCountToday = dashboardSection(() -> examRecordMapper.selectCountByQuery(
+                QueryWrapper.create().where(EXAM_RECORD.CREATE_TIME.ge(LocalDateTime.now().minusDays(1)))));
+        Future<Long> categoryCount = dashboardSection(() -> examCategoryMapper
+                .selectCountByQuery(QueryWrapper.create().where(EXAM_CATEGORY.STATUS.eq("1"))));
+        Future<Object> avgExamScore = dashboardSection(() -> examRecordMapper.selectObjectByQuery(
+                QueryWrapper.create()
+                        .select(avg(EXAM_RECORD.SCORE).as("avg_score"))
+                        .where(EXAM_RECORD.STATUS.eq("completed"))));
+        Future<List<SysLog>> sysLogs = dashboardSection(() -> sysLogMapper.selectListByQuery(
+                QueryWrapper.create()
+                        .orderBy(SYS_LOG.CREATE_TIME.desc())
+                        .limit(5)));
         // 获取层级结构的分类统计
-        List<CategoryCount> categorySummary = buildCategoryCountTree();
+        Future<List<CategoryCount>> categorySummary = dashboardSection(categoryTreeCache::getCountTree);
+
+        List<String> timeoutSections = new ArrayList<>();
+        Long questionCountValue = awaitSection(examQuestionCount, "questionCount", deadline, timeoutSections);
+        Long resultCountValue = awaitSection(examResultCountToday, "examResultCountToday", deadline, timeoutSections);
+        Long categoryCountValue = awaitSection(categoryCount, "categoryCount", deadline, timeoutSections);
+        Object avgScoreValue = awaitSection(avgExamScore, "avgExamScore", deadline, timeoutSections);
+        List<SysLog> sysLogsValue = awaitSection(sysLogs, "sysLogs", deadline, timeoutSections);
+        List<CategoryCount> categorySummaryValue = awaitSection(categorySummary, "categorySummary", deadline, timeoutSections);
+        boolean avgScoreAvailable = !timeoutSections.contains("avgExamScore");
 
         return DashboardVo.builder()
-                .questionCount((int) examQuestionCount)
-                .examResultCountToday((int) examResultCountToday)
-                .categoryCount((int) categoryCount)
-                .avgExamScore(avgExamScore == null ? BigDecimal.ZERO
-                        : new BigDecimal(avgExamScore.toString()).setScale(2, RoundingMode.HALF_UP))
-                .sysLogs(sysLogs)
-                .categorySummary(categorySummary)
+                .questionCount(questionCountValue != null ? questionCountValue.intValue() : null)
+                .examResultCountToday(resultCountValue != null ? resultCountValue.intValue() : null)
+                .categoryCount(categoryCountValue != null ? categoryCountValue.intValue() : null)
+                .avgExamScore(!avgScoreAvailable ? null : avgScoreValue == null ? BigDecimal.ZERO
+                        : new BigDecimal(avgScoreValue.toString()).setScale(2, RoundingMode.HALF_UP))
+                .sysLogs(sysLogsValue)
+                .categorySummary(categorySummaryValue)
+                .timeoutSections(timeoutSections)
                 .build();
     }
 
-    public Map<String, Object> getExamTrends(String startDate, String endDate) {
-        Map<String, Object> trends = new HashMap<>();
+    // 在虚拟线程上执行一项统计，信号量限制同时占用的数据库连接数
+    private <T> Future<T> dashboardSection(Supplier<T> query) {
+        return dashboardExecutor.submit(() -> {
+            dashboardPermits.acquire();
+            try {
+                return query.get();
+            } finally {
+                dashboardPermits.release();
+            }
+        });
+    }
 
-        List<Map<String, Object>> data = new ArrayList<>();
-        for (int i = 30; i >= 0; i--) {
-            Map<String, Object> item = new HashMap<>();
-            item.put("date", LocalDateTime.now().minusDays(i).format(DateTimeFormatter.ofPattern("yyyy-MM-dd")));
-            item.put("examCount", (int) (Math.random() * 50) + 10);
-            item.put("passCount", (int) (Math.random() * 40) + 8);
-            data.add(item);
-        }
+    // 在截止时间前等待统计结果；超时或失败时记录该项并返回 null。
+    // 超时的统计项被中断：仍在等待许可的直接退出，执行中的查询中断后释放连接与许可，不再占用后续请求的名额
+    private <T> T awaitSection(Future<T> future, String section, long deadline, List<String> timeoutSections) {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            log.warn("仪表盘统计项 {} 查询超时", section);
+        } catch (ExecutionException e) {
+            log.error("仪表盘统计项 {} 查询失败", section, e.getCause());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+        }
+        timeoutSections.add(section);
+        return null;
+    }
+
+    @PreDestroy
+    public void shutdownDashboardExecutor() {
+        dashboardExecutor.shutdownNow();
+    }
 
-        trends.put("data", data);
+    public Map<String, Object> getExamTrends(String startDate, String endDate) {
+        Map<String, Object> trends = new HashMap<>();
+        trends.put("data", examRollupService.getDailyTrends(startDate, endDate));
         return trends;
     }
 
-    public Map<String, Object> getCategoryPerformance() {
+    public Map<String, Object> getCategoryPerformance(String startDate, String endDate) {
         Map<String, Object> performance = new HashMap<>();
-
-        List<Map<String, Object>> data = new ArrayList<>();
-        String[] categories = { "消化内科", "肝胆外科", "心血管内科", "呼吸内科" };
-
-        for (String category : categories) {
-            Map<String, Object> item = new HashMap<>();
-            item.put("category", category);
-            item.put("examCount", (int) (Math.random() * 100) + 50);
-            item.put("avgScore", Math.round((Math.random() * 30 + 60) * 10) / 10.0);
-            item.put("passRate", Math.round((Math.random() * 20 + 70) * 10) / 10.0);
-            data.add(item);
-        }
-
-        performance.put("data", data);
+        performance.put("data", examRollupService.getCategoryPerformance(startDate, endDate));
         return performance;
     }
 
@@ -1538,8 +1593,12 @@ public class AdminService {
             }
         });
 
-        // 5. 随机打乱题目顺序
-        Collections.shuffle(questions);
+        // 5. 按试卷中的题目顺序排列（结果作为试卷快照被所有考生共享）
+        Map<String, Integer> questionOrderMap = new HashMap<>(paperQuestions.size() * 2);
+        for (int i = 0; i < paperQuestions.size(); i++) {
+            questionOrderMap.put(paperQuestions.get(i).getQuestionId(), i);
+        }
+        questions.sort(Comparator.comparingInt(question -> questionOrderMap.getOrDefault(question.getQuestionId(), Integer.MAX_VALUE)));
 
         return questions;
     }
@@ -1577,125 +1636,47 @@ public class AdminService {
             throw new RuntimeException("考试配置不存在");
         }
 
-        // 3. 统计该人员类别下的总用户数（支持多选）
-        String[] allowedCategories = config.getUserCategory().split(",");
-        Long totalUsers = sysUserMapper.selectCountByQuery(
-                QueryWrapper.create()
-                        .where(SYS_USER.USER_CATEGORY.in(allowedCategories))
-                        .and(SYS_USER.STATUS.eq("1"))
-                        .and(SYS_USER.ROLE.eq("student")));
-
-        // 4. 统计已考试的用户数（去重）
-        List<Object> examedUserIds = examRecordMapper.selectObjectListByQuery(
-                QueryWrapper.create()
-                        .select(EXAM_RECORD.USER_ID)
-                        .from(EXAM_RECORD)
-                        .leftJoin(SYS_USER).on(EXAM_RECORD.USER_ID.eq(SYS_USER.USER_ID))
-                        .where(EXAM_RECORD.PAPER_ID.eq(paperId))
-                        .and(SYS_USER.USER_CATEGORY.eq(config.getUserCategory()))
-                        .and(EXAM_RECORD.STATUS.eq("completed"))
-                        .groupBy(EXAM_RECORD.USER_ID));
-        Long examedUsers = (long) examedUserIds.size();
-
-        // 5. 计算未考试用户数
-        Integer notExamedUsers = totalUsers.intValue() - examedUsers.intValue();
+        // 3. 可参考人数、已考人数、及格人数取自位图索引（支持多选类别）
+        PaperParticipationIndex.Counts counts = paperParticipationIndex.counts(paperId,
+                examConfigUserCategoryMapper.selectCategoriesOfConfig(config.getConfigId()));
+        int totalUsers = counts.total();
+        int examedUsers = counts.examined();
 
-        // 6. 计算考试率
-        Double examRate = totalUsers > 0 ? (examedUsers.doubleValue() / totalUsers.doubleValue()) * 100 : 0.0;
+        // 4. 计算考试率
+        Double examRate = totalUsers > 0 ? ((double) examedUsers / totalUsers) * 100 : 0.0;
 
         return PaperExamStatusDTO.builder()
                 .paperId(paperId)
                 .paperName(paper.getPaperName())
                 .userCategory(config.getUserCategory())
-                .totalUsers(totalUsers.intValue())
-                .examedUsers(examedUsers.intValue())
-                .notExamedUsers(notExamedUsers)
+                .totalUsers(totalUsers)
+                .examedUsers(examedUsers)
+                .notExamedUsers(totalUsers - examedUsers)
+                .passedUsers(counts.passed())
                 .examRate(Math.round(examRate * 100.0) / 100.0)
                 .build();
     }
 
-    // 获取试卷考试详细情况
+    // 获取试卷考试详细情况（导出使用完整名单）
     public List<PaperExamDetailVo> getPaperExamDetail(String paperId) {
-        // 1. 获取试卷对应的人员类别
-        ExamConfig config = examConfigMapper.selectOneByQuery(
-                QueryWrapper.create()
-                        .from(EXAM_CONFIG)
-                        .leftJoin(EXAM_PAPER).on(EXAM_CONFIG.CONFIG_ID.eq(EXAM_PAPER.CONFIG_ID))
-                        .where(EXAM_PAPER.PAPER_ID.eq(paperId)));
-
-        if (config == null) {
-            throw new RuntimeException("考试配置不存在");
-        }
-
-        // 2. 获取该人员类别下的所有用户（支持多选）
-        List<SysUser> allUsers = sysUserMapper.selectListByQuery(
-                QueryWrapper.create()
-                        .where(SYS_USER.USER_CATEGORY.in(config.getUserCategory().split(",")))
-                        .and(SYS_USER.STATUS.eq("1"))
-                        .and(SYS_USER.ROLE.eq("student")));
-
-        // 3. 获取已考试的用户记录，按用户ID和结束时间排序
-        List<ExamRecord> examRecords = examRecordMapper.selectListByQuery(
-                QueryWrapper.create()
-                        .where(EXAM_RECORD.PAPER_ID.eq(paperId))
-                        .and(EXAM_RECORD.STATUS.eq("completed"))
-                        .orderBy(EXAM_RECORD.USER_ID.asc(), EXAM_RECORD.END_TIME.desc()));
-
-        // 4. 创建已考试用户的映射，如果有重复用户，取最新的考试记录
-        Map<String, ExamRecord> examedUserMap = examRecords.stream()
-                .collect(Collectors.toMap(
-                        ExamRecord::getUserId,
-                        record -> record,
-                        (existing, replacement) -> {
-                            // 如果有重复的userId，保留最新的考试记录（按endTime排序）
-                            if (existing.getEndTime() != null && replacement.getEndTime() != null) {
-                                return existing.getEndTime().after(replacement.getEndTime()) ? existing : replacement;
-                            } else if (existing.getEndTime() != null) {
-                                return existing;
-                            } else {
-                                return replacement;
-                            }
-                        }));
-
-        // 5. 构建结果列表
-        List<PaperExamDetailVo> result = new ArrayList<>();
-
-        for (SysUser user : allUsers) {
-            PaperExamDetailVo detail = new PaperExamDetailVo();
-            detail.setUserId(user.getUserId());
-            detail.setUserName(user.getUserName());
-            detail.setIdNumber(user.getIdNumber());
-            detail.setDepartment(user.getDepartment());
-            detail.setUserCategory(user.getUserCategory());
-
-            ExamRecord examRecord = examedUserMap.get(user.getUserId());
-            if (examRecord != null) {
-                // 已考试
-                detail.setExamStatus("已考试");
-                detail.setExamDate(examRecord.getEndTime() != null
-                        ? new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(examRecord.getEndTime())
-                        : "");
-                detail.setScore(examRecord.getScore());
-                detail.setStatus(examRecord.getStatus());
-            } else {
-                // 未考试
-                detail.setExamStatus("未考试");
-                detail.setExamDate("");
-                detail.setScore(null);
-                detail.setStatus("");
-            }
-
-            result.add(detail);
-        }
-
-        // 6. 按考试状态和姓名排序
+        List<String> categories = paperUserCategories(paperId);
+        Roaring64Bitmap examined = paperParticipationIndex.examinedUsers(paperId, categories);
+        Roaring64Bitmap notExamined = paperParticipationIndex.notExaminedUsers(paperId, categories);
+        int examinedCount = PaperParticipationIndex.cardinality(examined);
+        int notExaminedCount = PaperParticipationIndex.cardinality(notExamined);
+
+        List<PaperExamDetailVo> result = new ArrayList<>(examinedCount + notExaminedCount);
+        result.addAll(paperExamDetails(paperId,
+                PaperParticipationIndex.slice(examined, 0, examinedCount), true));
+        result.addAll(paperExamDetails(paperId,
+                PaperParticipationIndex.slice(notExamined, 0, notExaminedCount), false));
+
+        // 按考试状态和姓名排序（已考试在前）
         result.sort((a, b) -> {
-            // 先按考试状态排序（未考试的在前）
             int statusCompare = a.getExamStatus().compareTo(b.getExamStatus());
             if (statusCompare != 0) {
                 return statusCompare;
             }
-            // 再按姓名排序
             return a.getUserName().compareTo(b.getUserName());
         });
 
@@ -1703,271 +1684,107 @@ public class AdminService {
     }
 
     /**
-     * 获取考试结果数据用于导出（不分页）
-     * 
-     * @param request 查询条件
-     * @return 考试结果列表
+     * 分页获取试卷考试详细情况：已考试在前、未考试在后，组内按用户ID排序，
+     * 只读取当前页的用户与考试记录
+     *
+     * @param examStatus examined 只看已考试，notExamined 只看未考试，为空时全部
      */
-    private List<ExamResultVo> getExamResultsForExport(ExamResultQueryDTO request) {
-        // 如果是不及格筛选，需要特殊处理
-        if ("fail".equals(request.getPassStatus())) {
-            return getLatestFailedExamResultsForExport(request);
-        }
-
-        // 如果需要包含已删除记录，使用 LogicDeleteManager 跳过逻辑删除过滤
-        if (Boolean.TRUE.equals(request.getIncludeDeleted())) {
-            return getExamResultsForExportWithDeleted(request);
-        }
-
-        // 默认查询（只查询未删除的记录）
-        QueryWrapper queryWrapper = QueryWrapper.create()
-                .select(EXAM_RECORD.RECORD_ID, SYS_USER.USER_NAME, SYS_USER.DEPARTMENT.as("categoryName"),
-                        SYS_USER.USER_CATEGORY, SYS_USER.ID_NUMBER, EXAM_RECORD.EXAM_NAME,
-                        EXAM_RECORD.END_TIME.as("examDate"), EXAM_RECORD.DURATION, EXAM_RECORD.SCORE,
-                        EXAM_RECORD.TOTAL_SCORE, EXAM_RECORD.STATUS, EXAM_RECORD.RETAKE, EXAM_RECORD.PASS_SCORE)
-                .leftJoin(SYS_USER).on(SYS_USER.USER_ID.eq(EXAM_RECORD.USER_ID))
-                .leftJoin(EXAM_PAPER).on(EXAM_PAPER.PAPER_ID.eq(EXAM_RECORD.PAPER_ID))
-                .leftJoin(EXAM_CONFIG).on(EXAM_CONFIG.CONFIG_ID.eq(EXAM_PAPER.CONFIG_ID))
-                .where(EXAM_RECORD.STATUS.ne("in-progress")); // 导出时排除进行中的考试
-
-        // 添加关键词筛选 - 导出时处理空值
-        if (request.getKeyword() != null && !request.getKeyword().trim().isEmpty()) {
-            queryWrapper.and(
-                    SYS_USER.USER_NAME.like(request.getKeyword()).or(SYS_USER.ID_NUMBER.like(request.getKeyword())));
-        }
-
-        // 添加分类筛选 - 导出时处理"all"值
-        if (request.getCategory() != null && !request.getCategory().trim().isEmpty()
-                && !"all".equals(request.getCategory())) {
-            queryWrapper.and(EXAM_PAPER.CATEGORY_ID.eq(request.getCategory()));
-        }
-
-        // 添加状态筛选 - 导出时处理"all"值，但排除in-progress
-        if (request.getStatus() != null && !request.getStatus().trim().isEmpty()
-                && !"all".equals(request.getStatus())) {
-            queryWrapper.and(EXAM_RECORD.STATUS.eq(request.getStatus()));
-        }
-
-        // 添加及格筛选
-        if ("pass".equals(request.getPassStatus())) {
-            queryWrapper.and(EXAM_RECORD.SCORE.ge(EXAM_RECORD.PASS_SCORE));
-        }
-
-        // 添加重考筛选
-        if ("retake".equals(request.getRetakeStatus())) {
-            queryWrapper.and(EXAM_RECORD.RETAKE.eq(1));
-        } else if ("normal".equals(request.getRetakeStatus())) {
-            queryWrapper.and(EXAM_RECORD.RETAKE.eq(0));
-        }
-
-        // 添加考试名称筛选
-        if (request.getExamName() != null && !request.getExamName().trim().isEmpty()) {
-            queryWrapper.and(EXAM_RECORD.EXAM_NAME.like(request.getExamName()));
-        }
+    public Page<PaperExamDetailVo> getPaperExamDetailPage(String paperId, String examStatus,
+                                                          int pageNumber, int pageSize) {
+        List<String> categories = paperUserCategories(paperId);
+        Roaring64Bitmap examined = "notExamined".equals(examStatus)
+                ? new Roaring64Bitmap() : paperParticipationIndex.examinedUsers(paperId, categories);
+        Roaring64Bitmap notExamined = "examined".equals(examStatus)
+                ? new Roaring64Bitmap() : paperParticipationIndex.notExaminedUsers(paperId, categories);
+
+        pageSize = Math.max(pageSize, 1);
+        int examinedCount = PaperParticipationIndex.cardinality(examined);
+        int total = examinedCount + PaperParticipationIndex.cardinality(notExamined);
+        int offset = (Math.max(pageNumber, 1) - 1) * pageSize;
+
+        List<PaperExamDetailVo> records = new ArrayList<>(pageSize);
+        if (offset < examinedCount) {
+            records.addAll(paperExamDetails(paperId,
+                    PaperParticipationIndex.slice(examined, offset, pageSize), true));
+        }
+        int remaining = pageSize - records.size();
+        if (remaining > 0 && offset + records.size() < total) {
+            records.addAll(paperExamDetails(paperId,
+                    PaperParticipationIndex.slice(notExamined, Math.max(offset - examinedCount, 0), remaining), false));
+        }
+        return new Page<>(records, pageNumber, pageSize, total);
+    }
 
-        // 查询所有数据（不分页）
-        List<ExamResultVo> results = examRecordMapper.selectListByQueryAs(
-                queryWrapper.orderBy(EXAM_RECORD.END_TIME.desc()),
-                ExamResultVo.class);
+    // 试卷所属考试配置允许的人员类别
+    private List<String> paperUserCategories(String paperId) {
+        ExamConfig config = examConfigMapper.selectOneByQuery(
+                QueryWrapper.create()
+                        .from(EXAM_CONFIG)
+                        .leftJoin(EXAM_PAPER).on(EXAM_CONFIG.CONFIG_ID.eq(EXAM_PAPER.CONFIG_ID))
+                        .where(EXAM_PAPER.PAPER_ID.eq(paperId)));
 
-        // 转换重考字段显示
-        for (ExamResultVo result : results) {
-            if (result.getRetake() != null) {
-                result.setRetake(result.getRetake().equals("1") ? "是" : "否");
-            }
+        if (config == null) {
+            throw new RuntimeException("考试配置不存在");
         }
-
-        return results;
+        return examConfigUserCategoryMapper.selectCategoriesOfConfig(config.getConfigId());
     }
 
     /**
-     * 获取考试结果数据用于导出（包含已删除记录，使用 LogicDeleteManager 跳过逻辑删除过滤）
+     * 按给定顺序组装用户的考试详细情况；已考试的用户取最新一条已完成记录
      */
-    private List<ExamResultVo> getExamResultsForExportWithDeleted(ExamResultQueryDTO request) {
-        // 使用 LogicDeleteManager.execWithoutLogicDelete() 跳过逻辑删除的自动过滤
-        return LogicDeleteManager.execWithoutLogicDelete(() -> {
-            QueryWrapper queryWrapper = QueryWrapper.create()
-                    .select(EXAM_RECORD.RECORD_ID, SYS_USER.USER_NAME, SYS_USER.DEPARTMENT.as("categoryName"),
-                            SYS_USER.USER_CATEGORY, SYS_USER.ID_NUMBER, EXAM_RECORD.EXAM_NAME,
-                            EXAM_RECORD.END_TIME.as("examDate"), EXAM_RECORD.DURATION, EXAM_RECORD.SCORE,
-                            EXAM_RECORD.TOTAL_SCORE, EXAM_RECORD.STATUS, EXAM_RECORD.RETAKE, 
-                            EXAM_RECORD.PASS_SCORE)
-                    .leftJoin(SYS_USER).on(SYS_USER.USER_ID.eq(EXAM_RECORD.USER_ID))
-                    .leftJoin(EXAM_PAPER).on(EXAM_PAPER.PAPER_ID.eq(EXAM_RECORD.PAPER_ID))
-                    .leftJoin(EXAM_CONFIG).on(EXAM_CONFIG.CONFIG_ID.eq(EXAM_PAPER.CONFIG_ID))
-                    .where(EXAM_RECORD.STATUS.ne("in-progress")); // 导出时排除进行中的考试
-
-            // 添加关键词筛选
-            if (request.getKeyword() != null && !request.getKeyword().trim().isEmpty()) {
-                queryWrapper.and(SYS_USER.USER_NAME.like(request.getKeyword()).or(SYS_USER.ID_NUMBER.like(request.getKeyword())));
-            }
-
-            // 添加分类筛选
-            if (request.getCategory() != null && !request.getCategory().trim().isEmpty()
-                    && !"all".equals(request.getCategory())) {
-                queryWrapper.and(EXAM_PAPER.CATEGORY_ID.eq(request.getCategory()));
-            }
-
-            // 添加状态筛选
-            if (request.getStatus() != null && !request.getStatus().trim().isEmpty()
-                    && !"all".equals(request.getStatus())) {
-                queryWrapper.and(EXAM_RECORD.STATUS.eq(request.getStatus()));
-            }
-
-            // 添加及格筛选
-            if ("pass".equals(request.getPassStatus())) {
-                queryWrapper.and(EXAM_RECORD.SCORE.ge(EXAM_RECORD.PASS_SCORE));
-            }
-
-            // 添加重考筛选
-            if ("retake".equals(request.getRetakeStatus())) {
-                queryWrapper.and(EXAM_RECORD.RETAKE.eq(1));
-            } else if ("normal".equals(request.getRetakeStatus())) {
-                queryWrapper.and(EXAM_RECORD.RETAKE.eq(0));
-            }
-
-            // 添加考试名称筛选
-            if (request.getExamName() != null && !request.getExamName().trim().isEmpty()) {
-                queryWrapper.and(EXAM_RECORD.EXAM_NAME.like(request.getExamName()));
-            }
-
-            // 处理删除状态筛选
-            if (Boolean.TRUE.equals(request.getOnlyDeleted())) {
-                // 只查询已删除的记录
-                queryWrapper.and(EXAM_RECORD.DELETED.eq(true));
-                log.info("导出：只查询已删除的记录");
-            } else {
-                // 查询全部（包括已删除和未删除），不添加 deleted 过滤条件
-                log.info("导出：查询全部记录（包括已删除和未删除）");
-            }
-
-            // 查询所有数据（不分页）
-            List<ExamResultVo> results = examRecordMapper.selectListByQueryAs(
-                    queryWrapper.orderBy(EXAM_RECORD.END_TIME.desc()),
-                    ExamResultVo.class);
-
-            // 转换重考字段显示
-            for (ExamResultVo result : results) {
-                if (result.getRetake() != null) {
-                    result.setRetake(result.getRetake().equals("1") ? "是" : "否");
+    private List<PaperExamDetailVo> paperExamDetails(String paperId, List<String> userIds, boolean examined) {
+        List<PaperExamDetailVo> result = new ArrayList<>(userIds.size());
+        // 分批读取，避免 IN 列表过长
+        for (int from = 0; from < userIds.size(); from += 1000) {
+            List<String> batch = userIds.subList(from, Math.min(from + 1000, userIds.size()));
+            Map<String, SysUser> users = sysUserMapper.selectListByIds(batch).stream()
+                    .collect(Collectors.toMap(SysUser::getUserId, user -> user, (a, b) -> a));
+
+            Map<String, ExamRecord> latestRecords = new HashMap<>();
+            if (examined) {
+                List<ExamRecord> examRecords = examRecordMapper.selectListByQuery(
+                        QueryWrapper.create()
+                                .where(EXAM_RECORD.PAPER_ID.eq(paperId))
+                                .and(EXAM_RECORD.USER_ID.in(batch))
+                                .and(EXAM_RECORD.STATUS.eq("completed"))
+                                .orderBy(EXAM_RECORD.END_TIME.desc()));
+                for (ExamRecord examRecord : examRecords) {
+                    latestRecords.putIfAbsent(examRecord.getUserId(), examRecord);
                 }
             }
 
-            return results;
-        });
-    }
-
-    /**
-     * 获取不及格考试结果数据用于导出（不分页）
-     * 
-     * @param request 查询条件
-     * @return 考试结果列表
-     */
-    private List<ExamResultVo> getLatestFailedExamResultsForExport(ExamResultQueryDTO request) {
-        try {
-            // 构建基础查询条件
-            StringBuilder whereClause = new StringBuilder();
-            List<Object> params = new ArrayList<>();
-
-            if (request.getStatus() != null && !request.getStatus().trim().isEmpty()
-                    && !"all".equals(request.getStatus())) {
-                whereClause.append(" er.status = ?");
-                params.add(request.getStatus());
-            } else {
-                whereClause.append(" 1=1 "); // 没有状态条件时，防止SQL语法错误
-            }
-
-            // 只有当keyword不为空时才添加keyword条件
-            if (request.getKeyword() != null && !request.getKeyword().trim().isEmpty()) {
-                whereClause.append(" AND (su.user_name LIKE ? OR su.id_number LIKE ?)");
-                params.add("%" + request.getKeyword() + "%");
-                params.add("%" + request.getKeyword() + "%");
-            }
-
-            // 添加分类筛选 - 导出时处理"all"值
-            if (request.getCategory() != null && !request.getCategory().trim().isEmpty()
-                    && !"all".equals(request.getCategory())) {
-                whereClause.append(" AND ep.category_id = ?");
-                params.add(request.getCategory());
-            }
-
-            // 添加重考筛选
-            if ("retake".equals(request.getRetakeStatus())) {
-                whereClause.append(" AND er.retake = 1");
-            } else if ("normal".equals(request.getRetakeStatus())) {
-                whereClause.append(" AND er.retake = 0");
-            }
-
-            // 添加考试名称筛选
-            if (request.getExamName() != null && !request.getExamName().trim().isEmpty()) {
-                whereClause.append(" AND er.exam_name LIKE ?");
-                params.add("%" + request.getExamName() + "%");
-            }
-
-            // 处理逻辑删除过滤
-            if (Boolean.TRUE.equals(request.getIncludeDeleted())) {
-                // 如果需要包含已删除记录，根据 onlyDeleted 参数决定筛选条件
-                if (Boolean.TRUE.equals(request.getOnlyDeleted())) {
-                    // 只查询已删除的记录
-                    whereClause.append(" AND er.deleted = 1");
-                    log.info("导出不及格结果：只查询已删除的记录");
-                } else {
-                    // 查询全部（包括已删除和未删除），不添加 deleted 过滤条件
-                    log.info("导出不及格结果：查询全部记录（包括已删除和未删除）");
+            for (String userId : batch) {
+                SysUser user = users.get(userId);
+                if (user == null) {
+                    continue;
                 }
-            } else {
-                // 默认只查询未删除的记录
-                whereClause.append(" AND (er.deleted = 0 OR er.deleted IS NULL)");
-            }
-
-            // 构建完整查询SQL（不分页）
-            // 使用 DATE_FORMAT 将日期转换为字符串，避免类型转换问题
-            String dataSql = """
-                    SELECT er.record_id, su.user_name, su.department as categoryName, su.user_category, su.id_number, er.exam_name,
-                           CASE WHEN er.end_time IS NULL THEN NULL ELSE DATE_FORMAT(er.end_time, '%Y-%m-%d %H:%i:%s') END as examDate, 
-                           er.duration, er.score, er.total_score, er.status, er.retake, er.pass_score
-                    FROM exam_record er
-                    LEFT JOIN sys_user su ON su.user_id = er.user_id
-                    LEFT JOIN exam_paper ep ON ep.paper_id = er.paper_id
-                    LEFT JOIN exam_config ec ON ec.config_id = ep.config_id
-                    WHERE er.record_id IN (
-                        SELECT er2.record_id
-                        FROM exam_record er2
-                        WHERE er2.user_id = er.user_id
-                        AND er2.exam_name = er.exam_name
-                        AND er2.status = 'completed'
-                        AND er2.end_time = (
-                            SELECT MAX(er3.end_time)
-                            FROM exam_record er3
-                            WHERE er3.user_id = er2.user_id
-                            AND er3.exam_name = er2.exam_name
-                            AND er3.status = 'completed'
-                        )
-                        AND er2.score < er2.pass_score
-                    )
-                    AND """
-                    + whereClause + """
-                            ORDER BY er.end_time DESC
-                            """;
-
-            // 执行查询
-            List<Row> rows = Db.selectListBySql(dataSql, params.toArray());
-            List<ExamResultVo> results = rows.stream()
-                    .map(row -> RowUtil.toEntity(row, ExamResultVo.class))
-                    .collect(Collectors.toList());
-
-            // 转换重考字段显示
-            for (ExamResultVo result : results) {
-                if (result.getRetake() != null) {
-                    result.setRetake(result.getRetake().equals("1") ? "是" : "否");
+                PaperExamDetailVo detail = new PaperExamDetailVo();
+                detail.setUserId(user.getUserId());
+                detail.setUserName(user.getUserName());
+                detail.setIdNumber(user.getIdNumber());
+                detail.setDepartment(user.getDepartment());
+                detail.setUserCategory(user.getUserCategory());
+
+                ExamRecord examRecord = latestRecords.get(userId);
+                if (examRecord != null) {
+                    // 已考试
+                    detail.setExamStatus("已考试");
+                    detail.setExamDate(examRecord.getEndTime() != null
+                            ? new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(examRecord.getEndTime())
+                            : "");
+                    detail.setScore(examRecord.getScore());
+                    detail.setStatus(examRecord.getStatus());
+                } else {
+                    // 未考试
+                    detail.setExamStatus("未考试");
+                    detail.setExamDate("");
+                    detail.setScore(null);
+                    detail.setStatus("");
                 }
+                result.add(detail);
             }
-
-            return results;
-        } catch (Exception e) {
-            log.error("查询不及格考试结果失败", e);
-            return new ArrayList<>();
         }
+        return result;
     }
 
     /**
@@ -1977,61 +1794,26 @@ public class AdminService {
      * @param response HTTP响应
      */
     public void exportExamResults(ExamResultQueryDTO request, HttpServletResponse response) {
-        ExcelWriter writer = null;
         try {
-            // 获取完整数据 - 使用专门的导出查询方法
-            List<ExamResultVo> results = getExamResultsForExport(request);
-
             // 生成带时间戳的英文文件名
             String timestamp = new java.text.SimpleDateFormat("yyyyMMdd_HHmmss").format(new java.util.Date());
             String filename = "exam_results_" + timestamp + ".xlsx";
 
-            // 设置响应头，确保Windows环境下的编码兼容性
+            // 设置响应头，确保Windows环境下的编码兼容性（不设置长度，按分块传输）
             response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet;charset=UTF-8");
             response.setCharacterEncoding("UTF-8");
             // Windows环境下使用URL编码处理中文文件名
             String encodedFilename = java.net.URLEncoder.encode(filename, "UTF-8");
             response.setHeader("Content-Disposition", "attachment;filename*=UTF-8''" + encodedFilename);
 
-            // 创建ExcelWriter，指定为xlsx格式
-            writer = ExcelUtil.getWriter(true);
-
-            // 设置表头
-            writer.addHeaderAlias("userName", "姓名");
-            writer.addHeaderAlias("idNumber", "身份证号");
-            writer.addHeaderAlias("examName", "考试名称");
-            writer.addHeaderAlias("categoryName", "题目分类");
-            writer.addHeaderAlias("userCategory", "人员类别");
-            writer.addHeaderAlias("score", "得分");
-            writer.addHeaderAlias("totalScore", "总分");
-            writer.addHeaderAlias("duration", "用时(分钟)");
-            writer.addHeaderAlias("examDate", "完成时间");
-            writer.addHeaderAlias("status", "状态");
-            writer.addHeaderAlias("retake", "重考");
-
-            // 写入数据
-            writer.write(results, true);
-
-            // 自适应列宽
-            writer.autoSizeColumnAll();
+            // 逐行读取并流式写入，内存占用与导出行数无关
+            long rows = examResultExporter.export(request, response.getOutputStream(), null);
 
-            // 将Excel文件写入响应流
-            writer.flush(response.getOutputStream());
-
-            log.info("考试结果导出成功，共导出{}条记录", results.size());
+            log.info("考试结果导出成功，共导出{}条记录", rows);
 
         } catch (Exception e) {
             log.error("导出考试结果失败", e);
             throw new CustomException("导出考试结果失败: " + e.getMessage());
-        } finally {
-            // 确保资源被正确关闭
-            if (writer != null) {
-                try {
-                    writer.close();
-                } catch (Exception e) {
-                    log.error("关闭ExcelWriter失败", e);
-                }
-            }
         }
     }
 
@@ -2042,25 +1824,65 @@ public class AdminService {
      * @param response HTTP响应
      */
     public void exportPaperPersonnelList(String paperId, HttpServletResponse response) {
-        ExcelWriter writer = null;
         try {
             // 获取人员列表数据
             List<PaperExamDetailVo> personnelList = getPaperExamDetail(paperId);
 
-            // 生成带时间戳的英文文件名
-            String timestamp = new java.text.SimpleDateFormat("yyyyMMdd_HHmmss").format(new java.util.Date());
-            String filename = "personnel_list_" + paperId + "_" + timestamp + ".xlsx";
-
             // 设置响应头，确保Windows环境下的编码兼容性
             response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet;charset=UTF-8");
             response.setCharacterEncoding("UTF-8");
             // Windows环境下使用URL编码处理中文文件名
-            String encodedFilename = java.net.URLEncoder.encode(filename, "UTF-8");
+            String encodedFilename = java.net.URLEncoder.encode(personnelListFileName(paperId), "UTF-8");
             response.setHeader("Content-Disposition", "attachment;filename*=UTF-8''" + encodedFilename);
 
-            // 创建ExcelWriter，指定为xlsx格式
-            writer = ExcelUtil.getWriter(true);
+            writePaperPersonnelList(personnelList, response.getOutputStream());
+
+            log.info("人员列表导出成功，共导出{}条记录", personnelList.size());
+
+        } catch (Exception e) {
+            log.error("导出人员列表失败", e);
+            throw new CustomException("导出人员列表失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 提交考试结果后台导出任务
+     */
+    public Map<String, Object> submitExamResultsExportJob(ExamResultQueryDTO request) {
+        String userId = JwtAccessContext.getLoginInfo().getUserId();
+        String timestamp = new java.text.SimpleDateFormat("yyyyMMdd_HHmmss").format(new java.util.Date());
+        ExportJob job = exportJobManager.submit("exam-results", userId, "exam_results_" + timestamp + ".xlsx",
+                (out, exportJob) -> {
+                    exportJob.estimate(examResultExporter.estimate(request));
+                    return examResultExporter.export(request, out, exportJob::progress);
+                });
+        return job.toStatus();
+    }
+
+    /**
+     * 提交试卷人员列表后台导出任务
+     */
+    public Map<String, Object> submitPaperPersonnelExportJob(String paperId) {
+        String userId = JwtAccessContext.getLoginInfo().getUserId();
+        ExportJob job = exportJobManager.submit("paper-personnel", userId, personnelListFileName(paperId),
+                (out, exportJob) -> {
+                    List<PaperExamDetailVo> personnelList = getPaperExamDetail(paperId);
+                    exportJob.estimate(personnelList.size());
+                    writePaperPersonnelList(personnelList, out);
+                    return personnelList.size();
+                });
+        return job.toStatus();
+    }
+
+    // 生成带时间戳的英文文件名
+    private static String personnelListFileName(String paperId) {
+        String timestamp = new java.text.SimpleDateFormat("yyyyMMdd_HHmmss").format(new java.util.Date());
+        return "personnel_list_" + paperId + "_" + timestamp + ".xlsx";
+    }
 
+    private static void writePaperPersonnelList(List<PaperExamDetailVo> personnelList, java.io.OutputStream out) {
+        // 创建ExcelWriter，指定为xlsx格式
+        try (ExcelWriter writer = ExcelUtil.getWriter(true)) {
             // 设置表头 - 根据PaperExamDetailVo的实际字段，移除userId和status
             writer.addHeaderAlias("userName", "姓名");
             writer.addHeaderAlias("idNumber", "身份证号");
@@ -2079,23 +1901,7 @@ public class AdminService {
             // 自适应列宽
             writer.autoSizeColumnAll();
 
-            // 将Excel文件写入响应流
-            writer.flush(response.getOutputStream());
-
-            log.info("人员列表导出成功，共导出{}条记录", personnelList.size());
-
-        } catch (Exception e) {
-            log.error("导出人员列表失败", e);
-            throw new CustomException("导出人员列表失败: " + e.getMessage());
-        } finally {
-            // 确保资源被正确关闭
-            if (writer != null) {
-                try {
-                    writer.close();
-                } catch (Exception e) {
-                    log.error("关闭ExcelWriter失败", e);
-                }
-            }
+            writer.flush(out);
         }
     }
 
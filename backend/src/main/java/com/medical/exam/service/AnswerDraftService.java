@@ -0,0 +1,258 @@
+package com.medical.exam.service;
+
+import com.medical.exam.dto.AnswerDTO;
+import com.medical.exam.entity.ExamRecord;
+import com.medical.exam.mapper.ExamRecordMapper;
+import com.mybatisflex.core.query.QueryWrapper;
+import com.mybatisflex.core.row.Db;
+import com.mybatisflex.core.row.Row;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.medical.exam.entity.table.ExamRecordTableDef.EXAM_RECORD;
+
+/**
+ * 答题草稿（断点续答）服务
+ * 考试过程中的答题增量先进入内存写缓冲，同一题的多次修改在缓冲中合并，
+ * 由定时任务批量 upsert 到 exam_answer_draft，交卷时只需合并草稿并判分
+ */
+@Service
+@Slf4j
+public class AnswerDraftService {
+
+    private static final String UPSERT_PREFIX =
+            "INSERT INTO exam_answer_draft (record_id, question_id, user_answer) VALUES ";
+    private static final String UPSERT_SUFFIX =
+            " ON DUPLICATE KEY UPDATE user_answer = VALUES(user_answer), update_time = NOW()";
+
+    @Resource
+    private ExamRecordMapper examRecordMapper;
+
+    // 单条 upsert 语句的最大行数
+    @Value("${exam.draft.batch-size:500}")
+    private int batchSize;
+
+    // 校验通过的进行中考试记录空闲多久后移出内存（毫秒）
+    @Value("${exam.draft.session-idle-millis:3600000}")
+    private long sessionIdleMillis;
+
+    // recordId -> (questionId -> userAnswer)，内层 Map 只在 compute 中修改
+    private final ConcurrentHashMap<String, Map<String, String>> buffer = new ConcurrentHashMap<>();
+
+    // 已校验归属与状态的进行中考试记录，避免每次保存都查询 exam_record
+    private final ConcurrentHashMap<String, DraftSession> sessions = new ConcurrentHashMap<>();
+
+    // 正在交卷的记录：缓冲中的草稿保留到事务提交后再移除，回滚时仍可再次交卷；期间定时落库跳过这些记录
+    private final Set<String> draining = ConcurrentHashMap.newKeySet();
+
+    // 刷盘与交卷取草稿互斥，保证交卷时不存在尚未落库的在途批次
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    /**
+     * 保存答题增量
+     *
+     * @return 本次接收的答案数
+     */
+    public int checkpoint(String userId, String recordId, List<AnswerDTO> answers) {
+        if (recordId == null || recordId.isEmpty()) {
+            throw new RuntimeException("考试记录ID不能为空");
+        }
+        DraftSession session = sessions.get(recordId);
+        if (session == null) {
+            ExamRecord record = examRecordMapper.selectOneByQuery(
+                    QueryWrapper.create()
+                            .where(EXAM_RECORD.RECORD_ID.eq(recordId))
+                            .and(EXAM_RECORD.USER_ID.eq(userId))
+                            .and(EXAM_RECORD.STATUS.eq("in-progress")));
+            if (record == null) {
+                throw new RuntimeException("考试记录不存在或已提交");
+            }
+            session = sessions.computeIfAbsent(recordId, k -> new DraftSession(userId));
+        }
+        if (!session.userId.equals(userId)) {
+            throw new RuntimeException("考试记录不存在或不属于当前用户");
+        }
+        session.lastTouch = System.currentTimeMillis();
+
+        if (answers == null || answers.isEmpty()) {
+            return 0;
+        }
+        buffer.compute(recordId, (k, pending) -> {
+            Map<String, String> merged = pending != null ? pending : new HashMap<>();
+            for (AnswerDTO answer : answers) {
+                if (answer.getQuestionId() != null) {
+                    merged.put(answer.getQuestionId(), answer.getUserAnswer() != null ? answer.getUserAnswer() : "");
+                }
+            }
+            return merged;
+        });
+        return answers.size();
+    }
+
+    /**
+     * 交卷时取出该记录的全部草稿（已落库部分 + 缓冲中未落库部分），事务提交后结束草稿会话
+     * 返回 questionId -> userAnswer，缓冲中的修改覆盖已落库的旧值
+     */
+    public Map<String, String> drainForSubmit(String recordId) {
+        return drainAll(List.of(recordId)).getOrDefault(recordId, new LinkedHashMap<>());
+    }
+
+    /**
+     * 批量取出多条记录的全部草稿，返回 recordId -> (questionId -> userAnswer)；
+     * 处于事务中时缓冲与会话在事务提交后才移除，事务回滚则原样保留
+     */
+    public Map<String, Map<String, String>> drainAll(List<String> recordIds) {
+        Map<String, Map<String, String>> pending = new HashMap<>();
+        boolean defer = TransactionSynchronizationManager.isSynchronizationActive();
+        flushLock.lock();
+        try {
+            for (String recordId : recordIds) {
+                if (defer) {
+                    draining.add(recordId);
+                    // 复制而不移除，内层 Map 只在 compute 中读写
+                    buffer.computeIfPresent(recordId, (k, buffered) -> {
+                        pending.put(k, new HashMap<>(buffered));
+                        return buffered;
+                    });
+                } else {
+                    sessions.remove(recordId);
+                    Map<String, String> buffered = buffer.remove(recordId);
+                    if (buffered != null) {
+                        pending.put(recordId, buffered);
+                    }
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+        if (defer) {
+            List<String> taken = List.copyOf(recordIds);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        for (String recordId : taken) {
+                            sessions.remove(recordId);
+                            buffer.remove(recordId);
+                        }
+                    }
+                    taken.forEach(draining::remove);
+                }
+            });
+        }
+
+        Map<String, Map<String, String>> drafts = new HashMap<>();
+        String placeholders = String.join(",", Collections.nCopies(recordIds.size(), "?"));
+        List<Row> rows = Db.selectListBySql(
+                "SELECT record_id, question_id, user_answer FROM exam_answer_draft WHERE record_id IN (" + placeholders + ")",
+                recordIds.toArray());
+        for (Row row : rows) {
+            drafts.computeIfAbsent(String.valueOf(row.get("record_id")), k -> new LinkedHashMap<>())
+                    .put(String.valueOf(row.get("question_id")), row.getString("user_answer"));
+        }
+        pending.forEach((recordId, buffered) ->
+                drafts.computeIfAbsent(recordId, k -> new LinkedHashMap<>()).putAll(buffered));
+        return drafts;
+    }
+
+    /**
+     * 立即写入一组答案（与调用方处于同一事务），用于异步判分模式下持久化交卷时的原始答案
+     */
+    public void saveDrafts(String recordId, Map<String, String> answers) {
+        List<Object[]> rows = new ArrayList<>(answers.size());
+        answers.forEach((questionId, userAnswer) -> rows.add(new Object[]{recordId, questionId, userAnswer}));
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            upsert(rows.subList(from, Math.min(from + batchSize, rows.size())));
+        }
+    }
+
+    /**
+     * 交卷成功后清理草稿（与交卷处于同一事务）
+     */
+    public void deleteDrafts(String recordId) {
+        Db.deleteBySql("DELETE FROM exam_answer_draft WHERE record_id = ?", recordId);
+    }
+
+    @Scheduled(fixedDelayString = "${exam.draft.flush-interval:2000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            Map<String, Map<String, String>> drained = new HashMap<>();
+            List<Object[]> rows = new ArrayList<>();
+            for (String recordId : new ArrayList<>(buffer.keySet())) {
+                // 正在交卷的记录等事务结束：提交则丢弃，回滚则留待下次落库
+                if (draining.contains(recordId)) {
+                    continue;
+                }
+                Map<String, String> pending = buffer.remove(recordId);
+                // 已交卷的记录，迟到的增量直接丢弃
+                if (pending == null || !sessions.containsKey(recordId)) {
+                    continue;
+                }
+                drained.put(recordId, pending);
+                pending.forEach((questionId, userAnswer) -> rows.add(new Object[]{recordId, questionId, userAnswer}));
+            }
+            try {
+                for (int from = 0; from < rows.size(); from += batchSize) {
+                    upsert(rows.subList(from, Math.min(from + batchSize, rows.size())));
+                }
+            } catch (Exception e) {
+                // 落库失败时放回缓冲，期间到达的新值优先
+                drained.forEach((recordId, pending) -> buffer.merge(recordId, pending, (newer, older) -> {
+                    older.putAll(newer);
+                    return older;
+                }));
+                throw e;
+            }
+            if (!rows.isEmpty()) {
+                log.debug("答题草稿落库 {} 条", rows.size());
+            }
+            evictIdleSessions();
+        } catch (Exception e) {
+            log.error("答题草稿落库失败", e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void upsert(List<Object[]> rows) {
+        StringBuilder sql = new StringBuilder(UPSERT_PREFIX.length() + rows.size() * 10 + UPSERT_SUFFIX.length());
+        sql.append(UPSERT_PREFIX);
+        Object[] params = new Object[rows.size() * 3];
+        for (int i = 0; i < rows.size(); i++) {
+            sql.append(i == 0 ? "(?,?,?)" : ",(?,?,?)");
+            System.arraycopy(rows.get(i), 0, params, i * 3, 3);
+        }
+        sql.append(UPSERT_SUFFIX);
+        Db.insertBySql(sql.toString(), params);
+    }
+
+    private void evictIdleSessions() {
+        long deadline = System.currentTimeMillis() - sessionIdleMillis;
+        sessions.entrySet().removeIf(e -> e.getValue().lastTouch < deadline && !buffer.containsKey(e.getKey()));
+    }
+
+    private static class DraftSession {
+        private final String userId;
+        private volatile long lastTouch = System.currentTimeMillis();
+
+        private DraftSession(String userId) {
+            this.userId = userId;
+        }
+    }
+}
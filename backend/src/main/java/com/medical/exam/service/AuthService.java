@@ -2,16 +2,22 @@ package com.medical.exam.service;
 
 import cn.hutool.poi.excel.ExcelReader;
 import cn.hutool.poi.excel.ExcelUtil;
+import com.medical.exam.audit.SysLogWriter;
+import com.medical.exam.cache.ExamEligibilityCache;
+import com.medical.exam.cache.PaperParticipationIndex;
+import com.medical.exam.cache.QueryCountCache;
+import com.medical.exam.cache.ReferenceDataCache;
+import com.medical.exam.cache.UserCredentialCache;
 import com.medical.exam.common.exception.CustomException;
 import com.medical.exam.dto.*;
 import com.medical.exam.entity.SysLog;
 import com.medical.exam.entity.SysUser;
 import com.medical.exam.entity.SysRole;
-import com.medical.exam.mapper.SysLogMapper;
 import com.medical.exam.mapper.SysUserMapper;
 import com.medical.exam.mapper.SysRoleMapper;
 import com.medical.exam.security.JwtAccessContext;
 import com.medical.exam.security.JwtUtil;
+import com.medical.exam.vo.CursorPage;
 import com.medical.exam.vo.CustomToken;
 import com.mybatisflex.core.paginate.Page;
 import com.mybatisflex.core.query.QueryWrapper;
@@ -37,7 +43,22 @@ public class AuthService {
     private SysRoleMapper roleMapper;
 
     @Resource
-    private SysLogMapper sysLogMapper;
+    private SysLogWriter sysLogWriter;
+
+    @Resource
+    private ExamEligibilityCache examEligibilityCache;
+
+    @Resource
+    private UserCredentialCache userCredentialCache;
+
+    @Resource
+    private QueryCountCache queryCountCache;
+
+    @Resource
+    private ReferenceDataCache referenceDataCache;
+
+    @Resource
+    private PaperParticipationIndex paperParticipationIndex;
 
     @Resource
     private JwtUtil jwtUtil;
@@ -53,12 +74,16 @@ public class AuthService {
             throw new CustomException("身份证号格式错误");
         }
 
-        // 查找用户
+        // 查找用户（读穿缓存，已缓存的用户不查询数据库）
 //        SysUser user = userMapper.findByIdNumberAndName(request.getIdNumber(), request.getName());
-        SysUser user = userMapper.selectOneByQuery(QueryWrapper.create()
-                .where(SYS_USER.ID_NUMBER.eq(request.getIdNumber().trim()))
-                .and(SYS_USER.USER_NAME.eq(request.getName().trim()))
-                .and(SYS_USER.STATUS.eq("1")));
+        String name = request.getName().trim();
+        SysUser user = null;
+        for (SysUser candidate : userCredentialCache.get(request.getIdNumber().trim())) {
+            if (name.equals(candidate.getUserName()) && "1".equals(candidate.getStatus())) {
+                user = candidate;
+                break;
+            }
+        }
         if (user == null) {
             throw new CustomException("用户信息不存在");
         }
@@ -94,7 +119,7 @@ public class AuthService {
         }
 
         CustomToken customToken = JwtAccessContext.getLoginInfo();
-        userMapper.insert(SysUser.builder()
+        SysUser user = SysUser.builder()
                 .idNumber(request.getIdNumber())
                 .userName(request.getUserName())
                 .role(request.getRole())
@@ -102,7 +127,11 @@ public class AuthService {
                 .department(request.getDepartment())
                 .userCategory(request.getUserCategory())
                 .createBy(customToken.getUserName())
-                .build());
+                .build();
+        userMapper.insert(user);
+        userCredentialCache.invalidate(request.getIdNumber());
+        referenceDataCache.bump(ReferenceDataCache.USERS);
+        paperParticipationIndex.refreshUser(user.getUserId());
     }
 
     public void updateUser(UserUpdateRequestDTO request) {
@@ -117,17 +146,51 @@ public class AuthService {
                 .userCategory(request.getUserCategory())
                 .updateBy(customToken.getUserName())
                 .build());
+        examEligibilityCache.invalidateUser(request.getUserId());
+        userCredentialCache.invalidateByUserId(request.getUserId());
+        referenceDataCache.bump(ReferenceDataCache.USERS);
+        paperParticipationIndex.refreshUser(request.getUserId());
     }
 
     // 用户管理
     public Page<SysUser> getUsers(UserQueryDTO userQueryDTO) {
-        QueryWrapper queryWrapper = QueryWrapper.create()
+        return  userMapper.paginate(userQueryDTO.getPageNumber(), userQueryDTO.getPageSize(), usersQuery(userQueryDTO));
+    }
+
+    /**
+     * 游标翻页查询用户：按用户ID升序，游标为空时查询第一页并返回（缓存的）总数
+     */
+    public CursorPage<SysUser> getUsersByCursor(UserQueryDTO userQueryDTO) {
+        String[] cursor = CursorPage.decodeCursor(userQueryDTO.getCursor(), 1);
+        Long totalCount = null;
+        if (cursor == null) {
+            String countKey = String.join("|", String.valueOf(userQueryDTO.getKeyword()), String.valueOf(userQueryDTO.getRole()),
+                    String.valueOf(userQueryDTO.getStatus()), String.valueOf(userQueryDTO.getDepartment()));
+            totalCount = queryCountCache.get("users:" + countKey, () -> userMapper.selectCountByQuery(usersQuery(userQueryDTO)));
+        }
+
+        QueryWrapper queryWrapper = usersQuery(userQueryDTO);
+        if (cursor != null) {
+            queryWrapper.and(SYS_USER.USER_ID.gt(CursorPage.parseKey(cursor[0])));
+        }
+        // 多取一行判断是否还有下一页
+        queryWrapper.orderBy(SYS_USER.USER_ID.asc()).limit(userQueryDTO.getPageSize() + 1);
+        List<SysUser> users = userMapper.selectListByQuery(queryWrapper);
+
+        String nextCursor = null;
+        if (users.size() > userQueryDTO.getPageSize()) {
+            users = new ArrayList<>(users.subList(0, userQueryDTO.getPageSize()));
+            nextCursor = CursorPage.encodeCursor(users.get(users.size() - 1).getUserId());
+        }
+        return new CursorPage<>(users, nextCursor, totalCount);
+    }
+
+    private QueryWrapper usersQuery(UserQueryDTO userQueryDTO) {
+        return QueryWrapper.create()
                 .where(SYS_USER.USER_NAME.like(userQueryDTO.getKeyword()).or(SYS_USER.ID_NUMBER.like(userQueryDTO.getKeyword())))
                 .and(SYS_USER.ROLE.eq(userQueryDTO.getRole()))
                 .and(SYS_USER.STATUS.eq(userQueryDTO.getStatus()))
                 .and(SYS_USER.DEPARTMENT.eq(userQueryDTO.getDepartment()));
-
-        return  userMapper.paginate(userQueryDTO.getPageNumber(), userQueryDTO.getPageSize(), queryWrapper);
     }
 
 
@@ -136,6 +199,10 @@ public class AuthService {
 
     public void deleteUser(String id) {
         userMapper.deleteById(id);
+        examEligibilityCache.invalidateUser(id);
+        userCredentialCache.invalidateByUserId(id);
+        referenceDataCache.bump(ReferenceDataCache.USERS);
+        paperParticipationIndex.refreshUser(id);
     }
 
     public String importUsers(MultipartFile file) {
@@ -191,12 +258,15 @@ public class AuthService {
                         .build());
             }
             userMapper.insertBatch(sysUsers);
+            sysUsers.forEach(user -> userCredentialCache.invalidate(user.getIdNumber()));
+            referenceDataCache.bump(ReferenceDataCache.USERS);
+            paperParticipationIndex.reloadUsers();
         }catch (Exception e){
             log.error("导入用户错误:{}",e);
             throw new CustomException("导入用户错误:"+e.getMessage());
         }
         String message =  "成功导入用户"+sysUsers.size()+"条";
-        sysLogMapper.insert(SysLog.builder()
+        sysLogWriter.write(SysLog.builder()
                         .userId(customToken.getUserId())
                         .userName(customToken.getUserName())
                         .content(message)
@@ -228,6 +298,7 @@ public class AuthService {
             .remark(request.getRemark())
             .createBy(customToken.getUserName())
             .build());
+        referenceDataCache.bump(ReferenceDataCache.ROLES);
     }
 
     public void updateRole(RoleUpdateRequestDTO request) {
@@ -241,10 +312,12 @@ public class AuthService {
             .remark(request.getRemark())
             .updateBy(customToken.getUserName())
             .build());
+        referenceDataCache.bump(ReferenceDataCache.ROLES);
     }
 
     public void deleteRole(String id) {
         roleMapper.deleteById(id);
+        referenceDataCache.bump(ReferenceDataCache.ROLES);
     }
 
     private String getRoleCodeByName(String roleName){
@@ -0,0 +1,85 @@
+package com.medical.exam.service;
+
+import com.medical.exam.entity.ExamConfigUserCategory;
+import com.medical.exam.mapper.ExamConfigUserCategoryMapper;
+import com.mybatisflex.core.query.QueryWrapper;
+import com.mybatisflex.core.row.Db;
+import com.mybatisflex.core.row.Row;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+import static com.medical.exam.entity.table.ExamConfigUserCategoryTableDef.EXAM_CONFIG_USER_CATEGORY;
+
+/**
+ * 考试配置的可参考人员类别（写入）
+ * 每个 考试配置+人员类别 一行保存在 exam_config_user_category 中，按 (config_id, user_category) 与
+ * (user_category, config_id) 两个索引分别查询"配置允许哪些类别"和"某类别可以参加哪些配置"，
+ * 查询见 ExamConfigUserCategoryMapper。
+ * exam_config.user_category 仍保存逗号分隔的原值用于列表展示，新增、修改配置时两者同步写入；
+ * 关联表为空时应用启动后按原字段回填
+ */
+@Service
+@Slf4j
+public class ExamConfigUserCategoryService {
+
+    @Resource
+    private ExamConfigUserCategoryMapper examConfigUserCategoryMapper;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        Row existing = Db.selectOneBySql("SELECT 1 AS found FROM exam_config_user_category LIMIT 1");
+        if (existing != null) {
+            return;
+        }
+        List<Row> configs = Db.selectListBySql("SELECT config_id, user_category FROM exam_config " +
+                "WHERE user_category IS NOT NULL AND user_category <> ''");
+        int rows = 0;
+        for (Row config : configs) {
+            rows += replace(String.valueOf(config.get("config_id")), config.getString("user_category"));
+        }
+        if (rows > 0) {
+            log.info("考试配置人员类别关联表为空，已按 exam_config.user_category 回填 {} 个配置、{} 行", configs.size(), rows);
+        }
+    }
+
+    /**
+     * 按逗号分隔的人员类别重写某考试配置的关联行
+     *
+     * @return 写入的行数
+     */
+    public int replace(String configId, String userCategory) {
+        deleteByConfig(configId);
+        List<ExamConfigUserCategory> rows = new ArrayList<>();
+        for (String category : split(userCategory)) {
+            rows.add(ExamConfigUserCategory.builder()
+                    .configId(configId)
+                    .userCategory(category)
+                    .build());
+        }
+        return rows.isEmpty() ? 0 : examConfigUserCategoryMapper.insertBatch(rows);
+    }
+
+    public void deleteByConfig(String configId) {
+        examConfigUserCategoryMapper.deleteByQuery(QueryWrapper.create()
+                .where(EXAM_CONFIG_USER_CATEGORY.CONFIG_ID.eq(configId)));
+    }
+
+    /**
+     * 拆分逗号分隔的人员类别，去除空白与重复
+     */
+    public static List<String> split(String userCategory) {
+        if (userCategory == null) {
+            return List.of();
+        }
+        return Arrays.stream(userCategory.split(","))
+                .map(String::trim)
+                .filter(category -> !category.isEmpty())
+                .distinct()
+                .toList();
+    }
+}
@@ -0,0 +1,96 @@
+package com.medical.exam.service;
+
+import com.mybatisflex.core.row.Db;
+import com.mybatisflex.core.row.Row;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 考试统计日汇总的补算与复核
+ * 汇总表为空时启动后按月分段（每段一个短事务）补算历史数据；每天定时按考试记录重算最近几天，修正增量写入的偏差
+ */
+@Service
+@Slf4j
+public class ExamRollupMaintainer {
+
+    @Resource
+    private ExamRollupService examRollupService;
+
+    // 每天复核的天数（含当天）
+    @Value("${exam.rollup.recheck-days:3}")
+    private int recheckDays;
+
+    // 统计指标（均在 synchronized 中更新）
+    private long lastRebuildAt;
+    private long lastRebuildMillis;
+    private int lastRebuildRows;
+    private String lastRebuildRange;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void catchUpIfEmpty() {
+        Row rolledUp = Db.selectOneBySql("SELECT 1 AS found FROM exam_daily_rollup LIMIT 1");
+        if (rolledUp != null) {
+            return;
+        }
+        Row first = Db.selectOneBySql("SELECT DATE_FORMAT(MIN(end_time), '%Y-%m-%d') AS first_date FROM exam_record " +
+                "WHERE status = 'completed'");
+        if (first != null && first.getString("first_date") != null) {
+            log.info("考试统计日汇总为空，开始补算历史数据");
+            rebuild(LocalDate.parse(first.getString("first_date")), LocalDate.now());
+        }
+    }
+
+    @Scheduled(cron = "${exam.rollup.recheck-cron:0 30 2 * * ?}")
+    public void scheduledRecheck() {
+        LocalDate today = LocalDate.now();
+        rebuild(today.minusDays(Math.max(recheckDays, 1) - 1L), today);
+    }
+
+    /**
+     * 按考试记录重建 [start, end] 日期范围内的汇总，按月分段
+     *
+     * @return 写入的 日期+分类 数
+     */
+    public synchronized int rebuild(LocalDate start, LocalDate end) {
+        long begin = System.currentTimeMillis();
+        // 先写入已有的增量，避免重建后再叠加
+        examRollupService.flush();
+        int rows = 0;
+        for (LocalDate from = start; !from.isAfter(end); ) {
+            LocalDate to = from.withDayOfMonth(from.lengthOfMonth());
+            if (to.isAfter(end)) {
+                to = end;
+            }
+            rows += examRollupService.rebuildRange(from, to);
+            from = to.plusDays(1);
+        }
+
+        lastRebuildAt = begin;
+        lastRebuildMillis = System.currentTimeMillis() - begin;
+        lastRebuildRows = rows;
+        lastRebuildRange = start + " ~ " + end;
+        log.info("考试统计日汇总重算完成，{}，{} 行，耗时 {} ms", lastRebuildRange, rows, lastRebuildMillis);
+        return rows;
+    }
+
+    public synchronized Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("pendingKeys", examRollupService.getPendingKeys());
+        metrics.put("flushedKeys", examRollupService.getFlushedKeys());
+        metrics.put("lastRebuildAt", lastRebuildAt > 0 ? new Date(lastRebuildAt) : null);
+        metrics.put("lastRebuildRange", lastRebuildRange);
+        metrics.put("lastRebuildMillis", lastRebuildMillis);
+        metrics.put("lastRebuildRows", lastRebuildRows);
+        return metrics;
+    }
+}
@@ -0,0 +1,387 @@
+package com.medical.exam.service;
+
+import com.medical.exam.common.exception.CustomException;
+import com.mybatisflex.core.row.Db;
+import com.mybatisflex.core.row.Row;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 考试统计日汇总
+ * exam_daily_rollup 按 完成日期+试卷分类 汇总已完成且未删除的考试记录：次数、通过数、得分合计与得分分布（按得分率分 10 段）。
+ * 交卷、重新判分、删除记录后在事务提交时把增量记入内存，定时合并写入（同一天同一分类的多次交卷只更新一次）；
+ * 趋势与分类统计按日期范围读取汇总表，与考试记录的数量无关
+ */
+@Service
+@Slf4j
+public class ExamRollupService {
+
+    // 得分分布的分段数：得分率 [0,10%) ... [90%,100%]
+    public static final int BUCKETS = 10;
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    private static final String HIST_COLUMNS;
+    private static final String HIST_VALUES;
+    private static final String HIST_ADD;
+    private static final String HIST_SUM;
+    private static final String HIST_REBUILD;
+
+    static {
+        StringJoiner columns = new StringJoiner(", ");
+        StringJoiner values = new StringJoiner(", ");
+        StringJoiner add = new StringJoiner(", ");
+        StringJoiner sum = new StringJoiner(", ");
+        StringJoiner rebuild = new StringJoiner(", ");
+        for (int i = 0; i < BUCKETS; i++) {
+            columns.add("hist_" + i);
+            values.add("?");
+            add.add("hist_" + i + " = hist_" + i + " + VALUES(hist_" + i + ")");
+            sum.add("SUM(r.hist_" + i + ") AS hist_" + i);
+            rebuild.add("SUM(CASE WHEN er.total_score > 0 AND er.score IS NOT NULL " +
+                    "AND LEAST(" + (BUCKETS - 1) + ", FLOOR(er.score * " + BUCKETS + " / er.total_score)) = " + i +
+                    " THEN 1 ELSE 0 END)");
+        }
+        HIST_COLUMNS = columns.toString();
+        HIST_VALUES = values.toString();
+        HIST_ADD = add.toString();
+        HIST_SUM = sum.toString();
+        HIST_REBUILD = rebuild.toString();
+    }
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO exam_daily_rollup (stat_date, category_id, exam_count, pass_count, scored_count, score_sum, " +
+            HIST_COLUMNS + ", update_time) VALUES (?, ?, ?, ?, ?, ?, " + HIST_VALUES + ", NOW()) " +
+            "ON DUPLICATE KEY UPDATE exam_count = exam_count + VALUES(exam_count), " +
+            "pass_count = pass_count + VALUES(pass_count), scored_count = scored_count + VALUES(scored_count), " +
+            "score_sum = score_sum + VALUES(score_sum), " + HIST_ADD + ", update_time = NOW()";
+
+    private static final String REBUILD_SQL =
+            "INSERT INTO exam_daily_rollup (stat_date, category_id, exam_count, pass_count, scored_count, score_sum, " +
+            HIST_COLUMNS + ", update_time) " +
+            "SELECT DATE(er.end_time), COALESCE(ep.category_id, 0), COUNT(1), " +
+            "SUM(CASE WHEN er.score >= er.pass_score THEN 1 ELSE 0 END), COUNT(er.score), COALESCE(SUM(er.score), 0), " +
+            HIST_REBUILD + ", NOW() " +
+            "FROM exam_record er LEFT JOIN exam_paper ep ON ep.paper_id = er.paper_id " +
+            "WHERE er.status = 'completed' AND (er.deleted = 0 OR er.deleted IS NULL) " +
+            "AND er.end_time >= ? AND er.end_time < ? " +
+            "GROUP BY DATE(er.end_time), COALESCE(ep.category_id, 0)";
+
+    // 统计查询允许的最大天数
+    @Value("${exam.rollup.max-range-days:366}")
+    private int maxRangeDays;
+
+    // 待写入的增量：完成日期+试卷ID -> 增量，写入时再按试卷ID批量取分类
+    private final ConcurrentHashMap<Key, Delta> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong flushedKeys = new AtomicLong();
+
+    /**
+     * 考试记录变为已完成
+     */
+    public void onCompleted(String paperId, Date endTime, Integer score, Integer passScore, Integer totalScore) {
+        if (endTime != null) {
+            afterCommit(() -> add(new Key(toDate(endTime), paperId), 1, score, passScore, totalScore));
+        }
+    }
+
+    /**
+     * 已完成的考试记录被删除
+     *
+     * @param endDate 完成日期 yyyy-MM-dd
+     */
+    public void onRemoved(String paperId, String endDate, Integer score, Integer passScore, Integer totalScore) {
+        if (endDate != null) {
+            afterCommit(() -> add(new Key(LocalDate.parse(endDate, DATE_FORMAT), paperId), -1, score, passScore, totalScore));
+        }
+    }
+
+    /**
+     * 已完成的考试记录重新判分
+     */
+    public void onScoreChanged(String paperId, Date endTime, Integer oldScore, Integer newScore,
+                               Integer passScore, Integer totalScore) {
+        if (endTime != null) {
+            Key key = new Key(toDate(endTime), paperId);
+            afterCommit(() -> {
+                add(key, -1, oldScore, passScore, totalScore);
+                add(key, 1, newScore, passScore, totalScore);
+            });
+        }
+    }
+
+    /**
+     * 将内存中的增量合并写入汇总表，在同一事务中写入；失败时整批回滚，增量放回内存等待下次写入
+     *
+     * @return 写入的 日期+分类 数
+     */
+    @Scheduled(fixedDelayString = "${exam.rollup.flush-interval-millis:5000}")
+    public synchronized int flush() {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        Map<Key, Delta> drained = new HashMap<>();
+        for (Key key : new ArrayList<>(pending.keySet())) {
+            Delta delta = pending.remove(key);
+            if (delta != null) {
+                drained.put(key, delta);
+            }
+        }
+
+        // 按 日期+分类 合并后写入
+        Map<List<Object>, Delta> merged = new HashMap<>();
+        try {
+            Map<String, String> categories = paperCategories(drained.keySet());
+            drained.forEach((key, delta) -> merged.computeIfAbsent(
+                    List.of(key.date(), categories.getOrDefault(key.paperId(), "0")), k -> new Delta()).merge(delta));
+            Db.tx(() -> {
+                for (Map.Entry<List<Object>, Delta> entry : merged.entrySet()) {
+                    Delta delta = entry.getValue();
+                    List<Object> args = new ArrayList<>(List.of(entry.getKey().get(0), entry.getKey().get(1),
+                            delta.examCount, delta.passCount, delta.scoredCount, delta.scoreSum));
+                    for (long count : delta.hist) {
+                        args.add(count);
+                    }
+                    Db.updateBySql(UPSERT_SQL, args.toArray());
+                }
+                return true;
+            });
+        } catch (RuntimeException e) {
+            restore(drained);
+            log.error("考试统计日汇总写入失败，{} 项增量已放回，下次重试", drained.size(), e);
+            return 0;
+        }
+        flushedKeys.addAndGet(merged.size());
+        return merged.size();
+    }
+
+    /**
+     * 按考试记录重建 [start, end] 日期范围内的汇总
+     * 与 flush 互斥；范围内尚未写入的增量其记录已提交，包含在重建结果中，先丢弃以免重复计数，重建回滚时放回
+     *
+     * @return 写入的 日期+分类 数
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public synchronized int rebuildRange(LocalDate start, LocalDate end) {
+        Map<Key, Delta> dropped = new HashMap<>();
+        for (Key key : new ArrayList<>(pending.keySet())) {
+            if (!key.date().isBefore(start) && !key.date().isAfter(end)) {
+                Delta delta = pending.remove(key);
+                if (delta != null) {
+                    dropped.put(key, delta);
+                }
+            }
+        }
+        if (!dropped.isEmpty() && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        restore(dropped);
+                    }
+                }
+            });
+        }
+        Db.deleteBySql("DELETE FROM exam_daily_rollup WHERE stat_date BETWEEN ? AND ?", start, end);
+        return Db.insertBySql(REBUILD_SQL, start, end.plusDays(1));
+    }
+
+    /**
+     * 每日考试次数与通过数，没有考试的日期补 0；未指定日期时为最近 30 天
+     */
+    public List<Map<String, Object>> getDailyTrends(String startDate, String endDate) {
+        LocalDate[] range = parseRange(startDate, endDate);
+        List<Row> rows = Db.selectListBySql(
+                "SELECT DATE_FORMAT(stat_date, '%Y-%m-%d') AS stat_date, SUM(exam_count) AS exam_count, " +
+                "SUM(pass_count) AS pass_count, SUM(scored_count) AS scored_count, SUM(score_sum) AS score_sum " +
+                "FROM exam_daily_rollup WHERE stat_date BETWEEN ? AND ? GROUP BY stat_date",
+                range[0], range[1]);
+        Map<String, Row> byDate = new HashMap<>();
+        for (Row row : rows) {
+            byDate.put(row.getString("stat_date"), row);
+        }
+
+        List<Map<String, Object>> data = new ArrayList<>();
+        for (LocalDate date = range[0]; !date.isAfter(range[1]); date = date.plusDays(1)) {
+            String day = date.format(DATE_FORMAT);
+            Row row = byDate.get(day);
+            Map<String, Object> item = new HashMap<>();
+            item.put("date", day);
+            item.put("examCount", row != null ? row.getLong("exam_count") : 0L);
+            item.put("passCount", row != null ? row.getLong("pass_count") : 0L);
+            item.put("avgScore", row != null ? average(row.getLong("score_sum"), row.getLong("scored_count")) : null);
+            data.add(item);
+        }
+        return data;
+    }
+
+    /**
+     * 各试卷分类的考试次数、平均分、通过率与得分分布；未指定日期时统计全部
+     */
+    public List<Map<String, Object>> getCategoryPerformance(String startDate, String endDate) {
+        StringBuilder sql = new StringBuilder(
+                "SELECT r.category_id, ec.category_name, SUM(r.exam_count) AS exam_count, " +
+                "SUM(r.pass_count) AS pass_count, SUM(r.scored_count) AS scored_count, " +
+                "SUM(r.score_sum) AS score_sum, " + HIST_SUM + " " +
+                "FROM exam_daily_rollup r LEFT JOIN exam_category ec ON ec.category_id = r.category_id");
+        List<Object> params = new ArrayList<>();
+        if (startDate != null && !startDate.isBlank() || endDate != null && !endDate.isBlank()) {
+            LocalDate[] range = parseRange(startDate, endDate);
+            sql.append(" WHERE r.stat_date BETWEEN ? AND ?");
+            params.add(range[0]);
+            params.add(range[1]);
+        }
+        sql.append(" GROUP BY r.category_id, ec.category_name HAVING SUM(r.exam_count) > 0 ORDER BY exam_count DESC");
+
+        List<Map<String, Object>> data = new ArrayList<>();
+        for (Row row : Db.selectListBySql(sql.toString(), params.toArray())) {
+            long examCount = row.getLong("exam_count");
+            Map<String, Object> item = new HashMap<>();
+            item.put("categoryId", String.valueOf(row.get("category_id")));
+            item.put("category", row.getString("category_name") != null ? row.getString("category_name") : "未分类");
+            item.put("examCount", examCount);
+            Long scoredCount = row.getLong("scored_count");
+            item.put("avgScore", scoredCount != null && scoredCount > 0
+                    ? Math.round(row.getLong("score_sum") * 10.0 / scoredCount) / 10.0 : null);
+            item.put("passRate", Math.round(row.getLong("pass_count") * 1000.0 / examCount) / 10.0);
+            List<Long> distribution = new ArrayList<>(BUCKETS);
+            for (int i = 0; i < BUCKETS; i++) {
+                distribution.add(row.getLong("hist_" + i));
+            }
+            item.put("scoreDistribution", distribution);
+            data.add(item);
+        }
+        return data;
+    }
+
+    public int getPendingKeys() {
+        return pending.size();
+    }
+
+    public long getFlushedKeys() {
+        return flushedKeys.get();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void add(Key key, int sign, Integer score, Integer passScore, Integer totalScore) {
+        pending.compute(key, (k, delta) -> {
+            Delta next = delta != null ? delta : new Delta();
+            next.add(sign, score, passScore, totalScore);
+            return next;
+        });
+    }
+
+    // 把未能写入的增量合并回内存
+    private void restore(Map<Key, Delta> deltas) {
+        deltas.forEach((key, delta) -> pending.merge(key, delta, (current, restored) -> {
+            current.merge(restored);
+            return current;
+        }));
+    }
+
+    private static Map<String, String> paperCategories(Set<Key> keys) {
+        Set<String> paperIds = new HashSet<>();
+        for (Key key : keys) {
+            paperIds.add(key.paperId());
+        }
+        Map<String, String> categories = new HashMap<>();
+        if (paperIds.isEmpty()) {
+            return categories;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(paperIds.size(), "?"));
+        for (Row row : Db.selectListBySql("SELECT paper_id, category_id FROM exam_paper WHERE paper_id IN ("
+                + placeholders + ")", paperIds.toArray())) {
+            categories.put(String.valueOf(row.get("paper_id")), String.valueOf(row.get("category_id")));
+        }
+        return categories;
+    }
+
+    private LocalDate[] parseRange(String startDate, String endDate) {
+        try {
+            LocalDate end = endDate != null && !endDate.isBlank() ? LocalDate.parse(endDate, DATE_FORMAT) : LocalDate.now();
+            LocalDate start = startDate != null && !startDate.isBlank()
+                    ? LocalDate.parse(startDate, DATE_FORMAT) : end.minusDays(30);
+            if (start.isAfter(end)) {
+                throw new CustomException("开始日期不能晚于结束日期");
+            }
+            if (ChronoUnit.DAYS.between(start, end) >= maxRangeDays) {
+                throw new CustomException("统计日期范围不能超过" + maxRangeDays + "天");
+            }
+            return new LocalDate[]{start, end};
+        } catch (DateTimeParseException e) {
+            throw new CustomException("日期格式应为 yyyy-MM-dd");
+        }
+    }
+
+    private static LocalDate toDate(Date date) {
+        return new java.sql.Timestamp(date.getTime()).toLocalDateTime().toLocalDate();
+    }
+
+    private static Double average(Long sum, Long count) {
+        return sum != null && count != null && count > 0 ? Math.round(sum * 10.0 / count) / 10.0 : null;
+    }
+
+    private record Key(LocalDate date, String paperId) {
+    }
+
+    /**
+     * 同一 日期+试卷 的累计增量（在 ConcurrentHashMap.compute / merge 内修改）
+     */
+    private static class Delta {
+        long examCount;
+        long passCount;
+        long scoredCount;
+        long scoreSum;
+        final long[] hist = new long[BUCKETS];
+
+        void add(int sign, Integer score, Integer passScore, Integer totalScore) {
+            examCount += sign;
+            if (score == null) {
+                return;
+            }
+            scoredCount += sign;
+            scoreSum += (long) sign * score;
+            if (passScore != null && score >= passScore) {
+                passCount += sign;
+            }
+            if (totalScore != null && totalScore > 0) {
+                hist[Math.max(0, Math.min(BUCKETS - 1, score * BUCKETS / totalScore))] += sign;
+            }
+        }
+
+        void merge(Delta other) {
+            examCount += other.examCount;
+            passCount += other.passCount;
+            scoredCount += other.scoredCount;
+            scoreSum += other.scoreSum;
+            for (int i = 0; i < BUCKETS; i++) {
+                hist[i] += other.hist[i];
+            }
+        }
+    }
+}
@@ -1,27 +1,36 @@
 package com.medical.exam.service;
 
+import com.medical.exam.audit.SysLogWriter;
+import com.medical.exam.cache.ExamEligibilityCache;
+import com.medical.exam.cache.PaperAnswerKey;
+import com.medical.exam.cache.PaperAnswerKeyCache;
+import com.medical.exam.cache.PaperParticipationIndex;
+import com.medical.exam.cache.PaperShuffle;
+import com.medical.exam.cache.UserExamStateCache;
 import com.medical.exam.dto.AnswerDTO;
 import com.medical.exam.dto.StartExamDTO;
 import com.medical.exam.dto.SubmitExamRequest;
 import com.medical.exam.entity.ExamRecord;
 import com.medical.exam.entity.ExamAnswer;
 import com.medical.exam.entity.ExamQuestion;
-import com.medical.exam.entity.ExamConfig;
 import com.medical.exam.entity.ExamPaper;
 import com.medical.exam.entity.ExamForceRetake;
 import com.medical.exam.entity.SysLog;
 import com.medical.exam.entity.SysUser;
+import com.medical.exam.grading.AnswerCodec;
+import com.medical.exam.grading.GradingEngine;
+import com.medical.exam.journal.SubmissionEntry;
 import com.medical.exam.mapper.ExamRecordMapper;
 import com.medical.exam.mapper.ExamAnswerMapper;
 import com.medical.exam.mapper.ExamQuestionMapper;
-import com.medical.exam.mapper.ExamConfigMapper;
 import com.medical.exam.mapper.ExamPaperMapper;
 import com.medical.exam.mapper.ExamForceRetakeMapper;
-import com.medical.exam.mapper.SysLogMapper;
 import com.medical.exam.mapper.SysUserMapper;
 import com.medical.exam.security.JwtAccessContext;
 import com.medical.exam.vo.CustomToken;
 import com.mybatisflex.core.query.QueryWrapper;
+import com.mybatisflex.core.row.Db;
+import com.mybatisflex.core.row.Row;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -34,8 +43,6 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import static com.medical.exam.entity.table.ExamRecordTableDef.EXAM_RECORD;
 import static com.medical.exam.entity.table.ExamAnswerTableDef.EXAM_ANSWER;
 import static com.medical.exam.entity.table.ExamQuestionTableDef.EXAM_QUESTION;
-import static com.medical.exam.entity.table.ExamConfigTableDef.EXAM_CONFIG;
-import static com.medical.exam.entity.table.ExamPaperTableDef.EXAM_PAPER;
 import static com.medical.exam.entity.table.ExamForceRetakeTableDef.EXAM_FORCE_RETAKE;
 import static com.medical.exam.entity.table.SysUserTableDef.SYS_USER;
 
@@ -43,6 +50,21 @@ import static com.medical.exam.entity.table.SysUserTableDef.SYS_USER;
 @Slf4j
 public class ExamService {
 
+    // 异步判分模式下已受理、待判分的考试记录状态
+    public static final String STATUS_SUBMITTED = "submitted";
+
+    // 异步判分失败次数达到上限、不再重试的考试记录状态
+    public static final String STATUS_FAILED = "failed";
+
+    // 开考时一次取得：当前用户该试卷进行中的考试记录、待判分的考试记录、强制重考标识
+    private static final String START_LOOKUP_SQL =
+            "SELECT (SELECT record_id FROM exam_record WHERE user_id = ? AND paper_id = ? AND status = 'in-progress' " +
+            "LIMIT 1) AS record_id, " +
+            "(SELECT record_id FROM exam_record WHERE user_id = ? AND paper_id = ? AND status = 'submitted' " +
+            "LIMIT 1) AS submitted_id, " +
+            "(SELECT force_retake FROM exam_force_retake WHERE user_id = ? AND paper_id = ? AND force_retake = 1 " +
+            "LIMIT 1) AS force_retake";
+
     @Resource
     private ExamRecordMapper examRecordMapper;
     
@@ -52,97 +74,100 @@ public class ExamService {
     @Resource
     private ExamQuestionMapper examQuestionMapper;
 
-    @Resource
-    private ExamConfigMapper examConfigMapper;
-
     @Resource
     private ExamPaperMapper examPaperMapper;
     @Resource
     private ExamForceRetakeMapper examForceRetakeMapper;
 
     @Resource
-    private SysLogMapper sysLogMapper;
+    private SysLogWriter sysLogWriter;
+
+    @Resource
+    private LatestAttemptService latestAttemptService;
+
+    @Resource
+    private ResultSummaryService resultSummaryService;
+
+    @Resource
+    private ExamRollupService examRollupService;
+
+    @Resource
+    private PaperParticipationIndex paperParticipationIndex;
+
+    @Resource
+    private UserExamStateCache userExamStateCache;
     
     @Resource
     private SysUserMapper sysUserMapper;
 
+    @Resource
+    private PaperAnswerKeyCache paperAnswerKeyCache;
+
+    @Resource
+    private AnswerDraftService answerDraftService;
+
+    @Resource
+    private PaperShuffle paperShuffle;
+
+    @Resource
+    private GradingEngine gradingEngine;
+
+    @Resource
+    private ExamEligibilityCache examEligibilityCache;
+
     @Transactional(rollbackFor = Exception.class)
     public String startExam(StartExamDTO startExamDTO) {
         CustomToken customToken = JwtAccessContext.getLoginInfo();
         
-        // 查询当前用户是否有该试卷的未完成考试记录
-        List<ExamRecord> examRecords = examRecordMapper.selectListByQuery(QueryWrapper.create()
-                .where(EXAM_RECORD.USER_ID.eq(customToken.getUserId()))
-                .and(EXAM_RECORD.PAPER_ID.eq(startExamDTO.getPaperId()))
-                .and(EXAM_RECORD.STATUS.eq("in-progress"))
-        );
-        
-        // 获取考试配置信息，用于设置总分
-        ExamConfig examConfig = examConfigMapper.selectOneByQuery(
-            QueryWrapper.create()
-                .from(EXAM_CONFIG)
-                .leftJoin(EXAM_PAPER).on(EXAM_CONFIG.CONFIG_ID.eq(EXAM_PAPER.CONFIG_ID))
-                .where(EXAM_PAPER.PAPER_ID.eq(startExamDTO.getPaperId()))
-        );
-        
-        if (examConfig == null) {
-            throw new RuntimeException("考试配置不存在");
-        }
-        
-        // 验证用户人员类别是否与考试配置匹配
-        SysUser currentUser = sysUserMapper.selectOneByQuery(QueryWrapper.create()
-                .where(SYS_USER.USER_ID.eq(customToken.getUserId())));
+        // 考试配置（人员类别、总分、及格分）与用户人员类别均来自缓存
+        ExamEligibilityCache.PaperEligibility eligibility = examEligibilityCache.getPaper(startExamDTO.getPaperId());
+        String userCategory = examEligibilityCache.getUserCategory(customToken.getUserId());
         
-        if (currentUser == null) {
+        if (userCategory == null) {
             throw new RuntimeException("用户信息不存在");
         }
         
         // 检查用户的人员类别是否在考试配置的人员类别范围内
-        String[] allowedCategories = examConfig.getUserCategory().split(",");
-        boolean hasPermission = false;
-        for (String category : allowedCategories) {
-            if (category.trim().equals(currentUser.getUserCategory())) {
-                hasPermission = true;
-                break;
-            }
+        if (!eligibility.allows(userCategory)) {
+            throw new RuntimeException("您的人员类别不在该考试的允许范围内，无法参加此考试");
         }
         
-        if (!hasPermission) {
-            throw new RuntimeException("您的人员类别不在该考试的允许范围内，无法参加此考试");
+        // 一次查询取得未完成的考试记录与强制重考标识
+        Row existing = Db.selectOneBySql(START_LOOKUP_SQL,
+                customToken.getUserId(), startExamDTO.getPaperId(),
+                customToken.getUserId(), startExamDTO.getPaperId(),
+                customToken.getUserId(), startExamDTO.getPaperId());
+        Object existingRecordId = existing != null ? existing.get("record_id") : null;
+        
+        // 上次交卷尚未判分完成时不能开始新的考试
+        if (existing != null && existing.get("submitted_id") != null) {
+            throw new RuntimeException("上次交卷正在判分，请稍后再开始考试");
         }
         
-        String recordId = "";
-        if(examRecords.isEmpty()){
-            // 检查是否是强制重考
-            ExamForceRetake forceRetake = examForceRetakeMapper.selectOneByQuery(
-                QueryWrapper.create()
-                    .where(EXAM_FORCE_RETAKE.USER_ID.eq(customToken.getUserId()))
-                    .and(EXAM_FORCE_RETAKE.PAPER_ID.eq(startExamDTO.getPaperId()))
-                    .and(EXAM_FORCE_RETAKE.FORCE_RETAKE.eq(1))
-            );
-            
+        String recordId;
+        Date now = new Date();
+        if (existingRecordId == null) {
             // 创建新的考试记录
             ExamRecord record = ExamRecord.builder()
                     .userId(customToken.getUserId())
                     .paperId(startExamDTO.getPaperId())
                     .examName(startExamDTO.getExamName())
-                    .startTime(new Date())
-                    .totalScore(examConfig.getTotalScore()) // 从配置中获取总分
-                    .passScore(examConfig.getPassScore() != null ? examConfig.getPassScore() : 60) // 使用考试配置中的及格分数
+                    .startTime(now)
+                    .totalScore(eligibility.getTotalScore()) // 从配置中获取总分
+                    .passScore(eligibility.getPassScore()) // 使用考试配置中的及格分数
                     .status("in-progress")
-                    .retake(forceRetake != null ? 1 : 0) // 如果是强制重考则设置为1，否则为0
+                    .retake(existing.get("force_retake") != null ? 1 : 0) // 如果是强制重考则设置为1，否则为0
                     .build();
             examRecordMapper.insert(record);
             recordId = record.getRecordId();
-        }else{
+            userExamStateCache.invalidate(customToken.getUserId());
+        } else {
             // 找到已有的考试记录，更新开始时间（页面刷新场景）
-            ExamRecord record = examRecords.getFirst();
-            record.setStartTime(new Date());
-            examRecordMapper.update(record);
-            recordId = record.getRecordId();
+            recordId = String.valueOf(existingRecordId);
+            Db.updateBySql("UPDATE exam_record SET start_time = ? WHERE record_id = ?", now, recordId);
         }
 
-        sysLogMapper.insert(SysLog.builder()
+        sysLogWriter.write(SysLog.builder()
                         .userId(customToken.getUserId())
                         .userName(customToken.getUserName())
                         .content("开始考试")
@@ -167,6 +192,213 @@ public class ExamService {
             throw new RuntimeException("考试记录不存在或不属于当前用户");
         }
         
+        return doSubmit(record, customToken.getUserId(), customToken.getUserName(), request.getAnswers(), new Date());
+    }
+
+    /**
+     * 应用提交日志中的交卷请求（由日志回放线程调用，可重复执行）
+     * 考试记录已不是进行中状态时视为已应用，直接返回已有成绩
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public Map<String, Object> applyJournaledSubmission(SubmissionEntry entry) {
+        ExamRecord record = examRecordMapper.selectOneByQuery(
+                QueryWrapper.create()
+                        .where(EXAM_RECORD.RECORD_ID.eq(entry.getRecordId()))
+                        .and(EXAM_RECORD.USER_ID.eq(entry.getUserId()))
+                        .forUpdate()
+        );
+        
+        if (record == null) {
+            throw new RuntimeException("考试记录不存在或不属于当前用户");
+        }
+        
+        if (!"in-progress".equals(record.getStatus())) {
+            return buildSubmitResult(record);
+        }
+        
+        return doSubmit(record, entry.getUserId(), entry.getUserName(), entry.getAnswers(), new Date(entry.getSubmitTime()));
+    }
+
+    /**
+     * 异步判分模式下受理交卷：只保存合并后的原始答案并将记录置为待判分，判分由 GradingService 完成
+     * 重复提交时直接返回当前状态
+     *
+     * @return 考试记录当前状态（submitted 待判分，completed/timeout 已出成绩）
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public String acceptSubmission(SubmitExamRequest request) {
+        CustomToken customToken = JwtAccessContext.getLoginInfo();
+        ExamRecord record = examRecordMapper.selectOneByQuery(
+                QueryWrapper.create()
+                        .where(EXAM_RECORD.RECORD_ID.eq(request.getRecordId()))
+                        .and(EXAM_RECORD.USER_ID.eq(customToken.getUserId()))
+                        .forUpdate()
+        );
+        
+        if (record == null) {
+            throw new RuntimeException("考试记录不存在或不属于当前用户");
+        }
+        
+        if (!"in-progress".equals(record.getStatus())) {
+            return record.getStatus();
+        }
+        
+        Map<String, String> finalAnswers = mergeAnswers(record.getRecordId(), request.getAnswers());
+        if (finalAnswers.isEmpty()) {
+            throw new RuntimeException("答案列表不能为空");
+        }
+        answerDraftService.saveDrafts(record.getRecordId(), finalAnswers);
+        
+        Date submitTime = new Date();
+        record.setStatus(STATUS_SUBMITTED);
+        record.setEndTime(submitTime);
+        record.setDuration((int) ((submitTime.getTime() - record.getStartTime().getTime()) / (1000 * 60)));
+        examRecordMapper.update(record);
+        userExamStateCache.invalidate(record.getUserId());
+        return STATUS_SUBMITTED;
+    }
+
+    /**
+     * 对待判分的考试记录判分（由判分线程调用，可重复执行）
+     *
+     * @return 是否完成了判分；记录已不是待判分状态时返回 false
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public boolean gradeSubmission(String recordId) {
+        ExamRecord record = examRecordMapper.selectOneByQuery(
+                QueryWrapper.create()
+                        .where(EXAM_RECORD.RECORD_ID.eq(recordId))
+                        .and(EXAM_RECORD.STATUS.eq(STATUS_SUBMITTED))
+                        .forUpdate()
+        );
+        
+        if (record == null) {
+            return false;
+        }
+        
+        SysUser user = sysUserMapper.selectOneByQuery(QueryWrapper.create()
+                .where(SYS_USER.USER_ID.eq(record.getUserId())));
+        String userName = user != null ? user.getUserName() : null;
+        
+        Map<String, String> answers = answerDraftService.drainForSubmit(recordId);
+        completeSubmission(record, record.getUserId(), userName, paperAnswerKeyCache.get(record.getPaperId()),
+                answers, record.getEndTime());
+        return true;
+    }
+
+    /**
+     * 按当前答案重新判分已完成的考试记录（题目答案修正后使用），答题详情中保存的是原始选项下标，无需还原
+     *
+     * @return 是否重新判分
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public boolean regradeRecord(String recordId) {
+        ExamRecord record = examRecordMapper.selectOneByQuery(
+                QueryWrapper.create()
+                        .where(EXAM_RECORD.RECORD_ID.eq(recordId))
+                        .and(EXAM_RECORD.STATUS.in("completed", "timeout"))
+                        .forUpdate()
+        );
+        
+        if (record == null) {
+            return false;
+        }
+        
+        PaperAnswerKey answerKey = paperAnswerKeyCache.get(record.getPaperId());
+        List<ExamAnswer> answers = examAnswerMapper.selectListByQuery(
+                QueryWrapper.create().where(EXAM_ANSWER.RECORD_ID.eq(recordId)));
+        int totalScore = 0;
+        for (ExamAnswer answer : answers) {
+            PaperAnswerKey.Item item = answerKey.getItem(answer.getQuestionId());
+            if (item == null) {
+                continue;
+            }
+            long userSequence = gradingEngine.encode(answerKey, item, answer.getUserAnswer(), null);
+            boolean isCorrect = gradingEngine.isCorrect(answerKey, item.getSlot(), userSequence);
+            int score = gradingEngine.score(answerKey, item.getSlot(), userSequence);
+            totalScore += score;
+            if (!Objects.equals(answer.getIsCorrect(), isCorrect ? 1 : 0) || !Objects.equals(answer.getScore(), score)
+                    || !Objects.equals(answer.getCorrectAnswer(), item.getCorrectAnswer())) {
+                answer.setIsCorrect(isCorrect ? 1 : 0);
+                answer.setScore(score);
+                answer.setCorrectAnswer(item.getCorrectAnswer());
+                examAnswerMapper.update(answer);
+            }
+        }
+        
+        if (!Objects.equals(record.getScore(), totalScore)) {
+            log.info("重新判分，记录ID: {}, 原得分: {}, 新得分: {}", recordId, record.getScore(), totalScore);
+            Integer oldScore = record.getScore();
+            record.setScore(totalScore);
+            examRecordMapper.update(record);
+            if ("completed".equals(record.getStatus())) {
+                latestAttemptService.refresh(record.getUserId(), record.getExamName());
+                resultSummaryService.onScoreChanged(oldScore, totalScore, record.getPassScore());
+                examRollupService.onScoreChanged(record.getPaperId(), record.getEndTime(), oldScore, totalScore,
+                        record.getPassScore(), record.getTotalScore());
+                paperParticipationIndex.refreshAttempt(record.getUserId(), record.getPaperId());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 查询已交卷记录的成绩
+     */
+    public Map<String, Object> getSubmitResult(String recordId, String userId) {
+        ExamRecord record = examRecordMapper.selectOneByQuery(
+                QueryWrapper.create()
+                        .where(EXAM_RECORD.RECORD_ID.eq(recordId))
+                        .and(EXAM_RECORD.USER_ID.eq(userId))
+        );
+        
+        if (record == null) {
+            throw new RuntimeException("考试记录不存在或不属于当前用户");
+        }
+        
+        if ("in-progress".equals(record.getStatus())) {
+            return null;
+        }
+        
+        if (STATUS_SUBMITTED.equals(record.getStatus())) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("status", "pending");
+            return result;
+        }
+        
+        if (STATUS_FAILED.equals(record.getStatus())) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("status", STATUS_FAILED);
+            result.put("message", "判分失败，请联系管理员");
+            return result;
+        }
+        
+        return buildSubmitResult(record);
+    }
+
+    private Map<String, Object> buildSubmitResult(ExamRecord record) {
+        long totalQuestions = examAnswerMapper.selectCountByQuery(
+                QueryWrapper.create().where(EXAM_ANSWER.RECORD_ID.eq(record.getRecordId())));
+        long correctCount = examAnswerMapper.selectCountByQuery(
+                QueryWrapper.create()
+                        .where(EXAM_ANSWER.RECORD_ID.eq(record.getRecordId()))
+                        .and(EXAM_ANSWER.IS_CORRECT.eq(1)));
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("score", record.getScore());
+        result.put("totalScore", record.getTotalScore());
+        result.put("correctCount", (int) correctCount);
+        result.put("totalQuestions", (int) totalQuestions);
+        return result;
+    }
+
+    /**
+     * 交卷核心逻辑：调用方需已持有考试记录行锁，且记录为进行中状态
+     */
+    private Map<String, Object> doSubmit(ExamRecord record, String userId, String userName,
+                                         List<AnswerDTO> submittedAnswers, Date submitTime) {
+        String recordId = record.getRecordId();
+        
         // 2. 再次检查状态，确保在锁保护下状态正确
         if (!"in-progress".equals(record.getStatus())) {
             throw new RuntimeException("考试记录状态不正确，可能已被提交");
@@ -175,76 +407,54 @@ public class ExamService {
         // 3. 检查是否已经存在答题记录，防止重复提交
         long answerCount = examAnswerMapper.selectCountByQuery(
             QueryWrapper.create()
-                .where(EXAM_ANSWER.RECORD_ID.eq(request.getRecordId()))
+                .where(EXAM_ANSWER.RECORD_ID.eq(recordId))
         );
         
         if (answerCount > 0) {
             throw new RuntimeException("该考试记录已存在答题数据，请勿重复提交");
         }
         
-        // 4. 获取考试配置信息，用于计算分值
-        ExamConfig examConfig = examConfigMapper.selectOneByQuery(
-            QueryWrapper.create()
-                .from(EXAM_CONFIG)
-                .leftJoin(EXAM_PAPER).on(EXAM_CONFIG.CONFIG_ID.eq(EXAM_PAPER.CONFIG_ID))
-                .where(EXAM_PAPER.PAPER_ID.eq(record.getPaperId()))
-        );
+        // 4. 获取试卷答案键（按试卷缓存，题目与分值均已预先计算）
+        PaperAnswerKey answerKey = paperAnswerKeyCache.get(record.getPaperId());
         
-        if (examConfig == null) {
-            throw new RuntimeException("考试配置不存在");
-        }
+        // 5. 合并考试过程中保存的草稿与本次提交的答案（本次提交优先）
+        Map<String, String> finalAnswers = mergeAnswers(recordId, submittedAnswers);
         
-        // 5. 计算每题得分并保存答题详情
-        int totalScore = 0;
-        int correctCount = 0;
+        return completeSubmission(record, userId, userName, answerKey, finalAnswers, submitTime);
+    }
+
+    /**
+     * 判分并完成交卷：写入答题详情、更新成绩、复位强制重考、记录日志
+     */
+    private Map<String, Object> completeSubmission(ExamRecord record, String userId, String userName,
+                                                   PaperAnswerKey answerKey, Map<String, String> finalAnswers,
+                                                   Date submitTime) {
+        String recordId = record.getRecordId();
         
-        for (AnswerDTO answerDto : request.getAnswers()) {
-            // 获取题目信息
-            ExamQuestion question = examQuestionMapper.selectOneByQuery(
-                QueryWrapper.create().where(EXAM_QUESTION.QUESTION_ID.eq(answerDto.getQuestionId()))
-            );
-            
-            if (question != null) {
-                boolean isCorrect = answerDto.getUserAnswer().equals(question.getCorrectAnswer());
-                
-                // 根据题目类型从配置中获取分值
-                int score = 0;
-                if (isCorrect) {
-                    if ("choice".equals(question.getQuestionType())) {
-                        score = examConfig.getChoiceScore() != null ? examConfig.getChoiceScore() : 2;
-                    } else if ("multi".equals(question.getQuestionType())) {
-                        score = examConfig.getMultiScore() != null ? examConfig.getMultiScore() : 4;
-                    } else if ("judgment".equals(question.getQuestionType())) {
-                        score = examConfig.getJudgmentScore() != null ? examConfig.getJudgmentScore() : 1;
-                    }
-                    correctCount++;
-                }
-                
-                totalScore += score;
-                
-                // 保存答题记录
-                ExamAnswer answer = ExamAnswer.builder()
-                        .recordId(request.getRecordId())
-                        .questionId(answerDto.getQuestionId())
-                        .userAnswer(answerDto.getUserAnswer())
-                        .correctAnswer(question.getCorrectAnswer())
-                        .isCorrect(isCorrect ? 1 : 0)
-                        .score(score)
-                        .createBy(customToken.getUserName())
-                        .build();
-                
-                examAnswerMapper.insert(answer);
-            }
+        // 6. 在内存中计算每题得分，答题详情一次批量写入
+        GradeResult graded = grade(record, answerKey, finalAnswers, userName);
+        int totalScore = graded.totalScore();
+        int correctCount = graded.correctCount();
+        
+        if (!graded.answers().isEmpty()) {
+            examAnswerMapper.insertBatch(graded.answers());
         }
+        answerDraftService.deleteDrafts(recordId);
         
-        // 5. 更新考试记录状态为已完成
+        // 7. 更新考试记录状态为已完成
         record.setScore(totalScore);
         record.setStatus("completed");
-        record.setEndTime(new Date());
-        record.setDuration((int) ((new Date().getTime() - record.getStartTime().getTime()) / (1000 * 60)));
+        record.setEndTime(submitTime);
+        record.setDuration((int) ((submitTime.getTime() - record.getStartTime().getTime()) / (1000 * 60)));
         examRecordMapper.update(record);
+        latestAttemptService.refresh(record.getUserId(), record.getExamName());
+        resultSummaryService.onCompleted(record.getUserId(), totalScore, record.getPassScore());
+        examRollupService.onCompleted(record.getPaperId(), submitTime, totalScore, record.getPassScore(),
+                record.getTotalScore());
+        paperParticipationIndex.refreshAttempt(record.getUserId(), record.getPaperId());
+        userExamStateCache.invalidate(record.getUserId());
 
-        // 6. 如果是强制重考，完成后自动复位force_retake标识
+        // 8. 如果是强制重考，完成后自动复位force_retake标识
         ExamForceRetake forceRetake = examForceRetakeMapper.selectOneByQuery(
             QueryWrapper.create()
                 .where(EXAM_FORCE_RETAKE.USER_ID.eq(record.getUserId()))
@@ -257,10 +467,10 @@ public class ExamService {
             log.info("强制重考完成，已复位用户 {} 试卷 {} 的force_retake标识", record.getUserId(), record.getPaperId());
         }
 
-        log.info("考试提交成功，记录ID: {}, 得分: {}, 正确题数: {}", request.getRecordId(), totalScore, correctCount);
-        sysLogMapper.insert(SysLog.builder()
-                .userId(customToken.getUserId())
-                .userName(customToken.getUserName())
+        log.info("考试提交成功，记录ID: {}, 得分: {}, 正确题数: {}", recordId, totalScore, correctCount);
+        sysLogWriter.write(SysLog.builder()
+                .userId(userId)
+                .userName(userName)
                 .content("提交考试")
                 .build());
         
@@ -269,10 +479,166 @@ public class ExamService {
         result.put("score", totalScore);
         result.put("totalScore", record.getTotalScore());
         result.put("correctCount", correctCount);
-        result.put("totalQuestions", request.getAnswers().size());
+        result.put("totalQuestions", finalAnswers.size());
         return result;
     }
 
+    /**
+     * 将超过截止时间仍在进行中的考试记录批量置为超时（由超时清理任务按批调用，每批一个短事务）
+     * 已保存的草稿答案照常判分；正在被交卷的记录以 SKIP LOCKED 跳过
+     *
+     * @return 本批实际置为超时的记录数
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public int timeoutExpiredRecords(List<String> recordIds, Map<String, Date> deadlines) {
+        if (recordIds.isEmpty()) {
+            return 0;
+        }
+        String placeholders = String.join(",", Collections.nCopies(recordIds.size(), "?"));
+        List<Row> rows = Db.selectListBySql(
+                "SELECT record_id, user_id, paper_id, start_time FROM exam_record " +
+                "WHERE record_id IN (" + placeholders + ") AND status = 'in-progress' " +
+                "FOR UPDATE SKIP LOCKED", recordIds.toArray());
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        List<String> lockedIds = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            lockedIds.add(String.valueOf(row.get("record_id")));
+        }
+        Map<String, Map<String, String>> drafts = answerDraftService.drainAll(lockedIds);
+
+        List<ExamAnswer> answers = new ArrayList<>();
+        StringBuilder scoreCase = new StringBuilder();
+        StringBuilder endTimeCase = new StringBuilder();
+        StringBuilder durationCase = new StringBuilder();
+        List<Object> scoreParams = new ArrayList<>();
+        List<Object> endTimeParams = new ArrayList<>();
+        List<Object> durationParams = new ArrayList<>();
+        for (Row row : rows) {
+            ExamRecord record = ExamRecord.builder()
+                    .recordId(String.valueOf(row.get("record_id")))
+                    .userId(String.valueOf(row.get("user_id")))
+                    .paperId(String.valueOf(row.get("paper_id")))
+                    .startTime(row.getDate("start_time"))
+                    .build();
+            Map<String, String> recordDrafts = drafts.getOrDefault(record.getRecordId(), Collections.emptyMap());
+            int score = 0;
+            if (!recordDrafts.isEmpty()) {
+                GradeResult graded = grade(record, paperAnswerKeyCache.get(record.getPaperId()), recordDrafts, null);
+                answers.addAll(graded.answers());
+                score = graded.totalScore();
+            }
+            Date endTime = deadlines.getOrDefault(record.getRecordId(), new Date());
+            scoreCase.append(" WHEN ? THEN ?");
+            scoreParams.add(record.getRecordId());
+            scoreParams.add(score);
+            endTimeCase.append(" WHEN ? THEN ?");
+            endTimeParams.add(record.getRecordId());
+            endTimeParams.add(endTime);
+            durationCase.append(" WHEN ? THEN ?");
+            durationParams.add(record.getRecordId());
+            durationParams.add((int) ((endTime.getTime() - record.getStartTime().getTime()) / (1000 * 60)));
+        }
+
+        if (!answers.isEmpty()) {
+            examAnswerMapper.insertBatch(answers);
+        }
+        String lockedPlaceholders = String.join(",", Collections.nCopies(lockedIds.size(), "?"));
+        List<Object> params = new ArrayList<>(scoreParams);
+        params.addAll(endTimeParams);
+        params.addAll(durationParams);
+        params.addAll(lockedIds);
+        int updated = Db.updateBySql(
+                "UPDATE exam_record SET status = 'timeout'" +
+                ", score = CASE record_id" + scoreCase + " END" +
+                ", end_time = CASE record_id" + endTimeCase + " END" +
+                ", duration = CASE record_id" + durationCase + " END" +
+                " WHERE record_id IN (" + lockedPlaceholders + ") AND status = 'in-progress'",
+                params.toArray());
+        Db.deleteBySql("DELETE FROM exam_answer_draft WHERE record_id IN (" + lockedPlaceholders + ")",
+                lockedIds.toArray());
+        Set<String> userIds = new HashSet<>();
+        for (Row row : rows) {
+            userIds.add(String.valueOf(row.get("user_id")));
+        }
+        userExamStateCache.invalidateAll(userIds);
+        return updated;
+    }
+
+    /**
+     * 合并考试过程中保存的草稿与本次提交的答案（本次提交优先）
+     */
+    private Map<String, String> mergeAnswers(String recordId, List<AnswerDTO> submittedAnswers) {
+        Map<String, String> finalAnswers = answerDraftService.drainForSubmit(recordId);
+        if (submittedAnswers != null) {
+            for (AnswerDTO answerDto : submittedAnswers) {
+                finalAnswers.put(answerDto.getQuestionId(), answerDto.getUserAnswer());
+            }
+        }
+        return finalAnswers;
+    }
+
+    /**
+     * 在内存中判分：考生提交的是乱序后的选项下标，编码时按同一种子还原为原始下标，再由判分引擎逐题整数比较
+     */
+    private GradeResult grade(ExamRecord record, PaperAnswerKey answerKey, Map<String, String> finalAnswers, String createBy) {
+        long seed = paperShuffle.seed(record.getUserId(), record.getPaperId());
+        int size = finalAnswers.size();
+        PaperAnswerKey.Item[] items = new PaperAnswerKey.Item[size];
+        String[] rawAnswers = new String[size];
+        int[] slots = new int[size];
+        long[] userSequences = new long[size];
+        int count = 0;
+        
+        for (Map.Entry<String, String> entry : finalAnswers.entrySet()) {
+            PaperAnswerKey.Item item = answerKey.getItem(entry.getKey());
+            if (item != null) {
+                int[] optionOrder = paperShuffle.optionOrder(seed, item.getQuestionType(), item.getQuestionId(), item.getOptionCount());
+                items[count] = item;
+                rawAnswers[count] = entry.getValue();
+                slots[count] = item.getSlot();
+                userSequences[count] = gradingEngine.encode(answerKey, item, entry.getValue(), optionOrder);
+                count++;
+            }
+        }
+        
+        int[] scores = new int[count];
+        int totalScore = gradingEngine.scoreAll(answerKey, slots, userSequences, count, scores);
+        int correctCount = 0;
+        List<ExamAnswer> answers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            boolean isCorrect = gradingEngine.isCorrect(answerKey, slots[i], userSequences[i]);
+            if (isCorrect) {
+                correctCount++;
+            }
+            answers.add(ExamAnswer.builder()
+                    .recordId(record.getRecordId())
+                    .questionId(items[i].getQuestionId())
+                    .userAnswer(storedAnswer(answerKey, slots[i], userSequences[i], rawAnswers[i]))
+                    .correctAnswer(items[i].getCorrectAnswer())
+                    .isCorrect(isCorrect ? 1 : 0)
+                    .score(scores[i])
+                    .createBy(createBy)
+                    .build());
+        }
+        return new GradeResult(answers, totalScore, correctCount);
+    }
+
+    // 选项题保存还原后的原始下标，其余保存原答案
+    private static String storedAnswer(PaperAnswerKey answerKey, int slot, long userSequence, String rawAnswer) {
+        byte type = answerKey.getTypes()[slot];
+        if ((type == PaperAnswerKey.TYPE_CHOICE || type == PaperAnswerKey.TYPE_MULTI)
+                && userSequence != AnswerCodec.INVALID && userSequence != AnswerCodec.TEXT_MATCH) {
+            return AnswerCodec.decode(userSequence);
+        }
+        return rawAnswer;
+    }
+
+    private record GradeResult(List<ExamAnswer> answers, int totalScore, int correctCount) {
+    }
+
 
     // 获取学生考试记录详情
     public Map<String, Object> getStudentExamRecordDetail(String recordId, Long userId) {
@@ -0,0 +1,150 @@
+package com.medical.exam.service;
+
+import com.medical.exam.journal.SubmissionJournal;
+import com.mybatisflex.core.row.Db;
+import com.mybatisflex.core.row.Row;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * 考试超时清理
+ * 考生关闭页面或断网后考试记录会一直停留在进行中状态，这里定时按 (status, start_time) 索引范围扫描
+ * 超过 开始时间 + 考试时长 + 宽限期 的记录，按批判分已保存的草稿并置为超时；
+ * 每批一个短事务，行锁使用 SKIP LOCKED，不会阻塞同时进行的交卷
+ */
+@Service
+@Slf4j
+public class ExamTimeoutSweeper {
+
+    private static final String CANDIDATE_SQL =
+            "SELECT er.record_id, er.start_time, ec.duration FROM exam_record er " +
+            "JOIN exam_paper ep ON er.paper_id = ep.paper_id " +
+            "JOIN exam_config ec ON ep.config_id = ec.config_id " +
+            "WHERE er.status = 'in-progress' AND er.start_time < ? " +
+            "AND (er.start_time > ? OR (er.start_time = ? AND er.record_id > ?)) " +
+            "AND (er.deleted = 0 OR er.deleted IS NULL) " +
+            // 未设置考试时长的配置没有截止时间，不参与清理
+            "AND ec.duration IS NOT NULL " +
+            "ORDER BY er.start_time, er.record_id LIMIT ?";
+
+    @Resource
+    private ExamService examService;
+
+    @Resource
+    private SubmissionJournal submissionJournal;
+
+    @Value("${exam.sweeper.enabled:true}")
+    private boolean enabled;
+
+    // 超过考试时长后再等待的时间，留给前端自动交卷与提交日志应用（秒）
+    @Value("${exam.sweeper.grace-seconds:300}")
+    private long graceSeconds;
+
+    // 每批处理的记录数（一个事务）
+    @Value("${exam.sweeper.chunk-size:200}")
+    private int chunkSize;
+
+    // 单次清理最多处理的批数，剩余的下次继续
+    @Value("${exam.sweeper.max-chunks:50}")
+    private int maxChunks;
+
+    // 统计指标（均在 synchronized 中更新）
+    private long lastSweepAt;
+    private long lastSweepMillis;
+    private int lastClosed;
+    private long totalClosed;
+    private long lagMillis;
+    private long maxLagMillis;
+    private boolean backlog;
+
+    @Scheduled(fixedDelayString = "${exam.sweeper.interval-millis:60000}", initialDelay = 30000)
+    public void sweep() {
+        if (!enabled) {
+            return;
+        }
+        long begin = System.currentTimeMillis();
+        long graceMillis = graceSeconds * 1000;
+
+        Row min = Db.selectOneBySql("SELECT MIN(duration) AS min_duration FROM exam_config");
+        Integer minDuration = min != null ? min.getInt("min_duration") : null;
+        if (minDuration == null) {
+            return;
+        }
+        // 任何记录的截止时间都不早于 开始时间 + 最短考试时长，据此确定索引范围上界
+        Date upperBound = new Date(begin - minDuration * 60000L - graceMillis);
+
+        Date lastStart = new Date(0);
+        String lastId = "0";
+        int closed = 0;
+        long oldestOverdue = 0;
+        boolean more = false;
+        for (int chunk = 0; chunk < maxChunks; chunk++) {
+            List<Row> rows = Db.selectListBySql(CANDIDATE_SQL, upperBound, lastStart, lastStart, lastId, chunkSize);
+            if (rows.isEmpty()) {
+                break;
+            }
+            List<String> recordIds = new ArrayList<>(rows.size());
+            Map<String, Date> deadlines = new HashMap<>();
+            for (Row row : rows) {
+                String recordId = String.valueOf(row.get("record_id"));
+                Date startTime = row.getDate("start_time");
+                lastStart = startTime;
+                lastId = recordId;
+
+                long deadline = startTime.getTime() + row.getInt("duration") * 60000L;
+                // 尚未到期，或已受理交卷但提交日志尚未应用的记录跳过
+                if (deadline + graceMillis > begin || submissionJournal.isPending(recordId)) {
+                    continue;
+                }
+                recordIds.add(recordId);
+                deadlines.put(recordId, new Date(deadline));
+                oldestOverdue = Math.max(oldestOverdue, begin - deadline);
+            }
+            try {
+                closed += examService.timeoutExpiredRecords(recordIds, deadlines);
+            } catch (Exception e) {
+                log.error("超时考试记录清理失败，本批 {} 条，下次重试", recordIds.size(), e);
+            }
+            more = rows.size() == chunkSize;
+            if (!more) {
+                break;
+            }
+        }
+
+        long elapsed = System.currentTimeMillis() - begin;
+        synchronized (this) {
+            lastSweepAt = begin;
+            lastSweepMillis = elapsed;
+            lastClosed = closed;
+            totalClosed += closed;
+            lagMillis = oldestOverdue;
+            maxLagMillis = Math.max(maxLagMillis, oldestOverdue);
+            backlog = more;
+        }
+        if (closed > 0) {
+            log.info("超时考试记录清理完成，置为超时 {} 条，最大超期 {}ms，耗时 {}ms", closed, oldestOverdue, elapsed);
+        }
+    }
+
+    /**
+     * 清理指标：lagMillis 为本次清理中最早到期记录超过截止时间的时长，backlog 表示达到批数上限仍有剩余
+     */
+    public synchronized Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("graceSeconds", graceSeconds);
+        metrics.put("lastSweepAt", lastSweepAt > 0 ? new Date(lastSweepAt) : null);
+        metrics.put("lastSweepMillis", lastSweepMillis);
+        metrics.put("lastClosed", lastClosed);
+        metrics.put("totalClosed", totalClosed);
+        metrics.put("lagMillis", lagMillis);
+        metrics.put("maxLagMillis", maxLagMillis);
+        metrics.put("backlog", backlog);
+        return metrics;
+    }
+}
@@ -0,0 +1,205 @@
+package com.medical.exam.service;
+
+import com.medical.exam.cache.UserExamStateCache;
+import com.mybatisflex.core.row.Db;
+import com.mybatisflex.core.row.Row;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 异步判分
+ * exam.submit.mode=async 时交卷只保存原始答案并将记录置为 submitted，立即返回回执；
+ * 判分、写入答题详情、复位强制重考、记录日志由固定大小的判分线程池完成，前端轮询交卷结果。
+ * 待判分状态保存在数据库中：队列满或重启时遗留的记录由定时扫描重新入队。
+ * 判分失败次数记录在 grade_attempts 中，扫描时失败次数少的优先；达到上限后置为 failed，不再重试。
+ * 题目答案修正后的重新判分也通过同一线程池执行
+ */
+@Service
+@Slf4j
+public class GradingService {
+
+    @Resource
+    private ExamService examService;
+
+    @Resource
+    private UserExamStateCache userExamStateCache;
+
+    // 判分线程数，应小于连接池大小，给在线请求留出连接
+    @Value("${exam.grading.workers:3}")
+    private int workers;
+
+    // 排队任务上限，超出的记录留在数据库中由定时扫描补偿
+    @Value("${exam.grading.queue-capacity:10000}")
+    private int queueCapacity;
+
+    // 单次扫描补偿的最大记录数
+    @Value("${exam.grading.rescan-limit:1000}")
+    private int rescanLimit;
+
+    // 单条记录的最大判分次数，连续失败达到该次数后置为 failed
+    @Value("${exam.grading.max-attempts:3}")
+    private int maxAttempts;
+
+    private ThreadPoolExecutor executor;
+
+    // 已入队（含执行中）的记录，避免重复入队
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong gradedTotal = new AtomicLong();
+    private final AtomicLong regradedTotal = new AtomicLong();
+    private final AtomicLong failedTotal = new AtomicLong();
+    private final AtomicLong gradeMillisTotal = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), new ThreadFactory() {
+                    private final AtomicInteger index = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        return new Thread(r, "exam-grader-" + index.incrementAndGet());
+                    }
+                });
+    }
+
+    /**
+     * 提交待判分记录
+     */
+    public void enqueue(String recordId) {
+        submit(recordId, () -> {
+            long begin = System.currentTimeMillis();
+            try {
+                if (examService.gradeSubmission(recordId)) {
+                    gradedTotal.incrementAndGet();
+                    gradeMillisTotal.addAndGet(System.currentTimeMillis() - begin);
+                }
+            } catch (RuntimeException e) {
+                recordFailure(recordId);
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * 按当前答案重新判分某试卷下所有已完成的考试记录
+     *
+     * @return 入队的记录数
+     */
+    public int regradePaper(String paperId) {
+        List<Row> rows = Db.selectListBySql(
+                "SELECT record_id FROM exam_record WHERE paper_id = ? AND status IN ('completed', 'timeout') " +
+                "AND (deleted = 0 OR deleted IS NULL)", paperId);
+        int count = 0;
+        for (Row row : rows) {
+            String recordId = String.valueOf(row.get("record_id"));
+            if (submit(recordId, () -> {
+                if (examService.regradeRecord(recordId)) {
+                    regradedTotal.incrementAndGet();
+                }
+            })) {
+                count++;
+            }
+        }
+        log.info("试卷 {} 重新判分入队 {} 条", paperId, count);
+        return count;
+    }
+
+    /**
+     * 启动时及定时扫描待判分记录，补偿未入队（队列满、重启、判分失败）的记录
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${exam.grading.rescan-interval-millis:30000}", initialDelay = 30000)
+    public void rescan() {
+        List<Row> rows = Db.selectListBySql(
+                "SELECT record_id FROM exam_record WHERE status = ? ORDER BY grade_attempts, end_time LIMIT ?",
+                ExamService.STATUS_SUBMITTED, rescanLimit);
+        int count = 0;
+        for (Row row : rows) {
+            String recordId = String.valueOf(row.get("record_id"));
+            if (!queued.contains(recordId)) {
+                enqueue(recordId);
+                count++;
+            }
+        }
+        if (count > 0) {
+            log.info("待判分记录补偿入队 {} 条", count);
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        long graded = gradedTotal.get();
+        metrics.put("workers", workers);
+        metrics.put("active", executor.getActiveCount());
+        metrics.put("queueDepth", executor.getQueue().size());
+        metrics.put("gradedTotal", graded);
+        metrics.put("regradedTotal", regradedTotal.get());
+        metrics.put("failedTotal", failedTotal.get());
+        metrics.put("avgGradeMillis", graded > 0 ? gradeMillisTotal.get() / graded : 0);
+        return metrics;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // 未判分的记录仍为 submitted 状态，下次启动时重新入队
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 判分事务回滚后单独累计失败次数，达到上限时置为 failed（状态须写在次数之前，MySQL 按顺序赋值）
+     */
+    private void recordFailure(String recordId) {
+        try {
+            int updated = Db.updateBySql("UPDATE exam_record SET status = CASE WHEN grade_attempts + 1 >= ? " +
+                            "THEN ? ELSE status END, grade_attempts = grade_attempts + 1 " +
+                            "WHERE record_id = ? AND status = ?",
+                    maxAttempts, ExamService.STATUS_FAILED, recordId, ExamService.STATUS_SUBMITTED);
+            Row row = updated > 0 ? Db.selectOneBySql(
+                    "SELECT user_id, status FROM exam_record WHERE record_id = ?", recordId) : null;
+            if (row != null && ExamService.STATUS_FAILED.equals(row.getString("status"))) {
+                userExamStateCache.invalidate(String.valueOf(row.get("user_id")));
+                log.error("判分失败已达 {} 次，记录ID: {} 置为 failed", maxAttempts, recordId);
+            }
+        } catch (RuntimeException e) {
+            log.error("记录判分失败次数失败，记录ID: {}", recordId, e);
+        }
+    }
+
+    private boolean submit(String recordId, Runnable task) {
+        if (!queued.add(recordId)) {
+            return false;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    // 未达到失败上限的记录仍为 submitted，等待下次扫描重试
+                    failedTotal.incrementAndGet();
+                    log.error("判分失败，记录ID: {}", recordId, e);
+                } finally {
+                    queued.remove(recordId);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            queued.remove(recordId);
+            log.warn("判分队列已满，记录ID: {} 等待下次扫描", recordId);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.medical.exam.service;
+
+import com.mybatisflex.core.row.Db;
+import com.mybatisflex.core.row.Row;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * 考试最新成绩表的回填与一致性校验
+ * 按用户ID分段（每段一个短事务）重建或比对 exam_latest_attempt；表为空时启动后自动回填，
+ * 定时校验发现不一致时按 用户+考试名称 修复
+ */
+@Service
+@Slf4j
+public class LatestAttemptMaintainer {
+
+    private static final String NEXT_USERS_SQL =
+            "SELECT DISTINCT user_id FROM exam_record WHERE user_id > ? ORDER BY user_id LIMIT ?";
+
+    @Resource
+    private LatestAttemptService latestAttemptService;
+
+    // 每段包含的用户数
+    @Value("${exam.latest-attempt.chunk-users:500}")
+    private int chunkUsers;
+
+    @Value("${exam.latest-attempt.check-enabled:true}")
+    private boolean checkEnabled;
+
+    // 统计指标（均在 synchronized 中更新）
+    private long lastBackfillAt;
+    private long lastBackfillMillis;
+    private int lastBackfillRows;
+    private long lastCheckAt;
+    private long lastCheckMillis;
+    private int lastCheckMismatches;
+    private long totalRepaired;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        Row projected = Db.selectOneBySql("SELECT 1 AS found FROM exam_latest_attempt LIMIT 1");
+        Row completed = Db.selectOneBySql("SELECT 1 AS found FROM exam_record WHERE status = 'completed' LIMIT 1");
+        if (projected == null && completed != null) {
+            log.info("考试最新成绩表为空，开始回填");
+            backfill();
+        }
+    }
+
+    /**
+     * 按考试记录重建整张最新成绩表
+     *
+     * @return 写入的行数
+     */
+    public synchronized int backfill() {
+        long begin = System.currentTimeMillis();
+        int rows = 0;
+        long last = 0;
+        for (long[] range : new UserRanges()) {
+            rows += latestAttemptService.rebuildRange(range[0], range[1]);
+            last = range[1];
+        }
+        latestAttemptService.deleteAfter(last);
+
+        lastBackfillAt = begin;
+        lastBackfillMillis = System.currentTimeMillis() - begin;
+        lastBackfillRows = rows;
+        log.info("考试最新成绩表回填完成，{} 行，耗时 {} ms", rows, lastBackfillMillis);
+        return rows;
+    }
+
+    @Scheduled(fixedDelayString = "${exam.latest-attempt.check-interval-millis:3600000}", initialDelay = 600000)
+    public void scheduledCheck() {
+        if (checkEnabled) {
+            check(true);
+        }
+    }
+
+    /**
+     * 校验最新成绩表与考试记录是否一致
+     *
+     * @param repair 是否修复不一致的行
+     * @return 不一致的 用户+考试名称 数
+     */
+    public synchronized int check(boolean repair) {
+        long begin = System.currentTimeMillis();
+        int mismatches = 0;
+        long last = 0;
+        for (long[] range : new UserRanges()) {
+            List<LatestAttemptService.Key> keys = latestAttemptService.findMismatches(range[0], range[1]);
+            mismatches += keys.size();
+            if (repair && !keys.isEmpty()) {
+                latestAttemptService.repair(keys);
+                totalRepaired += keys.size();
+            }
+            last = range[1];
+        }
+        Row orphan = Db.selectOneBySql("SELECT COUNT(1) AS cnt FROM exam_latest_attempt WHERE user_id > ?", last);
+        int orphans = orphan != null && orphan.getInt("cnt") != null ? orphan.getInt("cnt") : 0;
+        if (orphans > 0) {
+            mismatches += orphans;
+            if (repair) {
+                totalRepaired += latestAttemptService.deleteAfter(last);
+            }
+        }
+
+        lastCheckAt = begin;
+        lastCheckMillis = System.currentTimeMillis() - begin;
+        lastCheckMismatches = mismatches;
+        if (mismatches > 0) {
+            log.warn("考试最新成绩表与考试记录不一致 {} 处{}", mismatches, repair ? "，已修复" : "");
+        }
+        return mismatches;
+    }
+
+    public synchronized Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("lastBackfillAt", lastBackfillAt > 0 ? new Date(lastBackfillAt) : null);
+        metrics.put("lastBackfillMillis", lastBackfillMillis);
+        metrics.put("lastBackfillRows", lastBackfillRows);
+        metrics.put("lastCheckAt", lastCheckAt > 0 ? new Date(lastCheckAt) : null);
+        metrics.put("lastCheckMillis", lastCheckMillis);
+        metrics.put("lastCheckMismatches", lastCheckMismatches);
+        metrics.put("totalRepaired", totalRepaired);
+        return metrics;
+    }
+
+    /**
+     * 按 exam_record 中出现的用户ID依次给出分段区间 (上一段末尾, 本段最后一个用户ID]
+     */
+    private class UserRanges implements Iterable<long[]> {
+
+        @Override
+        public Iterator<long[]> iterator() {
+            return new Iterator<>() {
+                private long last = 0;
+                private long[] next = advance();
+
+                private long[] advance() {
+                    List<Row> users = Db.selectListBySql(NEXT_USERS_SQL, last, chunkUsers);
+                    if (users.isEmpty()) {
+                        return null;
+                    }
+                    long to = ((Number) users.get(users.size() - 1).get("user_id")).longValue();
+                    long[] range = {last, to};
+                    last = to;
+                    return range;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override
+                public long[] next() {
+                    if (next == null) {
+                        throw new NoSuchElementException();
+                    }
+                    long[] range = next;
+                    next = advance();
+                    return range;
+                }
+            };
+        }
+    }
+}
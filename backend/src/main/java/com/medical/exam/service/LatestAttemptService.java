@@ -0,0 +1,139 @@
+package com.medical.exam.service;
+
+import com.mybatisflex.core.row.Db;
+import com.mybatisflex.core.row.Row;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+/**
+ * 考试最新成绩表维护
+ * exam_latest_attempt 保存每个用户每个考试名称最近一次已完成（按结束时间，相同时取记录ID较大者）的考试记录，
+ * 与原相关子查询口径一致：已逻辑删除的记录同样参与比较，由查询按 deleted 过滤。
+ * 交卷、重新判分、删除考试记录时在同一事务内调用 refresh；回填与一致性校验按用户ID分段执行
+ */
+@Service
+@Slf4j
+public class LatestAttemptService {
+
+    private static final String LATEST_SQL =
+            "SELECT record_id, end_time, score, pass_score, deleted FROM exam_record " +
+            "WHERE user_id = ? AND exam_name = ? AND status = 'completed' AND end_time IS NOT NULL " +
+            "ORDER BY end_time DESC, record_id DESC LIMIT 1";
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO exam_latest_attempt (user_id, exam_name, record_id, end_time, score, pass_score, passed, deleted) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE record_id = VALUES(record_id), end_time = VALUES(end_time), score = VALUES(score), " +
+            "pass_score = VALUES(pass_score), passed = VALUES(passed), deleted = VALUES(deleted)";
+
+    // 用户ID区间 (?, ?] 内每个 用户+考试名称 最近一次已完成的考试记录
+    private static final String RANGE_LATEST_SQL =
+            "SELECT er.user_id, er.exam_name, er.record_id, er.end_time, er.score, er.pass_score, " +
+            "CASE WHEN er.score < er.pass_score THEN 0 ELSE 1 END AS passed, " +
+            "CASE WHEN er.deleted = 1 THEN 1 ELSE 0 END AS deleted " +
+            "FROM (SELECT DISTINCT user_id, exam_name FROM exam_record " +
+            "      WHERE status = 'completed' AND end_time IS NOT NULL AND user_id > ? AND user_id <= ?) g " +
+            "JOIN exam_record er ON er.record_id = (" +
+            "    SELECT er2.record_id FROM exam_record er2 " +
+            "    WHERE er2.user_id = g.user_id AND er2.exam_name = g.exam_name " +
+            "    AND er2.status = 'completed' AND er2.end_time IS NOT NULL " +
+            "    ORDER BY er2.end_time DESC, er2.record_id DESC LIMIT 1)";
+
+    /**
+     * 按当前考试记录重新计算某用户某考试的最新成绩，需在修改考试记录的事务内调用
+     */
+    public void refresh(String userId, String examName) {
+        if (userId == null || examName == null) {
+            return;
+        }
+        Row latest = Db.selectOneBySql(LATEST_SQL, userId, examName);
+        if (latest == null) {
+            Db.deleteBySql("DELETE FROM exam_latest_attempt WHERE user_id = ? AND exam_name = ?", userId, examName);
+            return;
+        }
+        Integer score = latest.getInt("score");
+        Integer passScore = latest.getInt("pass_score");
+        boolean passed = score == null || passScore == null || score >= passScore;
+        Db.updateBySql(UPSERT_SQL, userId, examName, latest.get("record_id"), latest.get("end_time"),
+                score, passScore, passed ? 1 : 0, isTrue(latest.get("deleted")) ? 1 : 0);
+    }
+
+    /**
+     * 重建用户ID区间 (fromExclusive, toInclusive] 内的最新成绩
+     *
+     * @return 写入的行数
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public int rebuildRange(long fromExclusive, long toInclusive) {
+        Db.deleteBySql("DELETE FROM exam_latest_attempt WHERE user_id > ? AND user_id <= ?", fromExclusive, toInclusive);
+        return Db.insertBySql("INSERT INTO exam_latest_attempt " +
+                "(user_id, exam_name, record_id, end_time, score, pass_score, passed, deleted) " + RANGE_LATEST_SQL,
+                fromExclusive, toInclusive);
+    }
+
+    /**
+     * 删除用户ID大于 fromExclusive 的最新成绩（回填到末尾时清理已没有考试记录的用户）
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public int deleteAfter(long fromExclusive) {
+        return Db.deleteBySql("DELETE FROM exam_latest_attempt WHERE user_id > ?", fromExclusive);
+    }
+
+    /**
+     * 比较用户ID区间 (fromExclusive, toInclusive] 内最新成绩表与考试记录，返回不一致的 用户ID + 考试名称
+     */
+    public List<Key> findMismatches(long fromExclusive, long toInclusive) {
+        Map<Key, String> expected = new HashMap<>();
+        for (Row row : Db.selectListBySql(RANGE_LATEST_SQL, fromExclusive, toInclusive)) {
+            expected.put(new Key(String.valueOf(row.get("user_id")), row.getString("exam_name")), fingerprint(row));
+        }
+        Map<Key, String> actual = new HashMap<>();
+        for (Row row : Db.selectListBySql(
+                "SELECT user_id, exam_name, record_id, score, pass_score, passed, deleted FROM exam_latest_attempt " +
+                "WHERE user_id > ? AND user_id <= ?", fromExclusive, toInclusive)) {
+            actual.put(new Key(String.valueOf(row.get("user_id")), row.getString("exam_name")), fingerprint(row));
+        }
+
+        List<Key> mismatches = new ArrayList<>();
+        expected.forEach((key, value) -> {
+            if (!value.equals(actual.get(key))) {
+                mismatches.add(key);
+            }
+        });
+        for (Key key : actual.keySet()) {
+            if (!expected.containsKey(key)) {
+                mismatches.add(key);
+            }
+        }
+        return mismatches;
+    }
+
+    /**
+     * 修复不一致的最新成绩
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void repair(List<Key> keys) {
+        for (Key key : keys) {
+            refresh(key.userId(), key.examName());
+        }
+    }
+
+    private static String fingerprint(Row row) {
+        return row.get("record_id") + "|" + row.get("score") + "|" + row.get("pass_score") + "|"
+                + (isTrue(row.get("passed")) ? 1 : 0) + "|" + (isTrue(row.get("deleted")) ? 1 : 0);
+    }
+
+    // tinyint(1) 可能返回 Boolean 或 Integer
+    private static boolean isTrue(Object value) {
+        if (value instanceof Boolean bool) {
+            return bool;
+        }
+        return value instanceof Number number && number.intValue() == 1;
+    }
+
+    public record Key(String userId, String examName) {
+    }
+}
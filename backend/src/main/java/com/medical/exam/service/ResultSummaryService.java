@@ -0,0 +1,307 @@
+package com.medical.exam.service;
+
+import com.medical.exam.vo.ExamResultSummaryVo;
+import com.mybatisflex.core.row.Db;
+import com.mybatisflex.core.row.Row;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 考试结果汇总
+ * 已完成且未删除的考试记录的次数、参与人数、平均分、通过数保存在内存计数器中，交卷、重新判分、删除记录时
+ * 在事务提交后增量更新，查询时直接读取；参与人数按用户记录数维护，删除最后一条记录时减少。
+ * 计数器定期写入 exam_result_summary，启动后按考试记录重建，之前由汇总表提供数据；定时与考试记录比对，发现偏差时修正。
+ * 每次重建递增代数，增量在登记时（提交前）记下当时的代数，应用时代数已变化说明其间发生过重建，
+ * 记录可能已计入重建结果，丢弃增量避免重复计数，并在下次定时写入时与考试记录比对一次，补上未计入的情况
+ */
+@Service
+@Slf4j
+public class ResultSummaryService {
+
+    private static final String AGGREGATE_SQL =
+            "SELECT user_id, COUNT(1) AS exam_count, COUNT(score) AS scored_count, " +
+            "COALESCE(SUM(score), 0) AS score_sum, " +
+            "SUM(CASE WHEN score >= pass_score THEN 1 ELSE 0 END) AS pass_count " +
+            "FROM exam_record WHERE status = 'completed' AND (deleted = 0 OR deleted IS NULL) GROUP BY user_id";
+
+    private static final String SAVE_SQL =
+            "INSERT INTO exam_result_summary (summary_id, exam_count, participant_count, scored_count, score_sum, " +
+            "pass_count, reconcile_time, update_time) VALUES (1, ?, ?, ?, ?, ?, ?, NOW()) " +
+            "ON DUPLICATE KEY UPDATE exam_count = VALUES(exam_count), participant_count = VALUES(participant_count), " +
+            "scored_count = VALUES(scored_count), score_sum = VALUES(score_sum), pass_count = VALUES(pass_count), " +
+            "reconcile_time = COALESCE(VALUES(reconcile_time), reconcile_time), update_time = NOW()";
+
+    private final LongAdder examCount = new LongAdder();
+    // 有得分的记录数与得分合计，平均分 = scoreSum / scoredCount（与 avg(score) 一样忽略空得分）
+    private final LongAdder scoredCount = new LongAdder();
+    private final LongAdder scoreSum = new LongAdder();
+    private final LongAdder passCount = new LongAdder();
+    // 用户ID -> 已完成的记录数
+    private final ConcurrentHashMap<String, Integer> participants = new ConcurrentHashMap<>();
+
+    // 增量更新持有读锁，重建计数器时持有写锁
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 计数器重建代数
+    private final AtomicLong generation = new AtomicLong();
+
+    private volatile boolean loaded;
+    private volatile boolean dirty;
+    // 丢弃过增量，下次定时写入前先与考试记录比对
+    private volatile boolean recheck;
+
+    // 统计指标（均在 synchronized 中更新）
+    private long lastCheckAt;
+    private long lastCheckMillis;
+    private boolean lastCheckDrift;
+    private long totalCorrections;
+
+    // 因重建而丢弃的增量数
+    private final LongAdder skippedDeltas = new LongAdder();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        reconcile();
+    }
+
+    /**
+     * 考试记录变为已完成
+     */
+    public void onCompleted(String userId, Integer score, Integer passScore) {
+        afterCommit(stamp -> apply(stamp, userId, 1, score, passScore));
+    }
+
+    /**
+     * 已完成的考试记录被删除
+     */
+    public void onRemoved(String userId, Integer score, Integer passScore) {
+        afterCommit(stamp -> apply(stamp, userId, -1, score, passScore));
+    }
+
+    /**
+     * 已完成的考试记录重新判分
+     */
+    public void onScoreChanged(Integer oldScore, Integer newScore, Integer passScore) {
+        afterCommit(stamp -> {
+            lock.readLock().lock();
+            try {
+                if (isStale(stamp)) {
+                    return;
+                }
+                addScore(-1, oldScore, passScore);
+                addScore(1, newScore, passScore);
+                dirty = true;
+            } finally {
+                lock.readLock().unlock();
+            }
+        });
+    }
+
+    public ExamResultSummaryVo getSummary() {
+        ExamResultSummaryVo summary = new ExamResultSummaryVo();
+        if (!loaded) {
+            // 启动后重建完成前使用汇总表，汇总表也没有数据时直接统计
+            Row row = Db.selectOneBySql("SELECT exam_count, participant_count, scored_count, score_sum, pass_count " +
+                    "FROM exam_result_summary WHERE summary_id = 1");
+            if (row == null) {
+                return queryTotals();
+            }
+            summary.setExamCount(row.getLong("exam_count"));
+            summary.setParticipantCount(row.getLong("participant_count"));
+            summary.setAvgScore(average(row.getLong("score_sum"), row.getLong("scored_count")));
+            summary.setPassCount(row.getLong("pass_count"));
+            return summary;
+        }
+        summary.setExamCount(examCount.sum());
+        summary.setParticipantCount((long) participants.size());
+        summary.setAvgScore(average(scoreSum.sum(), scoredCount.sum()));
+        summary.setPassCount(passCount.sum());
+        return summary;
+    }
+
+    /**
+     * 按考试记录重新统计并与计数器比对，不一致（或尚未加载）时在写锁内重建计数器并写入汇总表
+     *
+     * @return 是否修正了计数器
+     */
+    public synchronized boolean reconcile() {
+        long begin = System.currentTimeMillis();
+        boolean drift = !loaded || !matches(Db.selectListBySql(AGGREGATE_SQL));
+        if (drift) {
+            lock.writeLock().lock();
+            try {
+                // 写锁内重新统计，期间不会有增量更新；此前已提交的增量均包含在统计结果中，尚未应用的随代数变化丢弃
+                generation.incrementAndGet();
+                rebuild(Db.selectListBySql(AGGREGATE_SQL));
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (loaded) {
+                totalCorrections++;
+                log.warn("考试结果汇总与考试记录不一致，已重新统计");
+            }
+            loaded = true;
+        }
+        save(new Date());
+
+        lastCheckAt = begin;
+        lastCheckMillis = System.currentTimeMillis() - begin;
+        lastCheckDrift = drift;
+        return drift;
+    }
+
+    @Scheduled(fixedDelayString = "${exam.result-summary.check-interval-millis:3600000}", initialDelay = 600000)
+    public void scheduledCheck() {
+        reconcile();
+    }
+
+    @Scheduled(fixedDelayString = "${exam.result-summary.flush-interval-millis:10000}")
+    public void flush() {
+        if (recheck) {
+            recheck = false;
+            reconcile();
+            return;
+        }
+        if (loaded && dirty) {
+            save(null);
+        }
+    }
+
+    public synchronized Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("loaded", loaded);
+        metrics.put("examCount", examCount.sum());
+        metrics.put("participantCount", participants.size());
+        metrics.put("lastCheckAt", lastCheckAt > 0 ? new Date(lastCheckAt) : null);
+        metrics.put("lastCheckMillis", lastCheckMillis);
+        metrics.put("lastCheckDrift", lastCheckDrift);
+        metrics.put("totalCorrections", totalCorrections);
+        metrics.put("skippedDeltas", skippedDeltas.sum());
+        return metrics;
+    }
+
+    // 事务提交后（无事务时立即）执行增量，参数为登记时的重建代数：在提交前取得，
+    // 提交与回调之间完成的重建不会被当作重建之前，已计入重建结果的记录不会再加一次
+    private void afterCommit(LongConsumer delta) {
+        long stamp = generation.get();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    delta.accept(stamp);
+                }
+            });
+        } else {
+            delta.accept(stamp);
+        }
+    }
+
+    // 需持有读锁：登记后计数器重建过，记录可能已计入重建结果（重建查询晚于提交），丢弃增量后安排比对
+    private boolean isStale(long stamp) {
+        if (stamp == generation.get()) {
+            return false;
+        }
+        skippedDeltas.increment();
+        recheck = true;
+        return true;
+    }
+
+    private void apply(long stamp, String userId, int sign, Integer score, Integer passScore) {
+        lock.readLock().lock();
+        try {
+            if (isStale(stamp)) {
+                return;
+            }
+            examCount.add(sign);
+            addScore(sign, score, passScore);
+            participants.compute(userId, (key, count) -> {
+                int next = (count != null ? count : 0) + sign;
+                return next > 0 ? next : null;
+            });
+            dirty = true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addScore(int sign, Integer score, Integer passScore) {
+        if (score == null) {
+            return;
+        }
+        scoredCount.add(sign);
+        scoreSum.add((long) sign * score);
+        if (passScore != null && score >= passScore) {
+            passCount.add(sign);
+        }
+    }
+
+    private boolean matches(List<Row> rows) {
+        if (rows.size() != participants.size()) {
+            return false;
+        }
+        long exams = 0, scored = 0, sum = 0, passed = 0;
+        for (Row row : rows) {
+            int userExams = row.getInt("exam_count");
+            if (!Objects.equals(participants.get(String.valueOf(row.get("user_id"))), userExams)) {
+                return false;
+            }
+            exams += userExams;
+            scored += row.getLong("scored_count");
+            sum += row.getLong("score_sum");
+            passed += row.getLong("pass_count");
+        }
+        return exams == examCount.sum() && scored == scoredCount.sum()
+                && sum == scoreSum.sum() && passed == passCount.sum();
+    }
+
+    private void rebuild(List<Row> rows) {
+        examCount.reset();
+        scoredCount.reset();
+        scoreSum.reset();
+        passCount.reset();
+        participants.clear();
+        for (Row row : rows) {
+            int userExams = row.getInt("exam_count");
+            participants.put(String.valueOf(row.get("user_id")), userExams);
+            examCount.add(userExams);
+            scoredCount.add(row.getLong("scored_count"));
+            scoreSum.add(row.getLong("score_sum"));
+            passCount.add(row.getLong("pass_count"));
+        }
+    }
+
+    private void save(Date reconcileTime) {
+        dirty = false;
+        Db.updateBySql(SAVE_SQL, examCount.sum(), participants.size(), scoredCount.sum(), scoreSum.sum(),
+                passCount.sum(), reconcileTime);
+    }
+
+    private static Long average(Long sum, Long count) {
+        return sum != null && count != null && count > 0 ? sum / count : null;
+    }
+
+    private static ExamResultSummaryVo queryTotals() {
+        Row row = Db.selectOneBySql("SELECT COUNT(1) AS exam_count, COUNT(DISTINCT user_id) AS participant_count, " +
+                "COUNT(score) AS scored_count, COALESCE(SUM(score), 0) AS score_sum, " +
+                "SUM(CASE WHEN score >= pass_score THEN 1 ELSE 0 END) AS pass_count " +
+                "FROM exam_record WHERE status = 'completed' AND (deleted = 0 OR deleted IS NULL)");
+        ExamResultSummaryVo summary = new ExamResultSummaryVo();
+        summary.setExamCount(row.getLong("exam_count"));
+        summary.setParticipantCount(row.getLong("participant_count"));
+        summary.setAvgScore(average(row.getLong("score_sum"), row.getLong("scored_count")));
+        summary.setPassCount(row.getLong("pass_count"));
+        return summary;
+    }
+}
@@ -0,0 +1,265 @@
+package com.medical.exam.service;
+
+import com.medical.exam.dto.SubmitExamRequest;
+import com.medical.exam.journal.SubmissionEntry;
+import com.medical.exam.journal.SubmissionJournal;
+import com.medical.exam.security.JwtAccessContext;
+import com.medical.exam.vo.CustomToken;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 交卷服务
+ * exam.submit.mode=sync 时直接同步交卷；
+ * exam.submit.mode=journal 时先写入本地提交日志（组提交 fsync）即确认，再由后台线程幂等地应用到数据库，
+ * 数据库抖动时交卷延迟只取决于本地磁盘；
+ * exam.submit.mode=async 时只保存原始答案即返回回执，由 GradingService 异步判分
+ */
+@Service
+@Slf4j
+public class SubmissionService {
+
+    private static final String MODE_JOURNAL = "journal";
+    private static final String MODE_ASYNC = "async";
+
+    @Resource
+    private ExamService examService;
+
+    @Resource
+    private SubmissionJournal submissionJournal;
+
+    @Resource
+    private GradingService gradingService;
+
+    @Value("${exam.submit.mode:sync}")
+    private String submitMode;
+
+    // 写入日志后，同步等待应用结果的时间；超时则返回回执由前端轮询（毫秒）
+    @Value("${exam.journal.ack-wait-millis:1000}")
+    private long ackWaitMillis;
+
+    // 等待日志落盘的最长时间（毫秒）
+    @Value("${exam.journal.fsync-timeout-millis:5000}")
+    private long fsyncTimeoutMillis;
+
+    // 已应用结果在内存中的保留时间（毫秒），过期后从数据库查询
+    @Value("${exam.journal.result-ttl-millis:1800000}")
+    private long resultTtlMillis;
+
+    private final ConcurrentHashMap<String, Submission> submissions = new ConcurrentHashMap<>();
+
+    private final ExecutorService applier = new ThreadPoolExecutor(4, 4, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(), new ThreadFactory() {
+                private final AtomicInteger index = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    return new Thread(r, "submission-applier-" + index.incrementAndGet());
+                }
+            });
+
+    public Map<String, Object> submit(SubmitExamRequest request) {
+        if (MODE_ASYNC.equals(submitMode)) {
+            return submitAsync(request);
+        }
+        if (!MODE_JOURNAL.equals(submitMode)) {
+            return examService.submitExam(request);
+        }
+        if (request.getRecordId() == null || request.getRecordId().isEmpty()) {
+            throw new RuntimeException("考试记录ID不能为空");
+        }
+
+        CustomToken customToken = JwtAccessContext.getLoginInfo();
+        Submission submission = new Submission(customToken.getUserId());
+        Submission existing = submissions.putIfAbsent(request.getRecordId(), submission);
+        // 上次提交被拒绝时允许重新提交
+        if (existing != null && existing.future.isCompletedExceptionally()
+                && submissions.replace(request.getRecordId(), existing, submission)) {
+            existing = null;
+        }
+        if (existing != null) {
+            // 重复提交：返回同一回执
+            if (!existing.userId.equals(customToken.getUserId())) {
+                throw new RuntimeException("考试记录不存在或不属于当前用户");
+            }
+            return awaitResult(request.getRecordId(), existing);
+        }
+
+        SubmissionEntry entry = SubmissionEntry.builder()
+                .recordId(request.getRecordId())
+                .userId(customToken.getUserId())
+                .userName(customToken.getUserName())
+                .answers(request.getAnswers())
+                .submitTime(System.currentTimeMillis())
+                .build();
+        try {
+            submissionJournal.append(entry).get(fsyncTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            // 日志不可用时退回同步交卷
+            log.error("提交日志写入失败，改为同步交卷，记录ID: {}", request.getRecordId(), e);
+            // 超时的写入之后仍可能落盘，作废该条日志，避免阻止截断并在重启时回放
+            submissionJournal.cancel(request.getRecordId());
+            submissions.remove(request.getRecordId(), submission);
+            return examService.submitExam(request);
+        }
+
+        applier.execute(() -> apply(entry, submission));
+        return awaitResult(request.getRecordId(), submission);
+    }
+
+    /**
+     * 查询交卷结果：pending 表示已受理尚未应用，completed 附带成绩，failed 附带原因
+     */
+    public Map<String, Object> getResult(String recordId) {
+        CustomToken customToken = JwtAccessContext.getLoginInfo();
+        Submission submission = submissions.get(recordId);
+        if (submission != null) {
+            if (!submission.userId.equals(customToken.getUserId())) {
+                throw new RuntimeException("考试记录不存在或不属于当前用户");
+            }
+            return toResponse(recordId, submission);
+        }
+
+        Map<String, Object> result = examService.getSubmitResult(recordId, customToken.getUserId());
+        if (result == null) {
+            return receipt(recordId, "in-progress");
+        }
+        result.put("recordId", recordId);
+        result.putIfAbsent("status", "completed");
+        return result;
+    }
+
+    /**
+     * 异步判分：保存原始答案后入队判分，返回回执，重复提交返回当前状态
+     */
+    private Map<String, Object> submitAsync(SubmitExamRequest request) {
+        if (request.getRecordId() == null || request.getRecordId().isEmpty()) {
+            throw new RuntimeException("考试记录ID不能为空");
+        }
+        String status = examService.acceptSubmission(request);
+        if (ExamService.STATUS_SUBMITTED.equals(status)) {
+            gradingService.enqueue(request.getRecordId());
+        }
+        return getResult(request.getRecordId());
+    }
+
+    /**
+     * 启动时重新应用日志中尚未落库的交卷请求
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        List<SubmissionEntry> entries = submissionJournal.takeRecovered();
+        for (SubmissionEntry entry : entries) {
+            Submission submission = new Submission(entry.getUserId());
+            submissions.put(entry.getRecordId(), submission);
+            applier.execute(() -> apply(entry, submission));
+        }
+        if (!entries.isEmpty()) {
+            log.info("重新应用提交日志中的交卷请求 {} 条", entries.size());
+        }
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void evictExpiredResults() {
+        long deadline = System.currentTimeMillis() - resultTtlMillis;
+        submissions.entrySet().removeIf(e -> e.getValue().future.isDone() && e.getValue().finishedAt < deadline);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // 未应用完的请求仍在日志中，下次启动时回放
+        applier.shutdown();
+        applier.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private void apply(SubmissionEntry entry, Submission submission) {
+        long backoff = 200;
+        while (!applier.isShutdown()) {
+            try {
+                Map<String, Object> result = examService.applyJournaledSubmission(entry);
+                submissionJournal.markApplied(entry.getRecordId());
+                submission.finish();
+                submission.future.complete(result);
+                return;
+            } catch (DataAccessException e) {
+                // 数据库暂时不可用，退避后重试
+                log.warn("交卷请求应用失败，{}ms 后重试，记录ID: {}", backoff, entry.getRecordId(), e);
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                backoff = Math.min(backoff * 2, 10000);
+            } catch (Exception e) {
+                // 业务校验失败，重试无意义
+                log.error("交卷请求被拒绝，记录ID: {}", entry.getRecordId(), e);
+                submissionJournal.markApplied(entry.getRecordId());
+                submission.finish();
+                submission.future.completeExceptionally(e);
+                return;
+            }
+        }
+    }
+
+    private Map<String, Object> awaitResult(String recordId, Submission submission) {
+        try {
+            submission.future.get(ackWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // 超时返回回执，失败原因在结果中返回
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return toResponse(recordId, submission);
+    }
+
+    private Map<String, Object> toResponse(String recordId, Submission submission) {
+        if (!submission.future.isDone()) {
+            return receipt(recordId, "pending");
+        }
+        try {
+            Map<String, Object> result = new HashMap<>(submission.future.join());
+            result.put("recordId", recordId);
+            result.put("status", "completed");
+            return result;
+        } catch (CompletionException e) {
+            Map<String, Object> result = receipt(recordId, "failed");
+            result.put("message", e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+            return result;
+        }
+    }
+
+    private Map<String, Object> receipt(String recordId, String status) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("recordId", recordId);
+        result.put("status", status);
+        return result;
+    }
+
+    private static class Submission {
+        private final String userId;
+        private final CompletableFuture<Map<String, Object>> future = new CompletableFuture<>();
+        private volatile long finishedAt;
+
+        private Submission(String userId) {
+            this.userId = userId;
+        }
+
+        private void finish() {
+            finishedAt = System.currentTimeMillis();
+        }
+    }
+}
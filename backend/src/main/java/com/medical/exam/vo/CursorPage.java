@@ -0,0 +1,66 @@
+package com.medical.exam.vo;
+
+import com.medical.exam.common.exception.CustomException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * 游标分页结果
+ * nextCursor 为下一页的不透明游标，没有下一页时为 null；totalRow 只在第一页返回
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> records;
+    private String nextCursor;
+    private Long totalRow;
+
+    /**
+     * 将排序键编码为游标
+     */
+    public static String encodeCursor(Object... keys) {
+        StringBuilder raw = new StringBuilder();
+        for (int i = 0; i < keys.length; i++) {
+            if (i > 0) {
+                raw.append('|');
+            }
+            raw.append(keys[i]);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标中的排序键，游标为空时返回 null
+     */
+    public static String[] decodeCursor(String cursor, int keyCount) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String[] keys = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", -1);
+            if (keys.length == keyCount) {
+                return keys;
+            }
+        } catch (IllegalArgumentException ignored) {
+            // 按无效游标处理
+        }
+        throw new CustomException("无效的分页游标");
+    }
+
+    /**
+     * 解析游标中的数值排序键
+     */
+    public static long parseKey(String key) {
+        try {
+            return Long.parseLong(key);
+        } catch (NumberFormatException e) {
+            throw new CustomException("无效的分页游标");
+        }
+    }
+}
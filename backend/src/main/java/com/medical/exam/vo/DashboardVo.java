@@ -18,4 +18,6 @@ public class DashboardVo {
 
     private List<SysLog> sysLogs;
     private List<CategoryCount> categorySummary;
+    // 查询超时或失败、本次未返回的统计项
+    private List<String> timeoutSections;
 }
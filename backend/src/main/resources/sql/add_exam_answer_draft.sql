@@ -0,0 +1,9 @@
+-- 新增考试答题草稿表，用于考试过程中的断点续答
+-- 考试过程中的答题增量定时批量写入，交卷时合并判分后删除
+CREATE TABLE `exam_answer_draft` (
+  `record_id` bigint(20) NOT NULL COMMENT '考试记录ID',
+  `question_id` bigint(20) NOT NULL COMMENT '题目ID',
+  `user_answer` varchar(200) DEFAULT NULL COMMENT '用户答案',
+  `update_time` datetime DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+  PRIMARY KEY (`record_id`, `question_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='考试答题草稿表';
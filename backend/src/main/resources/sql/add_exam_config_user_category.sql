@@ -0,0 +1,29 @@
+-- 新增考试配置人员类别关联表，替代 exam_config.user_category 中逗号分隔的多个类别
+-- 开考资格校验、考生可见试卷、试卷参考人员统计均按该表查询；exam_config.user_category 保留原值用于展示
+-- 执行本脚本时按原字段回填；未执行回填时，应用启动后发现表为空也会自动回填
+CREATE TABLE `exam_config_user_category` (
+  `config_id` bigint(20) NOT NULL COMMENT '考试配置ID',
+  `user_category` varchar(20) NOT NULL COMMENT '人员类别',
+  PRIMARY KEY (`config_id`, `user_category`),
+  KEY `idx_user_category_config` (`user_category`, `config_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='考试配置人员类别关联表';
+
+-- 按逗号拆分回填（去除空白，忽略空值与重复）
+INSERT IGNORE INTO `exam_config_user_category` (`config_id`, `user_category`)
+WITH RECURSIVE `split` AS (
+  SELECT `config_id`,
+         TRIM(SUBSTRING_INDEX(`user_category`, ',', 1)) AS `category`,
+         IF(LOCATE(',', `user_category`) > 0, SUBSTRING(`user_category`, LOCATE(',', `user_category`) + 1), NULL) AS `rest`
+  FROM `exam_config`
+  WHERE `user_category` IS NOT NULL AND `user_category` <> ''
+  UNION ALL
+  SELECT `config_id`,
+         TRIM(SUBSTRING_INDEX(`rest`, ',', 1)),
+         IF(LOCATE(',', `rest`) > 0, SUBSTRING(`rest`, LOCATE(',', `rest`) + 1), NULL)
+  FROM `split`
+  WHERE `rest` IS NOT NULL
+)
+SELECT `config_id`, `category` FROM `split` WHERE `category` <> '';
+
+-- 按人员类别查询可参考学员
+ALTER TABLE `sys_user` ADD KEY `idx_user_category_role_status` (`user_category`, `role`, `status`);
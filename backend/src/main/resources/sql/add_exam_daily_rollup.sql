@@ -0,0 +1,23 @@
+-- 新增考试统计日汇总表，按 完成日期+试卷分类 汇总已完成且未删除的考试记录，供考试趋势与分类统计使用
+-- 表为空时应用启动后自动补算历史数据，也可调用 /admin/rollup/rebuild 按日期范围重算
+CREATE TABLE `exam_daily_rollup` (
+  `stat_date` date NOT NULL COMMENT '完成日期',
+  `category_id` bigint(20) NOT NULL COMMENT '试卷分类ID(0:未知)',
+  `exam_count` int(11) NOT NULL DEFAULT 0 COMMENT '已完成考试次数',
+  `pass_count` int(11) NOT NULL DEFAULT 0 COMMENT '通过次数',
+  `scored_count` int(11) NOT NULL DEFAULT 0 COMMENT '有得分的记录数',
+  `score_sum` bigint(20) NOT NULL DEFAULT 0 COMMENT '得分合计',
+  `hist_0` int(11) NOT NULL DEFAULT 0 COMMENT '得分率 0%~10% 的次数',
+  `hist_1` int(11) NOT NULL DEFAULT 0 COMMENT '得分率 10%~20% 的次数',
+  `hist_2` int(11) NOT NULL DEFAULT 0 COMMENT '得分率 20%~30% 的次数',
+  `hist_3` int(11) NOT NULL DEFAULT 0 COMMENT '得分率 30%~40% 的次数',
+  `hist_4` int(11) NOT NULL DEFAULT 0 COMMENT '得分率 40%~50% 的次数',
+  `hist_5` int(11) NOT NULL DEFAULT 0 COMMENT '得分率 50%~60% 的次数',
+  `hist_6` int(11) NOT NULL DEFAULT 0 COMMENT '得分率 60%~70% 的次数',
+  `hist_7` int(11) NOT NULL DEFAULT 0 COMMENT '得分率 70%~80% 的次数',
+  `hist_8` int(11) NOT NULL DEFAULT 0 COMMENT '得分率 80%~90% 的次数',
+  `hist_9` int(11) NOT NULL DEFAULT 0 COMMENT '得分率 90%~100% 的次数',
+  `update_time` datetime DEFAULT NULL COMMENT '更新时间',
+  PRIMARY KEY (`stat_date`, `category_id`),
+  KEY `idx_category_date` (`category_id`, `stat_date`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='考试统计日汇总表';
@@ -0,0 +1,17 @@
+-- 新增考试最新成绩表，替代不及格筛选中按 用户+考试名称 取最近一次成绩的相关子查询
+-- 交卷、重新判分、删除考试记录时同步维护；表为空时应用启动后自动回填，也可调用 /admin/latest-attempt/backfill 手动回填
+ALTER TABLE `exam_record` ADD KEY `idx_user_exam_end_time` (`user_id`, `exam_name`, `end_time`);
+
+CREATE TABLE `exam_latest_attempt` (
+  `user_id` bigint(20) NOT NULL COMMENT '用户ID',
+  `exam_name` varchar(100) NOT NULL COMMENT '考试名称',
+  `record_id` bigint(20) NOT NULL COMMENT '最近一次已完成的考试记录ID',
+  `end_time` datetime NOT NULL COMMENT '结束时间',
+  `score` int(11) DEFAULT 0 COMMENT '得分',
+  `pass_score` int(11) DEFAULT NULL COMMENT '及格分数',
+  `passed` tinyint(1) NOT NULL DEFAULT 1 COMMENT '是否及格(0:不及格,1:及格)',
+  `deleted` tinyint(1) NOT NULL DEFAULT 0 COMMENT '该记录是否已逻辑删除',
+  PRIMARY KEY (`user_id`, `exam_name`),
+  UNIQUE KEY `uk_record_id` (`record_id`),
+  KEY `idx_passed_deleted_end_time` (`passed`, `deleted`, `end_time`, `record_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='考试最新成绩表';
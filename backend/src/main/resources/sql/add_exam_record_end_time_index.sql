@@ -0,0 +1,3 @@
+-- 考试记录增加 end_time 索引
+-- 考试结果游标翻页按 (end_time, record_id) 倒序定位，二级索引末尾隐含主键 record_id
+ALTER TABLE `exam_record` ADD KEY `idx_end_time` (`end_time`);
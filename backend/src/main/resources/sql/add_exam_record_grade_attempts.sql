@@ -0,0 +1,3 @@
+-- 考试记录增加异步判分失败次数
+-- 判分失败时累加，待判分扫描按失败次数优先处理未失败的记录；达到 exam.grading.max-attempts 后状态置为 failed，不再重试
+ALTER TABLE `exam_record` ADD COLUMN `grade_attempts` int(11) NOT NULL DEFAULT 0 COMMENT '异步判分失败次数' AFTER `status`;
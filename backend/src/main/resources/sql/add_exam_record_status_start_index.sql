@@ -0,0 +1,3 @@
+-- 考试记录增加 (status, start_time) 联合索引
+-- 超时清理任务按 status = 'in-progress' AND start_time < ? 做范围扫描，避免全表扫描
+ALTER TABLE `exam_record` ADD KEY `idx_status_start_time` (`status`, `start_time`);
@@ -0,0 +1,3 @@
+-- 考试记录增加 (user_id, paper_id, end_time) 索引
+-- 考生首页按试卷分区、结束时间倒序取每份试卷的最新记录，按该索引顺序读取，无需额外排序
+ALTER TABLE `exam_record` ADD KEY `idx_user_paper_end_time` (`user_id`, `paper_id`, `end_time`);
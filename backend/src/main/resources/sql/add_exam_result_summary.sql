@@ -0,0 +1,13 @@
+-- 新增考试结果汇总表，保存考试结果页汇总统计（已完成且未删除的考试记录）的计数器
+-- 应用启动后按考试记录重建计数器并写入；交卷、重新判分、删除记录后增量更新，定时写入并与考试记录比对
+CREATE TABLE `exam_result_summary` (
+  `summary_id` tinyint(4) NOT NULL COMMENT '汇总ID(固定为1)',
+  `exam_count` bigint(20) NOT NULL DEFAULT 0 COMMENT '已完成考试次数',
+  `participant_count` bigint(20) NOT NULL DEFAULT 0 COMMENT '参与人数',
+  `scored_count` bigint(20) NOT NULL DEFAULT 0 COMMENT '有得分的记录数',
+  `score_sum` bigint(20) NOT NULL DEFAULT 0 COMMENT '得分合计',
+  `pass_count` bigint(20) NOT NULL DEFAULT 0 COMMENT '通过次数',
+  `reconcile_time` datetime DEFAULT NULL COMMENT '最近一次与考试记录比对的时间',
+  `update_time` datetime DEFAULT NULL COMMENT '更新时间',
+  PRIMARY KEY (`summary_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='考试结果汇总表';
@@ -22,7 +22,8 @@ CREATE TABLE `sys_user` (
   UNIQUE KEY `uk_id_number` (`id_number`),
   KEY `idx_role` (`role`),
   KEY `idx_department` (`department`),
-  KEY `idx_status` (`status`)
+  KEY `idx_status` (`status`),
+  KEY `idx_user_category_role_status` (`user_category`, `role`, `status`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='用户信息表';
 
 -- 科室表
@@ -132,6 +133,14 @@ CREATE TABLE `exam_config` (
   CONSTRAINT `fk_config_category` FOREIGN KEY (`category_id`) REFERENCES `exam_category` (`category_id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='考试配置表';
 
+-- 考试配置人员类别关联表
+CREATE TABLE `exam_config_user_category` (
+  `config_id` bigint(20) NOT NULL COMMENT '考试配置ID',
+  `user_category` varchar(20) NOT NULL COMMENT '人员类别',
+  PRIMARY KEY (`config_id`, `user_category`),
+  KEY `idx_user_category_config` (`user_category`, `config_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='考试配置人员类别关联表';
+
 -- 生成试卷表
 CREATE TABLE `exam_paper` (
   `paper_id` bigint(20) NOT NULL AUTO_INCREMENT COMMENT '试卷ID',
@@ -203,7 +212,8 @@ CREATE TABLE `exam_record` (
   `total_score` int(11) NOT NULL COMMENT '总分',
   `score` int(11) DEFAULT 0 COMMENT '得分',
   `pass_score` int(11) NOT NULL COMMENT '及格分数',
-  `status` varchar(20) DEFAULT 'in-progress' COMMENT '状态(pending:待开始,in-progress:进行中,completed:已完成,timeout:超时)',
+  `status` varchar(20) DEFAULT 'in-progress' COMMENT '状态(pending:待开始,in-progress:进行中,submitted:已交卷待判分,failed:判分失败,completed:已完成,timeout:超时)',
+  `grade_attempts` int(11) NOT NULL DEFAULT 0 COMMENT '异步判分失败次数',
   `create_dept` bigint(20) DEFAULT NULL COMMENT '创建部门',
   `create_by` bigint(20) DEFAULT NULL COMMENT '创建者',
   `create_time` datetime DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
@@ -217,10 +227,65 @@ CREATE TABLE `exam_record` (
   KEY `idx_paper_id` (`paper_id`),
   KEY `idx_status` (`status`),
   KEY `idx_start_time` (`start_time`),
+  KEY `idx_status_start_time` (`status`, `start_time`),
+  KEY `idx_user_exam_end_time` (`user_id`, `exam_name`, `end_time`),
+  KEY `idx_end_time` (`end_time`),
+  KEY `idx_user_paper_end_time` (`user_id`, `paper_id`, `end_time`),
   CONSTRAINT `fk_record_user` FOREIGN KEY (`user_id`) REFERENCES `sys_user` (`user_id`),
   CONSTRAINT `fk_record_paper` FOREIGN KEY (`paper_id`) REFERENCES `exam_paper` (`paper_id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='考试记录表';
 
+-- 考试最新成绩表（每个用户每个考试名称最近一次已完成的考试记录，交卷、重新判分、删除记录时同步维护）
+CREATE TABLE `exam_latest_attempt` (
+  `user_id` bigint(20) NOT NULL COMMENT '用户ID',
+  `exam_name` varchar(100) NOT NULL COMMENT '考试名称',
+  `record_id` bigint(20) NOT NULL COMMENT '最近一次已完成的考试记录ID',
+  `end_time` datetime NOT NULL COMMENT '结束时间',
+  `score` int(11) DEFAULT 0 COMMENT '得分',
+  `pass_score` int(11) DEFAULT NULL COMMENT '及格分数',
+  `passed` tinyint(1) NOT NULL DEFAULT 1 COMMENT '是否及格(0:不及格,1:及格)',
+  `deleted` tinyint(1) NOT NULL DEFAULT 0 COMMENT '该记录是否已逻辑删除',
+  PRIMARY KEY (`user_id`, `exam_name`),
+  UNIQUE KEY `uk_record_id` (`record_id`),
+  KEY `idx_passed_deleted_end_time` (`passed`, `deleted`, `end_time`, `record_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='考试最新成绩表';
+
+-- 考试结果汇总表（单行，考试结果页的汇总计数器，由应用维护）
+CREATE TABLE `exam_result_summary` (
+  `summary_id` tinyint(4) NOT NULL COMMENT '汇总ID(固定为1)',
+  `exam_count` bigint(20) NOT NULL DEFAULT 0 COMMENT '已完成考试次数',
+  `participant_count` bigint(20) NOT NULL DEFAULT 0 COMMENT '参与人数',
+  `scored_count` bigint(20) NOT NULL DEFAULT 0 COMMENT '有得分的记录数',
+  `score_sum` bigint(20) NOT NULL DEFAULT 0 COMMENT '得分合计',
+  `pass_count` bigint(20) NOT NULL DEFAULT 0 COMMENT '通过次数',
+  `reconcile_time` datetime DEFAULT NULL COMMENT '最近一次与考试记录比对的时间',
+  `update_time` datetime DEFAULT NULL COMMENT '更新时间',
+  PRIMARY KEY (`summary_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='考试结果汇总表';
+
+-- 考试统计日汇总表（按 完成日期+试卷分类 汇总已完成且未删除的考试记录，由应用维护）
+CREATE TABLE `exam_daily_rollup` (
+  `stat_date` date NOT NULL COMMENT '完成日期',
+  `category_id` bigint(20) NOT NULL COMMENT '试卷分类ID(0:未知)',
+  `exam_count` int(11) NOT NULL DEFAULT 0 COMMENT '已完成考试次数',
+  `pass_count` int(11) NOT NULL DEFAULT 0 COMMENT '通过次数',
+  `scored_count` int(11) NOT NULL DEFAULT 0 COMMENT '有得分的记录数',
+  `score_sum` bigint(20) NOT NULL DEFAULT 0 COMMENT '得分合计',
+  `hist_0` int(11) NOT NULL DEFAULT 0 COMMENT '得分率 0%~10% 的次数',
+  `hist_1` int(11) NOT NULL DEFAULT 0 COMMENT '得分率 10%~20% 的次数',
+  `hist_2` int(11) NOT NULL DEFAULT 0 COMMENT '得分率 20%~30% 的次数',
+  `hist_3` int(11) NOT NULL DEFAULT 0 COMMENT '得分率 30%~40% 的次数',
+  `hist_4` int(11) NOT NULL DEFAULT 0 COMMENT '得分率 40%~50% 的次数',
+  `hist_5` int(11) NOT NULL DEFAULT 0 COMMENT '得分率 50%~60% 的次数',
+  `hist_6` int(11) NOT NULL DEFAULT 0 COMMENT '得分率 60%~70% 的次数',
+  `hist_7` int(11) NOT NULL DEFAULT 0 COMMENT '得分率 70%~80% 的次数',
+  `hist_8` int(11) NOT NULL DEFAULT 0 COMMENT '得分率 80%~90% 的次数',
+  `hist_9` int(11) NOT NULL DEFAULT 0 COMMENT '得分率 90%~100% 的次数',
+  `update_time` datetime DEFAULT NULL COMMENT '更新时间',
+  PRIMARY KEY (`stat_date`, `category_id`),
+  KEY `idx_category_date` (`category_id`, `stat_date`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='考试统计日汇总表';
+
 -- 考试答题记录表
 CREATE TABLE `exam_answer` (
   `answer_id` bigint(20) NOT NULL AUTO_INCREMENT COMMENT '答题ID',
@@ -243,6 +308,15 @@ CREATE TABLE `exam_answer` (
   CONSTRAINT `fk_answer_question` FOREIGN KEY (`question_id`) REFERENCES `exam_question` (`question_id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='考试答题记录表';
 
+-- 考试答题草稿表（考试过程中定时保存，交卷后清理）
+CREATE TABLE `exam_answer_draft` (
+  `record_id` bigint(20) NOT NULL COMMENT '考试记录ID',
+  `question_id` bigint(20) NOT NULL COMMENT '题目ID',
+  `user_answer` varchar(200) DEFAULT NULL COMMENT '用户答案',
+  `update_time` datetime DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+  PRIMARY KEY (`record_id`, `question_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='考试答题草稿表';
+
 -- 统计视图
 CREATE VIEW `v_exam_statistics` AS
 SELECT 
@@ -297,6 +371,9 @@ INSERT INTO `exam_config` (`config_name`, `category_id`, `user_category`, `durat
 ('消化内科理论考试', 1, '专业技术军官', 90, 100, 60, 40, 20, 2, 1),
 ('肝胆外科专业考试', 2, '专业技术军官', 120, 100, 60, 35, 30, 2, 1);
 
+INSERT INTO `exam_config_user_category` (`config_id`, `user_category`)
+SELECT `config_id`, `user_category` FROM `exam_config`;
+
 -- 创建索引优化查询性能
 CREATE INDEX `idx_exam_record_composite` ON `exam_record` (`user_id`, `status`, `start_time`);
 CREATE INDEX `idx_exam_answer_composite` ON `exam_answer` (`record_id`, `is_correct`);
@@ -0,0 +1,43 @@
+package com.medical.exam.benchmark;
+
+import com.medical.exam.ExamSystemApplication;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * 需要数据库的基准测试共用的应用上下文
+ * 连接 -Dmybatis-flex.datasource.mysql.url / username / password 指定的库（未指定时为当前 profile 配置的库，
+ * 请勿指向生产库）；-Dbench.seed=true 时先执行 benchmark/seed.sql，删除上次的基准数据后重新写入。
+ * 上下文启动后注册 StatementCounter，用于统计每次操作的数据库往返次数
+ */
+final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    /**
+     * @param properties 额外的配置项（key=value），如基准参数对应的 exam.* 配置
+     */
+    static ConfigurableApplicationContext start(String... properties) throws SQLException {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(ExamSystemApplication.class)
+                .properties("server.port=0",
+                        "spring.main.banner-mode=off",
+                        "mybatis-flex.configuration.log-impl=org.apache.ibatis.logging.nologging.NoLoggingImpl")
+                .properties(properties)
+                .run();
+        if (Boolean.getBoolean("bench.seed")) {
+            try (Connection connection = context.getBean(DataSource.class).getConnection()) {
+                ScriptUtils.executeSqlScript(connection, new ClassPathResource("benchmark/seed.sql"));
+            }
+        }
+        context.getBean(SqlSessionFactory.class).getConfiguration().addInterceptor(new StatementCounter());
+        return context;
+    }
+}
@@ -0,0 +1,58 @@
+package com.medical.exam.benchmark;
+
+import com.medical.exam.service.AdminService;
+import com.medical.exam.vo.DashboardVo;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 仪表盘统计基准（需要数据库，见 BenchmarkApplication，数据量以 benchmark/seed.sql 为准）
+ * maxConcurrency 对应 exam.dashboard.max-concurrency：1 即各统计项依次查询（原先的串行方式），
+ * 3、6 为并行查询，耗时应接近最慢的一项。超时的统计项数在结束时输出，超时会使结果偏小，出现时应加大数据库连接池或截止时间。
+ * 运行：mvn -B test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test，
+ * 然后 java -cp target/classes:target/test-classes:$(cat target/cp.txt) org.openjdk.jmh.Main DashboardBenchmark
+ * -jvmArgsAppend "-Dbench.seed=true -Dmybatis-flex.datasource.mysql.url=..."
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DashboardBenchmark {
+
+    @Param({"1", "3", "6"})
+    private int maxConcurrency;
+
+    private ConfigurableApplicationContext context;
+    private AdminService adminService;
+
+    private long operations;
+    private long timeoutSections;
+
+    @Setup
+    public void setup() throws SQLException {
+        context = BenchmarkApplication.start("exam.dashboard.max-concurrency=" + maxConcurrency);
+        adminService = context.getBean(AdminService.class);
+    }
+
+    @Benchmark
+    public DashboardVo dashboard() {
+        DashboardVo dashboard = adminService.getDashboardStatistics();
+        timeoutSections += dashboard.getTimeoutSections().size();
+        operations++;
+        return dashboard;
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (timeoutSections > 0) {
+            System.out.printf("%n[max-concurrency=%d] %d 次统计中共有 %d 个统计项超时%n",
+                    maxConcurrency, operations, timeoutSections);
+        }
+        context.close();
+    }
+}
@@ -0,0 +1,112 @@
+package com.medical.exam.benchmark;
+
+import com.medical.exam.cache.PaperAnswerKey;
+import com.medical.exam.grading.GradingEngine;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 判分基准：100 题、500 题试卷整卷判分
+ * stringEquals 为原先逐题比较答案原文的方式（"0,2" 与 "2,0" 判为不同）；
+ * encodeAndScore 为交卷时的实际路径（编码考生答案、按乱序映射还原后比较位掩码）；
+ * scoreAll 为答案已编码后的批量判分（重新判分、导出成绩时的路径）。
+ * 运行：mvn -B test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test，
+ * 然后 java -cp target/classes:target/test-classes:$(cat target/cp.txt) org.openjdk.jmh.Main GradingBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GradingBenchmark {
+
+    @Param({"100", "500"})
+    private int questions;
+
+    @Param({"set", "partial"})
+    private String multiStrategy;
+
+    private GradingEngine engine;
+    private PaperAnswerKey key;
+    private PaperAnswerKey.Item[] items;
+    private String[] answers;
+    private int[][] optionOrders;
+    private int[] slots;
+    private long[] sequences;
+    private int[] scores;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        engine = new GradingEngine();
+        Field strategy = GradingEngine.class.getDeclaredField("multiStrategy");
+        strategy.setAccessible(true);
+        strategy.set(engine, multiStrategy);
+        engine.init();
+
+        // 单选 60%、多选 25%、判断 15%，四个选项；约七成答对，多选作答顺序与正确答案不同
+        Random random = new Random(42);
+        List<PaperAnswerKey.Item> itemList = new ArrayList<>(questions);
+        answers = new String[questions];
+        optionOrders = new int[questions][];
+        for (int i = 0; i < questions; i++) {
+            int kind = random.nextInt(100);
+            boolean right = random.nextInt(10) < 7;
+            if (kind < 60) {
+                int correct = random.nextInt(4);
+                itemList.add(new PaperAnswerKey.Item("q" + i, "choice", String.valueOf(correct), 1, 4));
+                answers[i] = String.valueOf(right ? correct : (correct + 1) % 4);
+                optionOrders[i] = new int[]{0, 1, 2, 3};
+            } else if (kind < 85) {
+                itemList.add(new PaperAnswerKey.Item("q" + i, "multi", "0,2,3", 2, 4));
+                answers[i] = right ? "3,0,2" : "0,2";
+                optionOrders[i] = new int[]{0, 1, 2, 3};
+            } else {
+                itemList.add(new PaperAnswerKey.Item("q" + i, "judgment", "正确", 1, 0));
+                answers[i] = right ? "正确" : "错误";
+            }
+        }
+        key = new PaperAnswerKey("benchmark", questions, questions * 6 / 10, itemList);
+        items = itemList.toArray(new PaperAnswerKey.Item[0]);
+
+        slots = new int[questions];
+        sequences = new long[questions];
+        scores = new int[questions];
+        for (int i = 0; i < questions; i++) {
+            slots[i] = items[i].getSlot();
+            sequences[i] = engine.encode(key, items[i], answers[i], optionOrders[i]);
+        }
+    }
+
+    @Benchmark
+    public int stringEquals() {
+        int total = 0;
+        for (int i = 0; i < questions; i++) {
+            if (answers[i].equals(items[i].getCorrectAnswer())) {
+                total += items[i].getScore();
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public void encodeAndScore(Blackhole blackhole) {
+        int total = 0;
+        for (int i = 0; i < questions; i++) {
+            long sequence = engine.encode(key, items[i], answers[i], optionOrders[i]);
+            total += engine.score(key, items[i].getSlot(), sequence);
+        }
+        blackhole.consume(total);
+    }
+
+    @Benchmark
+    public int scoreAll() {
+        return engine.scoreAll(key, slots, sequences, questions, scores);
+    }
+}
@@ -0,0 +1,91 @@
+package com.medical.exam.benchmark;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.medical.exam.security.JwtUtil;
+import com.medical.exam.vo.CustomToken;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 令牌校验基准：JwtAuthenticationFilter 每个请求对令牌所做的工作
+ * before 为原先的方式：validateToken 与取用户ID、用户名、角色各新建一次 Algorithm、JWTVerifier 并验证签名，共 4 次；
+ * after 为 verifyAndDecode，同一令牌只验证一次，之后按令牌的 SHA-256 摘要读取缓存。
+ * 请求轮流使用 tokens 个不同用户的令牌；cacheSize 小于令牌数时每次都未命中并触发淘汰，衡量缓存满时的写入开销。
+ * 运行：mvn -B test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test，
+ * 然后 java -cp target/classes:target/test-classes:$(cat target/cp.txt) org.openjdk.jmh.Main JwtFilterBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class JwtFilterBenchmark {
+
+    private static final String SECRET = "medical-exam-system-secret-key-2024";
+
+    @Param({"1000"})
+    private int tokens;
+
+    @Param({"10000", "100"})
+    private int cacheSize;
+
+    private JwtUtil jwtUtil;
+    private String[] issued;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        jwtUtil = new JwtUtil();
+        set("secret", SECRET);
+        set("expiration", 86400000L);
+        set("cacheSize", cacheSize);
+        jwtUtil.init();
+
+        issued = new String[tokens];
+        for (int i = 0; i < tokens; i++) {
+            issued[i] = jwtUtil.generateToken(String.valueOf(i + 1), "学员" + i, "student");
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        String take(String[] issued) {
+            String token = issued[next];
+            next = next + 1 == issued.length ? 0 : next + 1;
+            return token;
+        }
+    }
+
+    @Benchmark
+    public CustomToken before(Cursor cursor) {
+        String token = cursor.take(issued);
+        try {
+            JWT.require(Algorithm.HMAC256(SECRET)).build().verify(token);
+        } catch (JWTVerificationException e) {
+            return null;
+        }
+        return CustomToken.builder()
+                .userId(JWT.require(Algorithm.HMAC256(SECRET)).build().verify(token).getSubject())
+                .userName(JWT.require(Algorithm.HMAC256(SECRET)).build().verify(token).getClaim("username").asString())
+                .role(JWT.require(Algorithm.HMAC256(SECRET)).build().verify(token).getClaim("role").asString())
+                .build();
+    }
+
+    @Benchmark
+    public CustomToken after(Cursor cursor) {
+        return jwtUtil.verifyAndDecode(cursor.take(issued));
+    }
+
+    private void set(String name, Object value) throws ReflectiveOperationException {
+        Field field = JwtUtil.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(jwtUtil, value);
+    }
+}
@@ -0,0 +1,98 @@
+package com.medical.exam.benchmark;
+
+import com.medical.exam.dto.StartExamDTO;
+import com.medical.exam.security.JwtAccessContext;
+import com.medical.exam.service.ExamService;
+import com.medical.exam.vo.CustomToken;
+import com.mybatisflex.core.row.Db;
+import com.mybatisflex.core.row.Row;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 开考基准：每次开考的耗时与数据库往返次数（需要数据库，见 BenchmarkApplication）
+ * resume 为刷新页面重新进入（已有进行中的记录，查询 + 更新开始时间）；new 为首次开考（查询 + 插入记录），
+ * 每次调用前删除进行中的记录。资格校验（考试配置、人员类别）来自缓存，不产生往返；操作日志异步批量写入，不计入。
+ * 运行：mvn -B test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test，
+ * 然后 java -cp target/classes:target/test-classes:$(cat target/cp.txt) org.openjdk.jmh.Main StartExamBenchmark
+ * -jvmArgsAppend "-Dbench.seed=true -Dmybatis-flex.datasource.mysql.url=..."
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StartExamBenchmark {
+
+    @Param({"resume", "new"})
+    private String path;
+
+    private ConfigurableApplicationContext context;
+    private ExamService examService;
+    private StartExamDTO request;
+    private String userId;
+
+    private long operations;
+    private long statements;
+
+    @Setup
+    public void setup() throws SQLException {
+        context = BenchmarkApplication.start();
+        examService = context.getBean(ExamService.class);
+
+        Row user = Db.selectOneBySql("SELECT user_id, user_name FROM sys_user WHERE id_number = 'BENCH00000002'");
+        Row paper = Db.selectOneBySql("SELECT paper_id, paper_name FROM exam_paper WHERE remark = 'benchmark' " +
+                "ORDER BY paper_id LIMIT 1");
+        if (user == null || paper == null) {
+            throw new IllegalStateException("未找到基准数据，请加 -Dbench.seed=true 运行");
+        }
+        userId = String.valueOf(user.get("user_id"));
+        JwtAccessContext.setLoginInfo(CustomToken.builder()
+                .userId(userId)
+                .userName(user.getString("user_name"))
+                .role("student")
+                .build());
+        request = new StartExamDTO();
+        request.setPaperId(String.valueOf(paper.get("paper_id")));
+        request.setExamName(paper.getString("paper_name"));
+
+        // 预热资格缓存，并为 resume 准备进行中的记录
+        examService.startExam(request);
+    }
+
+    @Setup(Level.Invocation)
+    public void resetRecord() {
+        if ("new".equals(path)) {
+            deleteInProgress();
+        }
+    }
+
+    @Benchmark
+    public String startExam() {
+        long before = StatementCounter.current();
+        String recordId = examService.startExam(request);
+        statements += StatementCounter.current() - before;
+        operations++;
+        return recordId;
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (operations > 0) {
+            System.out.printf("%n[%s] 每次开考数据库往返 %.2f 次（%d 次开考）%n",
+                    path, (double) statements / operations, operations);
+        }
+        deleteInProgress();
+        JwtAccessContext.clearLoginInfo();
+        context.close();
+    }
+
+    private void deleteInProgress() {
+        Db.deleteBySql("DELETE FROM exam_record WHERE user_id = ? AND paper_id = ? AND status = 'in-progress'",
+                userId, request.getPaperId());
+    }
+}
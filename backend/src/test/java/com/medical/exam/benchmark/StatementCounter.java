@@ -0,0 +1,32 @@
+package com.medical.exam.benchmark;
+
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+
+import java.sql.Connection;
+
+/**
+ * 按线程统计发往数据库的语句数（每条语句一次往返，不含事务提交）
+ * Db.*BySql 与各 Mapper 都经过 StatementHandler.prepare，异步写入（如操作日志）在其他线程执行，不计入调用线程
+ */
+@Intercepts(@Signature(type = StatementHandler.class, method = "prepare", args = {Connection.class, Integer.class}))
+public class StatementCounter implements Interceptor {
+
+    private static final ThreadLocal<long[]> COUNT = ThreadLocal.withInitial(() -> new long[1]);
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        COUNT.get()[0]++;
+        return invocation.proceed();
+    }
+
+    /**
+     * 当前线程累计执行的语句数
+     */
+    public static long current() {
+        return COUNT.get()[0];
+    }
+}
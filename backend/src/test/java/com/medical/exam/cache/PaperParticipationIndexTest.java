@@ -0,0 +1,93 @@
+package com.medical.exam.cache;
+
+import com.mybatisflex.core.row.Db;
+import com.mybatisflex.core.row.Row;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.mockStatic;
+
+/**
+ * 位图索引对雪花ID（超出 int 范围的 64 位用户ID）的统计与分页
+ */
+class PaperParticipationIndexTest {
+
+    private static final long FIRST = 1846372918273645568L;
+    private static final long SECOND = 1846372918273645569L;
+    private static final long THIRD = 1846372919000000000L;
+    private static final long SERGEANT = 1846372919000000001L;
+
+    private MockedStatic<Db> db;
+    private PaperParticipationIndex index;
+
+    @BeforeEach
+    void setUp() {
+        db = mockStatic(Db.class);
+        db.when(() -> Db.selectListBySql(startsWith("SELECT user_id, user_category FROM sys_user")))
+                .thenReturn(List.of(
+                        user(FIRST, "文职"), user(SECOND, "文职"), user(THIRD, "文职"), user(SERGEANT, "军士")));
+        db.when(() -> Db.selectListBySql(contains("FROM exam_record"), eq("p1")))
+                .thenReturn(List.of(attempt(FIRST, 1), attempt(THIRD, 0), attempt(SERGEANT, 1)));
+        index = new PaperParticipationIndex();
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    void countsSnowflakeIds() {
+        PaperParticipationIndex.Counts counts = index.counts("p1", List.of("文职"));
+
+        assertEquals(3, counts.total());
+        assertEquals(2, counts.examined());
+        assertEquals(1, counts.passed());
+        assertEquals(new PaperParticipationIndex.Counts(4, 3, 2), index.counts("p1", List.of("文职", "军士")));
+    }
+
+    @Test
+    void slicesSnowflakeIdsInOrder() {
+        Roaring64Bitmap examined = index.examinedUsers("p1", List.of("文职"));
+        Roaring64Bitmap notExamined = index.notExaminedUsers("p1", List.of("文职"));
+
+        assertEquals(List.of(String.valueOf(FIRST), String.valueOf(THIRD)),
+                PaperParticipationIndex.slice(examined, 0, 10));
+        assertEquals(List.of(String.valueOf(THIRD)), PaperParticipationIndex.slice(examined, 1, 1));
+        assertEquals(List.of(String.valueOf(SECOND)), PaperParticipationIndex.slice(notExamined, 0, 10));
+    }
+
+    @Test
+    void refreshAttemptMarksSnowflakeId() {
+        index.counts("p1", List.of("文职"));
+        Row passed = new Row();
+        passed.put("completed", 1L);
+        passed.put("passed", 1);
+        db.when(() -> Db.selectOneBySql(contains("FROM exam_record"), eq(SECOND), eq("p1"))).thenReturn(passed);
+
+        index.refreshAttempt(String.valueOf(SECOND), "p1");
+
+        assertEquals(new PaperParticipationIndex.Counts(3, 3, 2), index.counts("p1", List.of("文职")));
+    }
+
+    private static Row user(long userId, String category) {
+        Row row = new Row();
+        row.put("user_id", userId);
+        row.put("user_category", category);
+        return row;
+    }
+
+    private static Row attempt(long userId, int passed) {
+        Row row = new Row();
+        row.put("user_id", userId);
+        row.put("passed", passed);
+        return row;
+    }
+}
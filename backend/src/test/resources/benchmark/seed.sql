@@ -0,0 +1,43 @@
+-- 基准测试数据（MySQL 8）：1 个分类、1 个考试配置（文职、军士）、20 份试卷、10000 名学员、约 18 万条已完成考试记录
+-- 所有数据 remark = 'benchmark'，重复执行时先删除上次写入的数据
+SET SESSION cte_max_recursion_depth = 100000;
+
+DELETE FROM exam_record WHERE remark = 'benchmark';
+DELETE FROM exam_paper WHERE remark = 'benchmark';
+DELETE FROM exam_config_user_category WHERE config_id IN (SELECT config_id FROM exam_config WHERE remark = 'benchmark');
+DELETE FROM exam_config WHERE remark = 'benchmark';
+DELETE FROM sys_user WHERE remark = 'benchmark';
+DELETE FROM exam_category WHERE remark = 'benchmark';
+
+INSERT INTO exam_category (category_name, category_code, level, remark)
+VALUES ('基准测试', 'BENCH', 1, 'benchmark');
+
+INSERT INTO exam_config (config_name, category_id, user_category, duration, total_score, pass_score, remark)
+SELECT '基准测试配置', category_id, '文职,军士', 60, 100, 60, 'benchmark'
+FROM exam_category WHERE category_code = 'BENCH';
+
+INSERT INTO exam_config_user_category (config_id, user_category)
+SELECT config_id, '文职' FROM exam_config WHERE remark = 'benchmark'
+UNION ALL
+SELECT config_id, '军士' FROM exam_config WHERE remark = 'benchmark';
+
+INSERT INTO exam_paper (paper_name, config_id, category_id, total_questions, total_score, duration, status, remark)
+WITH RECURSIVE seq (n) AS (SELECT 1 UNION ALL SELECT n + 1 FROM seq WHERE n < 20)
+SELECT CONCAT('基准试卷', n), c.config_id, c.category_id, 50, 100, 60, '1', 'benchmark'
+FROM seq JOIN exam_config c ON c.remark = 'benchmark';
+
+INSERT INTO sys_user (id_number, user_name, role, department, user_category, status, remark)
+WITH RECURSIVE seq (n) AS (SELECT 1 UNION ALL SELECT n + 1 FROM seq WHERE n < 10000)
+SELECT CONCAT('BENCH', LPAD(n, 8, '0')), CONCAT('基准学员', n), 'student', CONCAT('科室', n % 20),
+       IF(n % 2 = 0, '文职', '军士'), '1', 'benchmark'
+FROM seq;
+
+-- 每名学员约九成试卷有一条已完成记录，结束时间分布在最近 60 天
+INSERT INTO exam_record (user_id, paper_id, exam_name, start_time, end_time, duration, total_score, score, pass_score,
+                         status, remark)
+SELECT u.user_id, p.paper_id, p.paper_name,
+       DATE_SUB(NOW(), INTERVAL (u.user_id + p.paper_id) % 60 DAY),
+       DATE_ADD(DATE_SUB(NOW(), INTERVAL (u.user_id + p.paper_id) % 60 DAY), INTERVAL 40 MINUTE),
+       40, 100, (u.user_id * 7 + p.paper_id * 13) % 101, 60, 'completed', 'benchmark'
+FROM sys_user u JOIN exam_paper p ON p.remark = 'benchmark'
+WHERE u.remark = 'benchmark' AND (u.user_id + p.paper_id) % 10 <> 0;
@@ -224,7 +224,7 @@ const AdminDashboard: React.FC<AdminDashboardProps> = ({ user, onLogout }) => {
                 <div className="flex items-center justify-between">
                   <div>
                     <p className="text-blue-100 text-sm">题库总数</p>
-                    <p className="text-2xl font-bold">{dashboard ? dashboard.questionCount : '--'}</p>
+                    <p className="text-2xl font-bold">{dashboard?.questionCount ?? '--'}</p>
                   </div>
                   <svg className="w-8 h-8 text-blue-200" fill="none" stroke="currentColor" viewBox="0 0 24 24">
                     <path strokeLinecap="round" strokeLinejoin="round" strokeWidth={2} d="M9 12h6m-6 4h6m2 5H7a2 2 0 01-2-2V5a2 2 0 012-2h5.586a1 1 0 01.707.293l5.414 5.414a1 1 0 01.293.707V19a2 2 0 01-2 2z" />
@@ -236,7 +236,7 @@ const AdminDashboard: React.FC<AdminDashboardProps> = ({ user, onLogout }) => {
                 <div className="flex items-center justify-between">
                   <div>
                     <p className="text-green-100 text-sm">今日考试</p>
-                    <p className="text-2xl font-bold">{dashboard ? dashboard.examResultCountToday : '--'}</p>
+                    <p className="text-2xl font-bold">{dashboard?.examResultCountToday ?? '--'}</p>
                   </div>
                   <svg className="w-8 h-8 text-green-200" fill="none" stroke="currentColor" viewBox="0 0 24 24">
                     <path strokeLinecap="round" strokeLinejoin="round" strokeWidth={2} d="M12 4.354a4 4 0 110 5.292M15 21H3v-1a6 6 0 0112 0v1zm0 0h6v-1a6 6 0 00-9-5.197m13.5-9a2.5 2.5 0 11-5 0 2.5 2.5 0 015 0z" />
@@ -248,7 +248,7 @@ const AdminDashboard: React.FC<AdminDashboardProps> = ({ user, onLogout }) => {
                 <div className="flex items-center justify-between">
                   <div>
                     <p className="text-purple-100 text-sm">题目分类数量</p>
-                    <p className="text-2xl font-bold">{dashboard ? dashboard.categoryCount : '--'}</p>
+                    <p className="text-2xl font-bold">{dashboard?.categoryCount ?? '--'}</p>
                   </div>
                   <svg className="w-8 h-8 text-purple-200" fill="none" stroke="currentColor" viewBox="0 0 24 24">
                     <path strokeLinecap="round" strokeLinejoin="round" strokeWidth={2} d="M19 21V5a2 2 0 00-2-2H7a2 2 0 00-2 2v16m14 0h2m-2 0h-5m-9 0H3m2 0h5M9 7h1m-1 4h1m4-4h1m-1 4h1m-5 10v-5a1 1 0 011-1h2a1 1 0 011 1v5m-4 0h4" />
@@ -260,7 +260,7 @@ const AdminDashboard: React.FC<AdminDashboardProps> = ({ user, onLogout }) => {
                 <div className="flex items-center justify-between">
                   <div>
                     <p className="text-orange-100 text-sm">平均分数</p>
-                    <p className="text-2xl font-bold">{dashboard ? dashboard.avgExamScore : '--'}</p>
+                    <p className="text-2xl font-bold">{dashboard?.avgExamScore ?? '--'}</p>
                   </div>
                   <svg className="w-8 h-8 text-orange-200" fill="none" stroke="currentColor" viewBox="0 0 24 24">
                     <path strokeLinecap="round" strokeLinejoin="round" strokeWidth={2} d="M9 19v-6a2 2 0 00-2-2H5a2 2 0 00-2 2v6a2 2 0 002 2h2a2 2 0 002-2zm0 0V9a2 2 0 012-2h2a2 2 0 012 2v10m-6 0a2 2 0 002 2h2a2 2 0 002-2m0 0V5a2 2 0 012-2h2a2 2 0 012 2v14a2 2 0 01-2 2h-2a2 2 0 01-2-2z" />
@@ -26,6 +26,7 @@ import { useOptions } from '@/context/OptionsContext';
 import { post } from '@/lib/request';
 import { ExamPaperListItem, ExamPaperQueryParams, ExamPaperListResponse } from '@/types/exam';
 import PreviewExamPaperDialog from './PreviewExamPaperDialog';
+import SmartPagination from '@/components/ui/smart-pagination';
 import { ApiResponse } from '@/types/api';
 import { Dialog, DialogContent, DialogHeader, DialogTitle } from '@/components/ui/dialog';
 import { 
@@ -101,6 +102,12 @@ const ExamPaperList: React.FC = () => {
   const [examStatusData, setExamStatusData] = useState<any>(null);
   const [examDetailData, setExamDetailData] = useState<any[]>([]);
   const [loadingExamStatus, setLoadingExamStatus] = useState(false);
+  // 考试详情分页：examined 已考试 / notExamined 未考试，ALL_VALUE 为全部（已考试在前）
+  const [examDetailStatus, setExamDetailStatus] = useState(ALL_VALUE);
+  const [examDetailPage, setExamDetailPage] = useState(1);
+  const [examDetailTotalPages, setExamDetailTotalPages] = useState(1);
+  const [examDetailTotalRows, setExamDetailTotalRows] = useState(0);
+  const examDetailPageSize = 10;
 
   const [previewPaper, setPreviewPaper] = useState<ExamPaperListItem | null>(null);
   const [previewOpen, setPreviewOpen] = useState(false);
@@ -257,6 +264,36 @@ const ExamPaperList: React.FC = () => {
     fetchPapers(filters);
   };
 
+  // 分页获取考试详细情况
+  const fetchExamDetail = async (paperId: string, page: number, status: string) => {
+    const detailRes = await post('/admin/paper-exam-detail/page', {
+      paperId,
+      examStatus: status === ALL_VALUE ? undefined : status,
+      pageNumber: page,
+      pageSize: examDetailPageSize
+    });
+    setExamDetailData(detailRes.data.records || []);
+    setExamDetailTotalPages(detailRes.data.totalPage || 1);
+    setExamDetailTotalRows(detailRes.data.totalRow || 0);
+    setExamDetailPage(page);
+    setExamDetailStatus(status);
+  };
+
+  const handleExamDetailChange = async (page: number, status: string) => {
+    if (!examStatusData?.paperId) {
+      return;
+    }
+    try {
+      await fetchExamDetail(examStatusData.paperId, page, status);
+    } catch (error) {
+      toast({
+        title: '获取失败',
+        description: '获取考试详细情况失败，请重试',
+        variant: 'destructive'
+      });
+    }
+  };
+
   // 查看考试情况
   const handleViewExamStatus = async (paper: ExamPaperListItem) => {
     setLoadingExamStatus(true);
@@ -265,9 +302,8 @@ const ExamPaperList: React.FC = () => {
       const statusRes = await post('/admin/paper-exam-status', { paperId: paper.paperId });
       setExamStatusData(statusRes.data);
       
-      // 获取详细考试情况
-      const detailRes = await post('/admin/paper-exam-detail', { paperId: paper.paperId });
-      setExamDetailData(detailRes.data);
+      // 获取详细考试情况（第一页）
+      await fetchExamDetail(paper.paperId, 1, ALL_VALUE);
       
       setExamStatusDialogOpen(true);
     } catch (error) {
@@ -604,7 +640,7 @@ const ExamPaperList: React.FC = () => {
               </div>
 
               {/* 考试情况统计 */}
-              <div className="grid grid-cols-2 gap-4">
+              <div className="grid grid-cols-3 gap-4">
                 <div className="bg-green-50 p-4 rounded-lg">
                   <div className="text-sm text-green-600">已考试人数</div>
                   <div className="text-2xl font-bold text-green-800">{examStatusData.examedUsers}</div>
@@ -613,21 +649,40 @@ const ExamPaperList: React.FC = () => {
                   <div className="text-sm text-red-600">未考试人数</div>
                   <div className="text-2xl font-bold text-red-800">{examStatusData.notExamedUsers}</div>
                 </div>
+                <div className="bg-blue-50 p-4 rounded-lg">
+                  <div className="text-sm text-blue-600">及格人数</div>
+                  <div className="text-2xl font-bold text-blue-800">{examStatusData.passedUsers ?? '-'}</div>
+                </div>
               </div>
 
               {/* 详细列表 */}
               <div>
                 <div className="flex justify-between items-center mb-4">
                   <h3 className="text-lg font-semibold">详细情况</h3>
-                  <Button 
-                    variant="outline" 
-                    size="sm"
-                    onClick={handleDownloadPersonnelList}
-                    className="flex items-center gap-2"
-                  >
-                    <Download className="w-4 h-4" />
-                    下载人员列表
-                  </Button>
+                  <div className="flex items-center gap-2">
+                    <Select
+                      value={examDetailStatus}
+                      onValueChange={(value) => handleExamDetailChange(1, value)}
+                    >
+                      <SelectTrigger className="w-32">
+                        <SelectValue placeholder="考试状态" />
+                      </SelectTrigger>
+                      <SelectContent>
+                        <SelectItem value={ALL_VALUE}>全部人员</SelectItem>
+                        <SelectItem value="examined">已考试</SelectItem>
+                        <SelectItem value="notExamined">未考试</SelectItem>
+                      </SelectContent>
+                    </Select>
+                    <Button 
+                      variant="outline" 
+                      size="sm"
+                      onClick={handleDownloadPersonnelList}
+                      className="flex items-center gap-2"
+                    >
+                      <Download className="w-4 h-4" />
+                      下载人员列表
+                    </Button>
+                  </div>
                 </div>
                 <div className="border rounded-lg overflow-hidden">
                   <Table>
@@ -676,6 +731,20 @@ const ExamPaperList: React.FC = () => {
                     </TableBody>
                   </Table>
                 </div>
+                {examDetailTotalRows > 0 && (
+                  <div className="flex items-center justify-between mt-4">
+                    <p className="text-sm text-gray-600">
+                      显示 {(examDetailPage - 1) * examDetailPageSize + 1} 到 {Math.min(examDetailPage * examDetailPageSize, examDetailTotalRows)} 条，共 {examDetailTotalRows} 条记录
+                    </p>
+                    <SmartPagination
+                      currentPage={examDetailPage}
+                      totalPages={examDetailTotalPages}
+                      onPageChange={(page) => handleExamDetailChange(page, examDetailStatus)}
+                      prevText="上一页"
+                      nextText="下一页"
+                    />
+                  </div>
+                )}
               </div>
             </div>
           )}
@@ -22,7 +22,7 @@ import { Upload } from 'lucide-react';
 import { Question, Category } from '../../types/exam';
 import ImportDialog from './ImportDialog';
 import { Accordion, AccordionItem, AccordionTrigger, AccordionContent } from '@/components/ui/accordion';
-import { request } from '@/lib/request';
+import { get, request } from '@/lib/request';
 import { useOptions } from '../../context/OptionsContext';
 import { Pagination, PaginationContent, PaginationItem, PaginationLink, PaginationEllipsis } from '@/components/ui/pagination';
 
@@ -331,9 +331,7 @@ const QuestionBankManager: React.FC = () => {
         // 如果localStorage中没有，主动获取
         const fetchOptions = async () => {
           try {
-            const optionsRes = await request('/admin/options', {
-              method: 'POST',
-            });
+            const optionsRes = await get('/admin/options');
             setOptions(optionsRes.data);
             localStorage.setItem('options', JSON.stringify(optionsRes.data));
           } catch (e) {
@@ -391,9 +389,7 @@ const QuestionBankManager: React.FC = () => {
     setLoadingCategories(true);
     try {
       // 获取树形分类结构
-      const res = await request('/admin/categories/tree', {
-        method: 'POST'
-      });
+      const res = await get('/admin/categories/tree');
       const categories = res.data || [];
       setCategories(categories);
       setTotalCategoryPages(1);
@@ -11,7 +11,7 @@ import { useToast } from '@/hooks/use-toast';
 import { Textarea } from '@/components/ui/textarea';
 import { Select, SelectContent, SelectItem, SelectTrigger, SelectValue } from '@/components/ui/select';
 import SmartPagination from '@/components/ui/smart-pagination';
-import { request } from '@/lib/request';
+import { get, request } from '@/lib/request';
 import { Popover, PopoverContent, PopoverTrigger } from '@/components/ui/popover';
 
 const RoleManager = () => {
@@ -42,10 +42,7 @@ const RoleManager = () => {
         pageNumber: currentPage,
         pageSize
       };
-      const res = await request('/auth/roles/list', {
-        method: 'POST',
-        body: JSON.stringify(params)
-      });
+      const res = await get('/auth/roles/list', params);
       setRoles(res.data.records || res.data.data || []);
       setTotalPages(res.data.totalPage || 1);
       setTotalRows(res.data.totalRow || (res.data.data ? res.data.data.length : 0));
@@ -21,7 +21,7 @@ import { Trash2, Edit, Plus, Search, Upload } from 'lucide-react';
 import { useToast } from '@/hooks/use-toast';
 import ImportDialog from './ImportDialog';
 import SmartPagination from '@/components/ui/smart-pagination';
-import { request } from '@/lib/request';
+import { get, request } from '@/lib/request';
 import { useOptions } from '@/context/OptionsContext';
 
 const UserManager = () => {
@@ -121,7 +121,7 @@ const UserManager = () => {
         toast({ title: '成功', description: '用户已添加' });
         // 新增用户后刷新 options
         try {
-          const optionsRes = await request('/admin/options', { method: 'POST' });
+          const optionsRes = await get('/admin/options');
           setOptions(optionsRes.data);
           localStorage.setItem('options', JSON.stringify(optionsRes.data));
         } catch (e) {}
@@ -174,7 +174,7 @@ const UserManager = () => {
       fetchUsers();
       // 导入后刷新 options
       try {
-        const optionsRes = await request('/admin/options', { method: 'POST' });
+        const optionsRes = await get('/admin/options');
         setOptions(optionsRes.data);
         localStorage.setItem('options', JSON.stringify(optionsRes.data));
       } catch (e) {}
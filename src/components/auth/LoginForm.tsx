@@ -5,7 +5,7 @@ import { Label } from '@/components/ui/label';
 import { Card } from '@/components/ui/card';
 import { LoginCredentials } from '../../types/auth';
 import { useToast } from '@/hooks/use-toast';
-import { request } from '@/lib/request';
+import { get, request } from '@/lib/request';
 import { useOptions } from '../../context/OptionsContext';
 
 // 合并User类型，兼容userName、status、role: 'admin' | 'exam_admin' | 'student'
@@ -65,9 +65,7 @@ const LoginForm: React.FC<LoginFormProps> = ({ onLogin }) => {
       localStorage.setItem('user', JSON.stringify(userObj));
       // 登录成功后拉取 options
       try {
-        const optionsRes = await request('/admin/options', {
-          method: 'POST',
-        });
+        const optionsRes = await get('/admin/options');
         setOptions(optionsRes.data);
         localStorage.setItem('options', JSON.stringify(optionsRes.data));
       } catch (e) {
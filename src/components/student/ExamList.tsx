@@ -5,7 +5,7 @@ import { Dialog, DialogContent, DialogHeader, DialogTitle } from '@/components/u
 import { User } from '../../types/auth';
 import { ExamPaper } from '../../types/exam';
 import { useToast } from '@/hooks/use-toast';
-import { post } from '@/lib/request';
+import { post, postWithAdmission } from '@/lib/request';
 import { ChevronLeft, ChevronRight } from 'lucide-react';
 
 interface ExamListProps {
@@ -132,13 +132,24 @@ const ExamList: React.FC<ExamListProps> = ({ user, onStartExam }) => {
   const handleConfirmStart = async () => {
     if (!selectedExam) return;
     
+    // 高峰期排队提示（只提示一次）
+    let queuedNotified = false;
+    const handleQueued = (position: number, estimatedWaitMs: number) => {
+      if (queuedNotified) return;
+      queuedNotified = true;
+      toast({
+        title: "正在排队",
+        description: `当前参加考试人数较多，您前面还有 ${position - 1} 人，预计等待 ${Math.ceil(estimatedWaitMs / 1000)} 秒`
+      });
+    };
+
     try {
       // 1. 先调用开始考试接口创建考试记录
-      const startResponse = await post('/exam/start', {
+      const startResponse = await postWithAdmission('/exam/start', {
         paperId: selectedExam.paperId,
         examName: selectedExam.paperName,
         passScore: 60 // 默认及格分数为60
-      });
+      }, handleQueued);
       
       if (startResponse.code !== 200) {
         toast({
@@ -152,9 +163,9 @@ const ExamList: React.FC<ExamListProps> = ({ user, onStartExam }) => {
       const recordId = startResponse.data.recordId;
       
       // 2. 获取试卷题目
-      const response = await post('/admin/getQuestionsByPaperId', {
+      const response = await postWithAdmission('/admin/getQuestionsByPaperId', {
         paperId: selectedExam.paperId
-      });
+      }, handleQueued);
       
       if (response.code === 200) {
         const questions = response.data || [];
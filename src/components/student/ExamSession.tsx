@@ -9,6 +9,9 @@ import { ExamPaper, Question } from '../../types/exam';
 import { useToast } from '@/hooks/use-toast';
 import { post } from '@/lib/request';
 
+// 交卷后轮询成绩的最长时间
+const SUBMIT_POLL_TIMEOUT_MS = 2 * 60 * 1000;
+
 interface ExamSessionProps {
   exam: ExamPaper;
   user: User;
@@ -31,6 +34,10 @@ const ExamSession: React.FC<ExamSessionProps> = ({ exam, user, onComplete }) =>
   const countdownRef = useRef<NodeJS.Timeout | null>(null);
   const fiveMinuteWarnedRef = useRef(false);
   const handleAutoSubmitRef = useRef<() => void>();
+  // 自上次保存以来修改过的题目，定时增量保存到服务端
+  const dirtyQuestionIdsRef = useRef<Set<string>>(new Set());
+  const answersRef = useRef<Record<string, any>>({});
+  answersRef.current = answers;
 
   // 解析多选题 correctAnswer 并修正 type 字段
   const parsedQuestions = exam.questions.map(q => {
@@ -136,6 +143,39 @@ const ExamSession: React.FC<ExamSessionProps> = ({ exam, user, onComplete }) =>
     };
   }, [isExamCompleted, toast]);
 
+  // 答案转换为提交格式：多选为逗号分隔的下标，其余为字符串，未答为空字符串
+  const toUserAnswer = (question: Question, answer: any): string => {
+    if (question.type === 'multi') {
+      return Array.isArray(answer) ? answer.join(',') : '';
+    }
+    return answer !== undefined ? answer.toString() : '';
+  };
+
+  // 定时保存答题进度（断点续答），只发送变化的题目
+  useEffect(() => {
+    if (isExamCompleted) return;
+    const saveCheckpoint = async () => {
+      const dirtyIds = Array.from(dirtyQuestionIdsRef.current);
+      if (dirtyIds.length === 0) return;
+      dirtyQuestionIdsRef.current = new Set();
+      try {
+        await post('/exam/checkpoint', {
+          recordId: exam.id,
+          answers: dirtyIds.map(id => {
+            const question = exam.questions.find(q => q.id === id)!;
+            return { questionId: id, userAnswer: toUserAnswer(question, answersRef.current[id]) };
+          })
+        });
+      } catch (error) {
+        // 保存失败时保留待保存题目，下次重试
+        dirtyIds.forEach(id => dirtyQuestionIdsRef.current.add(id));
+        console.error('答题进度保存失败:', error);
+      }
+    };
+    const checkpointTimer = setInterval(saveCheckpoint, 15000);
+    return () => clearInterval(checkpointTimer);
+  }, [isExamCompleted, exam.id, exam.questions]);
+
   const formatTime = (seconds: number): string => {
     const hours = Math.floor(seconds / 3600);
     const minutes = Math.floor((seconds % 3600) / 60);
@@ -157,6 +197,7 @@ const ExamSession: React.FC<ExamSessionProps> = ({ exam, user, onComplete }) =>
   };
 
   const handleAnswerSelect = (questionId: string, answer: any) => {
+    dirtyQuestionIdsRef.current.add(questionId);
     setAnswers(prev => ({
       ...prev,
       [questionId]: answer
@@ -239,14 +280,33 @@ const ExamSession: React.FC<ExamSessionProps> = ({ exam, user, onComplete }) =>
         recordId: exam.id, // 使用试卷ID作为记录ID
         answers: exam.questions.map(question => ({
           questionId: question.id,
-          userAnswer: question.type === 'multi'
-            ? (Array.isArray(answers[question.id]) ? answers[question.id].join(',') : '')
-            : (answers[question.id] !== undefined ? answers[question.id].toString() : '')
+          userAnswer: toUserAnswer(question, answers[question.id])
         }))
       };
 
       // 调用后端提交接口
       const response = await post('/exam/submit', submitData);
+
+      // 服务端已受理但尚未判分完成时返回回执，轮询获取成绩：间隔从 1 秒逐次翻倍至 8 秒，最多轮询 2 分钟
+      const pollDeadline = Date.now() + SUBMIT_POLL_TIMEOUT_MS;
+      let pollDelay = 1000;
+      while (response.code === 200 && response.data?.status === 'pending') {
+        if (Date.now() + pollDelay > pollDeadline) {
+          response.code = 500;
+          response.message = '试卷已提交，成绩仍在计算中，请稍后在考试记录中查看';
+          break;
+        }
+        await new Promise(resolve => setTimeout(resolve, pollDelay));
+        pollDelay = Math.min(pollDelay * 2, 8000);
+        const polled = await post('/exam/submit/result', { recordId: exam.id });
+        response.code = polled.code;
+        response.message = polled.message;
+        response.data = polled.data;
+      }
+      if (response.code === 200 && response.data?.status === 'failed') {
+        response.code = 500;
+        response.message = response.data.message;
+      }
       
       if (response.code === 200) {
         // 使用后端返回的分数信息
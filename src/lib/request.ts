@@ -46,4 +46,42 @@ export async function post<T = any>(url: string, data?: any, options: RequestIni
     method: 'POST',
     body: JSON.stringify(data),
   }) as Promise<T>;
-} 
\ No newline at end of file
+} 
+
+// 新增 get 方法：参数拼接为查询字符串（忽略 undefined、null）；
+// 基础数据接口的 GET 响应带 ETag，浏览器自动携带 If-None-Match 协商缓存
+export async function get<T = any>(url: string, params?: Record<string, any>, options: RequestInit = {}) {
+  const query = new URLSearchParams();
+  Object.entries(params || {}).forEach(([key, value]) => {
+    if (value !== undefined && value !== null) {
+      query.append(key, String(value));
+    }
+  });
+  const queryString = query.toString();
+  return request(queryString ? `${url}${url.includes('?') ? '&' : '?'}${queryString}` : url, {
+    ...options,
+    method: 'GET',
+  }) as Promise<T>;
+}
+
+// 准入排队返回码（开考高峰期服务端限流排队）
+const QUEUED_CODE = 202;
+
+// 带排队的 post：服务端返回排队号时，按预计等待时间携带排队号重试，直到放行
+export async function postWithAdmission<T = any>(
+  url: string,
+  data?: any,
+  onQueued?: (position: number, estimatedWaitMs: number) => void,
+) {
+  let ticket: string | undefined;
+  for (;;) {
+    const response = await post(url, data, ticket ? { headers: { 'X-Admission-Ticket': ticket } } : {});
+    if (response.code !== QUEUED_CODE) {
+      return response as T;
+    }
+    ticket = response.data.ticket;
+    onQueued?.(response.data.position, response.data.estimatedWaitMs);
+    // 轮询间隔限制在 0.5~5 秒之间，避免超过排队号有效期
+    await new Promise(resolve => setTimeout(resolve, Math.min(Math.max(response.data.estimatedWaitMs, 500), 5000)));
+  }
+}